@@ -76,6 +76,16 @@ public final class C1XCompilation {
 
     private LIRGenerator lirGenerator;
 
+    /**
+     * Time spent in each phase of this compilation, indexed by {@link C1XTimers#ordinal()}.
+     */
+    private final long[] phaseTimes = new long[C1XTimers.values().length];
+
+    /**
+     * Start time of the phase of this compilation being timed, indexed by {@link C1XTimers#ordinal()}.
+     */
+    private final long[] phaseStarts = new long[C1XTimers.values().length];
+
     /**
      * Creates a new compilation for the specified method and runtime.
      *
@@ -109,6 +119,25 @@ public final class C1XCompilation {
         return hir;
     }
 
+    /**
+     * Gets the time (in nanoseconds) spent so far in each phase of this compilation, indexed by {@link C1XTimers#ordinal()}.
+     * The times are only recorded if {@link C1XTimers#enabled()} is {@code true}.
+     */
+    public long[] phaseTimes() {
+        return phaseTimes;
+    }
+
+    long[] phaseStarts() {
+        return phaseStarts;
+    }
+
+    /**
+     * Gets the number of HIR instructions created by this compilation.
+     */
+    public int numberOfInstructions() {
+        return nextID - 1;
+    }
+
     /**
      * Records that this compilation has exception handlers.
      */
@@ -250,7 +279,7 @@ public final class C1XCompilation {
 
     private void emitLIR() {
         if (C1XOptions.GenLIR) {
-            if (C1XOptions.PrintTimers) {
+            if (C1XTimers.enabled()) {
                 C1XTimers.LIR_CREATE.start();
             }
 
@@ -261,7 +290,7 @@ public final class C1XCompilation {
                 lirGenerator.doBlock(begin);
             }
 
-            if (C1XOptions.PrintTimers) {
+            if (C1XTimers.enabled()) {
                 C1XTimers.LIR_CREATE.stop();
             }
 
@@ -292,6 +321,9 @@ public final class C1XCompilation {
             lirAssembler.emitTraps();
 
             CiTargetMethod targetMethod = assembler().finishTargetMethod(method, runtime, lirAssembler.registerRestoreEpilogueOffset, false);
+            if (isOsrCompilation()) {
+                targetMethod.setOsrEntryOffset(lirAssembler.osrEntryOffset);
+            }
             if (!assumptions.isEmpty()) {
                 targetMethod.setAssumptions(assumptions);
             }
@@ -300,7 +332,7 @@ public final class C1XCompilation {
                 compiler.fireCompilationEvent(new CompilationEvent(this, "After code generation", hir.startBlock, false, true, targetMethod));
             }
 
-            if (C1XOptions.PrintTimers) {
+            if (C1XTimers.enabled()) {
                 C1XTimers.CODE_CREATE.stop();
             }
             return targetMethod;
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.c1x;
+
+import java.io.*;
+
+import com.oracle.max.criutils.*;
+import com.sun.cri.ci.*;
+
+/**
+ * Writes one record per compilation to the file denoted by {@link C1XOptions#LogCompilationPhases}.
+ * The records are comma separated values, preceded by a header line naming the columns:
+ * the compilation index, the method, the OSR bci, the bytecode size, the number of HIR
+ * instructions and blocks, the size of the generated code, the total compilation time and
+ * the time spent in each {@linkplain C1XTimers phase}, all times in microseconds. The last
+ * column holds the bailout message if the compilation failed. The {@link C1XTimers#INSTALL}
+ * phase is not logged as the runtime installs the code after the compilation is finished.
+ */
+public final class C1XCompilationLog {
+
+    private C1XCompilationLog() {
+    }
+
+    private static PrintStream out;
+
+    private static boolean failed;
+
+    private static PrintStream out() {
+        if (out == null && !failed) {
+            File file = new File(C1XOptions.LogCompilationPhases);
+            try {
+                out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file)), true);
+            } catch (FileNotFoundException e) {
+                TTY.println("WARNING: Could not open " + file.getAbsolutePath());
+                failed = true;
+                return null;
+            }
+            StringBuilder sb = new StringBuilder("index,method,osrBCI,bytecodes,instructions,blocks,codeSize,total");
+            for (C1XTimers timer : C1XTimers.values()) {
+                if (timer != C1XTimers.INSTALL) {
+                    sb.append(',').append(timer.name());
+                }
+            }
+            out.println(sb.append(",bailout"));
+        }
+        return out;
+    }
+
+    /**
+     * Logs the record of a finished compilation.
+     *
+     * @param index the index of the compilation
+     * @param compilation the compilation
+     * @param result the result of the compilation, {@code null} if it completed abruptly
+     * @param totalTime the total time (in nanoseconds) of the compilation
+     */
+    public static synchronized void log(int index, C1XCompilation compilation, CiResult result, long totalTime) {
+        PrintStream ps = out();
+        if (ps == null) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(index).append(',');
+        sb.append(quote(CiUtil.format("%H.%n(%p)", compilation.method))).append(',');
+        sb.append(compilation.osrBCI).append(',');
+        sb.append(compilation.method.code().length).append(',');
+        sb.append(compilation.numberOfInstructions()).append(',');
+        sb.append(compilation.stats.blockCount).append(',');
+        CiTargetMethod targetMethod = result == null ? null : result.targetMethod();
+        sb.append(targetMethod == null ? 0 : targetMethod.targetCodeSize()).append(',');
+        sb.append(totalTime / 1000);
+        long[] phaseTimes = compilation.phaseTimes();
+        for (C1XTimers timer : C1XTimers.values()) {
+            if (timer != C1XTimers.INSTALL) {
+                sb.append(',').append(phaseTimes[timer.ordinal()] / 1000);
+            }
+        }
+        sb.append(',');
+        if (result == null) {
+            sb.append(quote("exception"));
+        } else if (result.bailout() != null) {
+            sb.append(quote(String.valueOf(result.bailout().getMessage())));
+        }
+        ps.println(sb);
+    }
+
+    private static String quote(String s) {
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+}
@@ -88,6 +88,7 @@ public class C1XCompiler extends ObservableCompiler implements CiCompiler {
         }
 
         long startTime = 0;
+        long logStartTime = C1XOptions.LogCompilationPhases != null ? System.nanoTime() : 0L;
         int index = C1XMetrics.CompiledMethods++;
         final boolean printCompilation = C1XOptions.PrintCompilation && !TTY.isSuppressed();
         if (printCompilation) {
@@ -107,6 +108,9 @@ public class C1XCompiler extends ObservableCompiler implements CiCompiler {
         } finally {
             filter.remove();
             compilation.close();
+            if (C1XOptions.LogCompilationPhases != null) {
+                C1XCompilationLog.log(index, compilation, result, System.nanoTime() - logStartTime);
+            }
             if (printCompilation) {
                 long time = (System.nanoTime() - startTime) / 100000;
                 TTY.println(String.format("C1X %4d %-70s %-45s %-50s | %3d.%dms %5dB",
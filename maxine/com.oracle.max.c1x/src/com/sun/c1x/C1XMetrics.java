@@ -48,10 +48,15 @@ public class C1XMetrics {
     public static int DivideSpecialChecksRedundant;
     public static int StoreCheckEliminations;
     public static int BoundsChecksElminations;
+    public static int LoopInvariantsHoisted;
+    public static int LoopRangeChecksEliminated;
+    public static int ScalarReplacedAllocations;
+    public static int ScalarReplacedAccesses;
     public static int ConditionalEliminations;
     public static int BlocksMerged;
     public static int BlocksSkipped;
     public static int BlocksDeleted;
+    public static int ColdBlocks;
     public static int DeadCodeEliminated;
     public static int ResolveCPEAttempts;
     public static int BytecodesCompiled;
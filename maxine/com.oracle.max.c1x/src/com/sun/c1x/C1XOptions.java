@@ -70,6 +70,7 @@ public final class C1XOptions {
     public static boolean PrintCFGToFile                     = ____;
     public static boolean PrintMetrics                       = ____;
     public static boolean PrintTimers                        = ____;
+    public static String  LogCompilationPhases               = null;
     public static boolean PrintCompilation                   = ____;
     public static boolean PrintXirTemplates                  = ____;
     public static boolean PrintIRWithLIR                     = ____;
@@ -81,6 +82,8 @@ public final class C1XOptions {
     public static boolean TraceLIRVisit                      = ____;
     public static boolean TraceAssembler                     = ____;
     public static int     TraceBytecodeParserLevel           = 0;
+    public static boolean TraceLoopOptimizations             = ____;
+    public static boolean TraceEscapeAnalysis                = ____;
     public static boolean PrintAssumptions                   = ____;
     public static boolean PrintInlinedIntrinsics             = ____;
 
@@ -105,6 +108,9 @@ public final class C1XOptions {
     public static boolean OptLocalValueNumbering;
     public static boolean OptLocalLoadElimination;
     public static boolean OptGlobalValueNumbering;
+    public static boolean OptLoopInvariantCodeMotion;
+    public static boolean OptRangeCheckElimination;
+    public static boolean OptEscapeAnalysis;
     public static boolean OptDiamondElimination;
     public static boolean OptCEElimination;
     public static boolean OptBlockMerging;
@@ -119,6 +125,14 @@ public final class C1XOptions {
 
     // optimistic optimization settings
     public static boolean UseAssumptions                = true;
+    public static boolean UseTypeProfile                = ____;
+    public static boolean UseBranchProfile              = ____;
+    public static int     TypeProfileMinimumCount       = 100;
+    public static float   TypeProfileMajorReceiverRatio = 0.90f;
+
+    // escape analysis settings
+    public static int     EscapeAnalysisMaxArrayLength  = 8;
+    public static int     EscapeAnalysisMaxFields       = 16;
 
     // state merging settings
     public static boolean AssumeVerifiedBytecode        = ____;
@@ -190,11 +204,16 @@ public final class C1XOptions {
         OptInlineSynchronized           = lll;
         UseStackMapTableLiveness        = lll;
         UseAssumptions                  = lll;
+        UseTypeProfile                  = lll;
+        UseBranchProfile                = lll;
         OptIterativeNCE                 = lll;
         OptFlowSensitiveNCE             = lll;
         OptDeadCodeElimination1         = lll;
         OptDeadCodeElimination2         = lll;
         OptGlobalValueNumbering         = lll;
+        OptLoopInvariantCodeMotion      = lll;
+        OptRangeCheckElimination        = lll;
+        OptEscapeAnalysis               = lll;
         OptDiamondElimination           = lll;
         OptCEElimination                = lll;
         OptBlockSkipping                = lll;
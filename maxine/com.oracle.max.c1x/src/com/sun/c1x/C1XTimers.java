@@ -22,11 +22,17 @@
  */
 package com.sun.c1x;
 
+import java.util.concurrent.atomic.*;
+
 import com.oracle.max.criutils.*;
 
 /**
  * This class contains timers that record the amount of time spent in various
- * parts of the compiler.
+ * parts of the compiler. Besides the totals printed by {@link #print()}, the time of each
+ * phase is also accumulated in the {@linkplain C1XCompilation#phaseTimes() current compilation}
+ * so that it can be reported per method by {@link C1XCompilationLog}. The start time of a phase
+ * is kept by the current compilation, or by the current thread outside of a compilation, so that
+ * concurrent compilations can be timed.
  */
 public enum C1XTimers {
     HIR_CREATE("Create HIR"),
@@ -41,31 +47,57 @@ public enum C1XTimers {
     INSTALL("Install");
 
     private final String name;
-    private long start;
-    private long total;
+    private final AtomicLong total = new AtomicLong();
+
+    /**
+     * Start times of the phases timed outside of a compilation, indexed by {@link #ordinal()}.
+     */
+    private static final ThreadLocal<long[]> threadStarts = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[values().length];
+        }
+    };
 
     private C1XTimers(String name) {
         this.name = name;
     }
 
+    private static long[] starts(C1XCompilation compilation) {
+        return compilation != null ? compilation.phaseStarts() : threadStarts.get();
+    }
+
     public void start() {
-        start = System.nanoTime();
+        starts(C1XCompilation.compilationOrNull())[ordinal()] = System.nanoTime();
     }
 
     public void stop() {
-        total += System.nanoTime() - start;
+        C1XCompilation compilation = C1XCompilation.compilationOrNull();
+        long time = System.nanoTime() - starts(compilation)[ordinal()];
+        total.addAndGet(time);
+        if (compilation != null) {
+            compilation.phaseTimes()[ordinal()] += time;
+        }
+    }
+
+    /**
+     * Determines if the timers are enabled, either for printing the totals or
+     * for logging the per-compilation phase times.
+     */
+    public static boolean enabled() {
+        return C1XOptions.PrintTimers || C1XOptions.LogCompilationPhases != null;
     }
 
     public static void reset() {
         for (C1XTimers t : values()) {
-            t.total = 0;
+            t.total.set(0);
         }
     }
 
     public static void print() {
         long total = 0;
         for (C1XTimers timer : C1XTimers.values()) {
-            total += timer.total;
+            total += timer.total.get();
         }
         if (total == 0) {
             return;
@@ -73,8 +105,8 @@ public enum C1XTimers {
 
         TTY.println();
         for (C1XTimers timer : C1XTimers.values()) {
-            TTY.println("%-20s: %7.4f s (%5.2f%%)", timer.name, timer.total / 1000000000.0, timer.total * 100.0 / total);
-            timer.total = 0;
+            long time = timer.total.getAndSet(0);
+            TTY.println("%-20s: %7.4f s (%5.2f%%)", timer.name, time / 1000000000.0, time * 100.0 / total);
         }
         TTY.println();
     }
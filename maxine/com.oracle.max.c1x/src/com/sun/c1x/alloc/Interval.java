@@ -422,9 +422,24 @@ public final class Interval {
     private CiKind kind;
 
     /**
-     * The head of the list of ranges describing this interval. This list is sorted by {@linkplain LIRInstruction#id instruction ids}.
+     * The ranges describing this interval, stored as (from, to) pairs of {@linkplain LIRInstruction#id instruction ids}
+     * where from is inclusive and to is exclusive. The pairs are sorted by descending ids: the pair at index
+     * {@code rangesEnd - 1} is the first range of the interval and the pair at index {@code rangesStart} is the last.
+     * Ranges are built backwards over the code by {@link LinearScan#buildIntervals()}, so a range added at the
+     * start of the interval is appended to the array.
      */
-    private Range first;
+    private int[] ranges;
+
+    /**
+     * The index of the pair in {@link #ranges} that is the last range of this interval. Splitting this interval
+     * moves its tail ranges to the child interval and only advances this index.
+     */
+    private int rangesStart;
+
+    /**
+     * One past the index of the pair in {@link #ranges} that is the first range of this interval.
+     */
+    private int rangesEnd;
 
     /**
      * List of (use-positions, register-priorities) pairs, sorted by use-positions.
@@ -432,9 +447,10 @@ public final class Interval {
     private UsePosList usePosList;
 
     /**
-     * Iterator used to traverse the ranges of an interval.
+     * Index of the pair in {@link #ranges} that is the current range when traversing the ranges of an interval,
+     * or -1 when the traversal is at the end.
      */
-    private Range current;
+    private int current;
 
     /**
      * Link to next interval in a sorted list of intervals that ends with {@link #EndMarker}.
@@ -516,12 +532,53 @@ public final class Interval {
         this.kind = kind;
     }
 
-    public Range first() {
-        return first;
+    /**
+     * Gets the number of ranges describing this interval.
+     */
+    public int rangeCount() {
+        return rangesEnd - rangesStart;
+    }
+
+    /**
+     * Gets the start (inclusive) of the {@code index}'th range of this interval, in ascending order.
+     */
+    public int rangeFrom(int index) {
+        return ranges[(rangesEnd - 1 - index) << 1];
+    }
+
+    /**
+     * Gets the end (exclusive) of the {@code index}'th range of this interval, in ascending order.
+     */
+    public int rangeTo(int index) {
+        return ranges[((rangesEnd - 1 - index) << 1) + 1];
     }
 
     int from() {
-        return first.from;
+        if (rangesEnd == rangesStart) {
+            return Integer.MAX_VALUE;
+        }
+        return ranges[(rangesEnd - 1) << 1];
+    }
+
+    /**
+     * Gets the end of the first range of this interval.
+     */
+    int firstRangeTo() {
+        if (rangesEnd == rangesStart) {
+            return Integer.MAX_VALUE;
+        }
+        return ranges[((rangesEnd - 1) << 1) + 1];
+    }
+
+    void setFirstRangeFrom(int from) {
+        assert rangesEnd != rangesStart : "interval has no range";
+        ranges[(rangesEnd - 1) << 1] = from;
+    }
+
+    void setFirstRangeTo(int to) {
+        assert rangesEnd != rangesStart : "interval has no range";
+        ranges[((rangesEnd - 1) << 1) + 1] = to;
+        cachedTo = -1;
     }
 
     int to() {
@@ -618,43 +675,111 @@ public final class Interval {
 
     // test intersection
     boolean intersects(Interval i) {
-        return first.intersects(i.first);
+        return intersectsAt(i) != -1;
     }
 
     int intersectsAt(Interval i) {
-        return first.intersectsAt(i.first);
+        return intersectsAt(this, rangesEnd - 1, i, i.rangesEnd - 1);
+    }
+
+    /**
+     * Gets the index of the range following a given range of an interval, or -1 if it is the last range.
+     */
+    private int nextRangeIndex(int index) {
+        return index == rangesStart ? -1 : index - 1;
+    }
+
+    /**
+     * Finds the first position at which two intervals intersect, starting from a given range in each interval.
+     *
+     * @return the first intersection position or -1 if the ranges do not intersect
+     */
+    private static int intersectsAt(Interval i1, int index1, Interval i2, int index2) {
+        assert index1 >= 0 && index2 >= 0 : "empty ranges not allowed";
+        final int[] ranges1 = i1.ranges;
+        final int[] ranges2 = i2.ranges;
+        int r1 = index1;
+        int r2 = index2;
+
+        do {
+            int from1 = ranges1[r1 << 1];
+            int to1 = ranges1[(r1 << 1) + 1];
+            int from2 = ranges2[r2 << 1];
+            int to2 = ranges2[(r2 << 1) + 1];
+            if (from1 < from2) {
+                if (to1 <= from2) {
+                    r1 = i1.nextRangeIndex(r1);
+                    if (r1 < 0) {
+                        return -1;
+                    }
+                } else {
+                    return from2;
+                }
+            } else {
+                if (from2 < from1) {
+                    if (to2 <= from1) {
+                        r2 = i2.nextRangeIndex(r2);
+                        if (r2 < 0) {
+                            return -1;
+                        }
+                    } else {
+                        return from1;
+                    }
+                } else { // from1 == from2
+                    if (from1 == to1) {
+                        r1 = i1.nextRangeIndex(r1);
+                        if (r1 < 0) {
+                            return -1;
+                        }
+                    } else {
+                        if (from2 == to2) {
+                            r2 = i2.nextRangeIndex(r2);
+                            if (r2 < 0) {
+                                return -1;
+                            }
+                        } else {
+                            return from1;
+                        }
+                    }
+                }
+            }
+        } while (true);
     }
 
     // range iteration
     void rewindRange() {
-        current = first;
+        current = rangesEnd == rangesStart ? -1 : rangesEnd - 1;
     }
 
     void nextRange() {
         assert this != EndMarker : "not allowed on sentinel";
-        current = current.next;
+        if (current >= 0) {
+            current = nextRangeIndex(current);
+        }
     }
 
     int currentFrom() {
-        return current.from;
+        return current < 0 ? Integer.MAX_VALUE : ranges[current << 1];
     }
 
     int currentTo() {
-        return current.to;
+        return current < 0 ? Integer.MAX_VALUE : ranges[(current << 1) + 1];
     }
 
     boolean currentAtEnd() {
-        return current == Range.EndMarker;
+        return current < 0;
     }
 
     boolean currentIntersects(Interval it) {
-        return current.intersects(it.current);
+        return currentIntersectsAt(it) != -1;
     }
 
     int currentIntersectsAt(Interval it) {
-        return current.intersectsAt(it.current);
+        return intersectsAt(this, current, it, it.current);
     }
 
+    private static final int[] NO_RANGES = {};
+
     /**
      * Sentinel interval to denote the end of an interval list.
      */
@@ -671,9 +796,9 @@ public final class Interval {
             assert operand.isIllegal() || operand.isVariable();
         }
         this.kind = CiKind.Illegal;
-        this.first = Range.EndMarker;
+        this.ranges = NO_RANGES;
         this.usePosList = new UsePosList(4);
-        this.current = Range.EndMarker;
+        this.current = -1;
         this.next = EndMarker;
         this.cachedTo = -1;
         this.spillState = SpillState.NoDefinitionFound;
@@ -683,13 +808,8 @@ public final class Interval {
     }
 
     int calcTo() {
-        assert first != Range.EndMarker : "interval has no range";
-
-        Range r = first;
-        while (r.next != Range.EndMarker) {
-            r = r.next;
-        }
-        return r.to;
+        assert rangesEnd != rangesStart : "interval has no range";
+        return ranges[(rangesStart << 1) + 1];
     }
 
     // consistency check of split-children
@@ -933,18 +1053,24 @@ public final class Interval {
 
     void addRange(int from, int to) {
         assert from < to : "invalid range";
-        assert first() == Range.EndMarker || to < first().next.from : "not inserting at begin of interval";
-        assert from <= first().to : "not inserting at begin of interval";
+        assert rangeCount() < 2 || to < rangeFrom(1) : "not inserting at begin of interval";
+        assert from <= firstRangeTo() : "not inserting at begin of interval";
 
-        if (first.from <= to) {
-            assert first != Range.EndMarker;
+        if (rangesEnd != rangesStart && from() <= to) {
             // join intersecting ranges
-            first.from = Math.min(from, first().from);
-            first.to = Math.max(to, first().to);
+            int first = (rangesEnd - 1) << 1;
+            ranges[first] = Math.min(from, ranges[first]);
+            ranges[first + 1] = Math.max(to, ranges[first + 1]);
         } else {
             // insert new range
-            first = new Range(from, to, first());
+            if (rangesEnd << 1 == ranges.length) {
+                ranges = Arrays.copyOf(ranges, Math.max(8, ranges.length << 1));
+            }
+            ranges[rangesEnd << 1] = from;
+            ranges[(rangesEnd << 1) + 1] = to;
+            rangesEnd++;
         }
+        cachedTo = -1;
     }
 
     Interval newSplitChild(LinearScan allocator) {
@@ -989,26 +1115,25 @@ public final class Interval {
         // allocate new interval
         Interval result = newSplitChild(allocator);
 
-        // split the ranges
-        Range prev = null;
-        Range cur = first;
-        while (cur != Range.EndMarker && cur.to <= splitPos) {
-            prev = cur;
-            cur = cur.next;
+        // split the ranges: the child gets a copy of the ranges from splitPos on,
+        // this interval keeps its array and drops those ranges by advancing rangesStart
+        int cur = rangesEnd - 1;
+        while (cur >= rangesStart && ranges[(cur << 1) + 1] <= splitPos) {
+            cur--;
         }
-        assert cur != Range.EndMarker : "split interval after end of last range";
-
-        if (cur.from < splitPos) {
-            result.first = new Range(splitPos, cur.to, cur.next);
-            cur.to = splitPos;
-            cur.next = Range.EndMarker;
-
+        assert cur >= rangesStart : "split interval after end of last range";
+
+        result.ranges = Arrays.copyOfRange(ranges, rangesStart << 1, (cur + 1) << 1);
+        result.rangesEnd = cur + 1 - rangesStart;
+        if (ranges[cur << 1] < splitPos) {
+            result.ranges[(result.rangesEnd - 1) << 1] = splitPos;
+            ranges[(cur << 1) + 1] = splitPos;
+            rangesStart = cur;
         } else {
-            assert prev != null : "split before start of first range";
-            result.first = cur;
-            prev.next = Range.EndMarker;
+            assert cur < rangesEnd - 1 : "split before start of first range";
+            rangesStart = cur + 1;
         }
-        result.current = result.first;
+        result.current = result.rangesEnd - 1;
         cachedTo = -1; // clear cached value
 
         // split list of use positions
@@ -1034,7 +1159,7 @@ public final class Interval {
     Interval splitFromStart(int splitPos, LinearScan allocator) {
         assert operand.isVariable() : "cannot split fixed intervals";
         assert splitPos > from() && splitPos < to() : "can only split inside interval";
-        assert splitPos > first.from && splitPos <= first.to : "can only split inside first range";
+        assert splitPos > from() && splitPos <= firstRangeTo() : "can only split inside first range";
         assert firstUsage(RegisterPriority.None) > splitPos : "can not split when use positions are present";
 
         // allocate new interval
@@ -1042,13 +1167,13 @@ public final class Interval {
 
         // the new interval has only one range (checked by assertion above,
         // so the splitting of the ranges is very simple
-        result.addRange(first.from, splitPos);
+        result.addRange(from(), splitPos);
 
-        if (splitPos == first.to) {
-            assert first.next != Range.EndMarker : "must not be at end";
-            first = first.next;
+        if (splitPos == firstRangeTo()) {
+            assert rangeCount() > 1 : "must not be at end";
+            rangesEnd--;
         } else {
-            first.from = splitPos;
+            setFirstRangeFrom(splitPos);
         }
 
         return result;
@@ -1056,18 +1181,19 @@ public final class Interval {
 
     // returns true if the opId is inside the interval
     boolean covers(int opId, LIRInstruction.OperandMode mode) {
-        Range cur = first;
+        int count = rangeCount();
+        int cur = 0;
 
-        while (cur != Range.EndMarker && cur.to < opId) {
-            cur = cur.next;
+        while (cur < count && rangeTo(cur) < opId) {
+            cur++;
         }
-        if (cur != Range.EndMarker) {
-            assert cur.to != cur.next.from : "ranges not separated";
+        if (cur < count) {
+            assert cur == count - 1 || rangeTo(cur) != rangeFrom(cur + 1) : "ranges not separated";
 
             if (mode == LIRInstruction.OperandMode.Output) {
-                return cur.from <= opId && opId < cur.to;
+                return rangeFrom(cur) <= opId && opId < rangeTo(cur);
             } else {
-                return cur.from <= opId && opId <= cur.to;
+                return rangeFrom(cur) <= opId && opId <= rangeTo(cur);
             }
         }
         return false;
@@ -1079,28 +1205,26 @@ public final class Interval {
         assert holeFrom < holeTo : "check";
         assert from() <= holeFrom && holeTo <= to() : "index out of interval";
 
-        Range cur = first;
-        while (cur != Range.EndMarker) {
-            assert cur.to < cur.next.from : "no space between ranges";
+        int count = rangeCount();
+        for (int cur = 0; cur < count; cur++) {
+            assert cur == count - 1 || rangeTo(cur) < rangeFrom(cur + 1) : "no space between ranges";
 
             // hole-range starts before this range . hole
-            if (holeFrom < cur.from) {
+            if (holeFrom < rangeFrom(cur)) {
                 return true;
 
                 // hole-range completely inside this range . no hole
             } else {
-                if (holeTo <= cur.to) {
+                if (holeTo <= rangeTo(cur)) {
                     return false;
 
                     // overlapping of hole-range with this range . hole
                 } else {
-                    if (holeFrom <= cur.to) {
+                    if (holeFrom <= rangeTo(cur)) {
                         return true;
                     }
                 }
             }
-
-            cur = cur.next;
         }
 
         return false;
@@ -1110,7 +1234,7 @@ public final class Interval {
     public String toString() {
         String from = "?";
         String to = "?";
-        if (first != null && first != Range.EndMarker) {
+        if (rangesEnd != rangesStart) {
             from = String.valueOf(from());
             to = String.valueOf(to());
         }
@@ -1147,14 +1271,11 @@ public final class Interval {
         buf.append("} ranges{");
 
         // print ranges
-        Range cur = first;
-        while (cur != Range.EndMarker) {
-            if (cur != first) {
+        for (int i = 0; i < rangeCount(); i++) {
+            if (i != 0) {
                 buf.append(", ");
             }
-            buf.append(cur);
-            cur = cur.next;
-            assert cur != null : "range list not closed with range sentinel";
+            buf.append('[').append(rangeFrom(i)).append(", ").append(rangeTo(i)).append(']');
         }
         buf.append("} uses{");
 
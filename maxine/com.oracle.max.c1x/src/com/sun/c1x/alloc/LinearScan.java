@@ -942,11 +942,10 @@ public final class LinearScan {
                 interval.setKind(kind);
             }
 
-            Range r = interval.first();
-            if (r.from <= defPos) {
+            if (interval.from() <= defPos) {
                 // Update the starting point (when a range is first created for a use, its
                 // start is the beginning of the current block until a def is encountered.)
-                r.from = defPos;
+                interval.setFirstRangeFrom(defPos);
                 interval.addUsePos(defPos, registerPriority);
 
             } else {
@@ -1178,9 +1177,17 @@ public final class LinearScan {
         intervalsSize = operands.size();
         intervals = new Interval[intervalsSize + INITIAL_SPLIT_INTERVALS_CAPACITY];
 
-        // create a list with all caller-save registers (cpu, fpu, xmm)
+        // create a list with all allocatable caller-save registers (cpu, fpu, xmm)
+        // once instead of filtering them again at each call site
         RiRegisterConfig registerConfig = compilation.registerConfig;
         CiRegister[] callerSaveRegs = registerConfig.getCallerSaveRegisters();
+        int allocatableCallerSaveCount = 0;
+        CiValue[] allocatableCallerSaveRegs = new CiValue[callerSaveRegs.length];
+        for (CiRegister r : callerSaveRegs) {
+            if (attributes(r).isAllocatable) {
+                allocatableCallerSaveRegs[allocatableCallerSaveCount++] = r.asValue();
+            }
+        }
 
         // iterate all blocks in reverse order
         for (int i = blockCount() - 1; i >= 0; i--) {
@@ -1222,10 +1229,8 @@ public final class LinearScan {
 
                 // add a temp range for each register if operation destroys caller-save registers
                 if (op.hasCall) {
-                    for (CiRegister r : callerSaveRegs) {
-                        if (attributes(r).isAllocatable) {
-                            addTemp(r.asValue(), opId, RegisterPriority.None, CiKind.Illegal);
-                        }
+                    for (int r = 0; r < allocatableCallerSaveCount; r++) {
+                        addTemp(allocatableCallerSaveRegs[r], opId, RegisterPriority.None, CiKind.Illegal);
                     }
                     if (C1XOptions.TraceLinearScanLevel >= 4) {
                         TTY.println("operation destroys all caller-save registers");
@@ -1263,10 +1268,9 @@ public final class LinearScan {
                     RegisterPriority p = registerPriorityOfInputOperand(op, operand);
                     Interval interval = addUse(operand, blockFrom, opId, p, null);
                     if (interval != null && op instanceof LIRXirInstruction) {
-                        Range range = interval.first();
                         // (tw) Increase range by 1 in order to overlap the input with the temp and the output operand.
-                        if (range.to == opId) {
-                            range.to++;
+                        if (interval.firstRangeTo() == opId) {
+                            interval.setFirstRangeTo(opId + 1);
                         }
                     }
                 }
@@ -2101,20 +2105,42 @@ public final class LinearScan {
         }
     }
 
-    CiFrame computeFrameForState(int opId, FrameState state, CiBitMap frameRefMap) {
+    /**
+     * Gets the debug info value for a {@linkplain VirtualObject virtual object}. The same {@link CiVirtualObject} is
+     * returned for all occurrences of a virtual object in the frames of one debug info.
+     */
+    CiVirtualObject toCiVirtualObject(int opId, VirtualObject object, Map<VirtualObject, CiVirtualObject> virtualObjects) {
+        CiVirtualObject result = virtualObjects.get(object);
+        if (result == null) {
+            CiValue[] values = new CiValue[object.valuesCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = toCiValue(opId, object.valueAt(i));
+            }
+            result = CiVirtualObject.get(object.type(), values, virtualObjects.size());
+            virtualObjects.put(object, result);
+        }
+        return result;
+    }
+
+    CiFrame computeFrameForState(int opId, FrameState state, CiBitMap frameRefMap, Map<VirtualObject, CiVirtualObject> virtualObjects) {
         CiFrame callerFrame = null;
 
         FrameState callerState = state.callerState();
         if (callerState != null) {
             // process recursively to compute outermost scope first
-            callerFrame = computeFrameForState(opId, callerState, frameRefMap);
+            callerFrame = computeFrameForState(opId, callerState, frameRefMap, virtualObjects);
         }
 
         CiValue[] values = new CiValue[state.valuesSize() + state.locksSize()];
         int valueIndex = 0;
 
         for (int i = 0; i < state.valuesSize(); i++) {
-            values[valueIndex++] = toCiValue(opId, state.valueAt(i));
+            Value value = state.valueAt(i);
+            if (value instanceof VirtualObject) {
+                values[valueIndex++] = toCiVirtualObject(opId, (VirtualObject) value, virtualObjects);
+            } else {
+                values[valueIndex++] = toCiValue(opId, value);
+            }
         }
 
         for (int i = 0; i < state.locksSize(); i++) {
@@ -2169,7 +2195,7 @@ public final class LinearScan {
         if (C1XOptions.TraceLinearScanLevel >= 3) {
             TTY.println("creating debug information at opId %d", opId);
         }
-        return computeFrameForState(opId, state, frameRefMap);
+        return computeFrameForState(opId, state, frameRefMap, new IdentityHashMap<VirtualObject, CiVirtualObject>());
     }
 
     private void assignLocations(List<LIRInstruction> instructions, IntervalWalker iw) {
@@ -2247,7 +2273,7 @@ public final class LinearScan {
     }
 
     public void allocate() {
-        if (C1XOptions.PrintTimers) {
+        if (C1XTimers.enabled()) {
             C1XTimers.LIFETIME_ANALYSIS.start();
         }
 
@@ -2265,7 +2291,7 @@ public final class LinearScan {
         buildIntervals();
         sortIntervalsBeforeAllocation();
 
-        if (C1XOptions.PrintTimers) {
+        if (C1XTimers.enabled()) {
             C1XTimers.LIFETIME_ANALYSIS.stop();
             C1XTimers.LINEAR_SCAN.start();
         }
@@ -2277,7 +2303,7 @@ public final class LinearScan {
 
         allocateRegisters();
 
-        if (C1XOptions.PrintTimers) {
+        if (C1XTimers.enabled()) {
             C1XTimers.LINEAR_SCAN.stop();
             C1XTimers.RESOLUTION.start();
         }
@@ -2287,7 +2313,7 @@ public final class LinearScan {
             resolveExceptionHandlers();
         }
 
-        if (C1XOptions.PrintTimers) {
+        if (C1XTimers.enabled()) {
             C1XTimers.RESOLUTION.stop();
             C1XTimers.DEBUG_INFO.start();
         }
@@ -2313,7 +2339,7 @@ public final class LinearScan {
             verifyIntervals();
         }
 
-        if (C1XOptions.PrintTimers) {
+        if (C1XTimers.enabled()) {
             C1XTimers.DEBUG_INFO.stop();
             C1XTimers.CODE_CREATE.start();
         }
@@ -2436,14 +2462,14 @@ public final class LinearScan {
                 throw new CiBailout("");
             }
 
-            if (i1.first() == Range.EndMarker) {
+            if (i1.rangeCount() == 0) {
                 TTY.println("Interval %d has no Range", i1.operandNumber);
                 TTY.println(i1.logString(this));
                 throw new CiBailout("");
             }
 
-            for (Range r = i1.first(); r != Range.EndMarker; r = r.next) {
-                if (r.from >= r.to) {
+            for (int r = 0; r < i1.rangeCount(); r++) {
+                if (i1.rangeFrom(r) >= i1.rangeTo(r)) {
                     TTY.println("Interval %d has zero length range", i1.operandNumber);
                     TTY.println(i1.logString(this));
                     throw new CiBailout("");
@@ -117,6 +117,9 @@ public class CFGPrinter extends CompilationPrinter {
         if (block.isLinearScanLoopEnd()) {
             out.print("\"lle\" ");
         }
+        if (block.isColdPath()) {
+            out.print("\"cold\" ");
+        }
         out.println();
 
         if (block.dominator() != null) {
@@ -488,11 +491,8 @@ public class CFGPrinter extends CompilationPrinter {
         out.printf("%d %d ", interval.splitParent().operandNumber, hint != null ? hint.operandNumber : -1);
 
         // print ranges
-        Range cur = interval.first();
-        while (cur != Range.EndMarker) {
-            out.printf("[%d, %d[", cur.from, cur.to);
-            cur = cur.next;
-            assert cur != null : "range list not closed with range sentinel";
+        for (int i = 0; i < interval.rangeCount(); i++) {
+            out.printf("[%d, %d[", interval.rangeFrom(i), interval.rangeTo(i));
         }
 
         // print use positions
@@ -432,12 +432,9 @@ public abstract class LIRGenerator extends ValueVisitor {
     public void visitGoto(Goto x) {
         setNoResult(x);
 
-        if (currentBlock.next() instanceof OsrEntry) {
-            // need to free up storage used for OSR entry point
-            CiValue osrBuffer = currentBlock.next().operand();
-            callRuntime(CiRuntimeCall.OSRMigrationEnd, null, osrBuffer);
-            emitXir(xir.genSafepointPoll(site(x)), x, stateFor(x, x.stateAfter()), null, false);
-        } else if (x.isSafepointPoll()) {
+        // no safepoint is allowed in the OSR entry block: the OSR buffer is only
+        // guaranteed to be valid until its values are in the frame of the compiled code
+        if (x.isSafepointPoll() && !(currentBlock.next() instanceof OsrEntry)) {
             emitXir(xir.genSafepointPoll(site(x)), x, stateFor(x, x.stateAfter()), null, false);
         }
 
@@ -835,6 +832,11 @@ public abstract class LIRGenerator extends ValueVisitor {
         }
     }
 
+    @Override
+    public void visitVirtualObject(VirtualObject x) {
+        // a virtual object only has operands for its values, see walkStateValue()
+    }
+
     @Override
     public void visitLookupSwitch(LookupSwitch x) {
         CiValue tag = load(x.value());
@@ -1902,7 +1904,12 @@ public abstract class LIRGenerator extends ValueVisitor {
         if (value != null) {
             assert !value.hasSubst() : "missed substitution";
             assert value.isLive() : "value must be marked live in frame state";
-            if (value instanceof Phi && !value.isIllegal()) {
+            if (value instanceof VirtualObject) {
+                VirtualObject object = (VirtualObject) value;
+                for (int i = 0; i < object.valuesCount(); i++) {
+                    walkStateValue(object.valueAt(i));
+                }
+            } else if (value instanceof Phi && !value.isIllegal()) {
                 // phi's are special
                 operandForPhi((Phi) value);
             } else if (value.operand().isIllegal() && !(value instanceof UnsafeCast)) {
@@ -2143,6 +2150,22 @@ public abstract class LIRGenerator extends ValueVisitor {
         return invoke.operand();
     }
 
+    @Override
+    public void visitTypeGuard(TypeGuard x) {
+        XirArgument obj = toXirArgument(x.object());
+        RiResolvedType type = x.types[0];
+        XirArgument hub = XirArgument.forObject(type.getEncoding(RiType.Representation.ObjectHub).asObject());
+        XirSnippet snippet;
+        if (x.types.length == 1) {
+            snippet = xir.genTypeCheck(site(x), obj, hub, type);
+        } else {
+            RiResolvedType otherType = x.types[1];
+            XirArgument otherHub = XirArgument.forObject(otherType.getEncoding(RiType.Representation.ObjectHub).asObject());
+            snippet = xir.genTypeCheck(site(x), obj, hub, type, otherHub, otherType);
+        }
+        emitXir(snippet, x, stateFor(x), null, false);
+    }
+
     @Override
     public void visitTypeEqualityCheck(TypeEqualityCheck typeEqualityCheck) {
         Value x = typeEqualityCheck.left();
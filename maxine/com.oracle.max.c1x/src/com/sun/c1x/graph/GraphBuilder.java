@@ -120,7 +120,13 @@ public final class GraphBuilder {
         // 2. compute the block map and get the entrypoint(s)
         BlockMap blockMap = compilation.getBlockMap(scope.method, compilation.osrBCI);
         BlockBegin stdEntry = blockMap.get(0);
-        BlockBegin osrEntry = compilation.osrBCI < 0 ? null : blockMap.get(compilation.osrBCI);
+        BlockBegin osrEntry = null;
+        if (compilation.isOsrCompilation()) {
+            // the OSR entry block is filled in once the parser reaches the loop header at the OSR bci
+            osrEntry = new BlockBegin(compilation.osrBCI, ir.nextBlockNumber());
+            osrEntry.setOsrEntry(true);
+            ir.osrEntryBlock = osrEntry;
+        }
         pushRootScope(scope, blockMap, startBlock);
         MutableFrameState initialState = stateAtEntry(rootMethod);
         startBlock.mergeOrClone(initialState);
@@ -202,12 +208,8 @@ public final class GraphBuilder {
             fillSyncHandler(rootMethodSynchronizedObject, syncHandler, false);
         }
 
-        if (compilation.osrBCI >= 0) {
-            BlockBegin osrBlock = blockMap.get(compilation.osrBCI);
-            assert osrBlock.wasVisited();
-            if (!osrBlock.stateBefore().stackEmpty()) {
-                throw new CiBailout("cannot OSR with non-empty stack");
-            }
+        if (osrEntry != null && osrEntry.end() == null) {
+            throw new CiBailout("OSR entry point is not reachable");
         }
     }
 
@@ -238,6 +240,56 @@ public final class GraphBuilder {
         startBlock.setEnd(base);
         assert stdEntry.stateBefore() == null;
         stdEntry.mergeOrClone(stateAfter);
+        if (osrEntry != null) {
+            osrEntry.mergeOrClone(stateAfter);
+        }
+    }
+
+    /**
+     * Fills in the {@linkplain IR#osrEntryBlock OSR entry block} when the parser reaches the loop header at which
+     * an OSR compilation is entered. The OSR entry block receives a pointer to the OSR buffer (see {@link OsrEntry}),
+     * loads the value of each local that is live at the loop header from the buffer and jumps to the loop header.
+     * The value of local {@code i} is in the word at offset {@code i * wordSize} in the buffer.
+     *
+     * @param target the loop header at {@link C1XCompilation#osrBCI}
+     */
+    private void setupOsrEntryBlock(BlockBegin target) {
+        FrameState targetState = target.stateBefore();
+        if (!targetState.stackEmpty()) {
+            throw new CiBailout("cannot OSR with non-empty stack");
+        }
+        if (targetState.locksSize() > 0) {
+            throw new CiBailout("cannot OSR with locked monitors");
+        }
+        int osrBCI = compilation.osrBCI;
+        BlockBegin osrEntry = ir.osrEntryBlock;
+        // from here on, the loop header is a normal block; the OSR entry block is its extra predecessor
+        target.setOsrEntry(false);
+
+        curBlock = osrEntry;
+        curState = targetState.copy();
+        lastInstr = osrEntry;
+        osrEntry.setNext(null, -1);
+        osrEntry.setWasVisited(true);
+
+        Value buffer = appendWithoutOptimization(new OsrEntry(compilation.target.wordKind), osrBCI);
+        for (int i = 0; i < curState.localsSize(); i++) {
+            Value local = curState.localAt(i);
+            if (local != null) {
+                if (local.kind.isJsr()) {
+                    throw new CiBailout("OSR not supported while a JSR is active");
+                }
+                RiType type = local.kind.isObject() ? compilation.runtime.getType(Object.class) : compilation.runtime.asRiType(local.kind);
+                Value offset = appendWithBCI(new Constant(CiConstant.forInt(i * compilation.target.wordSize)), osrBCI, false);
+                curState.storeLocal(i, appendWithoutOptimization(new LoadPointer(type, buffer, null, offset, null, false), osrBCI));
+            }
+        }
+
+        Goto end = new Goto(target, null, false);
+        lastInstr = lastInstr.setNext(end, osrBCI);
+        end.setStateAfter(curState.immutableCopy(osrBCI));
+        osrEntry.setEnd(end);
+        target.mergeOrClone(end.stateAfter());
     }
 
     void pushRootScope(IRScope scope, BlockMap blockMap, BlockBegin start) {
@@ -696,7 +748,11 @@ public final class GraphBuilder {
         BlockBegin fsucc = blockAt(stream().nextBCI());
         int bci = stream().currentBCI();
         boolean isSafepointPoll = !scopeData.noSafepointPolls() && tsucc.bci() <= bci || fsucc.bci() <= bci;
-        append(new If(x, cond, false, y, tsucc, fsucc, isSafepointPoll ? stateBefore : null, isSafepointPoll));
+        If ifNode = new If(x, cond, false, y, tsucc, fsucc, isSafepointPoll ? stateBefore : null, isSafepointPoll);
+        if (C1XOptions.UseBranchProfile) {
+            ifNode.setProbability(method().branchProbability(bci));
+        }
+        append(ifNode);
     }
 
     void genIfZero(Condition cond) {
@@ -1056,12 +1112,73 @@ public final class GraphBuilder {
                 assert result : "Inlining must succeed";
                 return;
             }
+            // 4. check if the profile of the call site is dominated by receiver types sharing one implementation
+            if (C1XOptions.UseTypeProfile && tryProfiledInvoke(resolvedTarget, args, cpi, constantPool)) {
+                return;
+            }
         }
 
         // devirtualization failed, produce an actual invokevirtual
         appendInvoke(opcode, target, args, false, cpi, constantPool);
     }
 
+    /**
+     * Attempts to devirtualize a call based on the receiver types recorded in the profile of the call site.
+     * If one type, or two types resolving to the same implementation, account for at least
+     * {@link C1XOptions#TypeProfileMajorReceiverRatio} of the recorded receivers, a {@link TypeGuard}
+     * on the receiver is appended and the implementation is invoked directly (and inlined if possible).
+     * Receivers of any other type deoptimize the compiled code at the guard instead of taking a virtual dispatch slow
+     * path: the guard is a single instruction within the current block, so only one implementation can follow it. The
+     * failures are counted per call site and once {@link RiResolvedMethod#deoptimizationCount(int)} reaches the
+     * runtime's limit, the method is recompiled without a profile for the call site and dispatches virtually.
+     *
+     * @return {@code true} if the call was devirtualized
+     */
+    private boolean tryProfiledInvoke(RiResolvedMethod target, Value[] args, int cpi, RiConstantPool constantPool) {
+        RiTypeProfile profile = method().typeProfile(bci());
+        if (profile == null || profile.types == null || profile.count < C1XOptions.TypeProfileMinimumCount) {
+            return false;
+        }
+        RiResolvedType[] types;
+        if (profile.types.length >= 1 && profile.probabilities[0] >= C1XOptions.TypeProfileMajorReceiverRatio) {
+            types = new RiResolvedType[] {profile.types[0]};
+        } else if (profile.types.length >= 2 && profile.probabilities[0] + profile.probabilities[1] >= C1XOptions.TypeProfileMajorReceiverRatio) {
+            types = new RiResolvedType[] {profile.types[0], profile.types[1]};
+        } else {
+            return false;
+        }
+        RiResolvedMethod impl = null;
+        for (RiResolvedType type : types) {
+            if (!type.isInitialized() || type.isInterface() || type.isArrayClass()) {
+                return false;
+            }
+            RiResolvedMethod typeImpl = type.resolveMethodImpl(target);
+            if (typeImpl == null || isAbstract(typeImpl.accessFlags()) || (impl != null && impl != typeImpl)) {
+                return false;
+            }
+            impl = typeImpl;
+        }
+
+        if (C1XOptions.PrintAssumptions) {
+            TTY.println("Guarded invoke direct because of type profile to " + impl);
+        }
+        Value receiver = args[0];
+        if (!receiver.isNonNull()) {
+            args[0] = append(new NullCheck(receiver, null));
+        }
+        // the guard deoptimizes to the invoke, so its state includes the arguments
+        for (Value arg : args) {
+            if (arg != null) {
+                curState.push(arg.kind.stackKind(), arg);
+            }
+        }
+        FrameState stateBefore = curState.immutableCopy(bci());
+        curState.popArguments(args.length);
+        append(new TypeGuard(args[0], types, stateBefore));
+        invokeDirect(impl, args, types.length == 1 ? types[0] : null, cpi, constantPool);
+        return true;
+    }
+
     private CiKind returnKind(RiMethod target) {
         return target.signature().returnKind(false);
     }
@@ -2048,8 +2165,7 @@ public final class GraphBuilder {
         while ((b = scopeData.removeFromWorkList()) != null) {
             if (!b.wasVisited()) {
                 if (b.isOsrEntry()) {
-                    // OSR not yet supported
-                    Util.shouldNotReachHere();
+                    setupOsrEntryBlock(b);
                 }
                 b.setWasVisited(true);
                 // now parse the block
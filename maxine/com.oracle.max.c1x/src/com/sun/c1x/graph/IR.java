@@ -63,6 +63,11 @@ public class IR {
      */
     private List<BlockBegin> orderedBlocks;
 
+    /**
+     * The natural loops, innermost first.
+     */
+    private List<Loop> loops;
+
     /**
      * Creates a new IR instance for the specified compilation.
      * @param compilation the compilation
@@ -75,13 +80,13 @@ public class IR {
      * Builds the graph, optimizes it, and computes the linear scan block order.
      */
     public void build() {
-        if (C1XOptions.PrintTimers) {
+        if (C1XTimers.enabled()) {
             C1XTimers.HIR_CREATE.start();
         }
 
         buildGraph();
 
-        if (C1XOptions.PrintTimers) {
+        if (C1XTimers.enabled()) {
             C1XTimers.HIR_CREATE.stop();
             C1XTimers.HIR_OPTIMIZE.start();
         }
@@ -90,7 +95,7 @@ public class IR {
         computeLinearScanOrder();
         optimize2();
 
-        if (C1XOptions.PrintTimers) {
+        if (C1XTimers.enabled()) {
             C1XTimers.HIR_OPTIMIZE.stop();
         }
     }
@@ -123,6 +128,10 @@ public class IR {
             new LivenessMarker(this).removeDeadCode();
             observeCompilationEvent("After dead code elimination 1");
         }
+        if (C1XOptions.OptEscapeAnalysis) {
+            new EscapeAnalysis(this);
+            observeCompilationEvent("After escape analysis");
+        }
         if (C1XOptions.OptCEElimination) {
             new CEEliminator(this);
             observeCompilationEvent("After CEE elimination");
@@ -151,6 +160,7 @@ public class IR {
             finder.splitCriticalEdges();
             ComputeLinearScanOrder computeLinearScanOrder = new ComputeLinearScanOrder(compilation.stats.blockCount, startBlock);
             orderedBlocks = computeLinearScanOrder.linearScanOrder();
+            loops = computeLinearScanOrder.loops();
             compilation.stats.loopCount = computeLinearScanOrder.numLoops();
             computeLinearScanOrder.printBlocks();
         }
@@ -163,6 +173,14 @@ public class IR {
             new GlobalValueNumberer(this);
             observeCompilationEvent("After global value numbering");
         }
+        // the OSR entry enters a loop nest without going through the pre-headers of the enclosing loops
+        if ((C1XOptions.OptLoopInvariantCodeMotion || C1XOptions.OptRangeCheckElimination) && !compilation.isOsrCompilation()) {
+            makeLinearScanOrder();
+            if (!loops.isEmpty()) {
+                new LoopOptimizer(this);
+                observeCompilationEvent("After loop optimization");
+            }
+        }
         if (C1XOptions.OptDeadCodeElimination2) {
             new LivenessMarker(this).removeDeadCode();
             observeCompilationEvent("After dead code elimination 2");
@@ -178,6 +196,14 @@ public class IR {
         return orderedBlocks;
     }
 
+    /**
+     * Gets the natural loops computed along with the linear scan order, innermost loops first.
+     * @return the loops
+     */
+    public List<Loop> loops() {
+        return loops;
+    }
+
     private void print(boolean cfgOnly) {
         if (!TTY.isSuppressed()) {
             TTY.println("IR for " + compilation.method);
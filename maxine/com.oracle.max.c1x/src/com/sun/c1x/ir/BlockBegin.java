@@ -55,7 +55,8 @@ public final class BlockBegin extends Instruction {
         ParserLoopHeader,
         CriticalEdgeSplit,
         LinearScanLoopHeader,
-        LinearScanLoopEnd;
+        LinearScanLoopEnd,
+        ColdPath;
 
         public final int mask = 1 << ordinal();
     }
@@ -567,6 +568,10 @@ public final class BlockBegin extends Instruction {
         setBlockFlag(BlockFlag.LinearScanLoopHeader, value);
     }
 
+    public boolean isColdPath() {
+        return checkBlockFlag(BlockFlag.ColdPath);
+    }
+
     public boolean isLinearScanLoopEnd() {
         return checkBlockFlag(BlockFlag.LinearScanLoopEnd);
     }
@@ -107,6 +107,31 @@ public final class ComputeLinearScanOrder {
         return numLoops;
     }
 
+    /**
+     * Gets the natural loops of the method, innermost loops first. Non-natural loops are not included.
+     */
+    public List<Loop> loops() {
+        List<Loop> loops = new ArrayList<Loop>(numLoops);
+        for (int loopIdx = 0; loopIdx < numLoops; loopIdx++) {
+            BlockBegin header = null;
+            List<BlockBegin> blocks = new ArrayList<BlockBegin>();
+            CiBitMap blockMap = new CiBitMap(maxBlockId);
+            for (BlockBegin block : linearScanOrder) {
+                if (isBlockInLoop(loopIdx, block)) {
+                    if (block.checkBlockFlag(BlockBegin.BlockFlag.LinearScanLoopHeader) && block.loopIndex() == loopIdx) {
+                        header = block;
+                    }
+                    blocks.add(block);
+                    blockMap.set(block.blockID);
+                }
+            }
+            if (header != null && blocks.get(0) == header) {
+                loops.add(new Loop(loopIdx, header, blocks, blockMap));
+            }
+        }
+        return loops;
+    }
+
     public ComputeLinearScanOrder(int maxBlockId, BlockBegin startBlock) {
 
         this.maxBlockId = maxBlockId;
@@ -385,6 +410,13 @@ public final class ComputeLinearScanOrder {
         // limit loop-depth to 15 bit (only for security reason, it will never be so big)
         int weight = (cur.loopDepth() & 0x7FFF) << 16;
 
+        if (isColdPath(cur)) {
+            cur.setBlockFlag(BlockBegin.BlockFlag.ColdPath);
+            C1XMetrics.ColdBlocks++;
+        } else {
+            cur.clearBlockFlag(BlockBegin.BlockFlag.ColdPath);
+        }
+
         int curBit = 15;
 
         // this is necessary for the (very rare) case that two successive blocks have
@@ -395,6 +427,13 @@ public final class ComputeLinearScanOrder {
         }
         curBit--;
 
+        // blocks on cold paths are added after all other blocks of the same loop, i.e.
+        // at the end of the method if not nested in a loop
+        if (!cur.checkBlockFlag(BlockBegin.BlockFlag.ColdPath)) {
+            weight |= 1 << curBit;
+        }
+        curBit--;
+
         // loop end blocks (blocks that end with a backward branch) are added
         // after all other blocks of the loop.
         if (!cur.checkBlockFlag(BlockBegin.BlockFlag.LinearScanLoopEnd)) {
@@ -435,6 +474,31 @@ public final class ComputeLinearScanOrder {
         return weight;
     }
 
+    /**
+     * Determines if a block is on a cold path, i.e. it is an exception handler or it is only entered
+     * from cold blocks or through branches the profile shows as never taken. Predecessors reached
+     * via a backward branch are not processed yet and thus are conservatively treated as hot.
+     */
+    boolean isColdPath(BlockBegin cur) {
+        if (cur.isExceptionEntry()) {
+            return true;
+        }
+        int numPreds = cur.numberOfPreds();
+        if (numPreds == 0) {
+            return false;
+        }
+        for (int i = 0; i < numPreds; i++) {
+            BlockBegin pred = cur.predAt(i);
+            if (pred.checkBlockFlag(BlockBegin.BlockFlag.ColdPath)) {
+                continue;
+            }
+            if (!(pred.end() instanceof If) || !((If) pred.end()).isNeverTaken(cur)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     boolean readyForProcessing(BlockBegin cur) {
         // Discount the edge just traveled.
         // When the number drops to zero, all forward branches were processed
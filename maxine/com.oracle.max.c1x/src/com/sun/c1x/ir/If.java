@@ -37,6 +37,11 @@ public final class If extends BlockEnd {
     Value y;
     Condition condition;
 
+    /**
+     * The profiled probability that the true successor is taken, or {@code -1} if unknown.
+     */
+    private double probability = -1;
+
     /**
      * Constructs a new If instruction.
      * @param x the instruction producing the first input to the instruction
@@ -125,6 +130,34 @@ public final class If extends BlockEnd {
         return successor(unorderedIsTrue());
     }
 
+    /**
+     * Gets the profiled probability that this branch goes to its true successor.
+     * @return the probability, or {@code -1} if unknown
+     */
+    public double probability() {
+        return probability;
+    }
+
+    /**
+     * Sets the profiled probability that this branch goes to its true successor.
+     * @param probability the probability, or {@code -1} if unknown
+     */
+    public void setProbability(double probability) {
+        this.probability = probability;
+    }
+
+    /**
+     * Checks whether the profile shows that this branch never goes to a given successor.
+     * @param sux a successor of this branch
+     * @return {@code true} if {@code sux} is known to be never reached from this branch
+     */
+    public boolean isNeverTaken(BlockBegin sux) {
+        if (probability < 0 || trueSuccessor() == falseSuccessor()) {
+            return false;
+        }
+        return sux == trueSuccessor() ? probability == 0.0d : probability == 1.0d;
+    }
+
     /**
      * Swaps the operands to this if and reverses the condition (e.g. > goes to <=).
      * @see Condition#mirror()
@@ -147,6 +180,9 @@ public final class If extends BlockEnd {
         BlockBegin f = successors.get(1);
         successors.set(0, f);
         successors.set(1, t);
+        if (probability >= 0) {
+            probability = 1.0d - probability;
+        }
     }
 
     @Override
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.c1x.ir;
+
+import java.util.*;
+
+import com.sun.cri.ci.*;
+
+/**
+ * A natural loop as computed by {@link ComputeLinearScanOrder}.
+ */
+public final class Loop {
+
+    /**
+     * The index of this loop. Nested loops have a lower index than their enclosing loops.
+     */
+    public final int index;
+
+    /**
+     * The loop header, i.e. the target of the backward branches of this loop.
+     */
+    public final BlockBegin header;
+
+    /**
+     * The blocks of this loop in linear scan order, starting with the header.
+     */
+    public final List<BlockBegin> blocks;
+
+    private final CiBitMap blockMap;
+
+    Loop(int index, BlockBegin header, List<BlockBegin> blocks, CiBitMap blockMap) {
+        this.index = index;
+        this.header = header;
+        this.blocks = blocks;
+        this.blockMap = blockMap;
+    }
+
+    /**
+     * Checks whether a given block is part of this loop.
+     */
+    public boolean contains(BlockBegin block) {
+        return blockMap.get(block.blockID);
+    }
+
+    /**
+     * Gets the single block entering this loop from outside, provided it is a plain {@link Goto} to the header.
+     *
+     * @return {@code null} if there is no such block
+     */
+    public BlockBegin preHeader() {
+        BlockBegin preHeader = null;
+        for (BlockBegin pred : header.predecessors()) {
+            if (!contains(pred)) {
+                if (preHeader != null) {
+                    return null;
+                }
+                preHeader = pred;
+            }
+        }
+        if (preHeader == null || preHeader.isExceptionEntry() || !(preHeader.end() instanceof Goto) || preHeader.numberOfSux() != 1) {
+            return null;
+        }
+        return preHeader;
+    }
+
+    @Override
+    public String toString() {
+        return "loop " + index + " (header B" + header.blockID + ", " + blocks.size() + " blocks)";
+    }
+}
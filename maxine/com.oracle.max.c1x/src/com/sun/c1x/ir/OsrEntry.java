@@ -26,16 +26,21 @@ import com.oracle.max.criutils.*;
 import com.sun.cri.ci.*;
 
 /**
- * The {@code OsrEntry} instruction represents the buffer for an OSR.
+ * The {@code OsrEntry} instruction represents the buffer for an OSR. It produces a pointer to the
+ * buffer from which the {@linkplain com.sun.c1x.graph.IR#osrEntryBlock OSR entry block} loads the
+ * values of the locals of the interpreted frame being replaced.
  */
 public final class OsrEntry extends Instruction {
 
     /**
      * Constructs a new OsrEntry instruction.
+     *
+     * @param wordKind the kind of a machine word
      */
-    public OsrEntry() {
-        // TODO: this should be a CiKind.Word
-        super(CiKind.Jsr);
+    public OsrEntry(CiKind wordKind) {
+        super(wordKind);
+        setFlag(Flag.NonNull);
+        setFlag(Flag.LiveSideEffect); // the instruction also sets up the frame of the compiled method
     }
 
     @Override
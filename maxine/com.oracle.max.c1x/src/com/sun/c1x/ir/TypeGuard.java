@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.c1x.ir;
+
+import static com.sun.c1x.util.Util.*;
+
+import com.oracle.max.criutils.*;
+import com.sun.c1x.value.*;
+import com.sun.cri.ci.*;
+import com.sun.cri.ri.*;
+
+/**
+ * Checks that the exact type of a non-null object is one of a small set of types, typically the
+ * receiver types recorded in a call site's profile, and deoptimizes if it is not.
+ */
+public final class TypeGuard extends Guard {
+
+    Value object;
+
+    /**
+     * The types the object is expected to have.
+     */
+    public final RiResolvedType[] types;
+
+    public TypeGuard(Value object, RiResolvedType[] types, FrameState stateBefore) {
+        super(Condition.EQ, stateBefore);
+        this.object = object;
+        this.types = types;
+        assert object.kind == CiKind.Object;
+        assert types.length == 1 || types.length == 2;
+    }
+
+    /**
+     * Gets the instruction producing the object whose type is checked.
+     */
+    public Value object() {
+        return object;
+    }
+
+    @Override
+    public void inputValuesDo(ValueClosure closure) {
+        object = closure.apply(object);
+    }
+
+    @Override
+    public void accept(ValueVisitor v) {
+        v.visitTypeGuard(this);
+    }
+
+    @Override
+    public void print(LogStream out) {
+        out.print("typeGuard ").print(valueString(object));
+        for (RiResolvedType type : types) {
+            out.print(" ").print(CiUtil.toJavaName(type));
+        }
+    }
+}
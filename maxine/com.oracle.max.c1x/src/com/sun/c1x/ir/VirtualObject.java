@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.c1x.ir;
+
+import com.oracle.max.criutils.*;
+import com.sun.c1x.util.*;
+import com.sun.cri.ci.*;
+import com.sun.cri.ri.*;
+
+/**
+ * The {@code VirtualObject} value stands for an allocation removed by {@linkplain com.sun.c1x.opt.EscapeAnalysis
+ * escape analysis} in the frame states that refer to it. It records the values of the fields (or array elements) of
+ * the object at the frame state's position, from which deoptimization reallocates the object.
+ */
+public final class VirtualObject extends Value {
+
+    private final RiResolvedType type;
+    private final BlockBegin block;
+    private final Value[] values;
+
+    /**
+     * Creates a new virtual object.
+     * @param type the type of the removed allocation
+     * @param block the block of the removed allocation
+     * @param values the values of the fields, ordered as specified by {@link CiVirtualObject}, or of the array elements
+     */
+    public VirtualObject(RiResolvedType type, BlockBegin block, Value[] values) {
+        super(CiKind.Object);
+        this.type = type;
+        this.block = block;
+        this.values = values;
+        setFlag(Flag.NonNull);
+    }
+
+    @Override
+    public BlockBegin block() {
+        return block;
+    }
+
+    public RiResolvedType type() {
+        return type;
+    }
+
+    @Override
+    public RiResolvedType exactType() {
+        return type;
+    }
+
+    @Override
+    public RiResolvedType declaredType() {
+        return type;
+    }
+
+    /**
+     * Gets the number of fields or array elements of this object.
+     */
+    public int valuesCount() {
+        return values.length;
+    }
+
+    /**
+     * Gets the value of a field or array element of this object.
+     */
+    public Value valueAt(int i) {
+        return values[i];
+    }
+
+    @Override
+    public void inputValuesDo(ValueClosure closure) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = closure.apply(values[i]);
+        }
+    }
+
+    @Override
+    public void accept(ValueVisitor v) {
+        v.visitVirtualObject(this);
+    }
+
+    @Override
+    public void print(LogStream out) {
+        out.print("virtual ").print(CiUtil.toJavaName(type)).print(" {");
+        for (int i = 0; i < values.length; i++) {
+            out.print(i == 0 ? "" : ", ").print(Util.valueString(values[i]));
+        }
+        out.print('}');
+    }
+}
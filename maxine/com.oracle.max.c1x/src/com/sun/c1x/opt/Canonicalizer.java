@@ -1275,6 +1275,7 @@ public class Canonicalizer extends DefaultValueVisitor {
         }
 
         If canon = new If(cmp.x(), ifcond, false, cmp.y(), i.successor(true), i.successor(false), cmp.stateBefore(), i.isSafepointPoll());
+        canon.setProbability(i.probability());
         if (cmp.x() == cmp.y()) {
             // re-canonicalize the new if
             visitIf(canon);
@@ -1523,7 +1524,7 @@ public class Canonicalizer extends DefaultValueVisitor {
 
         if (index.isConstant() && length.isConstant()) {
             int i = index.asConstant().asInt();
-            int l = index.asConstant().asInt();
+            int l = length.asConstant().asInt();
             Condition c = b.condition;
             if (c.check(i, l)) {
                 setCanonical(null);
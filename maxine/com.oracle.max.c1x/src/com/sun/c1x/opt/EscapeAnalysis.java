@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.c1x.opt;
+
+import java.util.*;
+
+import com.oracle.max.criutils.*;
+import com.sun.c1x.*;
+import com.sun.c1x.graph.*;
+import com.sun.c1x.ir.*;
+import com.sun.c1x.value.FrameState.PhiProcedure;
+import com.sun.cri.ci.*;
+import com.sun.cri.ri.*;
+
+/**
+ * Removes allocations that do not escape the compiled method (after inlining) by replacing their fields with the
+ * values stored to them.
+ * <p>
+ * An allocation of an initialized instance class without finalizer, or of an array with a small constant length, is
+ * scalar replaced if it is only used by field loads, field stores, array length operations and array accesses with a
+ * constant index, and by frame states. All stores must be in the block of the allocation, so that the field values
+ * seen by any later block are the values at the end of that block and no phi needs to be created for them, and no
+ * frame state may refer to the allocation before its last store. Loads are replaced by the field values, stores are
+ * removed, and the references to the allocation in frame states are replaced by a {@link VirtualObject} recording the
+ * final field values, from which deoptimization reallocates the object.
+ */
+public final class EscapeAnalysis {
+
+    final IR ir;
+
+    /**
+     * The allocations under analysis.
+     */
+    final Map<Value, Candidate> candidates = new IdentityHashMap<Value, Candidate>();
+
+    /**
+     * An allocation and the accesses to it.
+     */
+    static final class Candidate {
+        final Instruction allocation;
+        final BlockBegin block;
+        final RiResolvedType type;
+
+        /**
+         * The instance fields of an instance allocation, ordered as expected by {@link CiVirtualObject}.
+         */
+        final RiResolvedField[] fields;
+
+        /**
+         * The element kind of an array allocation.
+         */
+        final CiKind elementKind;
+
+        /**
+         * The accesses to the allocation.
+         */
+        final List<Instruction> accesses = new ArrayList<Instruction>();
+
+        boolean escapes;
+
+        Candidate(Instruction allocation, BlockBegin block, RiResolvedType type, RiResolvedField[] fields, CiKind elementKind) {
+            this.allocation = allocation;
+            this.block = block;
+            this.type = type;
+            this.fields = fields;
+            this.elementKind = elementKind;
+        }
+
+        int length() {
+            return fields != null ? fields.length : ((NewArray) allocation).length().asConstant().asInt();
+        }
+
+        CiKind kindAt(int index) {
+            return fields != null ? fields[index].kind(true) : elementKind;
+        }
+
+        /**
+         * Gets the index of the field or element accessed by a load or store of this allocation, or -1 if the access
+         * cannot be scalar replaced.
+         */
+        int indexOf(Instruction access) {
+            if (access instanceof AccessField) {
+                AccessField a = (AccessField) access;
+                if (fields != null && a.isLoaded() && !a.isStatic() && !a.isVolatile()) {
+                    for (int i = 0; i < fields.length; i++) {
+                        if (fields[i].equals(a.field())) {
+                            return i;
+                        }
+                    }
+                }
+            } else if (access instanceof AccessIndexed) {
+                AccessIndexed a = (AccessIndexed) access;
+                CiKind kind = a.elementKind();
+                if (fields == null && a.index().isConstant() && (kind == elementKind || isByteOrBoolean(kind) && isByteOrBoolean(elementKind))) {
+                    int index = a.index().asConstant().asInt();
+                    if (index >= 0 && index < length()) {
+                        return index;
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+
+    static boolean isByteOrBoolean(CiKind kind) {
+        return kind == CiKind.Byte || kind == CiKind.Boolean;
+    }
+
+    /**
+     * Marks the candidates used as input of an instruction that is not a scalar replaceable access as escaping.
+     */
+    final ValueClosure escapeMarker = new ValueClosure() {
+        public Value apply(Value value) {
+            Candidate c = candidates.get(value);
+            if (c != null) {
+                c.escapes = true;
+            }
+            return value;
+        }
+    };
+
+    /**
+     * Creates a new escape analysis and applies it to the IR.
+     *
+     * @param ir the IR to optimize
+     */
+    public EscapeAnalysis(IR ir) {
+        this.ir = ir;
+        ir.startBlock.iterateAnyOrder(new BlockClosure() {
+            public void apply(BlockBegin block) {
+                for (Instruction i = block.next(); i != null; i = i.next()) {
+                    findCandidate(block, i);
+                }
+            }
+        }, false);
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        ir.startBlock.iterateAnyOrder(new BlockClosure() {
+            public void apply(BlockBegin block) {
+                checkUses(block);
+            }
+        }, false);
+
+        InstructionSubstituter subst = new InstructionSubstituter(ir);
+        for (Candidate c : candidates.values()) {
+            if (!c.escapes && !referencedBeforeInitialized(c)) {
+                scalarReplace(c, subst);
+            }
+        }
+        subst.finish();
+    }
+
+    private void findCandidate(BlockBegin block, Instruction i) {
+        if (i instanceof NewInstance) {
+            RiType type = ((NewInstance) i).instanceClass();
+            if (type instanceof RiResolvedType) {
+                RiResolvedType resolved = (RiResolvedType) type;
+                if (resolved.isInstanceClass() && resolved.isInitialized() && !resolved.hasFinalizer()) {
+                    List<RiResolvedField> fields = new ArrayList<RiResolvedField>();
+                    for (RiResolvedType t = resolved; t != null; t = t.superType()) {
+                        fields.addAll(Arrays.asList(t.declaredFields()));
+                    }
+                    if (fields.size() <= C1XOptions.EscapeAnalysisMaxFields) {
+                        candidates.put(i, new Candidate(i, block, resolved, fields.toArray(new RiResolvedField[fields.size()]), null));
+                    }
+                }
+            }
+        } else if (i instanceof NewTypeArray || i instanceof NewObjectArray) {
+            NewArray array = (NewArray) i;
+            Value length = array.length();
+            RiResolvedType type = array.exactType();
+            if (type != null && length.isConstant() && length.asConstant().asInt() >= 0 && length.asConstant().asInt() <= C1XOptions.EscapeAnalysisMaxArrayLength) {
+                CiKind elementKind = i instanceof NewTypeArray ? ((NewTypeArray) i).elementKind() : CiKind.Object;
+                candidates.put(i, new Candidate(i, block, type, null, elementKind));
+            }
+        }
+    }
+
+    private void checkUses(final BlockBegin block) {
+        block.stateBefore().forEachPhi(block, new PhiProcedure() {
+            public boolean doPhi(Phi phi) {
+                for (int j = 0; j < phi.inputCount(); j++) {
+                    escapeMarker.apply(phi.inputAt(j));
+                }
+                return true;
+            }
+        });
+        for (Instruction i = block.next(); i != null; i = i.next()) {
+            Candidate c = null;
+            Value value = null;
+            if (i instanceof AccessField) {
+                c = candidates.get(((AccessField) i).object());
+                if (i instanceof StoreField) {
+                    value = ((StoreField) i).value();
+                }
+            } else if (i instanceof AccessIndexed) {
+                c = candidates.get(((AccessIndexed) i).array());
+                value = i instanceof StoreIndexed ? ((StoreIndexed) i).value() : ((AccessIndexed) i).index();
+            } else if (i instanceof ArrayLength) {
+                c = candidates.get(((ArrayLength) i).array());
+            }
+            if (c == null) {
+                i.inputValuesDo(escapeMarker);
+                continue;
+            }
+            if (value != null) {
+                escapeMarker.apply(value);
+            }
+            if (i instanceof ArrayLength) {
+                if (c.fields != null) {
+                    c.escapes = true;
+                }
+            } else if (c.indexOf(i) < 0) {
+                c.escapes = true;
+            } else if (i instanceof StoreField || i instanceof StoreIndexed) {
+                if (block != c.block) {
+                    c.escapes = true;
+                } else if (i instanceof StoreIndexed && ((StoreIndexed) i).needsStoreCheck() && !value.isNullConstant()) {
+                    c.escapes = true;
+                }
+            }
+            c.accesses.add(i);
+        }
+    }
+
+    private static boolean isStoreTo(Instruction i, Candidate c) {
+        return i instanceof StoreField && ((StoreField) i).object() == c.allocation ||
+               i instanceof StoreIndexed && ((StoreIndexed) i).array() == c.allocation;
+    }
+
+    /**
+     * Checks whether a frame state refers to an allocation before the last store to it. Only the field values at the
+     * end of the allocation block are recorded for deoptimization, and frame states may be shared between instructions
+     * or inlined frames.
+     */
+    private static boolean referencedBeforeInitialized(final Candidate c) {
+        Instruction lastStore = null;
+        for (Instruction i = c.allocation.next(); i != null; i = i.next()) {
+            if (isStoreTo(i, c)) {
+                lastStore = i;
+            }
+        }
+        final boolean[] referenced = {false};
+        ValueClosure finder = new ValueClosure() {
+            public Value apply(Value value) {
+                if (value == c.allocation) {
+                    referenced[0] = true;
+                }
+                return value;
+            }
+        };
+        for (Instruction i = c.allocation.next(); i != lastStore && lastStore != null; i = i.next()) {
+            if (i.stateBefore() != null && !c.accesses.contains(i)) {
+                i.stateBefore().valuesDo(finder);
+                if (referenced[0]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the value read by a load of a sub-word field or element, which is narrowed by the store.
+     */
+    private static Value narrow(Instruction load, CiKind kind, Value value) {
+        Convert.Op op;
+        switch (kind) {
+            case Byte: op = Convert.Op.I2B; break;
+            case Char: op = Convert.Op.I2C; break;
+            case Short: op = Convert.Op.I2S; break;
+            default: return value;
+        }
+        if (value.isConstant()) {
+            int i = value.asConstant().asInt();
+            return insertAfter(load, Constant.forInt(kind == CiKind.Byte ? (byte) i : kind == CiKind.Char ? (char) i : (short) i));
+        }
+        return insertAfter(load, new Convert(op, value, CiKind.Int));
+    }
+
+    private static Instruction insertAfter(Instruction i, Instruction x) {
+        Instruction next = i.next();
+        i.resetNext(x);
+        x.setNext(next, next.bci());
+        x.setBCI(i.bci());
+        return x;
+    }
+
+    private void scalarReplace(Candidate c, InstructionSubstituter subst) {
+        Instruction allocation = c.allocation;
+        int length = c.length();
+        Value[] values = new Value[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = insertAfter(allocation, new Constant(CiConstant.defaultValue(c.kindAt(i))));
+        }
+
+        // walk the allocation block, tracking the field values seen by loads
+        Instruction prev = allocation;
+        for (Instruction i = allocation.next(); i != null; i = i.next()) {
+            if (c.accesses.contains(i)) {
+                if (i instanceof StoreField || i instanceof StoreIndexed) {
+                    values[c.indexOf(i)] = i instanceof StoreField ? ((StoreField) i).value() : ((StoreIndexed) i).value();
+                    prev.resetNext(i.next());
+                    C1XMetrics.ScalarReplacedAccesses++;
+                    continue;
+                }
+                replaceLoad(c, i, values, subst);
+            }
+            prev = i;
+        }
+
+        // all other loads and frame states see the values at the end of the allocation block
+        for (Instruction i : c.accesses) {
+            if (i.block() != c.block) {
+                replaceLoad(c, i, values, subst);
+            }
+        }
+        subst.setSubst(allocation, new VirtualObject(c.type, c.block, values));
+        C1XMetrics.ScalarReplacedAllocations++;
+        if (C1XOptions.TraceEscapeAnalysis) {
+            TTY.println("Scalar replaced " + allocation + " of " + c.type + " in B" + c.block.blockID);
+        }
+    }
+
+    private static void replaceLoad(Candidate c, Instruction load, Value[] values, InstructionSubstituter subst) {
+        Value value;
+        if (load instanceof ArrayLength) {
+            value = insertAfter(load, Constant.forInt(c.length()));
+        } else {
+            int index = c.indexOf(load);
+            value = narrow(load, load instanceof LoadIndexed ? ((LoadIndexed) load).elementKind() : c.kindAt(index), values[index]);
+        }
+        subst.setSubst(load, value);
+        C1XMetrics.ScalarReplacedAccesses++;
+    }
+}
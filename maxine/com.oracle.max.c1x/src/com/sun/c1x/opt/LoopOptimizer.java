@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.c1x.opt;
+
+import java.util.*;
+
+import com.oracle.max.criutils.*;
+import com.sun.c1x.*;
+import com.sun.c1x.graph.*;
+import com.sun.c1x.ir.*;
+import com.sun.c1x.value.*;
+import com.sun.cri.bytecode.*;
+import com.sun.cri.ci.*;
+import com.sun.cri.ri.*;
+
+/**
+ * Optimizes the natural loops of a method, innermost loops first, by moving code into the loop pre-header:
+ * <ul>
+ * <li>Loop invariant code motion hoists side-effect free instructions (arithmetic, conversions, array lengths and
+ * field loads that cannot trap) whose inputs are all defined outside the loop. Field loads are only hoisted if
+ * the loop contains no store to the field and no call, monitor operation or other instruction that may write
+ * arbitrary memory.</li>
+ * <li>Range check elimination removes the bounds checks of array accesses indexed by the induction variable of a
+ * counted loop ({@code for (i = init; i < limit; i++)}) on a loop invariant array. When {@code limit} is not the
+ * length of the accessed array or {@code init} is not a non-negative constant, the bounds checks are replaced by
+ * {@link BoundsCheck} guards in the pre-header, which deoptimize to the loop header if {@code init < 0} or
+ * {@code limit > array.length}.</li>
+ * </ul>
+ * Both transformations require the loop to have a single pre-header ending with a {@link Goto}.
+ */
+public class LoopOptimizer {
+
+    final IR ir;
+
+    /**
+     * The instructions of the loop being optimized that have not been hoisted.
+     */
+    final Set<Instruction> loopInstructions = Collections.newSetFromMap(new IdentityHashMap<Instruction, Boolean>());
+
+    /**
+     * The fields stored by the loop being optimized.
+     */
+    final Set<RiField> storedFields = new HashSet<RiField>();
+
+    /**
+     * Denotes whether the loop being optimized contains instructions that may write any memory location.
+     */
+    boolean killsMemory;
+
+    /**
+     * Creates a new loop optimizer and performs it on the loops of the IR.
+     *
+     * @param ir the IR whose loops are optimized
+     */
+    public LoopOptimizer(IR ir) {
+        this.ir = ir;
+        for (Loop loop : ir.loops()) {
+            BlockBegin preHeader = loop.preHeader();
+            if (preHeader == null) {
+                continue;
+            }
+            if (C1XOptions.OptLoopInvariantCodeMotion) {
+                hoistInvariants(loop, preHeader);
+            }
+            if (C1XOptions.OptRangeCheckElimination) {
+                eliminateRangeChecks(loop, preHeader);
+            }
+        }
+    }
+
+    private void analyzeLoop(Loop loop) {
+        loopInstructions.clear();
+        storedFields.clear();
+        killsMemory = false;
+        for (BlockBegin block : loop.blocks) {
+            for (Instruction x = block.next(); x != null; x = x.next()) {
+                loopInstructions.add(x);
+                if (x instanceof StoreField) {
+                    StoreField store = (StoreField) x;
+                    if (store.isLoaded()) {
+                        storedFields.add(store.field());
+                    } else {
+                        killsMemory = true;
+                    }
+                } else if (x instanceof Invoke || x instanceof Intrinsic || x instanceof NativeCall || x instanceof AccessMonitor ||
+                           x instanceof MemoryBarrier || x instanceof CompareAndSwap || x instanceof UnsafePutRaw || x instanceof UnsafePutObject ||
+                           x instanceof StorePointer || x instanceof StoreRegister || x instanceof ResolveClass || x instanceof NewInstance) {
+                    killsMemory = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a value is defined outside the loop being optimized.
+     */
+    boolean isInvariant(Loop loop, Value value) {
+        if (value instanceof Phi) {
+            return !loop.contains(value.block());
+        }
+        return !(value instanceof Instruction) || !loopInstructions.contains(value);
+    }
+
+    private final class InvariantInputs implements ValueClosure {
+        Loop loop;
+        boolean invariant;
+
+        public Value apply(Value i) {
+            if (!isInvariant(loop, i)) {
+                invariant = false;
+            }
+            return i;
+        }
+    }
+
+    private final InvariantInputs invariantInputs = new InvariantInputs();
+
+    private boolean isHoistable(Loop loop, Instruction x) {
+        if (x instanceof ArithmeticOp || x instanceof ArrayLength) {
+            if (x.canTrap()) {
+                return false;
+            }
+        } else if (x instanceof LoadField) {
+            LoadField load = (LoadField) x;
+            if (load.canTrap() || !load.isLoaded() || load.isVolatile() || killsMemory || storedFields.contains(load.field())) {
+                return false;
+            }
+        } else if (!(x instanceof Constant || x instanceof LogicOp || x instanceof ShiftOp || x instanceof CompareOp ||
+                     x instanceof NegateOp || x instanceof Convert)) {
+            return false;
+        }
+        invariantInputs.loop = loop;
+        invariantInputs.invariant = true;
+        x.inputValuesDo(invariantInputs);
+        return invariantInputs.invariant;
+    }
+
+    private void hoistInvariants(Loop loop, BlockBegin preHeader) {
+        analyzeLoop(loop);
+        for (BlockBegin block : loop.blocks) {
+            Instruction prev = block;
+            Instruction x = block.next();
+            while (x != null && !(x instanceof BlockEnd)) {
+                Instruction next = x.next();
+                if (isHoistable(loop, x)) {
+                    prev.resetNext(next);
+                    insertBeforeEnd(preHeader, x, x.bci());
+                    loopInstructions.remove(x);
+                    C1XMetrics.LoopInvariantsHoisted++;
+                    if (C1XOptions.TraceLoopOptimizations) {
+                        TTY.println("Hoisted " + x + " from B" + block.blockID + " out of " + loop);
+                    }
+                } else {
+                    prev = x;
+                }
+                x = next;
+            }
+        }
+    }
+
+    /**
+     * Inserts an instruction at the end of a block, before its {@link BlockEnd}.
+     */
+    private static void insertBeforeEnd(BlockBegin block, Instruction x, int bci) {
+        BlockEnd end = block.end();
+        Instruction last = end.prev(block);
+        last.setNext(x, bci);
+        x.setNext(end, end.bci());
+    }
+
+    private static boolean isIncrement(Value value, Phi phi) {
+        if (value == phi) {
+            return true;
+        }
+        if (value instanceof ArithmeticOp) {
+            ArithmeticOp op = (ArithmeticOp) value;
+            if (op.opcode == Bytecodes.IADD) {
+                return op.x() == phi && isIntConstant(op.y(), 1) || op.y() == phi && isIntConstant(op.x(), 1);
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIntConstant(Value value, int i) {
+        return value.isConstant() && value.kind == CiKind.Int && value.asConstant().asInt() == i;
+    }
+
+    /**
+     * Checks whether {@code block} is dominated by {@code dominator}.
+     */
+    private static boolean isDominatedBy(BlockBegin block, BlockBegin dominator) {
+        for (BlockBegin b = block; b != null; b = b.dominator()) {
+            if (b == dominator) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void eliminateRangeChecks(Loop loop, BlockBegin preHeader) {
+        BlockBegin header = loop.header;
+        if (!(header.end() instanceof If)) {
+            return;
+        }
+        If exit = (If) header.end();
+        boolean trueInLoop = loop.contains(exit.trueSuccessor());
+        if (trueInLoop == loop.contains(exit.falseSuccessor())) {
+            return;
+        }
+        BlockBegin body = exit.successor(trueInLoop);
+
+        // recognize "if (i < limit)" staying in the loop
+        analyzeLoop(loop);
+        Condition condition = trueInLoop ? exit.condition() : exit.condition().negate();
+        Value x = exit.x();
+        Value limit = exit.y();
+        if (limit instanceof Phi && limit.block() == header) {
+            condition = condition.mirror();
+            limit = exit.x();
+            x = exit.y();
+        }
+        if (condition != Condition.LT || !(x instanceof Phi) || x.block() != header || x.kind != CiKind.Int) {
+            return;
+        }
+        Phi phi = (Phi) x;
+
+        // recognize "i = init" on entry and "i++" (or no update) on the back edges
+        Value init = null;
+        for (int i = 0; i < phi.inputCount(); i++) {
+            Value input = phi.inputAt(i);
+            if (header.predAt(i) == preHeader) {
+                init = input;
+            } else if (!isIncrement(input, phi)) {
+                return;
+            }
+        }
+        if (init == null || init.kind != CiKind.Int) {
+            return;
+        }
+        boolean initGuarded = init.isConstant() && init.asConstant().asInt() >= 0;
+        Value limitArray = limit instanceof ArrayLength ? ((ArrayLength) limit).array() : null;
+        boolean limitInvariant = isInvariant(loop, limit);
+
+        // the guards deoptimize to the loop header with the state entering the loop. The guards are only emitted for
+        // headers entered with an empty stack: the instruction at such a header cannot be an invoke with a receiver,
+        // so the failures counted for the header bci are never shared with a receiver type guard.
+        FrameState entryState = preHeader.end().stateAfter();
+        FrameState guardState = null;
+        if (entryState != null && header.stateBefore() != null && entryState.scope() == header.stateBefore().scope() &&
+                        entryState.stackSize() == 0 && entryState.scope().method.deoptimizationCount(header.bci()) <= 0) {
+            guardState = entryState.copy(header.bci(), true, true, true);
+        }
+
+        Map<Value, Value> guardedArrays = new IdentityHashMap<Value, Value>();
+        for (BlockBegin block : loop.blocks) {
+            if (!isDominatedBy(block, body)) {
+                continue;
+            }
+            for (Instruction i = block.next(); i != null; i = i.next()) {
+                if (!(i instanceof AccessIndexed)) {
+                    continue;
+                }
+                AccessIndexed access = (AccessIndexed) i;
+                Value array = access.array();
+                if (!access.needsBoundsCheck() || access.index() != phi || !isInvariant(loop, array)) {
+                    continue;
+                }
+                boolean limitGuarded = array == limitArray || guardedArrays.containsKey(array);
+                if ((!initGuarded || !limitGuarded) && guardState == null) {
+                    continue;
+                }
+                if (!limitGuarded && (!limitInvariant || !array.isNonNull())) {
+                    continue;
+                }
+                if (!initGuarded) {
+                    Constant zero = Constant.forInt(0);
+                    insertBeforeEnd(preHeader, zero, preHeader.end().bci());
+                    insertBeforeEnd(preHeader, new BoundsCheck(init, zero, guardState, Condition.GE), preHeader.end().bci());
+                    initGuarded = true;
+                }
+                if (!limitGuarded) {
+                    ArrayLength length = new ArrayLength(array, null);
+                    insertBeforeEnd(preHeader, length, preHeader.end().bci());
+                    insertBeforeEnd(preHeader, new BoundsCheck(limit, length, guardState, Condition.LE), preHeader.end().bci());
+                    guardedArrays.put(array, length);
+                }
+                access.eliminateBoundsCheck();
+                C1XMetrics.LoopRangeChecksEliminated++;
+                if (C1XOptions.TraceLoopOptimizations) {
+                    TTY.println("Eliminated range check of " + access + " in B" + block.blockID + " of " + loop);
+                }
+            }
+        }
+    }
+}
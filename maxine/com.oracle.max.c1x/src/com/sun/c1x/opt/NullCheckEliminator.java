@@ -116,7 +116,7 @@ public class NullCheckEliminator extends DefaultValueVisitor {
     }
 
     private void optimize() {
-        if (C1XOptions.PrintTimers) {
+        if (C1XTimers.enabled()) {
             C1XTimers.NCE.start();
         }
         BlockInfo start = getBlockInfo(ir.startBlock);
@@ -131,7 +131,7 @@ public class NullCheckEliminator extends DefaultValueVisitor {
             iterate();
         }
         clearInfo();
-        if (C1XOptions.PrintTimers) {
+        if (C1XTimers.enabled()) {
             C1XTimers.NCE.stop();
         }
     }
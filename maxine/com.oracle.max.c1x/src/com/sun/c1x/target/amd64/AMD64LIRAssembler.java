@@ -80,9 +80,45 @@ public final class AMD64LIRAssembler extends LIRAssembler {
         return compilation.frameMap().toStackAddress((CiStackSlot) value);
     }
 
+    /**
+     * Emits the code of the OSR entry point. The runtime jumps to the entry point as if the method
+     * was called, i.e. the return address is on top of the stack, so the entry point has to bang the
+     * stack and push the frame just like the prologue emitted for the standard entry point.
+     */
     @Override
     protected void emitOsrEntry() {
-        throw Util.unimplemented();
+        assert osrEntryOffset == -1 : "multiple OSR entry points";
+        osrEntryOffset = codePos();
+        emitStackOverflowCheck();
+        emitPushFrame();
+    }
+
+    private void emitStackOverflowCheck() {
+        int frameSize = initialFrameSizeInBytes();
+        int lastFramePage = frameSize / target.pageSize;
+        // emit multiple stack bangs for methods with frames larger than a page
+        for (int i = 0; i <= lastFramePage; i++) {
+            int offset = (i + C1XOptions.StackShadowPages) * target.pageSize;
+            // Deduct 'frameSize' to handle frames larger than the shadow
+            bangStackWithOffset(offset - frameSize);
+        }
+    }
+
+    private void emitPushFrame() {
+        int frameSize = initialFrameSizeInBytes();
+        masm.decrementq(AMD64.rsp, frameSize); // does not emit code for frameSize == 0
+        if (C1XOptions.ZapStackOnMethodEntry) {
+            final int intSize = 4;
+            for (int i = 0; i < frameSize / intSize; ++i) {
+                masm.movl(new CiAddress(CiKind.Int, AMD64.rsp.asValue(), i * intSize), 0xC1C1C1C1);
+            }
+        }
+        CiCalleeSaveLayout csl = compilation.registerConfig.getCalleeSaveLayout();
+        if (csl != null && csl.size != 0) {
+            int frameToCSA = frameMap.offsetToCalleeSaveAreaStart();
+            assert frameToCSA >= 0;
+            masm.save(csl, frameToCSA);
+        }
     }
 
     @Override
@@ -2016,31 +2052,11 @@ public final class AMD64LIRAssembler extends LIRAssembler {
                     break;
                 }
                 case StackOverflowCheck: {
-                    int frameSize = initialFrameSizeInBytes();
-                    int lastFramePage = frameSize / target.pageSize;
-                    // emit multiple stack bangs for methods with frames larger than a page
-                    for (int i = 0; i <= lastFramePage; i++) {
-                        int offset = (i + C1XOptions.StackShadowPages) * target.pageSize;
-                        // Deduct 'frameSize' to handle frames larger than the shadow
-                        bangStackWithOffset(offset - frameSize);
-                    }
+                    emitStackOverflowCheck();
                     break;
                 }
                 case PushFrame: {
-                    int frameSize = initialFrameSizeInBytes();
-                    masm.decrementq(AMD64.rsp, frameSize); // does not emit code for frameSize == 0
-                    if (C1XOptions.ZapStackOnMethodEntry) {
-                        final int intSize = 4;
-                        for (int i = 0; i < frameSize / intSize; ++i) {
-                            masm.movl(new CiAddress(CiKind.Int, AMD64.rsp.asValue(), i * intSize), 0xC1C1C1C1);
-                        }
-                    }
-                    CiCalleeSaveLayout csl = compilation.registerConfig.getCalleeSaveLayout();
-                    if (csl != null && csl.size != 0) {
-                        int frameToCSA = frameMap.offsetToCalleeSaveAreaStart();
-                        assert frameToCSA >= 0;
-                        masm.save(csl, frameToCSA);
-                    }
+                    emitPushFrame();
                     break;
                 }
                 case PopFrame: {
@@ -677,7 +677,9 @@ public class AMD64LIRGenerator extends LIRGenerator {
 
     @Override
     protected CiValue osrBufferPointer() {
-        return Util.nonFatalUnimplemented(null);
+        // the runtime transfers control to the OSR entry point with the buffer
+        // pointer in the register used to return a word
+        return resultOperandFor(compilation.target.wordKind);
     }
 
     @Override
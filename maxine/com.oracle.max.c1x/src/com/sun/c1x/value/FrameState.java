@@ -517,6 +517,7 @@ public abstract class FrameState {
 
     /**
      * Iterates over all the values of a given frame state and its callers, including the stack, locals, and locks.
+     * The closure is also applied to the values of {@linkplain VirtualObject virtual objects} in the frame state.
      * @param closure the closure to apply to each value
      */
     public static void valuesDo(FrameState state, ValueClosure closure) {
@@ -525,6 +526,9 @@ public abstract class FrameState {
             for (int i = 0; i < max; i++) {
                 if (state.values[i] != null) {
                     Value newValue = closure.apply(state.values[i]);
+                    if (newValue instanceof VirtualObject) {
+                        newValue.inputValuesDo(closure);
+                    }
                     state.values[i] = newValue;
                 }
             }
@@ -558,7 +562,9 @@ public abstract class FrameState {
             final int max = state.valuesSize();
             for (int i = 0; i < max; i++) {
                 Value value = state.values[i];
-                if (value != null && value.isLive()) {
+                if (value instanceof VirtualObject) {
+                    forEachLiveValue((VirtualObject) value, proc);
+                } else if (value != null && value.isLive()) {
                     proc.doValue(value);
                 }
             }
@@ -575,6 +581,15 @@ public abstract class FrameState {
         }
     }
 
+    private static void forEachLiveValue(VirtualObject object, ValueProcedure proc) {
+        for (int i = 0; i < object.valuesCount(); i++) {
+            Value value = object.valueAt(i);
+            if (value != null && value.isLive()) {
+                proc.doValue(value);
+            }
+        }
+    }
+
     public static String toString(FrameState fs) {
         StringBuilder sb = new StringBuilder();
         String nl = CiUtil.NEW_LINE;
@@ -344,6 +344,7 @@ public class CiTargetMethod implements Serializable {
     private int frameSize = -1;
     private int customStackAreaOffset = -1;
     private int registerRestoreEpilogueOffset = -1;
+    private int osrEntryOffset = -1;
     private int deoptReturnAddressOffset;
 
     /**
@@ -479,6 +480,23 @@ public class CiTargetMethod implements Serializable {
         this.registerRestoreEpilogueOffset = registerRestoreEpilogueOffset;
     }
 
+    /**
+     * Sets the offset of the entry point of an on-stack replacement compilation.
+     *
+     * @param osrEntryOffset the offset in the machine code of the OSR entry point
+     */
+    public void setOsrEntryOffset(int osrEntryOffset) {
+        assert this.osrEntryOffset == -1;
+        this.osrEntryOffset = osrEntryOffset;
+    }
+
+    /**
+     * @return the code offset of the OSR entry point, or -1 if this is not an on-stack replacement compilation
+     */
+    public int osrEntryOffset() {
+        return osrEntryOffset;
+    }
+
     /**
      * The frame size of the method in bytes.
      *
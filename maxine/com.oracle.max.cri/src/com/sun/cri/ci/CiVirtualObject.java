@@ -36,7 +36,8 @@ public final class CiVirtualObject extends CiValue {
 
     /**
      * Creates a new CiVirtualObject for the given type, with the given fields. If the type is an instance class then the values array needs to have one entry for each field, ordered in
-     * like the fields returned by {@link RiResolvedType#declaredFields()}. If the type is an array then the length of the values array determines the reallocated array length.
+     * like the fields returned by {@link RiResolvedType#declaredFields()} for the type itself followed by the fields of its {@linkplain RiResolvedType#superType() super types}.
+     * If the type is an array then the length of the values array determines the reallocated array length.
      * @param type the type of the object whose allocation was removed during compilation. This can be either an instance of an array type.
      * @param values an array containing all the values to be stored into the object when it is recreated.
      * @param id a unique id that identifies the object within the debug information for one position in the compiled code.
@@ -103,7 +104,7 @@ public final class CiVirtualObject extends CiValue {
                 return false;
             }
             for (int i = 0; i < values.length; i++) {
-                if (values[i] != l.values[i]) {
+                if (!values[i].equals(l.values[i])) {
                     return false;
                 }
             }
@@ -114,7 +115,22 @@ public final class CiVirtualObject extends CiValue {
 
     @Override
     public boolean equalsIgnoringKind(CiValue o) {
-        return equals(o);
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof CiVirtualObject) {
+            CiVirtualObject l = (CiVirtualObject) o;
+            if (l.type != type || l.values.length != values.length) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (!values[i].equalsIgnoringKind(l.values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -188,6 +188,13 @@ public interface RiResolvedMethod extends RiMethod {
      */
     double[] switchProbability(int bci);
 
+    /**
+     * Returns how often compiled code of this method deoptimized because a speculative guard emitted for the
+     * instruction at the given byte code index failed.
+     * @return The number of failed guards, or -1 if this information isn't available.
+     */
+    int deoptimizationCount(int bci);
+
     /**
      * Returns a map that the compiler can use to store objects that should survive the current compilation.
      */
@@ -111,6 +111,18 @@ public interface RiXirGenerator {
      */
     XirSnippet genTypeCheck(XirSite site, XirArgument object, XirArgument hub, RiType type);
 
+    /**
+     * Generates code that checks that the {@linkplain Representation#ObjectHub hub} of
+     * an object is identical to one of two given hub constants. In pseudo code:
+     * <pre>
+     *     if (object.getHub() != hub && object.getHub() != otherHub) {
+     *         uncommonTrap();
+     *     }
+     * </pre>
+     * This snippet should only be used when the object is guaranteed not to be null.
+     */
+    XirSnippet genTypeCheck(XirSite site, XirArgument object, XirArgument hub, RiType type, XirArgument otherHub, RiType otherType);
+
     /**
      * Gets the list of XIR templates, using the given XIR assembler to create them if
      * they haven't yet been created.
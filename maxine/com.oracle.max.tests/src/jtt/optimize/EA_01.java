@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jtt.optimize;
+
+/*
+ * Tests scalar replacement of allocations that do not escape.
+ * @Harness: java
+ * @Runs: 0=3; 1=11; 2=44; 3=10; 4=0
+ */
+public class EA_01 {
+
+    static final class Pair {
+        final int a;
+        final int b;
+
+        Pair(int a, int b) {
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    static final class Cursor {
+        int position;
+        final int limit;
+
+        Cursor(int limit) {
+            this.limit = limit;
+        }
+    }
+
+    public static int test(int arg) {
+        if (arg == 0) {
+            return pair(1, 2);
+        }
+        if (arg == 1) {
+            return array(5, 6);
+        }
+        if (arg == 2) {
+            return narrow(300);
+        }
+        if (arg == 3) {
+            return cursor(5);
+        }
+        return 0;
+    }
+
+    static int pair(int a, int b) {
+        Pair p = new Pair(a, b);
+        return p.a + p.b;
+    }
+
+    static int array(int a, int b) {
+        int[] t = new int[2];
+        t[0] = a;
+        t[1] = b;
+        return t[0] + t[1] + t.length - 2;
+    }
+
+    static int narrow(int x) {
+        byte[] t = new byte[1];
+        t[0] = (byte) x;
+        return t[0];
+    }
+
+    static int cursor(int limit) {
+        // the position is updated in the loop, so the cursor is not scalar replaced
+        Cursor c = new Cursor(limit);
+        int sum = 0;
+        while (c.position < c.limit) {
+            sum += c.position++;
+        }
+        return sum;
+    }
+}
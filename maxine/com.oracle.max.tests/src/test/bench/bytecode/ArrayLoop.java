@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+/*
+ * @Harness: java
+ * @Runs: 1024 = true
+ */
+package test.bench.bytecode;
+
+import test.bench.util.*;
+
+/**
+ * A microbenchmark for counted loops over arrays, modeled after the inner loops of pixel blending and posting list
+ * scoring code. The loops index arrays with the induction variable, bounded either by the array length or by a loop
+ * invariant count, and read fields that are not written in the loop. They measure the benefit of range check
+ * elimination and loop invariant code motion.
+ */
+public class ArrayLoop extends RunBench {
+
+    protected ArrayLoop(int length) {
+        super(new Bench(length));
+    }
+
+    public static boolean test(int length) {
+        return new ArrayLoop(length).runBench();
+    }
+
+    static class Bench extends MicroBenchmark {
+        final float[] pixels;
+        final float[] weights;
+        final int[] docs;
+        final int[] freqs;
+        final int count;
+        float scale = 0.5f;
+        int base = 3;
+
+        Bench(int length) {
+            pixels = new float[length];
+            weights = new float[length];
+            docs = new int[length];
+            freqs = new int[length];
+            count = length / 2;
+            for (int i = 0; i < length; i++) {
+                weights[i] = i;
+                docs[i] = i * 2;
+                freqs[i] = i & 7;
+            }
+        }
+
+        private void blend() {
+            // bounded by the array length
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = pixels[i] * scale + weights[i];
+            }
+        }
+
+        private long score() {
+            // bounded by a loop invariant count
+            long sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += docs[i] + freqs[i] * base;
+            }
+            return sum;
+        }
+
+        @Override
+        public long run() {
+            blend();
+            return score();
+        }
+    }
+
+    public static void main(String[] args) {
+        test(1024);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+/*
+ * @Harness: java
+ * @Runs: 10000000 = true
+ */
+package test.bench.bytecode;
+
+import test.bench.util.*;
+
+/**
+ * A microbenchmark whose every run is a single long-running loop, as found in the {@code main} method of simple
+ * programs. The method containing the loop is entered only a few times, so it only runs optimized code if the
+ * baseline activation executing the loop is transferred to optimized code by on-stack replacement.
+ */
+public class OsrLoop extends RunBench {
+
+    protected OsrLoop(int iterations) {
+        super(new Bench(iterations));
+    }
+
+    public static boolean test(int iterations) {
+        return new OsrLoop(iterations).runBench();
+    }
+
+    static class Bench extends MicroBenchmark {
+        final int iterations;
+        final int[] values = new int[256];
+
+        Bench(int iterations) {
+            this.iterations = iterations;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = i * 31;
+            }
+        }
+
+        @Override
+        public long run() {
+            long sum = 0;
+            int[] a = values;
+            for (int i = 0; i < iterations; i++) {
+                sum += a[i & 0xff] ^ i;
+            }
+            return sum;
+        }
+    }
+
+    public static void main(String[] args) {
+        test(10000000);
+    }
+}
@@ -59,7 +59,7 @@ import com.sun.max.vm.thread.*;
 /**
  * Integration of the C1X compiler into Maxine's compilation framework.
  */
-public class C1X extends RuntimeCompiler.DefaultNameAdapter implements RuntimeCompiler {
+public class C1X extends RuntimeCompiler.DefaultNameAdapter implements RuntimeCompiler, RuntimeCompiler.OsrCompiler {
 
     /**
      * The Maxine specific implementation of the {@linkplain RiRuntime runtime interface} needed by C1X.
@@ -118,6 +118,10 @@ public class C1X extends RuntimeCompiler.DefaultNameAdapter implements RuntimeCo
                     "the \"~\") is interpreted as a regular expression. Otherwise, " +
                     "<arg> is interpreted as a simple substring.");
 
+            map.put("LogCompilationPhases",
+                    "Write a record with the bytecode size, code size and the time spent in each " +
+                    "compiler phase for every compilation to the file <arg> in CSV format.");
+
             map.put("TraceBytecodeParserLevel",
                     "Trace frontend bytecode parser at level <n> where 0 means no " +
                     "tracing, 1 means instruction tracing and 2 means instruction " +
@@ -133,6 +137,38 @@ public class C1X extends RuntimeCompiler.DefaultNameAdapter implements RuntimeCo
             map.put("UseStackMapTableLiveness",
                     "Use liveness information derived from StackMapTable class file attribute.");
 
+            map.put("UseTypeProfile",
+                    "Inline virtual and interface calls whose receiver types recorded by the baseline " +
+                    "compiler are dominated by one or two types, guarded by a hub check that deoptimizes.");
+
+            map.put("UseBranchProfile",
+                    "Lay out blocks entered only through branches the baseline compiler never saw taken " +
+                    "after all other blocks of their loop, or at the end of the method.");
+
+            map.put("OptLoopInvariantCodeMotion",
+                    "Hoist side-effect free instructions whose inputs are defined outside a loop " +
+                    "into the loop pre-header.");
+
+            map.put("OptRangeCheckElimination",
+                    "Remove the bounds checks of array accesses indexed by the induction variable of " +
+                    "counted loops, guarded if needed by a check before the loop that deoptimizes.");
+
+            map.put("OptEscapeAnalysis",
+                    "Replace the fields of objects and small arrays that do not escape the compiled method " +
+                    "by local values, reallocating them on deoptimization.");
+
+            map.put("EscapeAnalysisMaxArrayLength",
+                    "Maximum length of an array allocation considered for scalar replacement.");
+
+            map.put("EscapeAnalysisMaxFields",
+                    "Maximum number of fields of an object allocation considered for scalar replacement.");
+
+            map.put("TypeProfileMinimumCount",
+                    "Minimum number of receivers a call site must have recorded for its type profile to be used.");
+
+            map.put("TypeProfileMajorReceiverRatio",
+                    "Minimum fraction of the recorded receivers the profiled types of a call site must cover.");
+
             for (String name : map.keySet()) {
                 try {
                     C1XOptions.class.getField(name);
@@ -184,6 +220,8 @@ public class C1X extends RuntimeCompiler.DefaultNameAdapter implements RuntimeCo
         if (phase == Phase.STARTING) {
             // Speculative opts are ok provided the compilation broker can handle deopt
             C1XOptions.UseAssumptions = vm().compilationBroker.isDeoptSupported() && Deoptimization.UseDeopt;
+            // Profile-guided inlining relies on deoptimization when a type guard fails
+            C1XOptions.UseTypeProfile = C1XOptions.UseTypeProfile && C1XOptions.UseAssumptions;
         } else if (phase == Phase.TERMINATING) {
             if (C1XOptions.PrintMetrics) {
                 C1XMetrics.print();
@@ -256,17 +294,25 @@ public class C1X extends RuntimeCompiler.DefaultNameAdapter implements RuntimeCo
     }
 
     public TargetMethod compile(final ClassMethodActor method, boolean isDeopt, boolean install, CiStatistics stats) {
+        return compile(method, -1, install, stats);
+    }
+
+    public TargetMethod compileOsr(ClassMethodActor method, int osrBCI) {
+        return compile(method, osrBCI, true, null);
+    }
+
+    private TargetMethod compile(ClassMethodActor method, int osrBCI, boolean install, CiStatistics stats) {
         CiTargetMethod compiledMethod;
         do {
             DebugInfoLevel debugInfoLevel = method.isTemplate() ? DebugInfoLevel.REF_MAPS : DebugInfoLevel.FULL;
-            compiledMethod = compiler().compileMethod(method, -1, stats, debugInfoLevel).targetMethod();
+            compiledMethod = compiler().compileMethod(method, osrBCI, stats, debugInfoLevel).targetMethod();
             Dependencies deps = Dependencies.validateDependencies(compiledMethod.assumptions());
             if (deps != Dependencies.INVALID) {
-                if (C1XOptions.PrintTimers) {
+                if (C1XTimers.enabled()) {
                     C1XTimers.INSTALL.start();
                 }
                 MaxTargetMethod maxTargetMethod = new MaxTargetMethod(method, compiledMethod, install);
-                if (C1XOptions.PrintTimers) {
+                if (C1XTimers.enabled()) {
                     C1XTimers.INSTALL.stop();
                 }
                 if (deps != null) {
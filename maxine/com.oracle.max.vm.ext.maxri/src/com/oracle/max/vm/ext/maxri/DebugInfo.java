@@ -452,30 +452,7 @@ public final class DebugInfo {
         int n = numLocals + numStack + numLocks;
         CiValue[] values = new CiValue[n];
         for (int i = 0; i < n; i++) {
-            CiValue value = readValue(in, regRefMap, frameRefMap);
-            if (fa != null) {
-                value = toLiveSlot(fa, value);
-            } else {
-                if (stackSlotAsAddress && value != null && value.isStackSlot()) {
-                    CiStackSlot ss = (CiStackSlot) value;
-                    CiRegister fp;
-                    if (platform().isa == ISA.AMD64) {
-                        fp = AMD64.rsp;
-                    } else {
-                        throw FatalError.unimplemented();
-                    }
-                    final int offsetInFrame = ss.index() * target().spillSlotSize;
-                    if (ss.inCallerFrame()) {
-                        int callerFrame = tm.frameSize() + target().arch.returnAddressSize;
-                        int offset = callerFrame + offsetInFrame;
-                        value = new CiAddress(ss.kind, fp.asValue(), offset);
-                    } else {
-                        value = new CiAddress(ss.kind, fp.asValue(), offsetInFrame);
-                    }
-                }
-            }
-
-            values[i] = value;
+            values[i] = translateValue(readValue(in, regRefMap, frameRefMap), fa, stackSlotAsAddress);
         }
 
         CiFrame caller = null;
@@ -487,6 +464,41 @@ public final class DebugInfo {
         return new CiFrame(caller, method, bci, rethrowException, values, numLocals, numStack, numLocks);
     }
 
+    /**
+     * Translates a decoded value to the value in a live frame or to a stack address, as requested by the caller of
+     * {@link #infoAt(int, FrameAccess, boolean)}. The values of a {@link CiVirtualObject} are translated recursively.
+     */
+    private CiValue translateValue(CiValue value, FrameAccess fa, boolean stackSlotAsAddress) {
+        if (value instanceof CiVirtualObject) {
+            CiVirtualObject object = (CiVirtualObject) value;
+            CiValue[] values = new CiValue[object.values().length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = translateValue(object.values()[i], fa, stackSlotAsAddress);
+            }
+            return CiVirtualObject.get(object.type(), values, object.id());
+        }
+        if (fa != null) {
+            return toLiveSlot(fa, value);
+        }
+        if (stackSlotAsAddress && value != null && value.isStackSlot()) {
+            CiStackSlot ss = (CiStackSlot) value;
+            CiRegister fp;
+            if (platform().isa == ISA.AMD64) {
+                fp = AMD64.rsp;
+            } else {
+                throw FatalError.unimplemented();
+            }
+            final int offsetInFrame = ss.index() * target().spillSlotSize;
+            if (ss.inCallerFrame()) {
+                int callerFrame = tm.frameSize() + target().arch.returnAddressSize;
+                int offset = callerFrame + offsetInFrame;
+                return new CiAddress(ss.kind, fp.asValue(), offset);
+            }
+            return new CiAddress(ss.kind, fp.asValue(), offsetInFrame);
+        }
+        return value;
+    }
+
     private static CiValue toLiveSlot(FrameAccess fa, CiValue value) {
         if (value.isRegister()) {
             CiRegister reg = value.asRegister();
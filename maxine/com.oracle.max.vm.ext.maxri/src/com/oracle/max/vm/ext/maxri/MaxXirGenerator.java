@@ -156,6 +156,7 @@ public class MaxXirGenerator implements RiXirGenerator {
     private XirPair materializedInstanceofForNonLeafTemplate;
 
     private XirTemplate typeAssertTemplate;
+    private XirTemplate bimorphicTypeAssertTemplate;
 
     private XirTemplate exceptionObjectTemplate;
 
@@ -297,6 +298,7 @@ public class MaxXirGenerator implements RiXirGenerator {
         materializedInstanceofForNonLeafTemplate = buildMaterializeInstanceOf(false, false);
 
         typeAssertTemplate = buildTypeAssert();
+        bimorphicTypeAssertTemplate = buildBimorphicTypeAssert();
 
         exceptionObjectTemplate = buildExceptionObject();
 
@@ -620,6 +622,13 @@ public class MaxXirGenerator implements RiXirGenerator {
         return new XirSnippet(typeAssertTemplate, object, hub);
     }
 
+    @Override
+    public XirSnippet genTypeCheck(XirSite site, XirArgument object, XirArgument hub, RiType type, XirArgument otherHub, RiType otherType) {
+        assert type instanceof RiResolvedType && otherType instanceof RiResolvedType;
+        assert site.isNonNull(object);
+        return new XirSnippet(bimorphicTypeAssertTemplate, object, hub, otherHub);
+    }
+
     @Override
     public XirSnippet genArrayLoad(XirSite site, XirArgument array, XirArgument index, CiKind elementKind, RiType elementType) {
         XirTemplate template;
@@ -1648,6 +1657,31 @@ public class MaxXirGenerator implements RiXirGenerator {
         return asm.finishTemplate(object, "typeCheck");
     }
 
+    @HOSTED_ONLY
+    private XirTemplate buildBimorphicTypeAssert() {
+        asm.restart();
+        XirParameter object = asm.createInputParameter("object", CiKind.Object);
+        XirOperand hub = asm.createConstantInputParameter("hub", CiKind.Object);
+        XirOperand otherHub = asm.createConstantInputParameter("otherHub", CiKind.Object);
+
+        XirOperand objHub = asm.createTemp("objHub", CiKind.Object);
+        XirLabel success = asm.createInlineLabel("success");
+        XirLabel slowPath = asm.createOutOfLineLabel("deopt");
+
+        asm.pload(CiKind.Object, objHub, object, asm.i(hubOffset()), false);
+        // if we get an exact match with either hub: continue
+        asm.jeq(success, objHub, hub);
+        asm.jneq(slowPath, objHub, otherHub);
+        asm.bindInline(success);
+
+        // -- out of line -------------------------------------------------------
+        asm.bindOutOfLine(slowPath);
+        asm.callRuntime(CiRuntimeCall.Deoptimize, null);
+        asm.shouldNotReachHere();
+
+        return asm.finishTemplate(object, "bimorphicTypeCheck");
+    }
+
     @HOSTED_ONLY
     private XirPair buildInstanceofForNonLeaf(boolean nonnull) {
         XirTemplate resolved;
@@ -32,6 +32,7 @@ import com.oracle.max.vm.ext.maxri.Package.MaxRiObjectMapContributor;
 import com.sun.cri.ci.*;
 import com.sun.max.annotate.*;
 import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.compiler.*;
 import com.sun.max.vm.runtime.*;
 
@@ -213,6 +214,11 @@ public class ValueCodec {
      */
     final static int NONOBJECT_CONSTANT_INDEX_MONITOR_VALUE = 3;
 
+    /**
+     * Reserved non-object constant index denoting that following is an encoded {@link CiVirtualObject}.
+     */
+    final static int NONOBJECT_CONSTANT_INDEX_VIRTUAL_OBJECT = 4;
+
     static {
         // Reserve index 0 for CiValue.IllegalValue
         nonObjectConstants.put(CiConstant.forObject(new Object()), NONOBJECT_CONSTANT_INDEX_ILLEGAL_VALUE);
@@ -222,6 +228,8 @@ public class ValueCodec {
         nonObjectConstants.put(CiConstant.forObject(new Object()), NONOBJECT_CONSTANT_INDEX_DOUBLE_STACKSLOT_OR_REGISTER);
         // Reserve index 3 to denote an encoded monitor
         nonObjectConstants.put(CiConstant.forObject(new Object()), NONOBJECT_CONSTANT_INDEX_MONITOR_VALUE);
+        // Reserve index 4 to denote an encoded virtual object
+        nonObjectConstants.put(CiConstant.forObject(new Object()), NONOBJECT_CONSTANT_INDEX_VIRTUAL_OBJECT);
 
         for (Field field : CiConstant.class.getFields()) {
             if (field.getType() == CiConstant.class) {
@@ -290,6 +298,15 @@ public class ValueCodec {
             writeValue(out, monitor.owner);
             writeValue(out, monitor.lockData);
             writeValue(out, CiConstant.forBoolean(monitor.eliminated));
+        } else if (value instanceof CiVirtualObject) {
+            CiVirtualObject object = (CiVirtualObject) value;
+            out.write(TYPE.set(NONOBJECT_CONSTANT_INDEX_VIRTUAL_OBJECT, TYPE_NONOBJECT_CONSTANT));
+            out.encodeUInt(object.id());
+            out.encodeUInt(((ClassActor) object.type()).id);
+            out.encodeUInt(object.values().length);
+            for (CiValue v : object.values()) {
+                writeValue(out, v);
+            }
         } else {
             assert value.isConstant() : "cannot encode " + value;
             CiConstant c = (CiConstant) value;
@@ -422,6 +439,14 @@ public class ValueCodec {
                     lockData = null;
                 }
                 return new CiMonitorValue(owner, lockData, eliminated.asBoolean());
+            } else if (index == NONOBJECT_CONSTANT_INDEX_VIRTUAL_OBJECT) {
+                int id = in.decodeUInt();
+                ClassActor holder = ClassIDManager.toClassActor(in.decodeUInt());
+                CiValue[] values = new CiValue[in.decodeUInt()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readValue(in, regRefMap, frameRefMap);
+                }
+                return CiVirtualObject.get(holder, values, id);
             } else if (index == NONOBJECT_CONSTANT_INDEX_LONG_STACKSLOT_OR_REGISTER) {
                 CiValue value = readValue(in, regRefMap, frameRefMap);
                 if (value.isStackSlot()) {
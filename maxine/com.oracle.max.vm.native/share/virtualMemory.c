@@ -40,6 +40,11 @@
 #include <sys/sysctl.h>
 #endif
 
+#if os_LINUX
+#include <stdio.h>
+#include <sys/syscall.h>
+#endif
+
 /* There is a problem binding these identifiers in RedHat's include files, so we fake them: */
 #if os_LINUX
 #   ifndef MAP_ANONYMOUS
@@ -231,6 +236,77 @@ Size virtualMemory_getPhysicalMemorySize(void) {
     return physicalMemory;
 }
 
+/* NUMA support. We issue the system calls directly so as to not depend on libnuma. */
+#if os_LINUX
+#   ifndef MPOL_PREFERRED
+#       define MPOL_PREFERRED   1
+#   endif
+#   ifndef MPOL_MF_MOVE
+#       define MPOL_MF_MOVE     (1 << 1)
+#   endif
+#   define MAX_NUMA_NODES       ((int) (sizeof(unsigned long) * 8))
+#endif
+
+static int numaNodeCount = 0;
+
+/*
+ * Returns the number of NUMA nodes of the host, 1 if the host isn't a NUMA machine or if NUMA isn't supported.
+ */
+int virtualMemory_getNumaNodeCount(void) {
+    if (numaNodeCount == 0) {
+        int count = 0;
+#if os_LINUX
+        char path[64];
+        while (count < MAX_NUMA_NODES) {
+            snprintf(path, sizeof(path), "/sys/devices/system/node/node%d", count);
+            if (access(path, F_OK) != 0) {
+                break;
+            }
+            count++;
+        }
+#endif
+        numaNodeCount = count > 0 ? count : 1;
+    }
+    return numaNodeCount;
+}
+
+/*
+ * Returns the NUMA node of the CPU the current thread runs on, 0 if it cannot be determined.
+ */
+int virtualMemory_getCurrentNumaNode(void) {
+#if os_LINUX && defined(SYS_getcpu)
+    unsigned int cpu = 0;
+    unsigned int node = 0;
+    if (syscall(SYS_getcpu, &cpu, &node, NULL) == 0) {
+        return (int) node;
+    }
+#endif
+    return 0;
+}
+
+/*
+ * Sets the memory policy of the specified range of virtual memory so that its pages are preferably
+ * allocated on the specified NUMA node. Pages of the range already in use are migrated to the node.
+ * The range must be page aligned.
+ */
+jboolean virtualMemory_bindToNumaNode(Address address, Size size, int node) {
+    c_ASSERT(virtualMemory_pageAlign(address) == address);
+#if os_LINUX && defined(SYS_mbind)
+    if (node >= 0 && node < MAX_NUMA_NODES) {
+        unsigned long nodeMask = 1UL << node;
+        /* The kernel reads one bit less than maxnode, so pass the number of bits of the mask plus one. */
+        unsigned long maxNode = sizeof(nodeMask) * 8 + 1;
+        if (syscall(SYS_mbind, (void *) address, (unsigned long) size, MPOL_PREFERRED, &nodeMask, maxNode, MPOL_MF_MOVE) == 0) {
+            return JNI_TRUE;
+        }
+#if log_LOADER
+        log_println("virtualMemory_bindToNumaNode(address=%p, size=%p, node=%d) failed: %s", address, size, node, strerror(errno));
+#endif
+    }
+#endif
+    return JNI_FALSE;
+}
+
 /*
  * Aligns a given address up to the next page-aligned address if it is not already page-aligned.
  */
@@ -49,6 +49,10 @@ extern Size virtualMemory_getPhysicalMemorySize(void);
 
 extern Address virtualMemory_pageAlign(Address address);
 
+extern int virtualMemory_getNumaNodeCount(void);
+extern int virtualMemory_getCurrentNumaNode(void);
+extern jboolean virtualMemory_bindToNumaNode(Address address, Size size, int node);
+
 extern void virtualMemory_protectPages(Address address, int count);
 extern void virtualMemory_unprotectPages(Address address, int count);
 #endif /*__virtualMemory_h__*/
@@ -572,6 +572,7 @@ public class JTConfig {
         jtt.optimize.Conditional01.class,
         jtt.optimize.DeadCode01.class,
         jtt.optimize.DeadCode02.class,
+        jtt.optimize.EA_01.class,
         jtt.optimize.Fold_Cast01.class,
         jtt.optimize.Fold_Convert01.class,
         jtt.optimize.Fold_Convert02.class,
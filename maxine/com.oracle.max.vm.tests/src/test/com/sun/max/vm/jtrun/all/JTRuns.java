@@ -619,213 +619,214 @@ public class JTRuns {
             case 537: jtt_optimize_Conditional01(); break;
             case 538: jtt_optimize_DeadCode01(); break;
             case 539: jtt_optimize_DeadCode02(); break;
-            case 540: jtt_optimize_Fold_Cast01(); break;
-            case 541: jtt_optimize_Fold_Convert01(); break;
-            case 542: jtt_optimize_Fold_Convert02(); break;
-            case 543: jtt_optimize_Fold_Convert03(); break;
-            case 544: jtt_optimize_Fold_Convert04(); break;
-            case 545: jtt_optimize_Fold_Double01(); break;
-            case 546: jtt_optimize_Fold_Double02(); break;
-            case 547: jtt_optimize_Fold_Double03(); break;
-            case 548: jtt_optimize_Fold_Float01(); break;
-            case 549: jtt_optimize_Fold_Float02(); break;
-            case 550: jtt_optimize_Fold_InstanceOf01(); break;
-            case 551: jtt_optimize_Fold_Int01(); break;
-            case 552: jtt_optimize_Fold_Int02(); break;
-            case 553: jtt_optimize_Fold_Long01(); break;
-            case 554: jtt_optimize_Fold_Long02(); break;
-            case 555: jtt_optimize_Fold_Math01(); break;
-            case 556: jtt_optimize_Inline01(); break;
-            case 557: jtt_optimize_Inline02(); break;
-            case 558: jtt_optimize_LLE_01(); break;
-            case 559: jtt_optimize_List_reorder_bug(); break;
-            case 560: jtt_optimize_NCE_01(); break;
-            case 561: jtt_optimize_NCE_02(); break;
-            case 562: jtt_optimize_NCE_03(); break;
-            case 563: jtt_optimize_NCE_04(); break;
-            case 564: jtt_optimize_NCE_FlowSensitive01(); break;
-            case 565: jtt_optimize_NCE_FlowSensitive02(); break;
-            case 566: jtt_optimize_NCE_FlowSensitive03(); break;
-            case 567: jtt_optimize_NCE_FlowSensitive04(); break;
-            case 568: jtt_optimize_NCE_FlowSensitive05(); break;
-            case 569: jtt_optimize_Narrow_byte01(); break;
-            case 570: jtt_optimize_Narrow_byte02(); break;
-            case 571: jtt_optimize_Narrow_byte03(); break;
-            case 572: jtt_optimize_Narrow_char01(); break;
-            case 573: jtt_optimize_Narrow_char02(); break;
-            case 574: jtt_optimize_Narrow_char03(); break;
-            case 575: jtt_optimize_Narrow_short01(); break;
-            case 576: jtt_optimize_Narrow_short02(); break;
-            case 577: jtt_optimize_Narrow_short03(); break;
-            case 578: jtt_optimize_Phi01(); break;
-            case 579: jtt_optimize_Phi02(); break;
-            case 580: jtt_optimize_Phi03(); break;
-            case 581: jtt_optimize_Reduce_Convert01(); break;
-            case 582: jtt_optimize_Reduce_Double01(); break;
-            case 583: jtt_optimize_Reduce_Float01(); break;
-            case 584: jtt_optimize_Reduce_Int01(); break;
-            case 585: jtt_optimize_Reduce_Int02(); break;
-            case 586: jtt_optimize_Reduce_Int03(); break;
-            case 587: jtt_optimize_Reduce_Int04(); break;
-            case 588: jtt_optimize_Reduce_IntShift01(); break;
-            case 589: jtt_optimize_Reduce_IntShift02(); break;
-            case 590: jtt_optimize_Reduce_Long01(); break;
-            case 591: jtt_optimize_Reduce_Long02(); break;
-            case 592: jtt_optimize_Reduce_Long03(); break;
-            case 593: jtt_optimize_Reduce_Long04(); break;
-            case 594: jtt_optimize_Reduce_LongShift01(); break;
-            case 595: jtt_optimize_Reduce_LongShift02(); break;
-            case 596: jtt_optimize_Switch01(); break;
-            case 597: jtt_optimize_Switch02(); break;
-            case 598: jtt_optimize_TypeCastElem(); break;
-            case 599: jtt_optimize_VN_Cast01(); break;
-            case 600: jtt_optimize_VN_Cast02(); break;
-            case 601: jtt_optimize_VN_Convert01(); break;
-            case 602: jtt_optimize_VN_Convert02(); break;
-            case 603: jtt_optimize_VN_Double01(); break;
-            case 604: jtt_optimize_VN_Double02(); break;
-            case 605: jtt_optimize_VN_Field01(); break;
-            case 606: jtt_optimize_VN_Field02(); break;
-            case 607: jtt_optimize_VN_Float01(); break;
-            case 608: jtt_optimize_VN_Float02(); break;
-            case 609: jtt_optimize_VN_InstanceOf01(); break;
-            case 610: jtt_optimize_VN_InstanceOf02(); break;
-            case 611: jtt_optimize_VN_InstanceOf03(); break;
-            case 612: jtt_optimize_VN_Int01(); break;
-            case 613: jtt_optimize_VN_Int02(); break;
-            case 614: jtt_optimize_VN_Int03(); break;
-            case 615: jtt_optimize_VN_Long01(); break;
-            case 616: jtt_optimize_VN_Long02(); break;
-            case 617: jtt_optimize_VN_Long03(); break;
-            case 618: jtt_optimize_VN_Loop01(); break;
-            case 619: jtt_reflect_Array_get01(); break;
-            case 620: jtt_reflect_Array_get02(); break;
-            case 621: jtt_reflect_Array_get03(); break;
-            case 622: jtt_reflect_Array_getBoolean01(); break;
-            case 623: jtt_reflect_Array_getByte01(); break;
-            case 624: jtt_reflect_Array_getChar01(); break;
-            case 625: jtt_reflect_Array_getDouble01(); break;
-            case 626: jtt_reflect_Array_getFloat01(); break;
-            case 627: jtt_reflect_Array_getInt01(); break;
-            case 628: jtt_reflect_Array_getLength01(); break;
-            case 629: jtt_reflect_Array_getLong01(); break;
-            case 630: jtt_reflect_Array_getShort01(); break;
-            case 631: jtt_reflect_Array_newInstance01(); break;
-            case 632: jtt_reflect_Array_newInstance02(); break;
-            case 633: jtt_reflect_Array_newInstance03(); break;
-            case 634: jtt_reflect_Array_newInstance04(); break;
-            case 635: jtt_reflect_Array_newInstance05(); break;
-            case 636: jtt_reflect_Array_newInstance06(); break;
-            case 637: jtt_reflect_Array_set01(); break;
-            case 638: jtt_reflect_Array_set02(); break;
-            case 639: jtt_reflect_Array_set03(); break;
-            case 640: jtt_reflect_Array_setBoolean01(); break;
-            case 641: jtt_reflect_Array_setByte01(); break;
-            case 642: jtt_reflect_Array_setChar01(); break;
-            case 643: jtt_reflect_Array_setDouble01(); break;
-            case 644: jtt_reflect_Array_setFloat01(); break;
-            case 645: jtt_reflect_Array_setInt01(); break;
-            case 646: jtt_reflect_Array_setLong01(); break;
-            case 647: jtt_reflect_Array_setShort01(); break;
-            case 648: jtt_reflect_Class_getDeclaredField01(); break;
-            case 649: jtt_reflect_Class_getDeclaredMethod01(); break;
-            case 650: jtt_reflect_Class_getField01(); break;
-            case 651: jtt_reflect_Class_getField02(); break;
-            case 652: jtt_reflect_Class_getMethod01(); break;
-            case 653: jtt_reflect_Class_getMethod02(); break;
-            case 654: jtt_reflect_Class_newInstance01(); break;
-            case 655: jtt_reflect_Class_newInstance02(); break;
-            case 656: jtt_reflect_Class_newInstance03(); break;
-            case 657: jtt_reflect_Class_newInstance06(); break;
-            case 658: jtt_reflect_Class_newInstance07(); break;
-            case 659: jtt_reflect_Field_get01(); break;
-            case 660: jtt_reflect_Field_get02(); break;
-            case 661: jtt_reflect_Field_get03(); break;
-            case 662: jtt_reflect_Field_get04(); break;
-            case 663: jtt_reflect_Field_getType01(); break;
-            case 664: jtt_reflect_Field_set01(); break;
-            case 665: jtt_reflect_Field_set02(); break;
-            case 666: jtt_reflect_Field_set03(); break;
-            case 667: jtt_reflect_Invoke_except01(); break;
-            case 668: jtt_reflect_Invoke_main01(); break;
-            case 669: jtt_reflect_Invoke_main02(); break;
-            case 670: jtt_reflect_Invoke_main03(); break;
-            case 671: jtt_reflect_Invoke_virtual01(); break;
-            case 672: jtt_reflect_Method_getParameterTypes01(); break;
-            case 673: jtt_reflect_Method_getReturnType01(); break;
-            case 674: jtt_reflect_Reflection_getCallerClass01(); break;
-            case 675: jtt_threads_Monitor_contended01(); break;
-            case 676: jtt_threads_Monitor_notowner01(); break;
-            case 677: jtt_threads_Monitorenter01(); break;
-            case 678: jtt_threads_Monitorenter02(); break;
-            case 679: jtt_threads_Object_wait01(); break;
-            case 680: jtt_threads_Object_wait02(); break;
-            case 681: jtt_threads_Object_wait03(); break;
-            case 682: jtt_threads_Object_wait04(); break;
-            case 683: jtt_threads_ThreadLocal01(); break;
-            case 684: jtt_threads_ThreadLocal02(); break;
-            case 685: jtt_threads_ThreadLocal03(); break;
-            case 686: jtt_threads_Thread_currentThread01(); break;
-            case 687: jtt_threads_Thread_getState01(); break;
-            case 688: jtt_threads_Thread_getState02(); break;
-            case 689: jtt_threads_Thread_holdsLock01(); break;
-            case 690: jtt_threads_Thread_isAlive01(); break;
-            case 691: jtt_threads_Thread_isInterrupted01(); break;
-            case 692: jtt_threads_Thread_isInterrupted02(); break;
-            case 693: jtt_threads_Thread_isInterrupted03(); break;
-            case 694: jtt_threads_Thread_isInterrupted04(); break;
-            case 695: jtt_threads_Thread_isInterrupted05(); break;
-            case 696: jtt_threads_Thread_join01(); break;
-            case 697: jtt_threads_Thread_join02(); break;
-            case 698: jtt_threads_Thread_join03(); break;
-            case 699: jtt_threads_Thread_new01(); break;
-            case 700: jtt_threads_Thread_new02(); break;
-            case 701: jtt_threads_Thread_setPriority01(); break;
-            case 702: jtt_threads_Thread_sleep01(); break;
-            case 703: jtt_threads_Thread_yield01(); break;
-            case 704: jtt_exbytecode_EBC_movd2l_01(); break;
-            case 705: jtt_exbytecode_EBC_movd2l_02(); break;
-            case 706: jtt_exbytecode_EBC_movd2l_03(); break;
-            case 707: jtt_exbytecode_EBC_movd2l_04(); break;
-            case 708: jtt_exbytecode_EBC_movf2i_01(); break;
-            case 709: jtt_exbytecode_EBC_movf2i_02(); break;
-            case 710: jtt_exbytecode_EBC_movf2i_03(); break;
-            case 711: jtt_exbytecode_EBC_movf2i_04(); break;
-            case 712: jtt_exbytecode_EBC_movi2f_01(); break;
-            case 713: jtt_exbytecode_EBC_movi2f_02(); break;
-            case 714: jtt_exbytecode_EBC_movi2f_03(); break;
-            case 715: jtt_exbytecode_EBC_movi2f_04(); break;
-            case 716: jtt_exbytecode_EBC_movl2d_01(); break;
-            case 717: jtt_exbytecode_EBC_movl2d_02(); break;
-            case 718: jtt_exbytecode_EBC_movl2d_03(); break;
-            case 719: jtt_exbytecode_EBC_movl2d_04(); break;
-            case 720: jtt_exbytecode_EBC_ucmp_ae_01(); break;
-            case 721: jtt_exbytecode_EBC_ucmp_at_01(); break;
-            case 722: jtt_exbytecode_EBC_ucmp_be_01(); break;
-            case 723: jtt_exbytecode_EBC_ucmp_bt_01(); break;
-            case 724: jtt_exbytecode_EBC_uwgt_01(); break;
-            case 725: jtt_exbytecode_EBC_uwgteq_01(); break;
-            case 726: jtt_exbytecode_EBC_uwlt_01(); break;
-            case 727: jtt_exbytecode_EBC_uwlteq_01(); break;
-            case 728: jtt_max_CodePointer01(); break;
-            case 729: jtt_max_CodePointer02(); break;
-            case 730: jtt_max_Fold01(); break;
-            case 731: jtt_max_Fold02(); break;
-            case 732: jtt_max_Fold03(); break;
-            case 733: jtt_max_Hub_Subtype01(); break;
-            case 734: jtt_max_Hub_Subtype02(); break;
-            case 735: jtt_max_ImmortalHeap_allocation(); break;
-            case 736: jtt_max_ImmortalHeap_gc(); break;
-            case 737: jtt_max_ImmortalHeap_switching(); break;
-            case 738: jtt_max_Inline01(); break;
-            case 739: jtt_max_Invoke_except01(); break;
-            case 740: jtt_max_LeastSignificantBit(); break;
-            case 741: jtt_max_MostSignificantBit(); break;
-            case 742: jtt_max_Prototyping01(); break;
-            case 743: jtt_max_Unsigned_idiv01(); break;
-            case 744: jtt_max_Unsigned_irem01(); break;
-            case 745: jtt_max_Unsigned_ldiv01(); break;
-            case 746: jtt_max_Unsigned_lrem01(); break;
+            case 540: jtt_optimize_EA_01(); break;
+            case 541: jtt_optimize_Fold_Cast01(); break;
+            case 542: jtt_optimize_Fold_Convert01(); break;
+            case 543: jtt_optimize_Fold_Convert02(); break;
+            case 544: jtt_optimize_Fold_Convert03(); break;
+            case 545: jtt_optimize_Fold_Convert04(); break;
+            case 546: jtt_optimize_Fold_Double01(); break;
+            case 547: jtt_optimize_Fold_Double02(); break;
+            case 548: jtt_optimize_Fold_Double03(); break;
+            case 549: jtt_optimize_Fold_Float01(); break;
+            case 550: jtt_optimize_Fold_Float02(); break;
+            case 551: jtt_optimize_Fold_InstanceOf01(); break;
+            case 552: jtt_optimize_Fold_Int01(); break;
+            case 553: jtt_optimize_Fold_Int02(); break;
+            case 554: jtt_optimize_Fold_Long01(); break;
+            case 555: jtt_optimize_Fold_Long02(); break;
+            case 556: jtt_optimize_Fold_Math01(); break;
+            case 557: jtt_optimize_Inline01(); break;
+            case 558: jtt_optimize_Inline02(); break;
+            case 559: jtt_optimize_LLE_01(); break;
+            case 560: jtt_optimize_List_reorder_bug(); break;
+            case 561: jtt_optimize_NCE_01(); break;
+            case 562: jtt_optimize_NCE_02(); break;
+            case 563: jtt_optimize_NCE_03(); break;
+            case 564: jtt_optimize_NCE_04(); break;
+            case 565: jtt_optimize_NCE_FlowSensitive01(); break;
+            case 566: jtt_optimize_NCE_FlowSensitive02(); break;
+            case 567: jtt_optimize_NCE_FlowSensitive03(); break;
+            case 568: jtt_optimize_NCE_FlowSensitive04(); break;
+            case 569: jtt_optimize_NCE_FlowSensitive05(); break;
+            case 570: jtt_optimize_Narrow_byte01(); break;
+            case 571: jtt_optimize_Narrow_byte02(); break;
+            case 572: jtt_optimize_Narrow_byte03(); break;
+            case 573: jtt_optimize_Narrow_char01(); break;
+            case 574: jtt_optimize_Narrow_char02(); break;
+            case 575: jtt_optimize_Narrow_char03(); break;
+            case 576: jtt_optimize_Narrow_short01(); break;
+            case 577: jtt_optimize_Narrow_short02(); break;
+            case 578: jtt_optimize_Narrow_short03(); break;
+            case 579: jtt_optimize_Phi01(); break;
+            case 580: jtt_optimize_Phi02(); break;
+            case 581: jtt_optimize_Phi03(); break;
+            case 582: jtt_optimize_Reduce_Convert01(); break;
+            case 583: jtt_optimize_Reduce_Double01(); break;
+            case 584: jtt_optimize_Reduce_Float01(); break;
+            case 585: jtt_optimize_Reduce_Int01(); break;
+            case 586: jtt_optimize_Reduce_Int02(); break;
+            case 587: jtt_optimize_Reduce_Int03(); break;
+            case 588: jtt_optimize_Reduce_Int04(); break;
+            case 589: jtt_optimize_Reduce_IntShift01(); break;
+            case 590: jtt_optimize_Reduce_IntShift02(); break;
+            case 591: jtt_optimize_Reduce_Long01(); break;
+            case 592: jtt_optimize_Reduce_Long02(); break;
+            case 593: jtt_optimize_Reduce_Long03(); break;
+            case 594: jtt_optimize_Reduce_Long04(); break;
+            case 595: jtt_optimize_Reduce_LongShift01(); break;
+            case 596: jtt_optimize_Reduce_LongShift02(); break;
+            case 597: jtt_optimize_Switch01(); break;
+            case 598: jtt_optimize_Switch02(); break;
+            case 599: jtt_optimize_TypeCastElem(); break;
+            case 600: jtt_optimize_VN_Cast01(); break;
+            case 601: jtt_optimize_VN_Cast02(); break;
+            case 602: jtt_optimize_VN_Convert01(); break;
+            case 603: jtt_optimize_VN_Convert02(); break;
+            case 604: jtt_optimize_VN_Double01(); break;
+            case 605: jtt_optimize_VN_Double02(); break;
+            case 606: jtt_optimize_VN_Field01(); break;
+            case 607: jtt_optimize_VN_Field02(); break;
+            case 608: jtt_optimize_VN_Float01(); break;
+            case 609: jtt_optimize_VN_Float02(); break;
+            case 610: jtt_optimize_VN_InstanceOf01(); break;
+            case 611: jtt_optimize_VN_InstanceOf02(); break;
+            case 612: jtt_optimize_VN_InstanceOf03(); break;
+            case 613: jtt_optimize_VN_Int01(); break;
+            case 614: jtt_optimize_VN_Int02(); break;
+            case 615: jtt_optimize_VN_Int03(); break;
+            case 616: jtt_optimize_VN_Long01(); break;
+            case 617: jtt_optimize_VN_Long02(); break;
+            case 618: jtt_optimize_VN_Long03(); break;
+            case 619: jtt_optimize_VN_Loop01(); break;
+            case 620: jtt_reflect_Array_get01(); break;
+            case 621: jtt_reflect_Array_get02(); break;
+            case 622: jtt_reflect_Array_get03(); break;
+            case 623: jtt_reflect_Array_getBoolean01(); break;
+            case 624: jtt_reflect_Array_getByte01(); break;
+            case 625: jtt_reflect_Array_getChar01(); break;
+            case 626: jtt_reflect_Array_getDouble01(); break;
+            case 627: jtt_reflect_Array_getFloat01(); break;
+            case 628: jtt_reflect_Array_getInt01(); break;
+            case 629: jtt_reflect_Array_getLength01(); break;
+            case 630: jtt_reflect_Array_getLong01(); break;
+            case 631: jtt_reflect_Array_getShort01(); break;
+            case 632: jtt_reflect_Array_newInstance01(); break;
+            case 633: jtt_reflect_Array_newInstance02(); break;
+            case 634: jtt_reflect_Array_newInstance03(); break;
+            case 635: jtt_reflect_Array_newInstance04(); break;
+            case 636: jtt_reflect_Array_newInstance05(); break;
+            case 637: jtt_reflect_Array_newInstance06(); break;
+            case 638: jtt_reflect_Array_set01(); break;
+            case 639: jtt_reflect_Array_set02(); break;
+            case 640: jtt_reflect_Array_set03(); break;
+            case 641: jtt_reflect_Array_setBoolean01(); break;
+            case 642: jtt_reflect_Array_setByte01(); break;
+            case 643: jtt_reflect_Array_setChar01(); break;
+            case 644: jtt_reflect_Array_setDouble01(); break;
+            case 645: jtt_reflect_Array_setFloat01(); break;
+            case 646: jtt_reflect_Array_setInt01(); break;
+            case 647: jtt_reflect_Array_setLong01(); break;
+            case 648: jtt_reflect_Array_setShort01(); break;
+            case 649: jtt_reflect_Class_getDeclaredField01(); break;
+            case 650: jtt_reflect_Class_getDeclaredMethod01(); break;
+            case 651: jtt_reflect_Class_getField01(); break;
+            case 652: jtt_reflect_Class_getField02(); break;
+            case 653: jtt_reflect_Class_getMethod01(); break;
+            case 654: jtt_reflect_Class_getMethod02(); break;
+            case 655: jtt_reflect_Class_newInstance01(); break;
+            case 656: jtt_reflect_Class_newInstance02(); break;
+            case 657: jtt_reflect_Class_newInstance03(); break;
+            case 658: jtt_reflect_Class_newInstance06(); break;
+            case 659: jtt_reflect_Class_newInstance07(); break;
+            case 660: jtt_reflect_Field_get01(); break;
+            case 661: jtt_reflect_Field_get02(); break;
+            case 662: jtt_reflect_Field_get03(); break;
+            case 663: jtt_reflect_Field_get04(); break;
+            case 664: jtt_reflect_Field_getType01(); break;
+            case 665: jtt_reflect_Field_set01(); break;
+            case 666: jtt_reflect_Field_set02(); break;
+            case 667: jtt_reflect_Field_set03(); break;
+            case 668: jtt_reflect_Invoke_except01(); break;
+            case 669: jtt_reflect_Invoke_main01(); break;
+            case 670: jtt_reflect_Invoke_main02(); break;
+            case 671: jtt_reflect_Invoke_main03(); break;
+            case 672: jtt_reflect_Invoke_virtual01(); break;
+            case 673: jtt_reflect_Method_getParameterTypes01(); break;
+            case 674: jtt_reflect_Method_getReturnType01(); break;
+            case 675: jtt_reflect_Reflection_getCallerClass01(); break;
+            case 676: jtt_threads_Monitor_contended01(); break;
+            case 677: jtt_threads_Monitor_notowner01(); break;
+            case 678: jtt_threads_Monitorenter01(); break;
+            case 679: jtt_threads_Monitorenter02(); break;
+            case 680: jtt_threads_Object_wait01(); break;
+            case 681: jtt_threads_Object_wait02(); break;
+            case 682: jtt_threads_Object_wait03(); break;
+            case 683: jtt_threads_Object_wait04(); break;
+            case 684: jtt_threads_ThreadLocal01(); break;
+            case 685: jtt_threads_ThreadLocal02(); break;
+            case 686: jtt_threads_ThreadLocal03(); break;
+            case 687: jtt_threads_Thread_currentThread01(); break;
+            case 688: jtt_threads_Thread_getState01(); break;
+            case 689: jtt_threads_Thread_getState02(); break;
+            case 690: jtt_threads_Thread_holdsLock01(); break;
+            case 691: jtt_threads_Thread_isAlive01(); break;
+            case 692: jtt_threads_Thread_isInterrupted01(); break;
+            case 693: jtt_threads_Thread_isInterrupted02(); break;
+            case 694: jtt_threads_Thread_isInterrupted03(); break;
+            case 695: jtt_threads_Thread_isInterrupted04(); break;
+            case 696: jtt_threads_Thread_isInterrupted05(); break;
+            case 697: jtt_threads_Thread_join01(); break;
+            case 698: jtt_threads_Thread_join02(); break;
+            case 699: jtt_threads_Thread_join03(); break;
+            case 700: jtt_threads_Thread_new01(); break;
+            case 701: jtt_threads_Thread_new02(); break;
+            case 702: jtt_threads_Thread_setPriority01(); break;
+            case 703: jtt_threads_Thread_sleep01(); break;
+            case 704: jtt_threads_Thread_yield01(); break;
+            case 705: jtt_exbytecode_EBC_movd2l_01(); break;
+            case 706: jtt_exbytecode_EBC_movd2l_02(); break;
+            case 707: jtt_exbytecode_EBC_movd2l_03(); break;
+            case 708: jtt_exbytecode_EBC_movd2l_04(); break;
+            case 709: jtt_exbytecode_EBC_movf2i_01(); break;
+            case 710: jtt_exbytecode_EBC_movf2i_02(); break;
+            case 711: jtt_exbytecode_EBC_movf2i_03(); break;
+            case 712: jtt_exbytecode_EBC_movf2i_04(); break;
+            case 713: jtt_exbytecode_EBC_movi2f_01(); break;
+            case 714: jtt_exbytecode_EBC_movi2f_02(); break;
+            case 715: jtt_exbytecode_EBC_movi2f_03(); break;
+            case 716: jtt_exbytecode_EBC_movi2f_04(); break;
+            case 717: jtt_exbytecode_EBC_movl2d_01(); break;
+            case 718: jtt_exbytecode_EBC_movl2d_02(); break;
+            case 719: jtt_exbytecode_EBC_movl2d_03(); break;
+            case 720: jtt_exbytecode_EBC_movl2d_04(); break;
+            case 721: jtt_exbytecode_EBC_ucmp_ae_01(); break;
+            case 722: jtt_exbytecode_EBC_ucmp_at_01(); break;
+            case 723: jtt_exbytecode_EBC_ucmp_be_01(); break;
+            case 724: jtt_exbytecode_EBC_ucmp_bt_01(); break;
+            case 725: jtt_exbytecode_EBC_uwgt_01(); break;
+            case 726: jtt_exbytecode_EBC_uwgteq_01(); break;
+            case 727: jtt_exbytecode_EBC_uwlt_01(); break;
+            case 728: jtt_exbytecode_EBC_uwlteq_01(); break;
+            case 729: jtt_max_CodePointer01(); break;
+            case 730: jtt_max_CodePointer02(); break;
+            case 731: jtt_max_Fold01(); break;
+            case 732: jtt_max_Fold02(); break;
+            case 733: jtt_max_Fold03(); break;
+            case 734: jtt_max_Hub_Subtype01(); break;
+            case 735: jtt_max_Hub_Subtype02(); break;
+            case 736: jtt_max_ImmortalHeap_allocation(); break;
+            case 737: jtt_max_ImmortalHeap_gc(); break;
+            case 738: jtt_max_ImmortalHeap_switching(); break;
+            case 739: jtt_max_Inline01(); break;
+            case 740: jtt_max_Invoke_except01(); break;
+            case 741: jtt_max_LeastSignificantBit(); break;
+            case 742: jtt_max_MostSignificantBit(); break;
+            case 743: jtt_max_Prototyping01(); break;
+            case 744: jtt_max_Unsigned_idiv01(); break;
+            case 745: jtt_max_Unsigned_irem01(); break;
+            case 746: jtt_max_Unsigned_ldiv01(); break;
+            case 747: jtt_max_Unsigned_lrem01(); break;
         }
         return true;
     }
@@ -20125,6 +20126,46 @@ public class JTRuns {
             }
             pass();
         }
+        static void jtt_optimize_EA_01() {
+            begin("jtt.optimize.EA_01");
+            String runString = null;
+            try {
+            // (0) == 3
+                runString = "(0)";
+                if (3 != jtt.optimize.EA_01.test(0)) {
+                    fail(runString);
+                    return;
+                }
+            // (1) == 11
+                runString = "(1)";
+                if (11 != jtt.optimize.EA_01.test(1)) {
+                    fail(runString);
+                    return;
+                }
+            // (2) == 44
+                runString = "(2)";
+                if (44 != jtt.optimize.EA_01.test(2)) {
+                    fail(runString);
+                    return;
+                }
+            // (3) == 10
+                runString = "(3)";
+                if (10 != jtt.optimize.EA_01.test(3)) {
+                    fail(runString);
+                    return;
+                }
+            // (4) == 0
+                runString = "(4)";
+                if (0 != jtt.optimize.EA_01.test(4)) {
+                    fail(runString);
+                    return;
+                }
+            } catch (Throwable t) {
+                fail(runString, t);
+                return;
+            }
+            pass();
+        }
         static void jtt_optimize_Fold_Cast01() {
             begin("jtt.optimize.Fold_Cast01");
             String runString = null;
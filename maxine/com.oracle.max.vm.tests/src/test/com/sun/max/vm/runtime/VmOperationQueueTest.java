@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.com.sun.max.vm.runtime;
+
+import junit.framework.*;
+import test.com.sun.max.vm.*;
+
+import com.sun.max.ide.*;
+import com.sun.max.vm.runtime.*;
+
+/**
+ * Tests the priority ordering of the {@link VmOperationQueue} and the draining of batchable operations into a
+ * {@link VmOperationThread.Batch}.
+ */
+public class VmOperationQueueTest extends MaxTestCase {
+
+    public VmOperationQueueTest(String name) {
+        super(name);
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(VmOperationQueueTest.suite());
+    }
+
+    public static Test suite() {
+        return new VmTestSetup(new TestSuite(VmOperationQueueTest.class));
+    }
+
+    static final class Operation extends VmOperation {
+        final Priority priority;
+        final boolean allowsBatching;
+
+        Operation(String name, Mode mode, Priority priority, boolean allowsBatching) {
+            super(name, null, mode);
+            this.priority = priority;
+            this.allowsBatching = allowsBatching;
+        }
+
+        Operation(String name, Priority priority, boolean allowsBatching) {
+            this(name, Mode.Safepoint, priority, allowsBatching);
+        }
+
+        @Override
+        protected Priority priority() {
+            return priority;
+        }
+
+        @Override
+        protected boolean allowsBatching() {
+            return allowsBatching;
+        }
+    }
+
+    private static void assertPolled(VmOperationQueue queue, VmOperation... expected) {
+        for (VmOperation operation : expected) {
+            assertSame(operation, queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    public void test_priorityOrder() {
+        final VmOperationQueue queue = new VmOperationQueue();
+        final Operation normal1 = new Operation("normal1", VmOperation.Priority.Normal, false);
+        final Operation low1 = new Operation("low1", VmOperation.Priority.Low, false);
+        final Operation normal2 = new Operation("normal2", VmOperation.Priority.Normal, false);
+        final Operation high1 = new Operation("high1", VmOperation.Priority.High, false);
+        final Operation low2 = new Operation("low2", VmOperation.Priority.Low, false);
+        final Operation high2 = new Operation("high2", VmOperation.Priority.High, false);
+        queue.add(normal1);
+        queue.add(low1);
+        queue.add(normal2);
+        queue.add(high1);
+        queue.add(low2);
+        queue.add(high2);
+        // Decreasing priority, submission order within a priority
+        assertPolled(queue, high1, high2, normal1, normal2, low1, low2);
+    }
+
+    public void test_addFirstAndLast() {
+        final VmOperationQueue queue = new VmOperationQueue();
+        final Operation high = new Operation("high", VmOperation.Priority.High, false);
+        final Operation low = new Operation("low", VmOperation.Priority.Low, false);
+        final Operation first = new Operation("first", VmOperation.Priority.Low, false);
+        queue.add(low);
+        queue.add(high);
+        queue.addFirst(first);
+        assertPolled(queue, first, high, low);
+    }
+
+    public void test_pollBatchable() {
+        final VmOperationQueue queue = new VmOperationQueue();
+        final Operation plain = new Operation("plain", VmOperation.Priority.High, false);
+        final Operation concurrent = new Operation("concurrent", VmOperation.Mode.Concurrent, VmOperation.Priority.Normal, true);
+        final Operation batchable1 = new Operation("batchable1", VmOperation.Priority.Normal, true);
+        final Operation batchable2 = new Operation("batchable2", VmOperation.Priority.Low, true);
+        queue.add(batchable2);
+        queue.add(plain);
+        queue.add(concurrent);
+        queue.add(batchable1);
+        assertSame(batchable1, queue.pollBatchable());
+        assertSame(batchable2, queue.pollBatchable());
+        assertNull(queue.pollBatchable());
+        // Operations that cannot be batched stay queued in order
+        assertPolled(queue, plain, concurrent);
+    }
+
+    public void test_batch() {
+        final VmOperationQueue queue = new VmOperationQueue();
+        final VmOperationThread.Batch batch = new VmOperationThread.Batch();
+        final Operation current = new Operation("current", VmOperation.Priority.Low, true);
+        final Operation plain = new Operation("plain", VmOperation.Priority.Normal, false);
+        final Operation batchable1 = new Operation("batchable1", VmOperation.Priority.High, true);
+        final Operation batchable2 = new Operation("batchable2", VmOperation.Priority.Low, true);
+        queue.add(batchable2);
+        queue.add(plain);
+        queue.add(batchable1);
+
+        assertSame(batch, batch.fill(current, queue));
+        // The batch runs the polled operation first, then the batched operations in queue order
+        assertSame(current, batch.poll());
+        assertSame(batchable1, batch.poll());
+        assertSame(batchable2, batch.poll());
+        assertNull(batch.poll());
+        assertPolled(queue, plain);
+
+        // Without other batchable operations, the operation is run on its own and the batch is left empty
+        queue.add(plain);
+        assertSame(current, batch.fill(current, queue));
+        assertNull(batch.poll());
+        assertPolled(queue, plain);
+
+        // A drained batch can be refilled
+        queue.add(batchable1);
+        assertSame(batch, batch.fill(current, queue));
+        assertSame(current, batch.poll());
+        assertSame(batchable1, batch.poll());
+        assertNull(batch.poll());
+        assertTrue(queue.isEmpty());
+    }
+}
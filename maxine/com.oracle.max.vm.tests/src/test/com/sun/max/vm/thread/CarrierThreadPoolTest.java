@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.com.sun.max.vm.thread;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import junit.framework.*;
+import test.com.sun.max.vm.*;
+
+import com.sun.max.ide.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Tests that the tasks submitted to a {@link CarrierThreadPool} are all run, on at most as many carrier threads as
+ * the parallelism of the pool.
+ */
+public class CarrierThreadPoolTest extends MaxTestCase {
+
+    public CarrierThreadPoolTest(String name) {
+        super(name);
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(CarrierThreadPoolTest.suite());
+    }
+
+    public static Test suite() {
+        return new VmTestSetup(new TestSuite(CarrierThreadPoolTest.class));
+    }
+
+    private static final int TASKS = 1000;
+
+    private static final int PARALLELISM = 4;
+
+    public void test_runsAllTasks() throws InterruptedException {
+        final CarrierThreadPool pool = new CarrierThreadPool("TestCarrier", PARALLELISM);
+        final CountDownLatch done = new CountDownLatch(TASKS);
+        final Set<Thread> carriers = Collections.synchronizedSet(new HashSet<Thread>());
+        final int[] notOnCarrier = new int[1];
+        for (int i = 0; i < TASKS; i++) {
+            pool.execute(new Runnable() {
+                public void run() {
+                    if (!CarrierThreadPool.isCarrierThread()) {
+                        synchronized (notOnCarrier) {
+                            notOnCarrier[0]++;
+                        }
+                    }
+                    carriers.add(Thread.currentThread());
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(0, notOnCarrier[0]);
+        assertTrue(carriers.size() <= PARALLELISM);
+        assertTrue(pool.carrierCount() <= PARALLELISM);
+        assertFalse(CarrierThreadPool.isCarrierThread());
+
+        pool.shutdown();
+        pool.awaitTermination();
+        for (Thread carrier : carriers) {
+            assertFalse(carrier.isAlive());
+        }
+    }
+
+    public void test_blockedTaskKeepsCarrier() throws InterruptedException {
+        final CarrierThreadPool pool = new CarrierThreadPool("TestCarrier", 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(TASKS);
+        pool.execute(new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        });
+        // The other tasks all run on the second carrier while the first one is blocked
+        for (int i = 0; i < TASKS; i++) {
+            pool.execute(new Runnable() {
+                public void run() {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(2, pool.carrierCount());
+        release.countDown();
+        pool.shutdown();
+        pool.awaitTermination();
+    }
+
+    public void test_rejectsAfterShutdown() throws InterruptedException {
+        final CarrierThreadPool pool = new CarrierThreadPool("TestCarrier", 1);
+        final CountDownLatch done = new CountDownLatch(1);
+        pool.execute(new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        });
+        pool.shutdown();
+        try {
+            pool.execute(new Runnable() {
+                public void run() {
+                }
+            });
+            fail("task accepted after shutdown");
+        } catch (RejectedExecutionException e) {
+        }
+        pool.awaitTermination();
+        // Tasks submitted before the shutdown are still run
+        assertEquals(0, done.getCount());
+    }
+}
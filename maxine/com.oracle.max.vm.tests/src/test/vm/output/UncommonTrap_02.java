@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vm.output;
+
+import static com.sun.max.vm.intrinsics.Infopoints.*;
+
+import com.sun.max.annotate.*;
+
+/**
+ * Tests deoptimization at an uncommon trap while objects scalar replaced by escape analysis are live,
+ * i.e. the deoptimized frame has to materialize them.
+ */
+public class UncommonTrap_02 {
+
+    static final class Pair {
+        final long a;
+        final double b;
+
+        Pair(long a, double b) {
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    public static void main(String[] args) {
+        int sum = 0;
+        for (int i = 0; i < 10000000; i++) {
+            sum += me(i, true);
+        }
+        // By now 'me()' should have been recompiled.
+        System.out.println("sum=" + sum);
+        me(42, false);
+    }
+
+    @NEVER_INLINE
+    private static int me(int x, boolean warmup) {
+        Pair p = new Pair(x * 3L, x / 2d);
+        int[] t = new int[2];
+        t[0] = x;
+        t[1] = -x;
+        if (!warmup) {
+            uncommonTrap();
+            System.out.println("a=" + p.a + ", b=" + p.b + ", t0=" + t[0] + ", t1=" + t[1] + ", length=" + t.length);
+        }
+        return (int) p.a + t[0] + t[1] + t.length;
+    }
+}
@@ -238,6 +238,52 @@ public final class VirtualMemory {
     @C_FUNCTION
     private static native Size virtualMemory_getPhysicalMemorySize();
 
+    /* NUMA methods */
+
+    /**
+     * Returns the number of NUMA nodes of the underlying platform.
+     * @return the number of NUMA nodes, 1 if the platform isn't NUMA or if NUMA is not supported
+     */
+    @INLINE
+    public static int getNumaNodeCount() {
+        return virtualMemory_getNumaNodeCount();
+    }
+
+    /**
+     * Returns the NUMA node of the processor the current thread is running on.
+     * @return a NUMA node number, 0 if it cannot be determined
+     */
+    @INLINE
+    public static int getCurrentNumaNode() {
+        return virtualMemory_getCurrentNumaNode();
+    }
+
+    /**
+     * Sets the memory policy of a range of virtual memory so that its physical pages are preferably allocated on a given NUMA node.
+     * Pages of the range already in use are migrated to the node.
+     *
+     * @param address an address denoting the first page of the range. This value must be aligned to the
+     *            underlying platform's {@linkplain Platform#pageSize page size}.
+     * @param size the size of the range
+     * @param node the NUMA node the range is bound to
+     * @return true if the memory policy was set, false otherwise
+     */
+    public static boolean bindToNumaNode(Address address, Size size, int node) {
+        if (TraceAnonOperations) {
+            traceRange("bindToNumaNode", address, size);
+        }
+        return virtualMemory_bindToNumaNode(address, size, node);
+    }
+
+    @C_FUNCTION
+    private static native int virtualMemory_getNumaNodeCount();
+
+    @C_FUNCTION
+    private static native int virtualMemory_getCurrentNumaNode();
+
+    @C_FUNCTION
+    private static native boolean virtualMemory_bindToNumaNode(Address address, Size size, int node);
+
     /* Page protection methods */
 
     /**
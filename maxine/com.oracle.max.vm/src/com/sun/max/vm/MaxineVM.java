@@ -636,6 +636,7 @@ public final class MaxineVM {
         // threads to a safepoint before running the terminating phase.
         VMLog.vmLog().initialize(MaxineVM.Phase.TERMINATING);
         vmConfig().initializeSchemes(MaxineVM.Phase.TERMINATING);
+        SafepointStatistics.printSummary();
         VmOperationThread.terminate();
 
         // Drop back to PRIMORDIAL
@@ -38,10 +38,13 @@ import com.sun.max.vm.bytecode.*;
 import com.sun.max.vm.bytecode.graft.*;
 import com.sun.max.vm.classfile.*;
 import com.sun.max.vm.classfile.constant.*;
+import com.sun.max.vm.compiler.*;
+import com.sun.max.vm.compiler.deopt.*;
 import com.sun.max.vm.compiler.target.*;
 import com.sun.max.vm.compiler.RuntimeCompiler.Nature;
 import com.sun.max.vm.jni.*;
 import com.sun.max.vm.object.ObjectAccess;
+import com.sun.max.vm.profile.*;
 import com.sun.max.vm.runtime.FatalError;
 import com.sun.max.vm.type.*;
 import com.sun.max.vm.verifier.*;
@@ -405,6 +408,92 @@ public abstract class ClassMethodActor extends MethodActor {
         return Compilations.currentTargetMethod(compiledState, null);
     }
 
+    /**
+     * Gets the profile gathered by the baseline compiled code of this method.
+     *
+     * @return {@code null} if this method has no baseline compiled code or it has no profiling info
+     */
+    public final MethodProfile baselineProfile() {
+        TargetMethod tm = Compilations.currentTargetMethod(compiledState, Nature.BASELINE);
+        return tm == null ? null : tm.profile();
+    }
+
+    /**
+     * Gets the receiver types recorded by the baseline compiled code of this method at a given call site, ordered by
+     * decreasing probability. No profile is returned once the type guards derived from the profile of the call site
+     * have trapped {@link Deoptimization#UncommonTrapLimit} times. A method without baseline code uses the types
+     * recorded in the {@link CompilationCache}, if any.
+     */
+    @Override
+    public RiTypeProfile typeProfile(int bci) {
+        MethodProfile mp = baselineProfile();
+        if (mp != null && mp.getUncommonTrapCount(bci) >= Deoptimization.UncommonTrapLimit) {
+            return null;
+        }
+        Integer[] typeProfile = mp == null ? CompilationCache.typeProfile(this, bci) : mp.getTypeProfile(bci);
+        if (typeProfile == null) {
+            return null;
+        }
+        int total = 0;
+        int typesNum = 0;
+        for (int i = 0; i < typeProfile.length; i += 2) {
+            total += typeProfile[i + 1];
+            if (typeProfile[i] != MethodProfile.UNDEFINED_TYPE_ID) {
+                typesNum++;
+            }
+        }
+        if (total <= 0) {
+            return null;
+        }
+        RiTypeProfile result = new RiTypeProfile();
+        result.count = total;
+        result.morphism = typeProfile.length / 2;
+        result.types = new RiResolvedType[typesNum];
+        result.probabilities = new float[typesNum];
+        int j = 0;
+        for (int i = 0; i < typeProfile.length; i += 2) {
+            if (typeProfile[i] != MethodProfile.UNDEFINED_TYPE_ID) {
+                float probability = (float) typeProfile[i + 1] / total;
+                int k = j++;
+                while (k > 0 && result.probabilities[k - 1] < probability) {
+                    result.types[k] = result.types[k - 1];
+                    result.probabilities[k] = result.probabilities[k - 1];
+                    k--;
+                }
+                result.types[k] = ClassIDManager.toClassActor(typeProfile[i]);
+                result.probabilities[k] = probability;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the probability that the branch at a given bytecode index was taken by the baseline compiled code of this method,
+     * or as recorded in the {@link CompilationCache} if this method has no baseline code.
+     */
+    @Override
+    public double branchProbability(int bci) {
+        MethodProfile mp = baselineProfile();
+        if (mp == null) {
+            return CompilationCache.branchProbability(this, bci);
+        }
+        return mp.getBranchTakenProbability(bci);
+    }
+
+    /**
+     * Gets the number of uncommon traps taken by the speculative guards deoptimizing to a given bytecode index, i.e.
+     * receiver type guards at calls and loop predicates at loop headers.
+     * See {@link Deoptimization#UncommonTrapLimit}.
+     */
+    @Override
+    public int deoptimizationCount(int bci) {
+        MethodProfile mp = baselineProfile();
+        if (mp == null) {
+            return -1;
+        }
+        return mp.getUncommonTrapCount(bci);
+    }
+
     /**
      * Records if this object returned {@code true} for a call to {@link #canBePermanentlyLinked()} during
      * boot image building.
@@ -597,6 +597,10 @@ public abstract class MethodActor extends MemberActor implements RiResolvedMetho
         return null;
     }
 
+    public int deoptimizationCount(int bci) {
+        return -1;
+    }
+
     public Map<Object, Object> compilerStorage() {
         if (compilerStorage == null) {
             compilerStorage = new ConcurrentHashMap<Object, Object>();
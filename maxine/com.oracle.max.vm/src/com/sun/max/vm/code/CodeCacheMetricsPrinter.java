@@ -85,6 +85,7 @@ public final class CodeCacheMetricsPrinter {
         final CodeManager codeManager = Code.getCodeManager();
         printRegionTo(codeManager.getRuntimeBaselineCodeRegion(), out);
         printRegionTo(codeManager.getRuntimeOptCodeRegion(), out);
+        CodeEviction.printStatistics(out);
     }
 
     void printRegionTo(CodeRegion cr, PrintStream out) {
@@ -117,7 +117,8 @@ public final class CodeCacheValidation extends VmOperation {
                     assert validCodeAddress(cs) : "target state not referencing to-space for " + targetMethod + ": " + cs.to0xHexString();
                 }
             } else {
-                assert targetMethod.classMethodActor.compiledState == Compilations.EMPTY : "target state SHOULD BE null for " + targetMethod;
+                final Object compiledState = targetMethod.classMethodActor.compiledState;
+                assert compiledState == Compilations.EMPTY || compiledState == Compilations.EVICTED : "target state SHOULD BE null for " + targetMethod;
             }
             return true;
         }
@@ -221,7 +222,7 @@ public final class CodeCacheValidation extends VmOperation {
                 final CodePointer callTarget = AMD64TargetMethodUtil.readCall32Target(targetMethod, callPos);
                 final TargetMethod actualCallee = callTarget.toTargetMethod();
                 assert validCodeAddress(callTarget) : "invalid call target (address) in direct call from " + targetMethod + "@" + spi + "(pos " + callPos + ") -> " + actualCallee + " (target: " + callTarget.to0xHexString() + ")";
-                assert actualCallee != null && validEntryPoint(callTarget, actualCallee) : "invalid entry point in direct call from " + targetMethod + "@" + spi + " -> " + actualCallee + " (target: " + callTarget.to0xHexString() + ")";
+                assert actualCallee != null && validEntryPoint(CodeManager.runtimeBaselineCodeRegion.forward(callTarget), actualCallee) : "invalid entry point in direct call from " + targetMethod + "@" + spi + " -> " + actualCallee + " (target: " + callTarget.to0xHexString() + ")";
             } else {
                 throw FatalError.unimplemented();
             }
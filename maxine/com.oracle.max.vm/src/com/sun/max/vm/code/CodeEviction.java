@@ -26,6 +26,7 @@ import static com.sun.max.vm.compiler.CallEntryPoint.*;
 import static com.sun.max.vm.compiler.target.Safepoints.*;
 import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
 
+import java.io.*;
 import java.util.*;
 
 import com.sun.max.annotate.*;
@@ -58,10 +59,39 @@ public final class CodeEviction extends VmOperation {
      */
     private static int CodeEvictionProtectCalleeDepth = 1;
 
+    /**
+     * Percentage of the baseline code semi-space that code eviction aims to free.
+     */
+    private static int CodeEvictionFreePercent = 50;
+
+    /**
+     * Number of from-space methods an incremental compaction visits per safepoint; 0 compacts in the eviction pause.
+     */
+    private static int CodeEvictionCompactionBatchSize = 256;
+
     static {
         VMOptions.addFieldOption("-XX:", "CodeEvictionProtectCalleeDepth", CodeEviction.class,
             "During code eviction, protect callees of on-stack methods up until the given depth (default: 1).",
             MaxineVM.Phase.STARTING);
+        VMOptions.addFieldOption("-XX:", "CodeEvictionFreePercent", CodeEviction.class,
+            "During code eviction, evict the coldest baseline methods until the given percentage of the baseline " +
+            "code space is free; 100 evicts all methods that are neither on a stack nor protected (default: 50).",
+            MaxineVM.Phase.STARTING);
+        VMOptions.addFieldOption("-XX:", "CodeEvictionCompactionBatchSize", CodeEviction.class,
+            "Compact the baseline code cache after an eviction incrementally, copying survivors and fixing call sites of at " +
+            "most the given number of methods per safepoint; 0 compacts the whole code cache in the eviction pause (default: 256).",
+            MaxineVM.Phase.STARTING);
+    }
+
+    /**
+     * Number of hotness classes eviction candidates are sorted into. Class {@code i > 0} holds the methods whose
+     * {@linkplain MethodProfile#updateEvictionHotness() hotness} {@code h} satisfies {@code 2^(i-1) <= h < 2^i},
+     * class {@code 0} holds methods with a hotness of {@code 0} or without a profile.
+     */
+    private static final int HOTNESS_CLASSES = Integer.SIZE;
+
+    private static int hotnessClass(int hotness) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros(hotness);
     }
 
     /**
@@ -131,6 +161,54 @@ public final class CodeEviction extends VmOperation {
         }
     }
 
+    /**
+     * Ages the hotness of all baseline methods and sums up, per hotness class, the size of the eviction candidates,
+     * i.e., of the methods that are neither on a stack nor protected.
+     */
+    final class HotnessHistogram implements TargetMethod.Closure {
+        final long[] candidateBytes = new long[HOTNESS_CLASSES];
+        long liveBytes;
+
+        void reset() {
+            Arrays.fill(candidateBytes, 0L);
+            liveBytes = 0L;
+        }
+
+        @Override
+        public boolean doTargetMethod(TargetMethod targetMethod) {
+            if (!targetMethod.isWiped()) {
+                final MethodProfile profile = targetMethod.profile();
+                final int hotness = profile == null ? 0 : profile.updateEvictionHotness();
+                final long size = targetMethod.size().toLong();
+                liveBytes += size;
+                if (!targetMethod.isMarked()) {
+                    candidateBytes[hotnessClass(hotness)] += size;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Marks the eviction candidates whose hotness class is at least {@link #minClass}, so that they survive.
+     */
+    final class HotMethodsMarker implements TargetMethod.Closure {
+        int minClass;
+
+        @Override
+        public boolean doTargetMethod(TargetMethod targetMethod) {
+            if (!targetMethod.isMarked() && !targetMethod.isWiped()) {
+                final MethodProfile profile = targetMethod.profile();
+                if (profile != null && hotnessClass(profile.evictionHotness()) >= minClass) {
+                    logMark("HOT", targetMethod);
+                    targetMethod.mark();
+                    ++nRetainedHot;
+                }
+            }
+            return true;
+        }
+    }
+
     final class InvalidateDispatchTables implements TargetMethod.Closure {
         @Override
         public boolean doTargetMethod(TargetMethod targetMethod) {
@@ -141,7 +219,7 @@ public final class CodeEviction extends VmOperation {
                 patchDispatchTables(targetMethod, true);
                 assert invalidateCode(targetMethod.code());
                 targetMethod.wipe();
-                targetMethod.classMethodActor.compiledState = Compilations.EMPTY;
+                targetMethod.classMethodActor.compiledState = Compilations.EVICTED;
             } else {
                 ++nSurvivors;
                 nSurvivingBytes += targetMethod.codeLength();
@@ -203,6 +281,10 @@ public final class CodeEviction extends VmOperation {
 
             final Pointer patchHere = callee.targetMethod().returnAddressPointer(callee);
             CodePointer calleeRet = CodePointer.from(patchHere.readWord(0));
+            if (!wasMoved(tm) || !CodeManager.runtimeBaselineCodeRegion.isInFromSpace(calleeRet.toAddress())) {
+                // tm is not copied yet, or the return address was patched when it was copied
+                return true;
+            }
             final Address offset = calleeRet.minus(tm.oldStart()).toAddress();
             CodePointer newCalleeRet = CodePointer.from(tm.start().plus(offset));
 
@@ -238,6 +320,9 @@ public final class CodeEviction extends VmOperation {
                         final CodePointer cp = CodePointer.fromTaggedLong(raw.toLong());
                         if (CodeManager.runtimeBaselineCodeRegion.isInFromSpace(cp.toAddress())) {
                             final TargetMethod tm = CodeManager.runtimeBaselineCodeRegion.findInFromSpace(cp.toAddress());
+                            if (!wasMoved(tm)) {
+                                continue;
+                            }
                             final Offset offset = tm.start().minus(tm.oldStart()).asOffset();
                             final CodePointer newCp = cp.relocate(offset);
                             assert CodeManager.runtimeBaselineCodeRegion.isInToSpace(newCp.toPointer());
@@ -301,14 +386,15 @@ public final class CodeEviction extends VmOperation {
             if (!targetMethod.isWiped()) {
                 // preparation
                 final Pointer from = targetMethod.start().asPointer();
-                final Pointer to = cr.mark();
                 final Size size = targetMethod.size();
+                final Pointer to = cr.allocateReserved(size);
                 // first, address dispatch table entries
                 logCodeMotion(targetMethod, from, to, size);
                 patchDispatchTables(targetMethod, false);
                 // next, physically move the code
                 Memory.copyBytes(from, to, size);
                 assert invalidateCode(targetMethod.code()); // this invalidates the old code as targetMethod's pointers have not been changed yet!
+                writeForwardingStubs(targetMethod, to.minus(from).asOffset());
                 targetMethod.setOldStart(targetMethod.start());
                 targetMethod.setStart(to);
                 final byte[] code = (byte[]) relocate(from, to, targetMethod.code());
@@ -318,12 +404,9 @@ public final class CodeEviction extends VmOperation {
                 final Object[] referenceLiterals = targetMethod.referenceLiterals() == null ?
                     null : (Object[]) relocate(from, to, targetMethod.referenceLiterals());
                 targetMethod.setCodeArrays(code, codeStart, scalarLiterals, referenceLiterals);
-                cr.setMark(cr.mark().plus(size));
                 CodeManager.runtimeBaselineCodeRegion.add(targetMethod);
                 targetMethod.survivedEviction();
             } else {
-                // set the oldStart address to mark this method as "old"
-                targetMethod.setOldStart(targetMethod.start());
                 logNotCopying(targetMethod);
             }
             return true;
@@ -338,6 +421,68 @@ public final class CodeEviction extends VmOperation {
         }
     }
 
+    /**
+     * Overwrites the entry points of the old code of a copied method with jumps to the corresponding entry points of the
+     * copy. Direct calls that still target the old code, for instance from methods not yet copied, are thus forwarded
+     * until the call sites are fixed. The vtable entry point coincides with the optimized entry point, and the C entry
+     * point of a baseline method with its baseline entry point.
+     *
+     * @param tm a method whose code start still denotes its old code
+     * @param delta the distance between the copy and the old code
+     */
+    private static void writeForwardingStubs(TargetMethod tm, Offset delta) {
+        final int baselineEntry = BASELINE_ENTRY_POINT.offset();
+        final int optimizedEntry = OPTIMIZED_ENTRY_POINT.offset();
+        AMD64TargetMethodUtil.patchWithJump(tm, baselineEntry, tm.codeAt(baselineEntry).relocate(delta));
+        if (optimizedEntry != baselineEntry) {
+            assert Math.abs(optimizedEntry - baselineEntry) >= AMD64TargetMethodUtil.RIP_JMP_INSTRUCTION_LENGTH : "no room for forwarding stubs";
+            AMD64TargetMethodUtil.patchWithJump(tm, optimizedEntry, tm.codeAt(optimizedEntry).relocate(delta));
+        }
+    }
+
+    /**
+     * Prepares the methods in from-space for copying after a {@linkplain SemiSpaceCodeRegion#flip() flip}.
+     * From-space lookups find a method by its old start, which is its start until it is copied.
+     * The space needed by the survivors is reserved in to-space, so that allocations between the steps of an incremental
+     * compaction cannot take it.
+     */
+    final class PrepareCompaction implements TargetMethod.Closure {
+        @Override
+        public boolean doTargetMethod(TargetMethod targetMethod) {
+            targetMethod.setOldStart(targetMethod.start());
+            if (!targetMethod.isWiped()) {
+                CodeManager.runtimeBaselineCodeRegion.reserve(targetMethod.size());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Performs one step of an {@linkplain CodeEviction#CodeEvictionCompactionBatchSize incremental compaction}.
+     * The thread {@linkplain CodeEviction#scheduleCompactionStep() scheduling} the step is not blocked.
+     */
+    final class CompactionStep extends VmOperation {
+
+        CompactionStep() {
+            super("code cache compaction", null, Mode.AsyncSafepoint);
+        }
+
+        @Override
+        protected void doIt() {
+            if (compactionStep(CodeEvictionCompactionBatchSize)) {
+                timerStart();
+                doAllThreads();
+                tPatchStacks += timerEnd();
+            }
+            stepScheduled = false;
+        }
+
+        @Override
+        protected void doThread(VmThread vmThread, Pointer ip, Pointer sp, Pointer fp) {
+            CodeEviction.this.doThread(vmThread, ip, sp, fp);
+        }
+    }
+
     /**
      * Fixes all direct calls in the machine code of a moved (baseline) target method.
      *
@@ -473,6 +618,47 @@ public final class CodeEviction extends VmOperation {
 
     private Phase phase;
 
+    /**
+     * The states of the compaction of the baseline code region that follows an eviction.
+     */
+    private static enum Compaction {
+        /**
+         * No compaction is in progress, from-space is empty.
+         */
+        IDLE,
+
+        /**
+         * Surviving methods are being copied from from-space to to-space.
+         */
+        COPYING,
+
+        /**
+         * All survivors are copied, direct calls that still target from-space are being fixed.
+         */
+        FIXING
+    }
+
+    private volatile Compaction compaction = Compaction.IDLE;
+
+    /**
+     * Index of the next entry of the from-space target methods array to copy.
+     */
+    private int copyCursor;
+
+    /**
+     * Indexes of the next baseline method, recorded optimized caller and recorded boot caller whose direct calls are to be fixed.
+     */
+    private int fixBaselineCursor;
+    private int fixOptCursor;
+    private int fixBootCursor;
+
+    /**
+     * Denotes that {@link #compactionStep} is submitted and has not yet run.
+     */
+    private volatile boolean stepScheduled;
+
+    private final CompactionStep compactionStep = new CompactionStep();
+
     public CodeEviction() {
         super("code cache cleaner", null, Mode.Safepoint);
     }
@@ -485,6 +671,46 @@ public final class CodeEviction extends VmOperation {
 
     private static CodeEviction codeEviction = new CodeEviction();
 
+    /**
+     * Total number of methods evicted so far.
+     */
+    private static int totalEvictedMethods;
+
+    /**
+     * Total number of bytes of machine code evicted so far.
+     */
+    private static long totalEvictedBytes;
+
+    /**
+     * Total number of eviction candidates that survived an eviction cycle because of their hotness.
+     */
+    private static int totalRetainedHot;
+
+    /**
+     * Total number of baseline recompilations of evicted methods.
+     */
+    private static int totalRecompilations;
+
+    /**
+     * Records the baseline recompilation of an evicted method.
+     */
+    public static void recordRecompilation() {
+        totalRecompilations++;
+    }
+
+    /**
+     * Prints the eviction statistics accumulated since VM startup, including the rate of evicted methods that had to be
+     * recompiled.
+     */
+    public static void printStatistics(PrintStream out) {
+        out.println("Code eviction: " + evictionCount + " cycles, " + totalEvictedMethods + " methods (" + totalEvictedBytes +
+                        " bytes) evicted, " + totalRetainedHot + " methods retained because of their hotness");
+        if (totalEvictedMethods > 0) {
+            out.println("Recompilations after eviction: " + totalRecompilations + " (" +
+                            (totalRecompilations * 100L / totalEvictedMethods) + "% of evicted methods)");
+        }
+    }
+
     /**
      * Run a code eviction operation.
      */
@@ -492,9 +718,30 @@ public final class CodeEviction extends VmOperation {
         codeEviction.submit();
     }
 
+    /**
+     * Determines if the compaction following the last eviction is still in progress.
+     */
+    public static boolean compactionPending() {
+        return codeEviction.compaction != Compaction.IDLE;
+    }
+
+    /**
+     * Submits the next step of an incremental compaction unless it is already submitted.
+     * This is called with the {@link CodeManager} lock held, after allocating in the baseline code region.
+     */
+    static void scheduleCompactionStep() {
+        if (!codeEviction.stepScheduled && !VmThread.current().isVmOperationThread()) {
+            codeEviction.stepScheduled = true;
+            codeEviction.compactionStep.submit();
+        }
+    }
+
     @Override
     protected void doIt() {
 
+        // from-space is only reused once the compaction following the previous eviction is complete
+        finishCompaction();
+
         ++evictionCount;
 
         if (codeEvictionLogger.enabled()) {
@@ -521,6 +768,10 @@ public final class CodeEviction extends VmOperation {
         markProtectedMethods();
         tMarkProtected = timerEnd();
 
+        timerStart();
+        markHotMethods();
+        tMarkHot = timerEnd();
+
         invalidateDirectCalls();
 
         timerStart();
@@ -533,9 +784,14 @@ public final class CodeEviction extends VmOperation {
 
         logStatistics();
 
+        totalEvictedMethods += nStale;
+        totalEvictedBytes += nStaleBytes;
+        totalRetainedHot += nRetainedHot;
+
         resetCounters();
 
-        // phase 2: compact the baseline code cache and patch all PC values and return addresses
+        // phase 2: compact the baseline code cache and patch all PC values and return addresses,
+        // either now or in bounded steps at later safepoints
 
         phase = Phase.COMPACTING;
 
@@ -543,25 +799,10 @@ public final class CodeEviction extends VmOperation {
         compact();
         tCompact = timerEnd();
 
-        fixCallSitesForMovedCode();
-        logFixed();
-
-        timerStart();
-        doAllThreads();
-        tPatchStacks = timerEnd();
-
-        if (/*VMTI.handler().activeAgents() > 0*/true) {
-            CodeManager.runtimeBaselineCodeRegion.doOldTargetMethods(vmtiUnload);
-            CodeManager.runtimeBaselineCodeRegion.doNewTargetMethods(vmtiMove);
-        }
-
-        CodeManager.runtimeBaselineCodeRegion.resetFromSpace();
-        if (logging()) {
-            codeEvictionLogger.logMove_Progress("FINISHED walking threads");
+        if (CodeEvictionCompactionBatchSize <= 0) {
+            finishCompaction();
         }
 
-        CodeManager.Inspect.notifyEvictionCompleted(CodeManager.runtimeBaselineCodeRegion);
-
         // phase 3 (optional): dump after
         if (logging()) {
             phase = Phase.DUMPING;
@@ -571,10 +812,89 @@ public final class CodeEviction extends VmOperation {
         if (codeEvictionLogger.enabled()) {
             codeEvictionLogger.logRun("completed", evictionCount, callingThread());
         }
-        logTimingResults();
 
     }
 
+    /**
+     * Completes a pending compaction in the current operation.
+     */
+    private void finishCompaction() {
+        while (compaction != Compaction.IDLE) {
+            if (compactionStep(0)) {
+                timerStart();
+                doAllThreads();
+                tPatchStacks += timerEnd();
+            }
+        }
+    }
+
+    /**
+     * Performs one step of the compaction of the baseline code region. A step first copies survivors from from-space
+     * to to-space and fixes the direct calls in the copies. Calls into copied methods are forwarded by the stubs left in
+     * their old code. Once all survivors are copied, the direct calls of baseline methods and recorded optimized and boot
+     * callers that still target from-space are fixed. The last step releases from-space.
+     *
+     * @param budget the maximum number of methods to visit, or {@code 0} to complete the compaction
+     * @return {@code true} if methods were copied, in which case the stacks of all threads must be patched by the operation
+     *         performing this step
+     */
+    private boolean compactionStep(int budget) {
+        phase = Phase.COMPACTING;
+        if (compaction == Compaction.COPYING) {
+            final SemiSpaceCodeRegion cr = CodeManager.runtimeBaselineCodeRegion;
+            final int firstCopy = cr.numTargetMethods();
+            timerStart();
+            copyCursor = cr.doOldTargetMethods(copySurvivors, copyCursor, budget);
+            tCompact += timerEnd();
+            if (copyCursor == cr.fromLength) {
+                compaction = Compaction.FIXING;
+                if (logging()) {
+                    codeEvictionLogger.logMove_Progress("copying done!");
+                }
+            }
+            // the copies are appended to the to-space target methods
+            final int copies = cr.numTargetMethods() - firstCopy;
+            if (copies > 0) {
+                timerStart();
+                baselineFixCalls.fixed = 0;
+                cr.doNewTargetMethods(baselineFixCalls, firstCopy, copies);
+                nCallBaseline += baselineFixCalls.fixed;
+                tFixCallsBaseline += timerEnd();
+                return true;
+            }
+        }
+        if (compaction == Compaction.FIXING && fixCallSitesForMovedCode(budget)) {
+            completeCompaction();
+        }
+        return false;
+    }
+
+    /**
+     * Releases from-space once all survivors are copied and no direct call targets from-space anymore.
+     */
+    private void completeCompaction() {
+        final SemiSpaceCodeRegion cr = CodeManager.runtimeBaselineCodeRegion;
+        timerStart();
+        CodeManager.retainOptToBaselineCallers(optToBaselineFilter);
+        CodeManager.optToBaselineDo(unmarkOptCallers);
+        tFixCallsOpt += timerEnd();
+        logFixed();
+
+        if (/*VMTI.handler().activeAgents() > 0*/true) {
+            cr.doOldTargetMethods(vmtiUnload);
+            cr.doNewTargetMethods(vmtiMove);
+        }
+
+        cr.resetFromSpace();
+        compaction = Compaction.IDLE;
+        if (logging()) {
+            codeEvictionLogger.logMove_Progress("FINISHED compacting");
+        }
+
+        CodeManager.Inspect.notifyEvictionCompleted(cr);
+        logTimingResults();
+    }
+
     /**
      * Perform a specific action for a given thread.
      * This method is invoked multiple times during the execution of {@linkplain #doIt()}.
@@ -628,6 +948,31 @@ public final class CodeEviction extends VmOperation {
         CodeManager.runtimeBaselineCodeRegion.doNewTargetMethods(protectedMethodsMarker);
     }
 
+    private final HotnessHistogram hotnessHistogram = new HotnessHistogram();
+
+    private final HotMethodsMarker hotMethodsMarker = new HotMethodsMarker();
+
+    /**
+     * Selects the eviction candidates coldest-first until enough code is evicted for {@link #CodeEvictionFreePercent}
+     * of the baseline code space to be free after compaction, and marks the remaining (hotter) candidates so that they
+     * survive this cycle. Candidates of the same hotness class are evicted or kept together.
+     */
+    private void markHotMethods() {
+        final SemiSpaceCodeRegion cr = CodeManager.runtimeBaselineCodeRegion;
+        hotnessHistogram.reset();
+        cr.doNewTargetMethods(hotnessHistogram);
+        final int freePercent = Math.max(1, Math.min(100, CodeEvictionFreePercent));
+        long excessBytes = hotnessHistogram.liveBytes - cr.spaceSize.toLong() * (100 - freePercent) / 100;
+        int minClass = 0;
+        while (excessBytes > 0 && minClass < HOTNESS_CLASSES) {
+            excessBytes -= hotnessHistogram.candidateBytes[minClass++];
+        }
+        if (minClass < HOTNESS_CLASSES) {
+            hotMethodsMarker.minClass = Math.max(1, minClass);
+            cr.doNewTargetMethods(hotMethodsMarker);
+        }
+    }
+
     /**
      * Iterate over the baseline code region and invalidate references to stale methods.
      * This includes vtable and itable entries as well as {@linkplain MethodActor} target states.
@@ -774,7 +1119,7 @@ public final class CodeEviction extends VmOperation {
         tInvalidateCallsBaseline = timerEnd();
 
         timerStart();
-        CodeManager.runtimeOptCodeRegion.doAllTargetMethods(invalidateOptDirectCalls);
+        CodeManager.optToBaselineDo(invalidateOptDirectCalls);
         tInvalidateCallsOpt = timerEnd();
 
         timerStart();
@@ -839,8 +1184,8 @@ public final class CodeEviction extends VmOperation {
     }
 
     /**
-     * Compact the baseline code cache, i.e., flip spaces and copy all survivors (non-wiped methods) from from-space
-     * to to-space.
+     * Start compacting the baseline code cache, i.e., flip spaces and reserve space in to-space for all survivors
+     * (non-wiped methods), which {@linkplain #compactionStep(int) compaction steps} then copy from from-space.
      */
     private void compact() {
         final SemiSpaceCodeRegion cr = CodeManager.runtimeBaselineCodeRegion;
@@ -849,27 +1194,50 @@ public final class CodeEviction extends VmOperation {
         }
         cr.flip();
         logCodeCacheBoundaries(cr);
-        cr.doOldTargetMethods(copySurvivors);
-        if (logging()) {
-            codeEvictionLogger.logMove_Progress("copying done!");
-        }
+        cr.doOldTargetMethods(prepareCompaction);
+        copyCursor = 0;
+        fixBaselineCursor = 0;
+        fixOptCursor = 0;
+        fixBootCursor = 0;
+        tPatchStacks = 0;
+        tFixCallsBaseline = 0;
+        tFixCallsOpt = 0;
+        tFixCallsBoot = 0;
+        compaction = Compaction.COPYING;
     }
 
+    private final PrepareCompaction prepareCompaction = new PrepareCompaction();
+
     private final CopySurvivors copySurvivors = new CopySurvivors();
 
     /**
-     * Iterate over all methods code caches one last time, fixing direct calls to moved code.
+     * Iterate over all methods code caches one last time, fixing direct calls that still target from-space, i.e., calls
+     * to copied code that go through a forwarding stub. These are in baseline methods in to-space, including methods
+     * compiled since the eviction, and in recorded callers.
+     * Only the {@linkplain CodeManager#recordOptToBaselineCaller(TargetMethod) recorded} optimized methods can call
+     * into the baseline code cache, so the rest of the optimized code region is not visited.
+     * No call to from-space is linked once all survivors are copied, so each caller needs to be visited only once.
+     *
+     * @param budget the maximum number of methods to visit, or {@code 0} for no limit
+     * @return {@code true} if all callers are fixed
      */
-    private void fixCallSitesForMovedCode() {
+    private boolean fixCallSitesForMovedCode(int budget) {
+        final SemiSpaceCodeRegion cr = CodeManager.runtimeBaselineCodeRegion;
+        int remaining = budget <= 0 ? Integer.MAX_VALUE : budget;
         if (logging()) {
             codeEvictionLogger.logMove_Progress("fixing call sites ...\nmoved code ...");
         }
 
         timerStart();
-        baselineFixCalls.fixed = 0;
-        CodeManager.runtimeBaselineCodeRegion.doNewTargetMethods(baselineFixCalls);
-        nCallBaseline = baselineFixCalls.fixed;
-        tFixCallsBaseline = timerEnd();
+        optFixCalls.fixed = 0;
+        final int baselineStart = fixBaselineCursor;
+        fixBaselineCursor = cr.doNewTargetMethods(optFixCalls, fixBaselineCursor, remaining);
+        remaining -= fixBaselineCursor - baselineStart;
+        nCallBaseline += optFixCalls.fixed;
+        tFixCallsBaseline += timerEnd();
+        if (fixBaselineCursor < cr.numTargetMethods()) {
+            return false;
+        }
 
         if (logging()) {
             codeEvictionLogger.logMove_Progress("optimised code ...");
@@ -877,9 +1245,16 @@ public final class CodeEviction extends VmOperation {
 
         timerStart();
         optFixCalls.fixed = 0;
-        CodeManager.runtimeOptCodeRegion.doAllTargetMethods(optFixCalls);
-        nCallOpt = optFixCalls.fixed;
-        tFixCallsOpt = timerEnd();
+        final TargetMethod[] optCallers = CodeManager.optToBaselineCallers();
+        while (remaining > 0 && fixOptCursor < CodeManager.optToBaselineSize()) {
+            optFixCalls.doTargetMethod(optCallers[fixOptCursor++]);
+            remaining--;
+        }
+        nCallOpt += optFixCalls.fixed;
+        tFixCallsOpt += timerEnd();
+        if (fixOptCursor < CodeManager.optToBaselineSize()) {
+            return false;
+        }
 
         if (logging()) {
             codeEvictionLogger.logMove_Progress("boot code ...");
@@ -887,15 +1262,21 @@ public final class CodeEviction extends VmOperation {
 
         timerStart();
         optFixCalls.fixed = 0;
-        if (CodeManager.bootToBaselineSize() > 0) {
-            CodeManager.bootToBaselineDo(optFixCalls);
+        final TargetMethod[] bootCallers = CodeManager.bootToBaselineCallers();
+        while (remaining > 0 && fixBootCursor < CodeManager.bootToBaselineSize()) {
+            optFixCalls.doTargetMethod(bootCallers[fixBootCursor++]);
+            remaining--;
+        }
+        nCallBoot += optFixCalls.fixed;
+        tFixCallsBoot += timerEnd();
+        if (fixBootCursor < CodeManager.bootToBaselineSize()) {
+            return false;
         }
-        nCallBoot = optFixCalls.fixed;
-        tFixCallsBoot = timerEnd();
 
         if (logging()) {
             codeEvictionLogger.logMove_Progress("fixing done!");
         }
+        return true;
     }
 
     /**
@@ -910,6 +1291,40 @@ public final class CodeEviction extends VmOperation {
      */
     private final OptFixCalls optFixCalls = new OptFixCalls();
 
+    /**
+     * Keeps the recorded optimized callers that still have a direct call into the baseline code cache, once each.
+     * Kept callers are marked to detect duplicates, which is safe as marks are only otherwise used for baseline methods.
+     */
+    final class OptToBaselineFilter implements TargetMethod.Closure {
+        @Override
+        public boolean doTargetMethod(TargetMethod targetMethod) {
+            if (targetMethod.isMarked()) {
+                return false;
+            }
+            final Safepoints safepoints = targetMethod.safepoints();
+            for (int spi = safepoints.nextDirectCall(0); spi >= 0; spi = safepoints.nextDirectCall(spi + 1)) {
+                final CodePointer target = AMD64TargetMethodUtil.readCall32Target(targetMethod, safepoints.causePosAt(spi));
+                if (CodeManager.runtimeBaselineCodeRegion.isInToSpace(target.toAddress())) {
+                    targetMethod.mark();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    final class UnmarkOptCallers implements TargetMethod.Closure {
+        @Override
+        public boolean doTargetMethod(TargetMethod targetMethod) {
+            targetMethod.unmark();
+            return true;
+        }
+    }
+
+    private final OptToBaselineFilter optToBaselineFilter = new OptToBaselineFilter();
+
+    private final UnmarkOptCallers unmarkOptCallers = new UnmarkOptCallers();
+
     private boolean wasMoved(TargetMethod tm) {
         return CodeManager.runtimeBaselineCodeRegion.isInToSpace(tm.codeStart().toAddress());
     }
@@ -932,6 +1347,7 @@ public final class CodeEviction extends VmOperation {
         nCallBaseline = 0;
         nCallOpt = 0;
         nCallBoot = 0;
+        nRetainedHot = 0;
     }
 
     int nStale = 0;
@@ -951,10 +1367,12 @@ public final class CodeEviction extends VmOperation {
     int nCallBaseline = 0;
     int nCallOpt = 0;
     int nCallBoot = 0;
+    int nRetainedHot = 0;
 
     private long timer;
     private long tMarking;
     private long tMarkProtected;
+    private long tMarkHot;
     private long tInvalidateCallsBaseline;
     private long tInvalidateCallsOpt;
     private long tInvalidateCallsBoot;
@@ -1172,7 +1590,7 @@ public final class CodeEviction extends VmOperation {
     private void logTimingResults() {
         if (logging()) {
             tTotal =
-                tMarking + tMarkProtected +
+                tMarking + tMarkProtected + tMarkHot +
                 tInvalidateCallsBaseline + tInvalidateCallsOpt + tInvalidateCallsBoot + tInvalidateTables +
                 tCompact + tPatchStacks + tFixCallsBaseline + tFixCallsOpt + tFixCallsBoot;
             codeEvictionLogger.logStats_TimingResults(this);
@@ -1553,7 +1971,9 @@ public final class CodeEviction extends VmOperation {
             Log.print(codeEviction.nSurvivors);
             Log.print(" survivors (");
             Log.print(codeEviction.nSurvivingBytes / 1024);
-            Log.print(" kB) - ");
+            Log.print(" kB, ");
+            Log.print(codeEviction.nRetainedHot);
+            Log.print(" hot) - ");
             final int totalMethods = codeEviction.nSurvivors + codeEviction.nStale;
             Log.print(codeEviction.nSurvivors * 100 / totalMethods);
             Log.println(" % of methods survived");
@@ -1568,6 +1988,7 @@ public final class CodeEviction extends VmOperation {
             long tTotal = codeEviction.tTotal;
             printTime("  Phase 1 - mark                       ", codeEviction.tMarking, tTotal);
             printTime("            mark protected methods     ", codeEviction.tMarkProtected, tTotal);
+            printTime("            mark hot methods           ", codeEviction.tMarkHot, tTotal);
             printTime("            invalidate baseline calls  ", codeEviction.tInvalidateCallsBaseline, tTotal);
             printTime("            invalicate opt calls       ", codeEviction.tInvalidateCallsOpt, tTotal);
             printTime("            invalidate boot calls      ", codeEviction.tInvalidateCallsBoot, tTotal);
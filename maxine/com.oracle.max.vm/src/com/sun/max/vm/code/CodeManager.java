@@ -190,6 +190,58 @@ public abstract class CodeManager {
         }
     }
 
+    /**
+     * Records the methods in the runtime optimized code region that have had a direct call linked to the baseline code
+     * region, so that {@linkplain CodeEviction code eviction} only needs to visit these. A method may be recorded more
+     * than once between two evictions.
+     */
+    private static TargetMethod[] optToBaseline = new TargetMethod[BOOT_TO_BASELINE_INITIAL_SIZE];
+
+    private static int nOptToBaseline = 0;
+
+    public static int optToBaselineSize() {
+        return nOptToBaseline;
+    }
+
+    public static synchronized void recordOptToBaselineCaller(final TargetMethod tm) {
+        if (nOptToBaseline > 0 && optToBaseline[nOptToBaseline - 1] == tm) {
+            return;
+        }
+        if (nOptToBaseline == optToBaseline.length) {
+            optToBaseline = Arrays.copyOf(optToBaseline, optToBaseline.length * 2);
+        }
+        optToBaseline[nOptToBaseline] = tm;
+        ++nOptToBaseline;
+    }
+
+    public static TargetMethod[] optToBaselineCallers() {
+        return optToBaseline;
+    }
+
+    public static void optToBaselineDo(final TargetMethod.Closure closure) {
+        for (int i = 0; i < nOptToBaseline; i++) {
+            if (!closure.doTargetMethod(optToBaseline[i])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops the recorded optimized callers for which a given closure returns {@code false}.
+     * This must only be called during code eviction, when no caller can be recorded concurrently.
+     */
+    public static void retainOptToBaselineCallers(final TargetMethod.Closure closure) {
+        int n = 0;
+        for (int i = 0; i < nOptToBaseline; i++) {
+            final TargetMethod tm = optToBaseline[i];
+            if (closure.doTargetMethod(tm)) {
+                optToBaseline[n++] = tm;
+            }
+        }
+        Arrays.fill(optToBaseline, n, nOptToBaseline, null);
+        nOptToBaseline = n;
+    }
+
     /**
      * Allocates memory for the code-related arrays of a given target method
      * and {@linkplain TargetMethod#setCodeArrays(byte[], Pointer, byte[], Object[]) initializes} them.
@@ -312,6 +364,9 @@ public abstract class CodeManager {
 
         if (currentCodeRegion != null) {
             currentCodeRegion.add(targetMethod);
+            if (currentCodeRegion == runtimeBaselineCodeRegion && CodeEviction.compactionPending()) {
+                CodeEviction.scheduleCompactionStep();
+            }
         }
     }
 
@@ -420,10 +475,17 @@ public abstract class CodeManager {
     }
 
     void visitAllIn(CellVisitor v, CodeRegion cr) {
-        Pointer firstCell = cr.gcstart().asPointer();
+        visitAllIn(v, cr.gcstart().asPointer(), cr.getAllocationMark());
+        if (cr == runtimeBaselineCodeRegion && runtimeBaselineCodeRegion.fromSpaceInUse()) {
+            // methods that an incremental compaction has not yet copied still live in from-space
+            visitAllIn(v, runtimeBaselineCodeRegion.fromSpace.asPointer(), runtimeBaselineCodeRegion.fromMark);
+        }
+    }
+
+    private void visitAllIn(CellVisitor v, Pointer firstCell, Address end) {
         Pointer cell = firstCell;
         Pointer nextCell;
-        while (cell.lessThan(cr.getAllocationMark())) {
+        while (cell.lessThan(end)) {
             cell = DebugHeap.checkDebugCellTag(firstCell, cell);
             nextCell = v.visitCell(cell);
             if (MaxSimInterfaceHelpers.getLayoutScaleFactor() != MaxSimPlatform.LSF_ONE) {
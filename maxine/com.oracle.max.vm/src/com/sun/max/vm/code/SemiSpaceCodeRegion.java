@@ -76,6 +76,25 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
     @INSPECTED
     protected int fromLength;
 
+    /**
+     * The allocation mark of from-space, i.e., the end of the last method allocated in the current from-space
+     * before the last {@linkplain #flip() flip}.
+     */
+    protected Address fromMark;
+
+    /**
+     * Denotes that from-space still holds methods that an incremental compaction has not yet copied to to-space,
+     * or forwarding stubs that calls to copied methods may still pass through. From-space is in use from a
+     * {@linkplain #flip() flip} until it is {@linkplain #resetFromSpace() reset}.
+     */
+    private boolean fromSpaceInUse;
+
+    /**
+     * The space at the top of to-space kept for the methods that are still to be copied from from-space.
+     * {@link #allocate(Size, boolean)} does not hand out this space.
+     */
+    private Size reserved = Size.zero();
+
     /**
      * Binds this code region to some allocated memory range and sets the semi-space addresses.
      *
@@ -90,6 +109,7 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
         this.spaceSize = size.dividedBy(2);
         this.fromSpace = toSpace.plus(spaceSize);
         this.topOfSpace = toSpace.plus(spaceSize);
+        this.fromMark = fromSpace;
         this.mark.set(toSpace);
     }
 
@@ -106,6 +126,9 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
      * Flip to-space and from-space, set topOfSpace accordingly.
      */
     public void flip() {
+        assert !fromSpaceInUse : "from-space must be reset before flipping";
+        fromMark = mark();
+        fromSpaceInUse = true;
         Address tmpSpace = toSpace;
         toSpace = fromSpace;
         fromSpace = tmpSpace;
@@ -134,7 +157,7 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
         Pointer oldAllocationMark = mark();
         Pointer cell = adjustForDebugTag ? DebugHeap.adjustForDebugTag(oldAllocationMark) : oldAllocationMark;
         Address end = cell.plus(size);
-        if (end.greaterThan(topOfSpace)) {
+        if (end.greaterThan(topOfSpace.minus(reserved))) {
             if (MaxineVM.isHosted()) {
                 ProgramError.unexpected("out of space in linear allocator region");
             }
@@ -144,6 +167,47 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
         return cell;
     }
 
+    /**
+     * Reserves space at the top of to-space for a method that is to be copied from from-space.
+     */
+    public void reserve(Size size) {
+        assert fromSpaceInUse : "nothing to copy from from-space";
+        reserved = reserved.plus(size);
+    }
+
+    /**
+     * Allocates space for a method copied from from-space out of the {@linkplain #reserve(Size) reserved} space.
+     */
+    public Pointer allocateReserved(Size size) {
+        assert size.lessEqual(reserved) : "copied method was not reserved";
+        final Pointer cell = mark();
+        setMark(cell.plus(size));
+        reserved = reserved.minus(size);
+        return cell;
+    }
+
+    /**
+     * Determines if from-space still holds code that is in use, see {@link #fromSpaceInUse}.
+     */
+    public boolean fromSpaceInUse() {
+        return fromSpaceInUse;
+    }
+
+    /**
+     * Gets the address a code address is forwarded to by an incremental compaction. This is the corresponding
+     * address in the copy of the method containing {@code cp} if that method was copied from from-space to to-space,
+     * and {@code cp} itself otherwise.
+     */
+    public CodePointer forward(CodePointer cp) {
+        if (isInFromSpace(cp.toAddress())) {
+            final TargetMethod tm = findInFromSpace(cp.toAddress());
+            if (tm != null && isInToSpace(tm.start())) {
+                return cp.relocate(tm.start().minus(tm.oldStart()).asOffset());
+            }
+        }
+        return cp;
+    }
+
     /**
      * Looks up the target method containing a particular address <i>in from-space</i>.
      */
@@ -172,14 +236,15 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
     /**
      * Controls whether {@code #find()} will also take from-space into account.
      * This is to be used with extreme care. It is intended to be used during code eviction only.
+     * From-space is also taken into account while it is {@linkplain #fromSpaceInUse() in use}.
      */
     public boolean allowFromSpaceLookup = false;
 
     /**
      * Looks up the target method containing a particular address (using binary search).
      * This specialised version for a semi-space code region checks whether the passed address is in from-space.
-     * If so, it looks for the address in from-space first, but only if the {@code allowFromSpaceLookup} field is set to {@code true}.
-     * This must be the case only during code eviction.
+     * If so, it looks for the address in from-space first, but only if the {@code allowFromSpaceLookup} field is set to {@code true}
+     * or from-space is {@linkplain #fromSpaceInUse() in use}. This must be the case only during code eviction and compaction.
      *
      * @param cp the address to lookup in this region
      * @return a reference to the target method containing the specified address, if it exists; {@code null} otherwise
@@ -187,7 +252,7 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
     @Override
     public TargetMethod find(Address cp) {
         final boolean addressInFromSpace = isInFromSpace(cp);
-        if (allowFromSpaceLookup) {
+        if (allowFromSpaceLookup || fromSpaceInUse) {
             final TargetMethod fromSpaceLookup = findInFromSpace(cp);
             if (fromSpaceLookup != null) {
                 return fromSpaceLookup;
@@ -232,9 +297,12 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
      * Reset the from-space target methods array.
      */
     public void resetFromSpace() {
+        assert reserved.isZero() : "methods left to copy from from-space";
         Arrays.fill(fromTargetMethods, null);
         fromLength = 0;
         Arrays.fill(fromFindIndex, 0);
+        fromMark = fromSpace;
+        fromSpaceInUse = false;
     }
 
     /**
@@ -252,6 +320,24 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
         return true;
     }
 
+    /**
+     * Process at most {@code count} entries of the target methods array of this region's to-space with a given closure,
+     * starting at index {@code index}. A {@code count} of {@code 0} processes all remaining entries.
+     *
+     * @return the index of the first entry not processed
+     */
+    public int doNewTargetMethods(TargetMethod.Closure c, int index, int count) {
+        final int end = count <= 0 || count >= length - index ? length : index + count;
+        int i = index;
+        while (i < end) {
+            final TargetMethod targetMethod = targetMethods[i++];
+            if (targetMethod != null && isInToSpace(targetMethod.codeStart().toAddress()) && !c.doTargetMethod(targetMethod)) {
+                break;
+            }
+        }
+        return i;
+    }
+
     /**
      * Process each target method in this region's from-space with a given closure.
      */
@@ -267,4 +353,22 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
         return true;
     }
 
+    /**
+     * Process at most {@code count} entries of the target methods array of this region's from-space with a given
+     * closure, starting at index {@code index}. A {@code count} of {@code 0} processes all remaining entries.
+     *
+     * @return the index of the first entry not processed
+     */
+    public int doOldTargetMethods(TargetMethod.Closure c, int index, int count) {
+        final int end = count <= 0 || count >= fromLength - index ? fromLength : index + count;
+        int i = index;
+        while (i < end) {
+            final TargetMethod targetMethod = fromTargetMethods[i++];
+            if (targetMethod != null && isInFromSpace(targetMethod.codeStart().toAddress()) && !c.doTargetMethod(targetMethod)) {
+                break;
+            }
+        }
+        return i;
+    }
+
 }
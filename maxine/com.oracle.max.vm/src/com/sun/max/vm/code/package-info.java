@@ -79,26 +79,33 @@
  *
  * <h3>Move Live Methods</h3>
  * This is the step where semi-space functionality is actually applied.
- * This affects methods that have not been wiped in the previous step. In particular, this involves the following steps for
- * each live method:
+ * This affects methods that have not been wiped in the previous step. The eviction operation only flips the spaces and reserves
+ * room in to-space for all live methods. The methods are then moved in batches of at most
+ * {@code -XX:CodeEvictionCompactionBatchSize} methods, each batch in a separate
+ * {@linkplain com.sun.max.vm.runtime.VmOperation.Mode#AsyncSafepoint asynchronous} VM operation that is submitted after
+ * allocations in the baseline code region. From-space remains in use until the last batch completes, and a pending compaction
+ * is completed before the next eviction cycle starts. A batch size of {@code 0} moves all methods in the eviction operation.
+ * Moving involves the following steps for each live method:
  * <ol>
  * <li>Invalidate <i>vtable</i> and <i>itable</i> entries.</li>
  * <li>Copy the method's entire bytes (code and literals arrays) over to to-space.</li>
  * <li>Wipe the machine code and literal arrays as described above.</li>
+ * <li>Write forwarding stubs, i.e., jumps to the new entry points, at the old entry points in from-space. Direct calls that
+ * still target the old code are thus forwarded until they are fixed.</li>
  * <li>Memoise the old start of the method in from-space, and set new values for its start and end in to-space.</li>
  * <li>Compute and set new values for the code and literals arrays and for the {@linkplain com.sun.max.vm.compiler.target.TargetMethod#codeStart codeStart}
  * pointer.</li>
  * <li>Advance the to-space allocation mark by the method's size.</li>
  * <li>Fix direct calls in and to moved code.<br>
  * Direct call sites are relative calls. Hence, <b>all</b> direct calls <b>in</b> moved code have to be adjusted. This is
- * achieved by iterating over all baseline methods (at this point, only methods surviving eviction are affected) and fixing all
- * direct call sites contained therein.<br>
- * Also, direct calls <b>to</b> moved code have to be adjusted. This is achieved by iterating over the optimized and boot code
- * regions and fixing all direct calls to moved code.</li>
+ * achieved by fixing all direct call sites contained in the methods moved by a batch.<br>
+ * Also, direct calls <b>to</b> moved code are adjusted once all methods are moved. This is achieved, again in batches, by
+ * iterating over the baseline methods in to-space and the recorded callers in the optimized and boot code regions and fixing
+ * all direct calls that go through forwarding stubs.</li>
  * <li>Compact the baseline code region's {@linkplain com.sun.max.vm.code.SemiSpaceCodeRegion#targetMethods target methods array}<br>
  * by removing entries for wiped (stale) methods.</li>
  * <li>Fix return addresses on call stacks, and code pointers in local variables.<br>
- * Walk all threads' call stacks once more and fix return addresses that point to moved code. Likewise, fix pointers to machine
+ * After each batch, walk all threads' call stacks and fix return addresses that point to moved code. Likewise, fix pointers to machine
  * code held in {@link com.sun.max.unsafe.CodePointer}s in the frames of the methods. This logic makes use of the saved old code start of moved
  * methods.</li>
  * </ol>
@@ -68,9 +68,28 @@ public class CompilationBroker {
     private static int RCT = 5000;
 
     /**
-     * A queue of pending compilations.
+     * A queue of pending background compilations, hottest first. Compilations of equal hotness are performed in request order.
      */
-    protected final LinkedList<Compilation> pending = new LinkedList<Compilation>();
+    protected final PriorityQueue<Compilation> pending = new PriorityQueue<Compilation>(64, new Comparator<Compilation>() {
+        public int compare(Compilation c1, Compilation c2) {
+            if (c1.hotness != c2.hotness) {
+                return c1.hotness > c2.hotness ? -1 : 1;
+            }
+            return c1.queueSequence < c2.queueSequence ? -1 : (c1.queueSequence == c2.queueSequence ? 0 : 1);
+        }
+    });
+
+    /**
+     * The compilations in {@link #pending}, by method. Guarded by {@link #pending}. A queued compilation is not installed
+     * as the {@linkplain ClassMethodActor#compiledState compiled state} of its method until a compilation thread starts
+     * it, so that a synchronous compilation of the method never waits for the queue to drain.
+     */
+    private final Map<ClassMethodActor, Compilation> queued = new HashMap<ClassMethodActor, Compilation>();
+
+    /**
+     * Number of compilations entered in the background compilation queue so far.
+     */
+    private long queueSequence;
 
     /**
      * The baseline compiler.
@@ -91,6 +110,8 @@ public class CompilationBroker {
     private static boolean GCOnRecompilation;
     private static boolean FailOverCompilation = true;
     private static boolean VMExtOpt;
+    private static boolean BackgroundCompilation;
+    private static int CompilerThreads = 1;
     static int PrintCodeCacheMetrics;
 
     static {
@@ -101,6 +122,8 @@ public class CompilationBroker {
         addFieldOption("-XX:", "PrintCodeCacheMetrics", CompilationBroker.class, "Print code cache metrics (0 = disabled, 1 = summary, 2 = verbose).");
         addFieldOption("-XX:", "VMExtOpt", CompilationBroker.class, "Compile VM extensions with optimizing compiler (default: false");
         addFieldOption("-XX:", "AddCompiler", CompilationBroker.class, "Add a compiler, Name:Class");
+        addFieldOption("-XX:", "BackgroundCompilation", CompilationBroker.class, "Perform recompilations triggered by the recompilation threshold in background compiler threads.");
+        addFieldOption("-XX:", "CompilerThreads", CompilationBroker.class, "Number of background compiler threads (default: " + CompilerThreads + ").");
     }
 
     @RESET
@@ -158,8 +181,6 @@ public class CompilationBroker {
      */
     private RuntimeCompiler defaultCompiler;
 
-    private static final boolean BACKGROUND_COMPILATION = false;
-
     public boolean needsAdapters() {
         return baselineCompiler != null;
     }
@@ -307,12 +328,7 @@ public class CompilationBroker {
         }
 
         if (isHosted()) {
-            if (BACKGROUND_COMPILATION) {
-                // launch a compiler thread if background compilation is supported (currently no)
-                final CompilationThread compilationThread = new CompilationThread();
-                compilationThread.setDaemon(true);
-                compilationThread.start();
-            }
+            // no background compilation while building the boot image
         } else if (phase == MaxineVM.Phase.STARTING) {
             if (opt) {
                 defaultCompiler = optimizingCompiler;
@@ -321,14 +337,15 @@ public class CompilationBroker {
             if (RCT != 0 && baselineCompiler != null) {
                 MethodInstrumentation.enable(RCT);
             }
-
-            if (BACKGROUND_COMPILATION) {
-                // launch a compiler thread if background compilation is supported (currently no)
-                final CompilationThread compilationThread = new CompilationThread();
-                compilationThread.setDaemon(true);
-                compilationThread.start();
-            }
         } else if (phase == Phase.RUNNING) {
+            if (CompilationCache.isEnabled()) {
+                CompilationCache.initialize();
+            }
+            if (BackgroundCompilation) {
+                for (int i = 0; i < Math.max(CompilerThreads, 1); i++) {
+                    new CompilationThread(i).start();
+                }
+            }
             if (PrintCodeCacheMetrics != 0) {
                 Runtime.getRuntime().addShutdownHook(new Thread("CodeCacheMetricsPrinter") {
                     @Override
@@ -478,6 +495,37 @@ public class CompilationBroker {
         }
     }
 
+    /**
+     * Requests an optimized compilation of the specified method from the background compiler threads and returns
+     * without waiting for it. The method keeps running its current code until the new code is installed.
+     * A request for a method whose compilation is already queued only increases the hotness of the queued compilation,
+     * and a request for a method currently being compiled is ignored.
+     *
+     * @param cma the method to recompile
+     */
+    public void enqueueCompilation(ClassMethodActor cma) {
+        final Object compiledState = cma.compiledState;
+        if (compiledState instanceof Compilation) {
+            return;
+        }
+        synchronized (pending) {
+            Compilation compilation = queued.get(cma);
+            if (compilation != null) {
+                // Re-insert the compilation to update its position in the queue.
+                pending.remove(compilation);
+                compilation.hotness++;
+                pending.add(compilation);
+                return;
+            }
+            RuntimeCompiler compiler = selectCompiler(cma, Nature.OPT, false);
+            compilation = new Compilation(compiler, cma, (Compilations) compiledState, Nature.OPT);
+            compilation.queueSequence = queueSequence++;
+            queued.put(cma, compilation);
+            pending.add(compilation);
+            pending.notify();
+        }
+    }
+
     /**
      * Select the appropriate compiler based on the current state of the method.
      *
@@ -533,6 +581,10 @@ public class CompilationBroker {
                             // compile VM extensions with the opt compiler (cf isHosted)
                             reason = "vm";
                             compiler = optimizingCompiler;
+                        } else if (!isDeopt && CompilationCache.isEnabled() && CompilationCache.take(cma)) {
+                            // optimized in a previous run (cf CompilationCache)
+                            reason = "cache";
+                            compiler = optimizingCompiler;
                         } else {
                             compiler = defaultCompiler;
                         }
@@ -587,6 +639,27 @@ public class CompilationBroker {
         cma.compiledState = Compilations.EMPTY;
     }
 
+    /**
+     * Handles an instrumentation counter overflow on a backward branch in a profiled method.
+     * The method is recompiled as for an overflow upon entry and, if {@linkplain OnStackReplacement on-stack replacement}
+     * is enabled, the activation executing the loop is transferred to optimized code, in which case this method does not return.
+     * This method must be called on the thread that overflowed the counter.
+     *
+     * @param mpo profiling object (including the method itself)
+     */
+    public static void backwardBranchCounterOverflow(MethodProfile mpo) {
+        instrumentationCounterOverflow(mpo, null);
+        if (OnStackReplacement.isEnabled() && !mpo.compilationDisabled && !Heap.isAllocationDisabledForCurrentThread() &&
+                        !Compilation.isCompilationRunningInCurrentThread()) {
+            OnStackReplacement.replace(mpo);
+        }
+        if (mpo.entryBackedgeCount <= 0) {
+            // The loop keeps running in the baseline code. We don't want to see
+            // another counter overflow on every iteration.
+            mpo.entryBackedgeCount = 1000;
+        }
+    }
+
     /**
      * Handles an instrumentation counter overflow upon entry to a profiled method.
      * This method must be called on the thread that overflowed the counter.
@@ -617,7 +690,11 @@ public class CompilationBroker {
         TargetMethod newMethod = Compilations.currentTargetMethod(cma.compiledState, null);
 
         if (oldMethod == newMethod || newMethod == null) {
-            if (!(cma.compiledState instanceof Compilation)) {
+            if (BackgroundCompilation) {
+                // The new code gets patched in on a counter overflow following its installation.
+                logCounterOverflow(mpo, "queued for background compilation");
+                vm().compilationBroker.enqueueCompilation(cma);
+            } else if (!(cma.compiledState instanceof Compilation)) {
                 // There is no newer compiled version available yet that we could just patch to, so recompile
                 logCounterOverflow(mpo, "");
                 try {
@@ -757,8 +834,8 @@ public class CompilationBroker {
      */
     protected class CompilationThread extends Thread {
 
-        protected CompilationThread() {
-            super("compile");
+        protected CompilationThread(int id) {
+            super("compile-" + id);
             setDaemon(true);
         }
 
@@ -799,12 +876,33 @@ public class CompilationBroker {
                         pending.wait();
                     }
                 }
+                queued.remove(compilation.classMethodActor);
+            }
+            final ClassMethodActor cma = compilation.classMethodActor;
+            synchronized (cma) {
+                if (cma.compiledState != compilation.prevCompilations) {
+                    // The method was compiled or deoptimized since the request was queued
+                    compilation = null;
+                    return;
+                }
+                compilation.compilingThread = Thread.currentThread();
+                cma.compiledState = compilation;
             }
-            compilation.compilingThread = Thread.currentThread();
             if (GCOnRecompilation) {
                 System.gc();
             }
-            compilation.compile();
+            try {
+                compilation.compile();
+                VMTI.handler().methodCompiled(compilation.classMethodActor);
+            } catch (Throwable t) {
+                // Stay with the current code and stop counting towards recompilation.
+                compilation.abandon();
+                TargetMethod tm = compilation.prevCompilations.baseline;
+                if (tm != null && tm.profile() != null) {
+                    tm.profile().compilationDisabled = true;
+                }
+                throw t;
+            }
             compilation = null;
         }
     }
@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.compiler;
+
+import static com.sun.max.vm.VMOptions.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.code.*;
+import com.sun.max.vm.compiler.RuntimeCompiler.Nature;
+import com.sun.max.vm.compiler.deps.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.profile.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * A persistent record of the methods optimized by a VM run, used to compile the same methods with the optimizing
+ * compiler straight away in subsequent runs instead of re-warming them up through the baseline compiler.
+ * <p>
+ * When {@code -XX:CompilationCacheFile} is specified, the file is read when the VM reaches the
+ * {@linkplain MaxineVM.Phase#RUNNING running} phase, and rewritten at VM exit with the methods whose optimized code is
+ * valid in the {@linkplain CodeManager#getRuntimeOptCodeRegion() runtime opt code region} at that time.
+ * An entry is keyed by the method's holder, name and signature, and records a checksum of the method's bytecodes
+ * and the context classes of the {@linkplain Dependencies dependencies} its optimized code had.
+ * <p>
+ * An entry is used for the first compilation of its method only if the bytecodes are unchanged and all its
+ * dependency context classes are loaded, i.e., if the class hierarchy the code was optimized for is in place.
+ * The method is then compiled anew, so that the assumptions of the new code are validated and registered by the
+ * {@link DependenciesManager} as for any other optimized compilation. An entry is used at most once: a method whose
+ * cached compilation is invalidated goes back to the normal baseline/recompilation path.
+ * <p>
+ * Since a cached method skips the baseline compiler, it has no {@link MethodProfile} of its own. An entry therefore
+ * also records the branch probabilities and receiver types gathered by the method's baseline code in the run that
+ * wrote the cache (or carried over from the entry it was compiled with), and these stand in for the
+ * {@linkplain ClassMethodActor#baselineProfile() baseline profile} when the cached method is optimized.
+ */
+public final class CompilationCache {
+
+    private static String CompilationCacheFile;
+
+    static {
+        addFieldOption("-XX:", "CompilationCacheFile", CompilationCache.class,
+            "File in which the methods optimized by a VM run are recorded, so that subsequent runs compile them with the optimizing compiler up front.");
+    }
+
+    private CompilationCache() {
+    }
+
+    /**
+     * A method recorded in the cache.
+     */
+    static final class Entry {
+        final String key;
+        final long checksum;
+        final String[] contextClasses;
+
+        /**
+         * The recorded profile, in the format written by {@link #appendProfile}.
+         */
+        final String profile;
+
+        Entry(String key, long checksum, String[] contextClasses, String profile) {
+            this.key = key;
+            this.checksum = checksum;
+            this.contextClasses = contextClasses;
+            this.profile = profile;
+        }
+    }
+
+    /**
+     * The profile recorded for a method compiled from the cache.
+     */
+    static final class Profile {
+        /**
+         * The text this profile was parsed from, written back as is if the method has no baseline profile at exit.
+         */
+        final String text;
+
+        final HashMap<Integer, Double> branchTakenProbabilities = new HashMap<Integer, Double>();
+
+        /**
+         * Receiver type descriptors and counts, in pairs; a {@code null} descriptor stands for the other types seen.
+         */
+        final HashMap<Integer, Object[]> receiverTypes = new HashMap<Integer, Object[]>();
+
+        Profile(String text) {
+            this.text = text;
+            for (String item : text.split(" ")) {
+                int eq = item.indexOf('=');
+                if (eq <= 1) {
+                    continue;
+                }
+                int bci = Integer.parseInt(item.substring(1, eq));
+                String value = item.substring(eq + 1);
+                if (item.charAt(0) == 'b') {
+                    branchTakenProbabilities.put(bci, Double.parseDouble(value));
+                } else if (item.charAt(0) == 't') {
+                    String[] pairs = value.split(",");
+                    Object[] types = new Object[pairs.length * 2];
+                    for (int i = 0; i < pairs.length; i++) {
+                        int colon = pairs[i].lastIndexOf(':');
+                        String type = pairs[i].substring(0, colon);
+                        types[i * 2] = type.equals("?") ? null : type;
+                        types[i * 2 + 1] = Integer.parseInt(pairs[i].substring(colon + 1));
+                    }
+                    receiverTypes.put(bci, types);
+                }
+            }
+        }
+    }
+
+    /**
+     * The entries read from the cache file and not used yet.
+     */
+    private static final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * The recorded profiles of the methods compiled from the cache.
+     */
+    private static final IdentityHashMap<ClassMethodActor, Profile> profiles = new IdentityHashMap<ClassMethodActor, Profile>();
+
+    /**
+     * Determines if the persistent compilation cache is enabled.
+     */
+    public static boolean isEnabled() {
+        return CompilationCacheFile != null;
+    }
+
+    static String keyOf(ClassMethodActor cma) {
+        return cma.holder().typeDescriptor + "." + cma.name + cma.descriptor();
+    }
+
+    static long checksumOf(ClassMethodActor cma) {
+        CRC32 crc = new CRC32();
+        crc.update(cma.codeAttribute().code());
+        return crc.getValue();
+    }
+
+    /**
+     * Reads the cache file, if it exists, and registers a shutdown hook that rewrites it at VM exit.
+     */
+    static void initialize() {
+        File file = new File(CompilationCacheFile);
+        if (file.exists()) {
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(file));
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] fields = line.split("\t", -1);
+                        if (fields.length != 4) {
+                            continue;
+                        }
+                        String[] contextClasses = fields[2].isEmpty() ? new String[0] : fields[2].split(",");
+                        Entry entry = new Entry(fields[0], Long.parseLong(fields[1], 16), contextClasses, fields[3]);
+                        synchronized (entries) {
+                            entries.put(entry.key, entry);
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (Exception e) {
+                Log.println("Error reading compilation cache " + CompilationCacheFile + ": " + e);
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread("CompilationCacheWriter") {
+            @Override
+            public void run() {
+                save();
+            }
+        });
+    }
+
+    /**
+     * Determines if a method should be compiled with the optimizing compiler because its optimized code was valid at the
+     * end of a previous run. The method's entry is consumed by this call if it matches.
+     *
+     * @param cma a method being compiled for the first time
+     */
+    static boolean take(ClassMethodActor cma) {
+        if (cma.codeAttribute() == null) {
+            return false;
+        }
+        Entry entry;
+        synchronized (entries) {
+            if (entries.isEmpty()) {
+                return false;
+            }
+            entry = entries.get(keyOf(cma));
+            if (entry == null) {
+                return false;
+            }
+            if (entry.checksum != checksumOf(cma)) {
+                // the method has changed since it was recorded
+                entries.remove(entry.key);
+                return false;
+            }
+            for (String contextClass : entry.contextClasses) {
+                TypeDescriptor descriptor = JavaTypeDescriptor.parseTypeDescriptor(contextClass);
+                if (ClassRegistry.get(cma.holder().classLoader, descriptor, true) == null) {
+                    // retry on a later compilation of the method, when the class may have been loaded
+                    return false;
+                }
+            }
+            entries.remove(entry.key);
+            if (!entry.profile.isEmpty()) {
+                try {
+                    profiles.put(cma, new Profile(entry.profile));
+                } catch (RuntimeException e) {
+                    // malformed profile: compile without it
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Profile profileOf(ClassMethodActor cma) {
+        synchronized (entries) {
+            return profiles.isEmpty() ? null : profiles.get(cma);
+        }
+    }
+
+    /**
+     * Gets the branch taken probability recorded for a method compiled from the cache.
+     *
+     * @return {@code -1} if no probability was recorded for the branch at {@code bci}
+     * @see ClassMethodActor#branchProbability(int)
+     */
+    public static double branchProbability(ClassMethodActor cma, int bci) {
+        Profile profile = profileOf(cma);
+        Double probability = profile == null ? null : profile.branchTakenProbabilities.get(bci);
+        return probability == null ? MethodProfile.UNDEFINED_EXECUTION_COUNT : probability;
+    }
+
+    /**
+     * Gets the receiver types recorded for a method compiled from the cache, in the format of
+     * {@link MethodProfile#getTypeProfile(int)}. Types not loaded in this run are counted with the other types.
+     *
+     * @return {@code null} if no receiver types were recorded for the call at {@code bci}
+     * @see ClassMethodActor#typeProfile(int)
+     */
+    public static Integer[] typeProfile(ClassMethodActor cma, int bci) {
+        Profile profile = profileOf(cma);
+        Object[] types = profile == null ? null : profile.receiverTypes.get(bci);
+        if (types == null) {
+            return null;
+        }
+        ArrayList<Integer> result = new ArrayList<Integer>(types.length);
+        int others = 0;
+        for (int i = 0; i < types.length; i += 2) {
+            ClassActor type = null;
+            if (types[i] != null) {
+                TypeDescriptor descriptor = JavaTypeDescriptor.parseTypeDescriptor((String) types[i]);
+                type = ClassRegistry.get(cma.holder().classLoader, descriptor, true);
+            }
+            if (type == null) {
+                others += (Integer) types[i + 1];
+            } else {
+                result.add(type.id);
+                result.add((Integer) types[i + 1]);
+            }
+        }
+        if (others > 0) {
+            result.add(MethodProfile.UNDEFINED_TYPE_ID);
+            result.add(others);
+        }
+        return result.isEmpty() ? null : result.toArray(new Integer[result.size()]);
+    }
+
+    /**
+     * Appends the branch probabilities and receiver types of a baseline profile to a cache entry, as space separated
+     * {@code b<bci>=<probability>} and {@code t<bci>=<type>:<count>,...} items, with {@code ?} for the other types.
+     */
+    static void appendProfile(StringBuilder sb, MethodProfile mp, int codeLength) {
+        String sep = "";
+        for (int bci = 0; bci < codeLength; bci++) {
+            double probability = mp.getBranchTakenProbability(bci);
+            if (probability >= 0) {
+                sb.append(sep).append('b').append(bci).append('=').append(probability);
+                sep = " ";
+            }
+            Integer[] typeProfile = mp.getTypeProfile(bci);
+            if (typeProfile != null) {
+                sb.append(sep).append('t').append(bci).append('=');
+                for (int i = 0; i < typeProfile.length; i += 2) {
+                    ClassActor type = typeProfile[i] == MethodProfile.UNDEFINED_TYPE_ID ? null : ClassIDManager.toClassActor(typeProfile[i]);
+                    sb.append(i == 0 ? "" : ",").append(type == null ? "?" : type.typeDescriptor.toString()).append(':').append(typeProfile[i + 1]);
+                }
+                sep = " ";
+            }
+        }
+    }
+
+    /**
+     * Writes the methods whose optimized code is currently valid to the cache file.
+     */
+    static void save() {
+        try {
+            PrintStream out = new PrintStream(new FileOutputStream(CompilationCacheFile));
+            try {
+                Map<TargetMethod, List<ClassActor>> contextClasses = Dependencies.contextClassesByTargetMethod();
+                for (TargetMethod tm : Code.getCodeManager().getRuntimeOptCodeRegion().copyOfTargetMethods()) {
+                    ClassMethodActor cma = tm.classMethodActor();
+                    if (cma == null || tm.isBaseline() || cma.codeAttribute() == null || tm.invalidated() != null) {
+                        continue;
+                    }
+                    if (Compilations.currentTargetMethod(cma.compiledState, Nature.OPT) != tm) {
+                        continue;
+                    }
+                    StringBuilder sb = new StringBuilder();
+                    sb.append(keyOf(cma)).append('\t').append(Long.toHexString(checksumOf(cma))).append('\t');
+                    List<ClassActor> classes = contextClasses.get(tm);
+                    if (classes != null) {
+                        String sep = "";
+                        for (ClassActor contextClass : classes) {
+                            sb.append(sep).append(contextClass.typeDescriptor);
+                            sep = ",";
+                        }
+                    }
+                    sb.append('\t');
+                    MethodProfile mp = cma.baselineProfile();
+                    if (mp != null) {
+                        appendProfile(sb, mp, cma.codeAttribute().code().length);
+                    } else {
+                        Profile profile = profileOf(cma);
+                        if (profile != null) {
+                            sb.append(profile.text);
+                        }
+                    }
+                    out.println(sb);
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.println("Error writing compilation cache " + CompilationCacheFile + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.compiler;
+
+import static com.sun.max.vm.MaxineVM.*;
+import static com.sun.max.vm.VMOptions.*;
+import static com.sun.max.vm.intrinsics.Infopoints.*;
+
+import java.util.*;
+
+import com.sun.cri.bytecode.*;
+import com.sun.cri.ci.*;
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.compiler.RuntimeCompiler.OsrCompiler;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.compiler.target.TargetMethod.FrameAccess;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.profile.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.stack.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * On-stack replacement (OSR) of a baseline activation that is executing a hot loop by optimized code.
+ * <p>
+ * When the invocation/back-edge counter of a baseline method overflows on a backward branch (see
+ * {@link CompilationBroker#backwardBranchCounterOverflow(MethodProfile)}), the method is compiled by the
+ * {@linkplain OsrCompiler optimizing compiler} with an additional entry point at the target of the branch, i.e. at
+ * a loop header. The values of the locals of the baseline frame are then copied into an OSR buffer and the baseline
+ * frame is replaced by a jump to the {@linkplain TargetMethod#osrEntryOffset() OSR entry point} of the compiled code,
+ * which sets up its own frame, loads the locals from the buffer and continues the loop. When the compiled code
+ * returns, it returns to the caller of the replaced baseline frame.
+ * <p>
+ * The OSR buffer is a {@code long} array in which the value of local {@code i} is at index {@code i}. Safepoints are
+ * disabled from the moment references are written into the buffer until control reaches the OSR entry point, which
+ * has no safepoint before all values are in the compiled frame. Thus no GC can miss the references in the buffer.
+ * <p>
+ * OSR compilations are kept per method and loop header and are not installed as the current code of the method.
+ * Compilations the compiler refuses (e.g. because a monitor is held or the operand stack is not empty at the loop
+ * header) are remembered as well, so that a loop is not recompiled at every counter overflow.
+ */
+public final class OnStackReplacement {
+
+    private static boolean UseOSR = true;
+
+    static {
+        addFieldOption("-XX:", "UseOSR", OnStackReplacement.class,
+            "Transfer baseline activations executing hot loops to optimized code (on-stack replacement).");
+    }
+
+    /**
+     * The OSR compilations of each method, keyed by the bytecode index of their loop header.
+     * A {@code null} value denotes a failed OSR compilation.
+     */
+    private static final HashMap<ClassMethodActor, HashMap<Integer, TargetMethod>> osrMethods = new HashMap<ClassMethodActor, HashMap<Integer, TargetMethod>>();
+
+    /**
+     * The method being compiled for OSR by the current thread. OSR is not attempted for any activation
+     * of the current thread while this is set.
+     */
+    private static final ObjectThreadLocal<ClassMethodActor> OSR_COMPILATION = new ObjectThreadLocal<ClassMethodActor>("OSR_COMPILATION",
+                    "method being compiled for on-stack replacement by the current thread");
+
+    private OnStackReplacement() {
+    }
+
+    /**
+     * Determines if on-stack replacement is enabled and supported by the optimizing compiler.
+     */
+    public static boolean isEnabled() {
+        return UseOSR && vm().compilationBroker.optimizingCompiler instanceof OsrCompiler;
+    }
+
+    /**
+     * Locates the most recent activation of a baseline method on the current thread's stack and its caller.
+     */
+    static final class BaselineFrame extends RawStackFrameVisitor {
+        final TargetMethod tm;
+        boolean found;
+        CodePointer ip;
+        Pointer sp;
+        Pointer fp;
+        Pointer callerSP;
+        Pointer callerFP;
+        Address returnAddress;
+
+        BaselineFrame(TargetMethod tm) {
+            this.tm = tm;
+        }
+
+        @Override
+        public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
+            if (!found) {
+                if (current.targetMethod() == tm) {
+                    found = true;
+                    ip = current.vmIP();
+                    sp = current.sp();
+                    fp = current.fp();
+                }
+                return true;
+            }
+            callerSP = current.sp();
+            callerFP = current.fp();
+            // The stack walker "recovers" the original return address if the caller is marked for
+            // deoptimization. The actual return address must be kept (see Deoptimization.Info).
+            returnAddress = callee.targetMethod().returnAddressPointer(callee).readWord(0).asAddress();
+            return false;
+        }
+    }
+
+    private static BaselineFrame locate(TargetMethod tm) {
+        BaselineFrame frame = new BaselineFrame(tm);
+        new VmStackFrameWalker(VmThread.current().tla()).inspect(Pointer.fromLong(here()),
+                        VMRegister.getCpuStackPointer(),
+                        VMRegister.getCpuFramePointer(),
+                        frame);
+        return frame.found && !frame.callerSP.isZero() ? frame : null;
+    }
+
+    /**
+     * Gets the target of a backward branch.
+     *
+     * @return the bytecode index of the loop header targeted by the branch at {@code bci} or -1 if the instruction at
+     *         {@code bci} is not a backward branch
+     */
+    private static int loopHeader(byte[] code, int bci) {
+        int opcode = code[bci] & 0xff;
+        if (opcode == Bytecodes.JSR || opcode == Bytecodes.JSR_W || !Bytecodes.isBranch(opcode)) {
+            return -1;
+        }
+        int target = bci + (opcode == Bytecodes.GOTO_W ? Bytes.beS4(code, bci + 1) : Bytes.beS2(code, bci + 1));
+        return target <= bci ? target : -1;
+    }
+
+    /**
+     * Gets the OSR compilation of a method for a given loop header, compiling it if necessary.
+     *
+     * @return {@code null} if the method cannot be compiled for OSR at {@code osrBCI}
+     */
+    private static TargetMethod osrMethod(ClassMethodActor cma, int osrBCI) {
+        HashMap<Integer, TargetMethod> methods;
+        synchronized (osrMethods) {
+            methods = osrMethods.get(cma);
+            if (methods == null) {
+                methods = new HashMap<Integer, TargetMethod>();
+                osrMethods.put(cma, methods);
+            }
+            if (methods.containsKey(osrBCI)) {
+                TargetMethod tm = methods.get(osrBCI);
+                if (tm == null || tm.invalidated() == null) {
+                    return tm;
+                }
+                // the assumptions of the OSR code no longer hold: recompile
+            }
+        }
+
+        TargetMethod tm = null;
+        OSR_COMPILATION.set(cma);
+        try {
+            tm = ((OsrCompiler) vm().compilationBroker.optimizingCompiler).compileOsr(cma, osrBCI);
+            logOsr(cma, osrBCI, "compiled", null);
+        } catch (RuntimeException e) {
+            logOsr(cma, osrBCI, "failed: ", e.getMessage());
+        } catch (InternalError e) {
+            logOsr(cma, osrBCI, "failed: ", e.getMessage());
+        } finally {
+            OSR_COMPILATION.set(null);
+        }
+        synchronized (osrMethods) {
+            methods.put(osrBCI, tm);
+        }
+        return tm;
+    }
+
+    /**
+     * Replaces the most recent activation of the baseline method owning a given profile by an OSR compilation of the
+     * method, if the activation is at a backward branch. This method does not return if the replacement happens.
+     *
+     * @param mpo the profile whose counter overflowed on a backward branch
+     */
+    static void replace(MethodProfile mpo) {
+        if (OSR_COMPILATION.get() != null) {
+            return;
+        }
+        TargetMethod baseline = mpo.method;
+        ClassMethodActor cma = baseline.classMethodActor;
+        BaselineFrame frame = locate(baseline);
+        int safepointIndex = frame == null ? -1 : baseline.findSafepointIndex(frame.ip);
+        if (safepointIndex < 0) {
+            return;
+        }
+        CiDebugInfo info = baseline.debugInfoAt(safepointIndex, null);
+        if (info == null || info.frame() == null) {
+            return;
+        }
+        int osrBCI = loopHeader(cma.code(), info.frame().bci);
+        if (osrBCI < 0) {
+            return;
+        }
+        TargetMethod osrMethod = osrMethod(cma, osrBCI);
+        if (osrMethod != null) {
+            transfer(baseline, osrMethod);
+        }
+    }
+
+    /**
+     * Copies the locals of the most recent activation of {@code baseline} into an OSR buffer and continues execution
+     * at the OSR entry point of {@code osrMethod}.
+     */
+    @NEVER_INLINE
+    private static void transfer(TargetMethod baseline, TargetMethod osrMethod) {
+        SafepointPoll.disable();
+        // The baseline frame is located again as the compilation may have relocated baseline code
+        BaselineFrame frame = locate(baseline);
+        int safepointIndex = frame == null ? -1 : baseline.findSafepointIndex(frame.ip);
+        if (safepointIndex < 0) {
+            SafepointPoll.enable();
+            return;
+        }
+        FrameAccess fa = new FrameAccess(null, Pointer.zero(), frame.sp, frame.fp, frame.callerSP, frame.callerFP);
+        CiFrame state = baseline.debugInfoAt(safepointIndex, fa).frame();
+        long[] buffer = new long[state.numLocals];
+
+        Pointer bufferPointer = Reference.fromJava(buffer).toOrigin().plus(Layout.longArrayLayout().getElementOffsetFromOrigin(0));
+        for (int i = 0; i < state.numLocals; i++) {
+            CiConstant value = (CiConstant) state.getLocalValue(i);
+            if (value.kind.isObject()) {
+                bufferPointer.writeWord(i * Word.size(), Reference.fromJava(value.asObject()).toOrigin());
+            } else {
+                bufferPointer.writeLong(i * Word.size(), value.asLong());
+            }
+        }
+
+        if (verboseOption.verboseCompilation) {
+            boolean lockDisabledSafepoints = Log.lock();
+            Log.printCurrentThread(false);
+            Log.print(": OSR of ");
+            Log.printMethod(baseline, false);
+            Log.print(" at bci ");
+            Log.println(state.bci);
+            Log.unlock(lockDisabledSafepoints);
+        }
+
+        // The compiled code returns to the caller of the baseline frame with a plain return
+        // instruction, so the return address is pushed right below the caller's stack pointer.
+        Pointer sp = frame.callerSP.minus(Word.size());
+        sp.writeWord(0, frame.returnAddress);
+        Pointer entry = osrMethod.codeAt(osrMethod.osrEntryOffset()).toPointer();
+
+        // Re-enable safepoints. There is no safepoint before the values are read from the buffer.
+        SafepointPoll.enable();
+        Stubs.unwindLong(entry, sp, frame.callerFP, bufferPointer.toLong());
+    }
+
+    private static void logOsr(ClassMethodActor cma, int osrBCI, String msg, String detail) {
+        if (verboseOption.verboseCompilation) {
+            boolean lockDisabledSafepoints = Log.lock();
+            Log.printCurrentThread(false);
+            Log.print(": OSR compilation of ");
+            Log.printMethod(cma, false);
+            Log.print(" at bci ");
+            Log.print(osrBCI);
+            Log.print(" ");
+            Log.print(msg);
+            if (detail != null) {
+                Log.print(detail);
+            }
+            Log.println();
+            Log.unlock(lockDisabledSafepoints);
+        }
+    }
+}
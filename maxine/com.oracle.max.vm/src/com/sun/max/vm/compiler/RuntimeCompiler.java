@@ -137,4 +137,22 @@ public interface RuntimeCompiler {
      * Returns allocation frontier methods.
      */
     List<TargetMethod> getAllocationFrontierMethods();
+
+    /**
+     * The interface implemented by an optimizing compiler that supports on-stack replacement (OSR).
+     */
+    public interface OsrCompiler {
+        /**
+         * Compiles a method such that a baseline activation of the method can be continued in the compiled code at a
+         * given loop header. The compiled code is installed in the code cache but does not become the
+         * {@linkplain Compilations#currentTargetMethod current} code of the method. It is only entered by
+         * {@link OnStackReplacement} via its {@linkplain TargetMethod#osrEntryOffset() OSR entry point}.
+         *
+         * @param classMethodActor the method to compile
+         * @param osrBCI the bytecode index of the loop header at which execution continues in the compiled code
+         * @return the OSR target method
+         * @throws RuntimeException if the compiler cannot produce OSR code for the method at {@code osrBCI}
+         */
+        TargetMethod compileOsr(ClassMethodActor classMethodActor, int osrBCI);
+    }
 }
@@ -32,6 +32,7 @@ import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
 import java.util.*;
 
 import com.sun.cri.ci.*;
+import com.sun.cri.ri.*;
 import com.sun.max.*;
 import com.sun.max.annotate.*;
 import com.sun.max.lang.*;
@@ -45,6 +46,7 @@ import com.sun.max.vm.compiler.*;
 import com.sun.max.vm.compiler.target.*;
 import com.sun.max.vm.compiler.target.TargetMethod.FrameAccess;
 import com.sun.max.vm.compiler.target.amd64.AMD64TargetMethodUtil;
+import com.sun.max.vm.heap.*;
 import com.sun.max.vm.log.VMLog.Record;
 import com.sun.max.vm.log.hosted.*;
 import com.sun.max.vm.object.*;
@@ -53,6 +55,7 @@ import com.sun.max.vm.reference.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.stack.*;
 import com.sun.max.vm.thread.*;
+import com.sun.max.vm.type.*;
 
 /**
  * Mechanism for applying deoptimization to one or more target methods.
@@ -103,11 +106,21 @@ public class Deoptimization extends VmOperation {
      * A VM option for triggering deoptimization at fixed intervals.
      */
     public static int DeoptimizeALot;
+
+    /**
+     * Number of uncommon traps taken by the speculative guards (profiled receiver types, loop predicates) deoptimizing
+     * to the same bytecode index of a method before the compiled code trapping is invalidated and the method is no
+     * longer compiled with guards at that bytecode index.
+     */
+    public static int UncommonTrapLimit = 8;
     static {
         VMOptions.addFieldOption("-XX:", "UseDeopt", Deoptimization.class, "Enable deoptimization.");
         VMOptions.addFieldOption("-XX:", "DeoptimizeALot", Deoptimization.class,
             "Invalidate and deoptimize a selection of executing optimized methods every <n> milliseconds. " +
             "A value of 0 disables this mechanism.");
+        VMOptions.addFieldOption("-XX:", "UncommonTrapLimit", Deoptimization.class,
+            "Number of failed speculative guards (receiver types, loop predicates) at one bytecode index of a method " +
+            "after which the method is no longer compiled with guards at that bytecode index.");
     }
 
     /**
@@ -143,7 +156,19 @@ public class Deoptimization extends VmOperation {
      * @param deoptReasonId deoptimization reason identificator
      */
     public Deoptimization(ArrayList<TargetMethod> methods, int deoptReasonId) {
-        super("Deoptimization", null, Mode.Safepoint);
+        this(methods, deoptReasonId, Mode.Safepoint);
+    }
+
+    /**
+     * Creates an object to deoptimize a given set of methods for a given deoptimization reason.
+     *
+     * @param methods the set of methods to be deoptimized (must not contain duplicates)
+     * @param deoptReasonId deoptimization reason identificator
+     * @param mode {@link Mode#Safepoint} to block the submitting thread until the methods are deoptimized or
+     *            {@link Mode#AsyncSafepoint} to only queue the deoptimization
+     */
+    private Deoptimization(ArrayList<TargetMethod> methods, int deoptReasonId, Mode mode) {
+        super("Deoptimization", null, mode);
         this.methods = methods;
         this.deoptReasonId = deoptReasonId;
     }
@@ -778,6 +803,9 @@ public class Deoptimization extends VmOperation {
             deoptLogger.logFrames(topFrame, "values");
         }
 
+        // Reallocate the objects whose allocation was removed by escape analysis
+        materializeVirtualObjects(topFrame);
+
         // Construct the deoptimized frames for each frame in the debug info
         final TopFrameContinuation topCont = new TopFrameContinuation();
         Continuation cont = topCont;
@@ -852,6 +880,97 @@ public class Deoptimization extends VmOperation {
         FatalError.unexpected("should not reach here");
     }
 
+    /**
+     * Replaces the {@linkplain CiVirtualObject virtual objects} in the values of a frame and its callers with the
+     * objects they describe. All occurrences of a virtual object id denote the same object.
+     *
+     * @param topFrame a frame whose values are {@link CiConstant}s or virtual objects
+     */
+    private static void materializeVirtualObjects(CiFrame topFrame) {
+        HashMap<Integer, Object> objects = null;
+        for (CiFrame frame = topFrame; frame != null; frame = frame.caller()) {
+            for (int i = 0; i < frame.values.length; i++) {
+                if (frame.values[i] instanceof CiVirtualObject) {
+                    if (objects == null) {
+                        objects = new HashMap<Integer, Object>();
+                    }
+                    frame.values[i] = CiConstant.forObject(materialize((CiVirtualObject) frame.values[i], objects));
+                }
+            }
+        }
+    }
+
+    private static Object materialize(CiVirtualObject virtualObject, HashMap<Integer, Object> objects) {
+        Object object = objects.get(virtualObject.id());
+        if (object != null) {
+            return object;
+        }
+        ClassActor classActor = (ClassActor) virtualObject.type();
+        CiValue[] values = virtualObject.values();
+        if (classActor.isArrayClass()) {
+            object = Heap.createArray(classActor.dynamicHub(), values.length);
+            objects.put(virtualObject.id(), object);
+            Kind<?> kind = classActor.componentClassActor().kind;
+            for (int i = 0; i < values.length; i++) {
+                setElement(object, i, kind, materializedValue(values[i], objects));
+            }
+        } else {
+            object = Heap.createTuple(classActor.dynamicHub());
+            objects.put(virtualObject.id(), object);
+            int i = 0;
+            for (ClassActor holder = classActor; holder != null; holder = holder.superClassActor) {
+                for (RiResolvedField field : holder.declaredFields()) {
+                    FieldActor fieldActor = (FieldActor) field;
+                    setField(object, fieldActor.offset(), fieldActor.kind, materializedValue(values[i++], objects));
+                }
+            }
+        }
+        return object;
+    }
+
+    private static CiConstant materializedValue(CiValue value, HashMap<Integer, Object> objects) {
+        if (value instanceof CiVirtualObject) {
+            return CiConstant.forObject(materialize((CiVirtualObject) value, objects));
+        }
+        return (CiConstant) value;
+    }
+
+    private static void setField(Object tuple, int offset, Kind<?> kind, CiConstant value) {
+        // Checkstyle: stop
+        switch (kind.asEnum) {
+            case BOOLEAN: TupleAccess.writeBoolean(tuple, offset, value.asPrimitive() != 0L); break;
+            case BYTE:    TupleAccess.writeByte(tuple, offset, (byte) value.asPrimitive()); break;
+            case SHORT:   TupleAccess.writeShort(tuple, offset, (short) value.asPrimitive()); break;
+            case CHAR:    TupleAccess.writeChar(tuple, offset, (char) value.asPrimitive()); break;
+            case INT:     TupleAccess.writeInt(tuple, offset, (int) value.asPrimitive()); break;
+            case FLOAT:   TupleAccess.writeFloat(tuple, offset, Float.intBitsToFloat((int) value.asPrimitive())); break;
+            case LONG:    TupleAccess.writeLong(tuple, offset, value.asPrimitive()); break;
+            case DOUBLE:  TupleAccess.writeDouble(tuple, offset, Double.longBitsToDouble(value.asPrimitive())); break;
+            case WORD:    TupleAccess.writeWord(tuple, offset, Address.fromLong(value.asPrimitive())); break;
+            case REFERENCE: TupleAccess.writeObject(tuple, offset, value.kind.isObject() ? value.asObject() : null); break;
+            default: throw FatalError.unexpected("unexpected field kind: " + kind);
+        }
+        // Checkstyle: resume
+    }
+
+    private static void setElement(Object array, int index, Kind<?> kind, CiConstant value) {
+        // Checkstyle: stop
+        switch (kind.asEnum) {
+            case BOOLEAN: ArrayAccess.setBoolean(array, index, value.asPrimitive() != 0L); break;
+            case BYTE:    ArrayAccess.setByte(array, index, (byte) value.asPrimitive()); break;
+            case SHORT:   ArrayAccess.setShort(array, index, (short) value.asPrimitive()); break;
+            case CHAR:    ArrayAccess.setChar(array, index, (char) value.asPrimitive()); break;
+            case INT:     ArrayAccess.setInt(array, index, (int) value.asPrimitive()); break;
+            case FLOAT:   ArrayAccess.setFloat(array, index, Float.intBitsToFloat((int) value.asPrimitive())); break;
+            case LONG:    ArrayAccess.setLong(array, index, value.asPrimitive()); break;
+            case DOUBLE:  ArrayAccess.setDouble(array, index, Double.longBitsToDouble(value.asPrimitive())); break;
+            case WORD:    ArrayAccess.setWord(array, index, Address.fromLong(value.asPrimitive())); break;
+            case REFERENCE: ArrayAccess.setObject(array, index, value.kind.isObject() ? value.asObject() : null); break;
+            default: throw FatalError.unexpected("unexpected element kind: " + kind);
+        }
+        // Checkstyle: resume
+    }
+
     /**
      * Finds the frame containing a handler for an exception thrown at the current BCI or
      * of a synchronized method (so that an extra exception handler exists in order to exit a monitor).
@@ -917,9 +1036,50 @@ public class Deoptimization extends VmOperation {
      */
     public static void uncommonTrap(Pointer csa, Pointer ip, Pointer sp, Pointer fp) {
         FatalError.check(!csa.isZero(), "callee save area expected for uncommon trap");
+        recordUncommonTrap(ip);
         deoptimize(CodePointer.from(ip), sp, fp, csa, vm().registerConfigs.uncommonTrapStub.getCalleeSaveLayout(), null);
     }
 
+    /**
+     * Accounts for an uncommon trap taken by a speculative guard in the baseline profile of the method the guard
+     * deoptimizes to. Traps are counted per bytecode index of the deoptimized frame, i.e. the invoke whose receiver
+     * type was speculated on or the header of the loop whose predicate failed, so that the optimizing compiler stops
+     * emitting the failing guard without giving up the guards of other instructions. Once a guard has trapped
+     * {@link #UncommonTrapLimit} times, the invalidation of the trapping code is queued so that it is recompiled without
+     * the guard. The invalidation is not waited for: the trapping thread is not at a safepoint and deoptimizes its own
+     * frame once this method returns. Other frames of the trapping code are deoptimized by the queued operation.
+     *
+     * @param ip the address of the uncommon trap
+     */
+    private static void recordUncommonTrap(Pointer ip) {
+        TargetMethod tm = Code.codePointerToTargetMethod(ip);
+        if (tm == null) {
+            return;
+        }
+        int safepointIndex = tm.findSafepointIndex(CodePointer.from(ip));
+        if (safepointIndex < 0) {
+            return;
+        }
+        CiFrame frame = tm.debugInfoAt(safepointIndex, null).frame();
+        if (frame == null || frame.rethrowException) {
+            return;
+        }
+        ClassMethodActor method = (ClassMethodActor) frame.method;
+        byte[] code = method.code();
+        if (code == null || frame.bci < 0 || frame.bci >= code.length) {
+            return;
+        }
+        MethodProfile mp = method.baselineProfile();
+        if (mp == null) {
+            return;
+        }
+        if (mp.incrementUncommonTrapCount(frame.bci) >= UncommonTrapLimit && tm.invalidated() == null && !tm.isInBootCodeRegion()) {
+            ArrayList<TargetMethod> tms = new ArrayList<TargetMethod>(1);
+            tms.add(tm);
+            new Deoptimization(tms, MethodProfile.UNDEFINED_DEOPTIMIZATION_REASON_ID, Mode.AsyncSafepoint).submit();
+        }
+    }
+
     @NEVER_INLINE // makes inspecting easier
     static void logPatchITable(ClassActor classActor, int iIndex) {
         if (deoptLogger.enabled()) {
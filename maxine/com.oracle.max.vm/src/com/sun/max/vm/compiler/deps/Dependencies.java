@@ -542,6 +542,43 @@ public final class Dependencies {
      */
     public static final IDMap idMap = new IDMap(MINIMAL_DEPENDENT_TARGET_METHOD);
 
+    /**
+     * Gets the context classes of the valid dependencies registered for each target method that has some,
+     * in a single pass over the {@linkplain #idMap registered dependencies}.
+     *
+     * @return a map from each target method with dependencies to the context classes of its dependencies
+     */
+    public static Map<TargetMethod, List<ClassActor>> contextClassesByTargetMethod() {
+        final IdentityHashMap<TargetMethod, List<ClassActor>> result = new IdentityHashMap<TargetMethod, List<ClassActor>>();
+        classHierarchyLock.readLock().lock();
+        try {
+            for (int id = 0; id <= idMap.maxID(); id++) {
+                Dependencies deps = idMap.get(id);
+                if (deps == null || deps.targetMethod() == null) {
+                    continue;
+                }
+                List<ClassActor> list = result.get(deps.targetMethod());
+                if (list == null) {
+                    list = new ArrayList<ClassActor>();
+                    result.put(deps.targetMethod(), list);
+                }
+                final List<ClassActor> contextClasses = list;
+                deps.visit(new DependencyVisitor() {
+                    @Override
+                    protected boolean nextContextClass(ClassActor c, ClassActor prev) {
+                        if (c != null) {
+                            contextClasses.add(c);
+                        }
+                        return true;
+                    }
+                });
+            }
+        } finally {
+            classHierarchyLock.readLock().unlock();
+        }
+        return result;
+    }
+
     static Dependencies fromId(int depsID) {
         Dependencies deps = idMap.get(depsID);
         assert deps != null : "invalid dependencies id: " + depsID;
@@ -29,6 +29,7 @@ import java.util.concurrent.*;
 import com.sun.max.annotate.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.code.*;
 import com.sun.max.vm.compiler.*;
 import com.sun.max.vm.compiler.RuntimeCompiler.Nature;
 import com.sun.max.vm.heap.*;
@@ -119,6 +120,17 @@ public class Compilation {
 
     public final RuntimeCompiler.Nature nature;
 
+    /**
+     * Number of requests for this compilation while it was waiting in the background compilation queue.
+     * Used to compile the hottest methods first.
+     */
+    public int hotness;
+
+    /**
+     * Order in which this compilation entered the background compilation queue.
+     */
+    public long queueSequence;
+
     public Compilation(RuntimeCompiler compiler,
                        ClassMethodActor classMethodActor,
                        Compilations prevCompilations,
@@ -141,6 +153,24 @@ public class Compilation {
         COMPILATION.set(this);
     }
 
+    /**
+     * Creates a compilation to be performed later by a background compilation thread.
+     * The compilation isn't associated with the current thread, and the compiling thread is set when it is dequeued.
+     */
+    public Compilation(RuntimeCompiler compiler,
+                       ClassMethodActor classMethodActor,
+                       Compilations prevCompilations,
+                       RuntimeCompiler.Nature nature) {
+        assert prevCompilations != null;
+        this.parent = null;
+        this.compiler = compiler;
+        this.classMethodActor = classMethodActor;
+        this.prevCompilations = prevCompilations;
+        this.nature = nature;
+        this.isDeopt = false;
+        this.hotness = 1;
+    }
+
     /**
      * Checks if any compilations are currently running in this thread. Useful to avoid recursive calls
      * of the optimizing compiler.
@@ -271,6 +301,21 @@ public class Compilation {
         }
     }
 
+    /**
+     * Abandons a compilation performed in the background after it failed. The method reverts to its previous
+     * compilations, which are handed over to any thread waiting for the result of this compilation.
+     */
+    public void abandon() {
+        synchronized (classMethodActor) {
+            if (classMethodActor.compiledState == this) {
+                classMethodActor.compiledState = prevCompilations;
+            }
+            result = Compilations.currentTargetMethod(prevCompilations, null);
+            done = true;
+            classMethodActor.notifyAll();
+        }
+    }
+
     /**
      * Perform the compilation, notifying the specified observers.
      *
@@ -281,6 +326,7 @@ public class Compilation {
         String methodString = "";
 
         try {
+            COMPILATION.set(this);
             InspectableCompilationInfo.notifyCompilationEvent(classMethodActor, null);
 
             logBeforeCompilation();
@@ -322,6 +368,9 @@ public class Compilation {
                         optimized = result;
                     }
                     classMethodActor.compiledState = new Compilations(baseline, optimized);
+                    if (prevCompilations == Compilations.EVICTED && result.isBaseline()) {
+                        CodeEviction.recordRecompilation();
+                    }
 
                     // compilation finished: this must come after the assignment to classMethodActor.compState
                     done = true;
@@ -33,6 +33,12 @@ public class Compilations {
 
     public static final Compilations EMPTY = new Compilations();
 
+    /**
+     * The compiled state of a method whose baseline code has been {@linkplain com.sun.max.vm.code.CodeEviction evicted}. It is equivalent
+     * to {@link #EMPTY} except that it allows recompilations of evicted methods to be detected.
+     */
+    public static final Compilations EVICTED = new Compilations();
+
     /**
      * Compiled code that is {@linkplain TargetMethod#isBaseline() baseline}.
      */
@@ -445,6 +445,13 @@ public class Stubs {
         final ClassMethodActor callee = caller.callSiteToCallee(cpCallSite);
 
         final CodePointer calleeEntryPoint = callee.makeTargetMethod(caller).getEntryPoint(caller.callEntryPoint);
+
+        // remember calls from optimized code to baseline code cache before they can be taken (cf CodeEviction)
+        if (Code.getCodeManager().getRuntimeOptCodeRegion().contains(cpCallSite.toAddress()) &&
+                        Code.getCodeManager().getRuntimeBaselineCodeRegion().contains(calleeEntryPoint.toAddress())) {
+            CodeManager.recordOptToBaselineCaller(caller);
+        }
+
         AMD64TargetMethodUtil.mtSafePatchCallDisplacement(caller, cpCallSite, calleeEntryPoint);
 
         // remember calls from boot code region to baseline code cache
@@ -170,6 +170,15 @@ public abstract class TargetMethod extends MemoryRegion {
      */
     private int registerRestoreEpilogueOffset = -1;
 
+    /**
+     * The offset of the entry point at which an on-stack replacement compilation continues execution of
+     * a baseline activation of the method at a loop header.
+     * A value of {@code -1} means this is not an OSR target method.
+     *
+     * @see com.sun.max.vm.compiler.OnStackReplacement
+     */
+    private int osrEntryOffset = -1;
+
     public TargetMethod(String description, CallEntryPoint callEntryPoint) {
         assert this instanceof Stub || this instanceof Adapter;
         this.classMethodActor = null;
@@ -194,6 +203,17 @@ public abstract class TargetMethod extends MemoryRegion {
         registerRestoreEpilogueOffset = x;
     }
 
+    public int osrEntryOffset() {
+        return osrEntryOffset;
+    }
+
+    /**
+     * Determines if this target method was produced by an on-stack replacement compilation.
+     */
+    public boolean isOsr() {
+        return osrEntryOffset != -1;
+    }
+
     public final ClassMethodActor classMethodActor() {
         return classMethodActor;
     }
@@ -733,6 +753,7 @@ public abstract class TargetMethod extends MemoryRegion {
     protected void initFrameLayout(CiTargetMethod ciTargetMethod) {
         this.setFrameSize(ciTargetMethod.frameSize());
         this.setRegisterRestoreEpilogueOffset(ciTargetMethod.registerRestoreEpilogueOffset());
+        this.osrEntryOffset = ciTargetMethod.osrEntryOffset();
     }
 
     protected CiDebugInfo[] initSafepoints(CiTargetMethod ciTargetMethod) {
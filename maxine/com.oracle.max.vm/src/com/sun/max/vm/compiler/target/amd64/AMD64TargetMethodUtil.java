@@ -170,7 +170,7 @@ public final class AMD64TargetMethodUtil {
 
     private static final int RIP_CALL_INSTRUCTION_LENGTH = 5;
 
-    private static final int RIP_JMP_INSTRUCTION_LENGTH = 5;
+    public static final int RIP_JMP_INSTRUCTION_LENGTH = 5;
 
     /**
      * Thread safe patching of the displacement field in a direct call.
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.heap;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+
+/**
+ * A TLAB refill policy that resizes a thread's TLABs according to the thread's allocation rate.
+ *
+ * The policy accounts for the space a thread allocates from its TLABs between two consecutive TLAB resets (i.e., a GC epoch),
+ * and keeps an exponentially weighted average of that amount across epochs. At the end of each epoch, the size of the
+ * thread's next TLABs is recomputed so that the thread would need {@link #TLABRefillsPerEpoch} refills to allocate its average
+ * amount of memory. Highly allocating threads thus get larger TLABs and refill less often, whereas mostly idle threads
+ * get smaller TLABs and waste less space. The size is bounded by the minimum and maximum sizes given at construction.
+ *
+ * Refill counts and waste (space left unused in a TLAB at refill) of each epoch are reported via {@link TLABLog}.
+ */
+public class AdaptiveTLABRefillPolicy extends TLABRefillPolicy {
+    /**
+     * Number of refills per GC epoch the policy aims at.
+     */
+    static int TLABRefillsPerEpoch = 50;
+
+    /**
+     * Weight (in percent) of the last GC epoch's allocation in the thread's average allocation.
+     */
+    static int TLABAllocationWeight = 35;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "TLABRefillsPerEpoch", AdaptiveTLABRefillPolicy.class,
+                        "Target number of TLAB refills per GC epoch for adaptive TLAB sizing.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "TLABAllocationWeight", AdaptiveTLABRefillPolicy.class,
+                        "Weight (in percent) of the last GC epoch in the average TLAB allocation of a thread.", Phase.PRISTINE);
+    }
+
+    /**
+     * Minimum size of a TLAB.
+     */
+    private final Size minSize;
+
+    /**
+     * Maximum size of a TLAB.
+     */
+    private final Size maxSize;
+
+    /**
+     * Size the TLAB should have on next refill.
+     */
+    private Size nextSize;
+
+    /**
+     * Threshold for refilling the TLAB on allocation failure, computed from the next TLAB size.
+     * See {@link SimpleTLABRefillPolicy#TLAB_REFILL_RATIO}.
+     */
+    private Size refillThreshold;
+
+    /**
+     * Number of allocation failures on the same allocation mark.
+     */
+    private int allocationFailures;
+
+    /**
+     * Last allocation mark where an allocation failure occurred.
+     */
+    private Pointer lastMark;
+
+    /**
+     * Size of the TLAB currently in use, zero if the thread has no TLAB.
+     */
+    private Size currentSize;
+
+    /**
+     * Number of refills since the beginning of the current GC epoch.
+     */
+    private int epochRefills;
+
+    /**
+     * Space allocated from TLABs since the beginning of the current GC epoch.
+     */
+    private long epochAllocated;
+
+    /**
+     * Space wasted at TLAB refills since the beginning of the current GC epoch.
+     */
+    private long epochWaste;
+
+    /**
+     * Set when the thread is detaching, so that the reset of its TLAB is not accounted as the end of a GC epoch.
+     */
+    private boolean detached;
+
+    /**
+     * Exponentially weighted average of the space allocated from TLABs per GC epoch. Negative until the first epoch completes.
+     */
+    private double averageAllocated;
+
+    public AdaptiveTLABRefillPolicy(Size initialTLABSize, Size minTLABSize, Size maxTLABSize) {
+        lastMark = Pointer.zero();
+        allocationFailures = 0;
+        minSize = minTLABSize;
+        maxSize = maxTLABSize.greaterThan(minTLABSize) ? maxTLABSize : minTLABSize;
+        setNextSize(initialTLABSize);
+        // The policy is created right after the thread's initial TLAB fill.
+        currentSize = initialTLABSize;
+        epochRefills = 1;
+        averageAllocated = -1.0;
+    }
+
+    private void setNextSize(Size size) {
+        nextSize = size;
+        refillThreshold = size.dividedBy(SimpleTLABRefillPolicy.TLAB_REFILL_RATIO);
+    }
+
+    @Override
+    public boolean shouldRefill(Size size, Pointer allocationMark) {
+        if (allocationMark.isZero()) {
+            // No TLAB. Refill whatsoever
+            return true;
+        }
+        if (size.lessThan(refillThreshold)) {
+            return true;
+        }
+        if (!lastMark.equals(allocationMark)) {
+            lastMark = allocationMark;
+            allocationFailures = 1;
+            return false;
+        }
+        allocationFailures++;
+        return allocationFailures > SimpleTLABRefillPolicy.TLAB_NUM_ALLOCATION_FAILURES_PER_MARK;
+    }
+
+    @Override
+    public Size nextTlabSize() {
+        return nextSize;
+    }
+
+    /**
+     * Accounts for the space allocated from the TLAB being retired.
+     * For heap schemes whose TLABs are made of several chunks, only the first chunk is accounted for.
+     */
+    private void retireCurrentTLAB(Size leftover) {
+        if (currentSize.greaterThan(leftover)) {
+            epochAllocated += currentSize.minus(leftover).toLong();
+        }
+    }
+
+    @Override
+    public void doOnRefill(Size tlabSize, Size leftover) {
+        retireCurrentTLAB(leftover);
+        epochWaste += leftover.toLong();
+        epochRefills++;
+        currentSize = tlabSize;
+    }
+
+    @Override
+    public void doOnDetach() {
+        detached = true;
+    }
+
+    @Override
+    public void doOnReset(Pointer etla, Size leftover) {
+        retireCurrentTLAB(leftover);
+        currentSize = Size.zero();
+        if (detached) {
+            // The epoch is cut short by the thread's termination: it would skew the statistics
+            return;
+        }
+        if (averageAllocated < 0.0) {
+            averageAllocated = epochAllocated;
+        } else {
+            final double weight = TLABAllocationWeight / 100.0;
+            averageAllocated = weight * epochAllocated + (1.0 - weight) * averageAllocated;
+        }
+        Size size = Size.fromLong((long) (averageAllocated / TLABRefillsPerEpoch)).wordAligned();
+        if (size.lessThan(minSize)) {
+            size = minSize;
+        } else if (size.greaterThan(maxSize)) {
+            size = maxSize;
+        }
+        TLABLog.recordEpoch(etla, epochRefills, Size.fromLong(epochAllocated), Size.fromLong(epochWaste), size);
+        setNextSize(size);
+        lastMark = Pointer.zero();
+        allocationFailures = 0;
+        epochRefills = 0;
+        epochAllocated = 0L;
+        epochWaste = 0L;
+    }
+}
@@ -415,6 +415,19 @@ public final class Heap {
             "Run a garbage collection every <n> milliseconds. A value of 0 disables this mechanism.");
     }
 
+    /**
+     * The number of garbage collections started by {@link #collectGarbage()}. This also serves as the
+     * sequence number of the most recently started collection.
+     */
+    private static volatile int startedCollections;
+
+    /**
+     * Sequence number of the most recently completed collection of at least a given
+     * {@linkplain HeapScheme.GCRequest#completedCollectionKind() kind}, indexed by kind.
+     * Only updated and read with the {@link #HEAP_LOCK} held or at a global safepoint.
+     */
+    private static final int[] lastCompletedCollections = new int[HeapScheme.GCRequest.FULL_COLLECTION + 1];
+
     public static boolean collectGarbage() {
         if (Heap.gcDisabled()) {
             Throw.stackDump("Out of memory and GC is disabled");
@@ -441,21 +454,45 @@ public final class Heap {
             // GC operations are submitted serially to the VM operation thread. It also means
             // that a collection only actually occurs if needed (i.e. concurrent call to this
             // method by another thread did not trigger a GC that freed up enough memory for
-            // this request).
+            // this request). Duplicate requests are merged: a request is satisfied without running
+            // another collection if a collection of at least the requested kind was started after the
+            // request was made and has completed by the time the heap lock is acquired.
+            final int collectionsBeforeRequest = startedCollections;
             synchronized (HEAP_LOCK) {
                 waitForGCDisablingThreads();
+                final HeapScheme.GCRequest gcRequest = VmThread.current().gcRequest;
+                final int lastCompleted = lastCompletedCollections[gcRequest.requestedCollectionKind()];
+                if (lastCompleted > collectionsBeforeRequest) {
+                    if (verbose()) {
+                        final boolean lockDisabledSafepoints = Log.lock();
+                        Log.print("--GC requested by thread ");
+                        Log.printThread(gcRequest.requester, false);
+                        Log.print(" merged with GC ");
+                        Log.print(lastCompleted);
+                        Log.println("--");
+                        Log.unlock(lockDisabledSafepoints);
+                    }
+                    return true;
+                }
                 return heapLockedCollectGarbage();
             }
         }
     }
 
     private static boolean heapLockedCollectGarbage() {
+        final HeapScheme.GCRequest gcRequest = VmThread.current().gcRequest;
         if (verbose()) {
-            VmThread.current().gcRequest.printBeforeGC();
+            gcRequest.printBeforeGC();
         }
+        final int collection = ++startedCollections;
         final boolean result = heapScheme().collectGarbage();
+        // A collection satisfies the requests of its kind and of smaller kinds.
+        final int kind = VmThread.current().gcRequest.completedCollectionKind();
+        for (int k = 0; k <= kind; k++) {
+            lastCompletedCollections[k] = collection;
+        }
         if (verbose()) {
-            VmThread.current().gcRequest.printAfterGC(result);
+            gcRequest.printAfterGC(result);
         }
         return result;
     }
@@ -47,6 +47,17 @@ public interface HeapScheme extends VMScheme {
      * This class can be extended to allow additional heap scheme specific information to be passed to a GC operation.
      */
     public static abstract class GCRequest {
+        /**
+         * Kind of a collection that may leave part of the heap unreclaimed, e.g., a collection of the young generation only.
+         * See {@link #requestedCollectionKind()}.
+         */
+        public static final int PARTIAL_COLLECTION = 0;
+
+        /**
+         * Kind of a collection of the whole heap.
+         */
+        public static final int FULL_COLLECTION = 1;
+
         public final VmThread requester;
         /**
          * Amount of bytes requested if this request was issued by a failed allocation operation.
@@ -71,6 +82,23 @@ public interface HeapScheme extends VMScheme {
             this.requester = requester;
         }
 
+        /**
+         * Gets the kind of collection this request needs. A request is only merged with a completed collection of
+         * the same kind or of a larger one (see {@link Heap#collectGarbage()}).
+         * By default, only explicit requests need a {@linkplain #FULL_COLLECTION full collection}.
+         */
+        public int requestedCollectionKind() {
+            return explicit ? FULL_COLLECTION : PARTIAL_COLLECTION;
+        }
+
+        /**
+         * Gets the kind of the collection performed on behalf of this request, once it has completed.
+         * By default, this is the requested kind.
+         */
+        public int completedCollectionKind() {
+            return requestedCollectionKind();
+        }
+
         public void printBeforeGC() {
             final boolean lockDisabledSafepoints = Log.lock();
             Log.print("--GC requested by thread ");
@@ -503,6 +531,18 @@ public interface HeapScheme extends VMScheme {
          * @param vmThread
          */
         public abstract void logScanningThreadRoots(VmThread vmThread);
+
+        /**
+         * All heap schemes process the special references discovered during a GC.
+         * See {@link SpecialReferenceManager#processDiscoveredSpecialReferences(SpecialReferenceManager.GC)}.
+         *
+         * @param kind the kind of special references, one of the {@code SpecialReferenceManager.*_REFERENCES} constants
+         * @param discovered number of references of that kind discovered during the GC
+         * @param cleared number of references whose referent was cleared
+         * @param enqueued number of references added to the pending list
+         * @param time time spent processing these references, in the resolution specified by {@link #GC_TIMING_CLOCK}
+         */
+        public abstract void logProcessedSpecialReferences(int kind, int discovered, int cleared, int enqueued, long time);
     }
 
     /**
@@ -41,6 +41,7 @@ import com.sun.max.vm.log.hosted.*;
 import com.sun.max.vm.maxsim.MaxSimInterfaceHelpers;
 import com.sun.max.vm.maxsim.MaxSimTaggingScheme;
 import com.sun.max.vm.object.*;
+import com.sun.max.vm.profilers.sampling.*;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.run.java.JavaRunScheme;
 import com.sun.max.vm.runtime.*;
@@ -107,6 +108,24 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
     private static final VMSizeOption tlabSizeOption = register(new VMSizeOption("-XX:TLABSize=", Size.K.times(MaxSimInterfaceHelpers.getLayoutScaleFactor() * 64),
         "The size of thread-local allocation buffers."), MaxineVM.Phase.PRISTINE);
 
+    /**
+     * A VM option for enabling TLAB sizing based on per-thread allocation rate.
+     * See {@link AdaptiveTLABRefillPolicy}.
+     */
+    public static boolean AdaptiveTLAB = false;
+    static {
+        VMOptions.addFieldOption("-XX:", "AdaptiveTLAB", HeapSchemeWithTLAB.class, "Resize TLABs according to per-thread allocation rate", MaxineVM.Phase.PRISTINE);
+    }
+
+    /**
+     * VM options for bounding the size of TLABs when {@linkplain #AdaptiveTLAB adaptive TLAB sizing} is enabled.
+     */
+    private static final VMSizeOption minTlabSizeOption = register(new VMSizeOption("-XX:MinTLABSize=", Size.K.times(MaxSimInterfaceHelpers.getLayoutScaleFactor() * 2),
+        "The minimum size of thread-local allocation buffers when using adaptive TLAB sizing."), MaxineVM.Phase.PRISTINE);
+
+    private static final VMSizeOption maxTlabSizeOption = register(new VMSizeOption("-XX:MaxTLABSize=", Size.K.times(MaxSimInterfaceHelpers.getLayoutScaleFactor() * 1024),
+        "The maximum size of thread-local allocation buffers when using adaptive TLAB sizing."), MaxineVM.Phase.PRISTINE);
+
     /**
      * The top of the current thread-local allocation buffer. This will remain zero if TLABs are not
      * {@linkplain #useTLAB enabled}.
@@ -135,6 +154,19 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
     private static final VmThreadLocal TLAB_MARK_TMP
         = new VmThreadLocal("TLAB_MARK_TMP", false, "HeapSchemeWithTLAB: temporary allocation mark of current TLAB, zero if not used", Nature.Single);
 
+    /**
+     * The actual top of the current thread-local allocation buffer when {@link #TLAB_TOP} was lowered to the point where
+     * the next {@linkplain AllocationSampler allocation sample} is due, zero otherwise.
+     */
+    private static final VmThreadLocal TLAB_SAMPLING_TOP
+        = new VmThreadLocal("TLAB_SAMPLING_TOP", false, "HeapSchemeWithTLAB: actual top of current TLAB if an allocation sample point is set", Nature.Single);
+
+    /**
+     * Number of bytes left to allocate by the thread before its next allocation sample, if not reached in the current TLAB.
+     */
+    private static final VmThreadLocal TLAB_SAMPLING_BYTES
+        = new VmThreadLocal("TLAB_SAMPLING_BYTES", false, "HeapSchemeWithTLAB: bytes to allocate before next allocation sample", Nature.Single);
+
     /**
      * Thread-local used to count memory allocated by a thread.
      */
@@ -163,16 +195,19 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
             if (logTLAB()) {
                 logger.logReset(UnsafeCast.asVmThread(VM_THREAD.loadRef(etla).toJava()), tlabTop, tlabMark);
             }
+            final TLABRefillPolicy refillPolicy = TLABRefillPolicy.getForCurrentThread(etla);
             if (tlabTop.equals(Address.zero())) {
                 // TLAB's top can be null in only two cases:
                 // (1) it has never been filled, in which case it's allocation mark is null too
                 if (tlabMark.equals(Address.zero()))  {
-                    // No TLABs, so nothing to reset.
+                    // No TLABs, so nothing to reset. Still let the refill policy know the thread didn't allocate since last reset.
+                    if (refillPolicy != null) {
+                        refillPolicy.doOnReset(etla, Size.zero());
+                    }
                     return;
                 }
                 // (2) allocation has been disabled for the thread.
                 FatalError.check(!ALLOCATION_DISABLED.load(currentTLA()).isZero(), "inconsistent TLAB state");
-                TLABRefillPolicy refillPolicy = TLABRefillPolicy.getForCurrentThread(etla);
                 if (refillPolicy != null) {
                     // Go fetch the actual TLAB top in case the heap scheme needs it for its doBeforeReset handler.
                     tlabTop = refillPolicy.getSavedTlabTop().asPointer();
@@ -180,6 +215,16 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
                     refillPolicy.saveTlabTop(Address.zero());
                 }
             }
+            final Pointer samplingTop = TLAB_SAMPLING_TOP.load(etla);
+            if (!samplingTop.isZero()) {
+                // The TLAB's top was lowered to an allocation sample point. Go fetch the actual top.
+                tlabTop = samplingTop;
+                TLAB_SAMPLING_TOP.store(etla, Address.zero());
+            }
+            AllocationSampler.resolvePendingSample(etla);
+            if (refillPolicy != null) {
+                refillPolicy.doOnReset(etla, tlabTop.greaterThan(tlabMark) ? tlabTop.minus(tlabMark).asSize() : Size.zero());
+            }
             doBeforeReset(etla, tlabMark, tlabTop);
             TLAB_TOP.store(etla, Address.zero());
             TLAB_MARK.store(etla, Address.zero());
@@ -284,6 +329,9 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
         } else if (phase == MaxineVM.Phase.TERMINATING) {
             if (PrintTLABStats) {
                 globalTlabStats.printTLABStats();
+                if (AdaptiveTLAB) {
+                    TLABLog.printEpochStats();
+                }
             }
         }
     }
@@ -358,6 +406,25 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
         initialTlabSize = size;
     }
 
+    public Size minTlabSize() {
+        return minTlabSizeOption.getValue();
+    }
+
+    public Size maxTlabSize() {
+        return maxTlabSizeOption.getValue();
+    }
+
+    /**
+     * Creates the refill policy of a thread that has just been given its first TLAB.
+     * @param tlabSize size of the thread's first TLAB
+     */
+    protected TLABRefillPolicy newTLABRefillPolicy(Size tlabSize) {
+        if (AdaptiveTLAB) {
+            return new AdaptiveTLABRefillPolicy(tlabSize, minTlabSize(), maxTlabSize());
+        }
+        return new SimpleTLABRefillPolicy(tlabSize);
+    }
+
     public void refillTLAB(Pointer tlab, Size size) {
         final Pointer etla = ETLA.load(currentTLA());
         refillTLAB(etla, tlab, size);
@@ -376,9 +443,13 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
     public void refillTLAB(Pointer etla, Pointer tlab, Size size) {
         final Pointer tlabTop = tlab.plus(size); // top of the new TLAB
         final Pointer allocationMark = TLAB_MARK.load(etla);
+        Size leftover = Size.zero();
         if (!allocationMark.isZero()) {
             final Pointer oldTop = TLAB_TOP.load(etla);
             globalTlabStats.leftover += oldTop.minus(allocationMark).toLong();
+            if (oldTop.greaterThan(allocationMark)) {
+                leftover = oldTop.minus(allocationMark).asSize();
+            }
             // It is a refill, not an initial fill. So invoke handler.
             doBeforeTLABRefill(allocationMark, oldTop);
         } else {
@@ -388,6 +459,10 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
 
         TLAB_TOP.store(etla, tlabTop);
         TLAB_MARK.store(etla, tlab);
+        final TLABRefillPolicy refillPolicy = TLABRefillPolicy.getForCurrentThread(etla);
+        if (refillPolicy != null) {
+            refillPolicy.doOnRefill(size, leftover);
+        }
         if (logTLAB()) {
             VmThread vmThread = UnsafeCast.asVmThread(VM_THREAD.loadRef(etla).toJava());
             logger.logRefill(vmThread, tlabTop, tlabTop, tlab.plus(initialTlabSize), initialTlabSize.toInt());
@@ -504,11 +579,81 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
         if (!customAllocator.isZero()) {
             return customAllocate(customAllocator, size);
         }
+        if (AllocationSampler.isSampling() || !TLAB_SAMPLING_TOP.load(etla).isZero()) {
+            return samplingSlowPathAllocate(size, etla, oldAllocationMark, tlabEnd);
+        }
         globalTlabStats.tlabOverflowCount++;
         // This path will always be taken if TLAB allocation is not enabled.
         return handleTLABOverflow(size, etla, oldAllocationMark, tlabEnd);
     }
 
+    /**
+     * Slow path for allocation when {@linkplain AllocationSampler allocation sampling} is on.
+     * The top of the TLAB is lowered to the point where the next sample is due, so that the allocation crossing
+     * it ends up here.
+     */
+    @NO_SAFEPOINT_POLLS("object allocation and initialization must be atomic")
+    @NEVER_INLINE
+    private Pointer samplingSlowPathAllocate(Size size, final Pointer etla, final Pointer oldAllocationMark, final Pointer tlabEnd) {
+        final Pointer samplingTop = TLAB_SAMPLING_TOP.load(etla);
+        if (samplingTop.isZero()) {
+            globalTlabStats.tlabOverflowCount++;
+            final Pointer cell = handleTLABOverflow(size, etla, oldAllocationMark, tlabEnd);
+            if (!TLAB_TOP.load(etla).equals(tlabEnd)) {
+                // The TLAB was refilled.
+                setAllocationSamplePoint(etla);
+            }
+            return cell;
+        }
+        // The sample point was reached. Restore the TLAB's actual top and sample the allocation, unless sampling was
+        // turned off since the sample point was set. Sampling neither allocates nor refills the TLAB.
+        TLAB_SAMPLING_TOP.store(etla, Address.zero());
+        TLAB_TOP.store(etla, samplingTop);
+        if (AllocationSampler.isSampling()) {
+            AllocationSampler.sample(etla, size);
+            TLAB_SAMPLING_BYTES.store(etla, AllocationSampler.nextSampleInterval());
+        }
+
+        final Pointer allocationMark = TLAB_MARK.load(etla);
+        final Pointer top = TLAB_TOP.load(etla);
+        Pointer cell = DebugHeap.adjustForDebugTag(allocationMark);
+        final Pointer end = cell.plus(size);
+        if (end.greaterThan(top)) {
+            globalTlabStats.tlabOverflowCount++;
+            cell = handleTLABOverflow(size, etla, allocationMark, top);
+        } else {
+            TLAB_MARK.store(etla, end);
+        }
+        AllocationSampler.recordSampledCell(etla, cell);
+        setAllocationSamplePoint(etla);
+        return cell;
+    }
+
+    /**
+     * Lowers the top of the current TLAB to the point where the thread's next allocation sample is due, if this point is
+     * within the TLAB. Otherwise, the remaining space of the TLAB is deducted from the bytes left to allocate before the next sample.
+     */
+    @NO_SAFEPOINT_POLLS("object allocation and initialization must be atomic")
+    private void setAllocationSamplePoint(Pointer etla) {
+        final Pointer allocationMark = TLAB_MARK.load(etla);
+        final Pointer top = TLAB_TOP.load(etla);
+        if (!AllocationSampler.isSampling() || allocationMark.isZero() || !top.greaterThan(allocationMark)) {
+            return;
+        }
+        Size bytesLeft = TLAB_SAMPLING_BYTES.load(etla).asSize();
+        if (bytesLeft.isZero()) {
+            bytesLeft = AllocationSampler.nextSampleInterval();
+        }
+        final Size available = top.minus(allocationMark).asSize();
+        if (bytesLeft.lessThan(available)) {
+            TLAB_SAMPLING_TOP.store(etla, top);
+            TLAB_TOP.store(etla, allocationMark.plus(bytesLeft));
+            TLAB_SAMPLING_BYTES.store(etla, Address.zero());
+        } else {
+            TLAB_SAMPLING_BYTES.store(etla, bytesLeft.minus(available));
+        }
+    }
+
     @NEVER_INLINE
     private void checkAllocationEnabled(Size size) {
         if (!ALLOCATION_DISABLED.load(currentTLA()).isZero()) {
@@ -612,7 +757,12 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
 
     @Override
     public void notifyCurrentThreadDetach() {
+        final TLABRefillPolicy refillPolicy = TLABRefillPolicy.getForCurrentThread(ETLA.load(currentTLA()));
+        if (refillPolicy != null) {
+            refillPolicy.doOnDetach();
+        }
         tlabReset(currentTLA());
+        AllocationSampler.retireSampleBuffer(ETLA.load(currentTLA()));
     }
 
     public static final TLABLogger logger = MaxineVM.isDebug() ? new TLABLogger(true) : new TLABLogger();
@@ -28,6 +28,7 @@ import static com.sun.max.vm.jdk.JDK_java_lang_ref_ReferenceQueue.*;
 
 import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
+import com.sun.max.util.timer.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.MaxineVM.Phase;
 import com.sun.max.vm.actor.holder.*;
@@ -108,6 +109,35 @@ public class SpecialReferenceManager {
      */
     private static java.lang.ref.Reference discoveredList;
 
+    /**
+     * Kinds of special references. Discovered references are processed by kind, in the order of these constants:
+     * soft and weak references never preserve their referent and are processed first, so that the referents
+     * preserved for finalization cannot make them reachable again.
+     */
+    public static final int SOFT_REFERENCES = 0;
+    public static final int WEAK_REFERENCES = 1;
+    public static final int FINAL_REFERENCES = 2;
+    public static final int PHANTOM_REFERENCES = 3;
+    private static final int NUMBER_OF_REFERENCE_KINDS = 4;
+
+    private static final String[] REFERENCE_KIND_NAMES = {"soft", "weak", "final", "phantom"};
+
+    private static final String HZ_SUFFIX = TimerUtil.getHzSuffix(HeapScheme.GC_TIMING_CLOCK);
+
+    /**
+     * Per-kind lists the discovered references are partitioned into before being processed.
+     * Like {@link #discoveredList}, these lists are linked via the {@code discovered} field and terminated by the {@link #sentinel}.
+     */
+    private static final java.lang.ref.Reference<?>[] kindLists = new java.lang.ref.Reference<?>[NUMBER_OF_REFERENCE_KINDS];
+
+    /**
+     * Per-kind statistics of the current GC, reported via the {@linkplain Heap#phaseLogger phase logger}.
+     */
+    private static final int[] discoveredCounts = new int[NUMBER_OF_REFERENCE_KINDS];
+    private static final int[] clearedCounts = new int[NUMBER_OF_REFERENCE_KINDS];
+    private static final int[] enqueuedCounts = new int[NUMBER_OF_REFERENCE_KINDS];
+    private static final long[] processingTimes = new long[NUMBER_OF_REFERENCE_KINDS];
+
     /**
      * An alias type for accessing the fields in java.lang.ref.Reference without having to use reflection.
      * <p>
@@ -248,12 +278,13 @@ public class SpecialReferenceManager {
      * and add them to their respective queues later.
      * The reference handler lock is notified by the thread that {@linkplain VmOperationThread#submit(VmOperation) submitted}
      * the GC operation as it holds the lock. See {@link GCOperation#doItEpilogue(boolean)}.
+     * <p>
+     * Discovered references are first partitioned by kind, then each kind is processed in turn
+     * (see {@link #SOFT_REFERENCES}). References processed in a round are spliced onto {@link JLRRAlias#pending} at once.
      *
      * @param gc interface to the GC implementation
      */
     public static void processDiscoveredSpecialReferences(GC gc) {
-        java.lang.ref.Reference head = discoveredList;
-        java.lang.ref.Reference end = sentinel;
         final boolean updateReachableReferent = gc.mayRelocateLiveObjects();
 
         if (specialReferenceLogger.enabled()) {
@@ -263,82 +294,153 @@ public class SpecialReferenceManager {
         }
 
         // Process the discovered list until it is empty (new elements may be
-        // prepended while processing).
-        do {
-            java.lang.ref.Reference ref = head;
-            java.lang.ref.Reference pending = JLRRAlias.pending;
-
-            while (ref != end) {
-                boolean preserved = false;
-                boolean addedToPending = false;
-                JLRRAlias refAlias = asJLRRAlias(ref);
-                final Reference referent = Reference.fromJava(refAlias.referent);
-                if (referent.isZero()) {
-                    // Do not add 'ref' to the pending list as weak references
-                    // with already null referents are not added to ReferenceQueues
-                } else if (!gc.isReachable(referent)) {
-                    if (refAlias.queue == null) {
-                        // This can only occur if there is a GC in the constructor for java.lang.ref.Reference
-                        // between the initialization of 'referent' and 'queue'.
-                        Log.println("WARNING: cannot add weak reference with null 'queue' field to pending list");
+        // discovered while processing).
+        while (discoveredList != sentinel) {
+            partitionDiscoveredList();
+            java.lang.ref.Reference<?> pending = JLRRAlias.pending;
+            for (int kind = 0; kind < NUMBER_OF_REFERENCE_KINDS; kind++) {
+                if (kindLists[kind] != sentinel) {
+                    final long start = HeapScheme.GC_TIMING_CLOCK.getTicks();
+                    pending = processDiscoveredList(gc, kind, pending, updateReachableReferent);
+                    processingTimes[kind] += HeapScheme.GC_TIMING_CLOCK.getTicks() - start;
+                }
+            }
+            JLRRAlias.pending = pending;
+        }
+
+        final boolean logPhases = Heap.logGCPhases();
+        for (int kind = 0; kind < NUMBER_OF_REFERENCE_KINDS; kind++) {
+            if (logPhases) {
+                Heap.phaseLogger.logProcessedSpecialReferences(kind, discoveredCounts[kind], clearedCounts[kind], enqueuedCounts[kind], processingTimes[kind]);
+            }
+            discoveredCounts[kind] = 0;
+            clearedCounts[kind] = 0;
+            enqueuedCounts[kind] = 0;
+            processingTimes[kind] = 0L;
+        }
+    }
+
+    /**
+     * Moves the references of the discovered list to the list of their kind, and empties the discovered list.
+     * This is done once the GC has updated the references to live objects, so that the class of
+     * discovered references can be safely tested.
+     */
+    private static void partitionDiscoveredList() {
+        java.lang.ref.Reference<?> ref = discoveredList;
+        discoveredList = sentinel;
+        while (ref != sentinel) {
+            JLRRAlias refAlias = asJLRRAlias(ref);
+            java.lang.ref.Reference<?> next = refAlias.discovered;
+            final int kind;
+            if (ref instanceof java.lang.ref.SoftReference) {
+                kind = SOFT_REFERENCES;
+            } else if (ref instanceof java.lang.ref.WeakReference) {
+                kind = WEAK_REFERENCES;
+            } else if (ref instanceof java.lang.ref.PhantomReference) {
+                kind = PHANTOM_REFERENCES;
+            } else {
+                kind = FINAL_REFERENCES;
+            }
+            // WATCH OUT: as in discoverSpecialReference, the following stores run a write barrier.
+            refAlias.discovered = kindLists[kind];
+            kindLists[kind] = ref;
+            discoveredCounts[kind]++;
+            ref = next;
+        }
+    }
+
+    /**
+     * Processes the list of discovered references of a given kind and empties it.
+     *
+     * @param pending the current head of the pending list
+     * @return the new head of the pending list
+     */
+    private static java.lang.ref.Reference<?> processDiscoveredList(GC gc, int kind, java.lang.ref.Reference<?> pending, boolean updateReachableReferent) {
+        // Only soft and weak references have their referent cleared
+        final boolean clearReferent = kind == SOFT_REFERENCES || kind == WEAK_REFERENCES;
+        java.lang.ref.Reference<?> ref = kindLists[kind];
+        kindLists[kind] = sentinel;
+
+        while (ref != sentinel) {
+            boolean preserved = false;
+            boolean addedToPending = false;
+            JLRRAlias refAlias = asJLRRAlias(ref);
+            final Reference referent = Reference.fromJava(refAlias.referent);
+            if (referent.isZero()) {
+                // Do not add 'ref' to the pending list as weak references
+                // with already null referents are not added to ReferenceQueues
+            } else if (!gc.isReachable(referent)) {
+                if (refAlias.queue == null) {
+                    // This can only occur if there is a GC in the constructor for java.lang.ref.Reference
+                    // between the initialization of 'referent' and 'queue'.
+                    Log.println("WARNING: cannot add weak reference with null 'queue' field to pending list");
+                } else {
+                    if (clearReferent) {
+                        refAlias.referent = null;
+                        clearedCounts[kind]++;
                     } else {
-                        // Only soft and weak references have their referent cleared
-                        if (ref instanceof java.lang.ref.SoftReference || ref instanceof java.lang.ref.WeakReference) {
-                            refAlias.referent = null;
-                        } else {
-                            // The following line MUST run the mutator write barrier
-                            refAlias.referent = gc.preserve(referent).toJava();
-                            preserved = true;
-                        }
+                        // The following line MUST run the mutator write barrier
+                        refAlias.referent = gc.preserve(referent).toJava();
+                        preserved = true;
+                    }
 
-                        // Add active reference whose reachability has changed to pending list
-                        if (refAlias.isActive()) {
-                            if (pending == null) {
-                                // 'ref' will be at the end of the pending list
-                                refAlias.next = ref;
-                            } else {
-                                refAlias.next = pending;
-                            }
-                            pending = ref;
-                            addedToPending = true;
+                    // Add active reference whose reachability has changed to pending list
+                    if (refAlias.isActive()) {
+                        if (pending == null) {
+                            // 'ref' will be at the end of the pending list
+                            refAlias.next = ref;
+                        } else {
+                            refAlias.next = pending;
                         }
+                        pending = ref;
+                        addedToPending = true;
+                        enqueuedCounts[kind]++;
                     }
-                } else if (updateReachableReferent) {
-                    // this object is reachable, however the "referent" field was not scanned.
-                    // we need to update this field manually
-                    // The following line MUST run the mutator write barrier
-                    refAlias.referent = gc.preserve(referent).toJava();
-                }
-
-                JLRRAlias r = refAlias;
-                ref = refAlias.discovered;
-                r.discovered = null;
-
-                if (specialReferenceLogger.enabled()) {
-                    final Object newReferent = r.referent;
-                    specialReferenceLogger.logProcessDiscovered(
-                        ObjectAccess.readClassActor(r),
-                        ObjectAccess.toOrigin(r),
-                        referent.toOrigin(),
-                        newReferent == null ? Pointer.zero() : ObjectAccess.toOrigin(newReferent),
-                        Reference.fromJava(r.queue).toOrigin(),
-                        preserved,
-                        updateReachableReferent,
-                        addedToPending,
-                        MaxineVM.isDebug() ? ObjectAccess.toOrigin(ref) : Pointer.zero());
                 }
+            } else if (updateReachableReferent) {
+                // this object is reachable, however the "referent" field was not scanned.
+                // we need to update this field manually
+                // The following line MUST run the mutator write barrier
+                refAlias.referent = gc.preserve(referent).toJava();
             }
-            JLRRAlias.pending = pending;
 
-            if (head == discoveredList) {
-                // No further special references were discovered
-                discoveredList = sentinel;
-                break;
+            JLRRAlias r = refAlias;
+            ref = refAlias.discovered;
+            r.discovered = null;
+
+            if (specialReferenceLogger.enabled()) {
+                final Object newReferent = r.referent;
+                specialReferenceLogger.logProcessDiscovered(
+                    ObjectAccess.readClassActor(r),
+                    ObjectAccess.toOrigin(r),
+                    referent.toOrigin(),
+                    newReferent == null ? Pointer.zero() : ObjectAccess.toOrigin(newReferent),
+                    Reference.fromJava(r.queue).toOrigin(),
+                    preserved,
+                    updateReachableReferent,
+                    addedToPending,
+                    MaxineVM.isDebug() ? ObjectAccess.toOrigin(ref) : Pointer.zero());
             }
+        }
+        return pending;
+    }
 
-            end = head;
-            head = discoveredList;
-        } while (true);
+    /**
+     * Prints the statistics of the processing of one kind of special references.
+     * Shared by the {@linkplain HeapScheme.PhaseLogger phase loggers} of the heap schemes.
+     */
+    public static void traceProcessedSpecialReferences(int kind, int discovered, int cleared, int enqueued, long time) {
+        Log.print("Processed ");
+        Log.print(discovered);
+        Log.print(' ');
+        Log.print(REFERENCE_KIND_NAMES[kind]);
+        Log.print(" references: ");
+        Log.print(cleared);
+        Log.print(" cleared, ");
+        Log.print(enqueued);
+        Log.print(" enqueued in ");
+        Log.print(time);
+        Log.println(HZ_SUFFIX);
     }
 
     @ALIAS(declaringClassName = "java.lang.ref.Finalizer")
@@ -380,6 +482,9 @@ public class SpecialReferenceManager {
         if (phase == Phase.PRISTINE) {
             clock = System.currentTimeMillis();
             discoveredList = sentinel;
+            for (int kind = 0; kind < NUMBER_OF_REFERENCE_KINDS; kind++) {
+                kindLists[kind] = sentinel;
+            }
             JLRRAlias sentinelAlias = asJLRRAlias(sentinel);
             sentinelAlias.discovered = sentinel;
             sentinelAlias.next = sentinel;
@@ -24,6 +24,8 @@ package com.sun.max.vm.heap;
 
 import static com.sun.max.platform.Platform.*;
 
+import java.util.concurrent.atomic.*;
+
 import com.sun.max.annotate.*;
 import com.sun.max.memory.*;
 import com.sun.max.unsafe.*;
@@ -47,10 +49,22 @@ public final class TLABLog {
 
     public static boolean TraceTLABAllocation = false;
 
+    public static boolean TraceTLABResizing = false;
+
     static {
         VMOptions.addFieldOption("-XX:", "TraceTLABAllocation", TLABLog.class, "Trace every allocation from TLABs when in DEBUG mode", Phase.STARTING);
+        VMOptions.addFieldOption("-XX:", "TraceTLABResizing", TLABLog.class, "Trace TLAB refills, waste and resizing per thread and GC epoch", Phase.STARTING);
     }
 
+    /*
+     * Totals of the GC epochs recorded by adaptive TLAB refill policies. Updated atomically, as nothing guarantees that
+     * all heap schemes reset TLABs from a single thread.
+     */
+    private static final AtomicLong epochCount = new AtomicLong();
+    private static final AtomicLong totalRefills = new AtomicLong();
+    private static final AtomicLong totalAllocated = new AtomicLong();
+    private static final AtomicLong totalWaste = new AtomicLong();
+
     /**
      * Tail of the thread-local log buffer of a thread. If zero, logging is disabled,or the thread wasn't allocated a log yet.
      */
@@ -120,6 +134,50 @@ public final class TLABLog {
         }
     }
 
+    /**
+     * Records the refill statistics of a thread's TLABs for the GC epoch that just ended.
+     *
+     * @param etla the thread whose TLAB was reset
+     * @param refills number of TLAB refills during the epoch
+     * @param allocated space allocated from TLABs during the epoch
+     * @param waste space left unused in TLABs at refill during the epoch
+     * @param nextTLABSize size of the thread's TLABs for the next epoch
+     */
+    public static void recordEpoch(Pointer etla, int refills, Size allocated, Size waste, Size nextTLABSize) {
+        epochCount.incrementAndGet();
+        totalRefills.addAndGet(refills);
+        totalAllocated.addAndGet(allocated.toLong());
+        totalWaste.addAndGet(waste.toLong());
+        if (TraceTLABResizing) {
+            final boolean lockDisabledSafepoints = Log.lock();
+            Log.print("TLAB epoch for ");
+            Log.printThread(VmThread.fromTLA(etla), false);
+            Log.print(": refills = ");
+            Log.print(refills);
+            Log.print(", allocated = ");
+            Log.print(allocated.toLong());
+            Log.print(", waste = ");
+            Log.print(waste.toLong());
+            Log.print(", next TLAB size = ");
+            Log.println(nextTLABSize.toLong());
+            Log.unlock(lockDisabledSafepoints);
+        }
+    }
+
+    public static void printEpochStats() {
+        Log.println("   adaptive TLAB sizing");
+        Log.print("     thread epochs                   : ");
+        Log.println(epochCount.get());
+        Log.print("     refills                         : ");
+        Log.println(totalRefills.get());
+        Log.print("     allocated in TLABs              : ");
+        Log.print(totalAllocated.get() >> 10);
+        Log.println(" K");
+        Log.print("     waste at TLAB refill            : ");
+        Log.print(totalWaste.get() >> 10);
+        Log.println(" K");
+    }
+
     private static Pointer logHead(Pointer logTail) {
         return logTail.and(LOG_BUFFER_TAIL_MASK);
     }
@@ -65,6 +65,31 @@ public abstract class TLABRefillPolicy {
      */
     public abstract Size nextTlabSize();
 
+    /**
+     * Notification that the TLAB of the thread associated with this policy was refilled.
+     * Default is to do nothing.
+     * @param tlabSize size of the new TLAB
+     * @param leftover space left unused in the TLAB being replaced
+     */
+    public void doOnRefill(Size tlabSize, Size leftover) {
+    }
+
+    /**
+     * Notification that the TLAB of the thread associated with this policy was reset, typically at the beginning of a GC.
+     * Default is to do nothing.
+     * @param etla the thread whose TLAB was reset
+     * @param leftover space left unused in the TLAB being reset
+     */
+    public void doOnReset(Pointer etla, Size leftover) {
+    }
+
+    /**
+     * Notification that the thread associated with this policy is detaching from the VM. The thread's TLAB is reset right after,
+     * which does not mark the end of a GC epoch. Default is to do nothing.
+     */
+    public void doOnDetach() {
+    }
+
     @INTRINSIC(UNSAFE_CAST)
     private static native TLABRefillPolicy asTLABRefillPolicy(Object object);
 
@@ -636,6 +636,8 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
         void scanningRSet(@VMLogParam(name = "interval") Interval interval);
         void evacuating(@VMLogParam(name = "interval") Interval interval);
         void processingSpecialReferences(@VMLogParam(name = "interval") Interval interval);
+        void processedSpecialReferences(@VMLogParam(name = "kind") int kind, @VMLogParam(name = "discovered") int discovered,
+                        @VMLogParam(name = "cleared") int cleared, @VMLogParam(name = "enqueued") int enqueued, @VMLogParam(name = "time") long time);
     }
 
     public static final class PhaseLogger extends PhaseLoggerAuto {
@@ -653,6 +655,11 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
             tracePhase("Evacuating reachables", interval);
         }
 
+        @Override
+        protected void traceProcessedSpecialReferences(int kind, int discovered, int cleared, int enqueued, long time) {
+            SpecialReferenceManager.traceProcessedSpecialReferences(kind, discovered, cleared, enqueued, time);
+        }
+
         @Override
         protected void traceProcessingSpecialReferences(Interval interval) {
             tracePhase("Processing special references", interval);
@@ -694,9 +701,9 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
 // START GENERATED CODE
     private static abstract class PhaseLoggerAuto extends com.sun.max.vm.heap.HeapScheme.PhaseLogger {
         public enum Operation {
-            Evacuating, ProcessingSpecialReferences, ScanningBootHeap,
-            ScanningCode, ScanningImmortalHeap, ScanningRSet, ScanningRoots,
-            ScanningThreadRoots;
+            Evacuating, ProcessedSpecialReferences, ProcessingSpecialReferences,
+            ScanningBootHeap, ScanningCode, ScanningImmortalHeap, ScanningRSet,
+            ScanningRoots, ScanningThreadRoots;
 
             @SuppressWarnings("hiding")
             public static final Operation[] VALUES = values();
@@ -719,6 +726,13 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
         }
         protected abstract void traceEvacuating(Interval interval);
 
+        @Override
+        @INLINE
+        public final void logProcessedSpecialReferences(int kind, int discovered, int cleared, int enqueued, long time) {
+            log(Operation.ProcessedSpecialReferences.ordinal(), intArg(kind), intArg(discovered), intArg(cleared), intArg(enqueued), longArg(time));
+        }
+        protected abstract void traceProcessedSpecialReferences(int kind, int discovered, int cleared, int enqueued, long time);
+
         @INLINE
         public final void logProcessingSpecialReferences(Interval interval) {
             log(Operation.ProcessingSpecialReferences.ordinal(), intervalArg(interval));
@@ -769,31 +783,35 @@ public abstract class Evacuator extends PointerIndexVisitor implements CellVisit
                     traceEvacuating(toInterval(r, 1));
                     break;
                 }
-                case 1: { //ProcessingSpecialReferences
+                case 1: { //ProcessedSpecialReferences
+                    traceProcessedSpecialReferences(toInt(r, 1), toInt(r, 2), toInt(r, 3), toInt(r, 4), toLong(r, 5));
+                    break;
+                }
+                case 2: { //ProcessingSpecialReferences
                     traceProcessingSpecialReferences(toInterval(r, 1));
                     break;
                 }
-                case 2: { //ScanningBootHeap
+                case 3: { //ScanningBootHeap
                     traceScanningBootHeap(toInterval(r, 1));
                     break;
                 }
-                case 3: { //ScanningCode
+                case 4: { //ScanningCode
                     traceScanningCode(toInterval(r, 1));
                     break;
                 }
-                case 4: { //ScanningImmortalHeap
+                case 5: { //ScanningImmortalHeap
                     traceScanningImmortalHeap(toInterval(r, 1));
                     break;
                 }
-                case 5: { //ScanningRSet
+                case 6: { //ScanningRSet
                     traceScanningRSet(toInterval(r, 1));
                     break;
                 }
-                case 6: { //ScanningRoots
+                case 7: { //ScanningRoots
                     traceScanningRoots(toInterval(r, 1));
                     break;
                 }
-                case 7: { //ScanningThreadRoots
+                case 8: { //ScanningThreadRoots
                     traceScanningThreadRoots(toVmThread(r, 1));
                     break;
                 }
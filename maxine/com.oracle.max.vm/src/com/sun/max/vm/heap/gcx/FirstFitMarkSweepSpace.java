@@ -733,8 +733,39 @@ public final class FirstFitMarkSweepSpace<T extends HeapAccountOwner> extends He
         }
     }
 
+    /**
+     * Maximum number of regions inspected to find one local to the NUMA node of the requesting thread.
+     */
+    private static final int MAX_NODE_LOCAL_REGION_LOOKUPS = 8;
+
+    /**
+     * Remove from the specified list a region local to the NUMA node of the current thread, if one can be found
+     * among the first {@link #MAX_NODE_LOCAL_REGION_LOOKUPS} regions of the list.
+     * @return a region identifier, or INVALID_REGION_ID if no node-local region was found
+     */
+    private int removeNodeLocalRegion(HeapRegionList regionList) {
+        final HeapRegionManager regionManager = HeapRegionManager.theHeapRegionManager();
+        int lookups = 0;
+        int regionID = regionList.head();
+        while (regionID != INVALID_REGION_ID && lookups++ < MAX_NODE_LOCAL_REGION_LOOKUPS) {
+            if (regionManager.isNodeLocal(regionID)) {
+                regionList.remove(regionID);
+                return regionID;
+            }
+            regionID = regionList.next(regionID);
+        }
+        return INVALID_REGION_ID;
+    }
+
     public int getAllocatingRegion() {
-        final int regionID = tlabAllocationRegionList().removeHead();
+        final HeapRegionList regionList = tlabAllocationRegionList();
+        int regionID = INVALID_REGION_ID;
+        if (HeapRegionManager.theHeapRegionManager().isNUMAAware()) {
+            regionID = removeNodeLocalRegion(regionList);
+        }
+        if (regionID == INVALID_REGION_ID) {
+            regionID = regionList.removeHead();
+        }
         if (regionID != INVALID_REGION_ID) {
             final HeapRegionInfo regionInfo = fromRegionID(regionID);
             final int numFreeBytes = regionInfo.isEmpty() ?  regionSizeInBytes : regionInfo.freeBytesInChunks();
@@ -240,6 +240,19 @@ class FixedSizeRegionAllocator {
      */
     private int highestAllocated;
 
+    /**
+     * Number of NUMA nodes the backing storage is spread over. The backing storage is split in as many contiguous stripes of regions,
+     * each bound to one node when committed. 1 if the allocator isn't NUMA-aware.
+     */
+    @CONSTANT_WHEN_NOT_ZERO
+    private int numNodes = 1;
+
+    /**
+     * Number of regions per NUMA node stripe.
+     */
+    @CONSTANT_WHEN_NOT_ZERO
+    private int regionsPerNode;
+
     FixedSizeRegionAllocator(String name) {
         backingStorage = new MemoryRegion(name);
         allocated = new RegionBitSet();
@@ -280,6 +293,47 @@ class FixedSizeRegionAllocator {
         }
     }
 
+    /**
+     * Spread the backing storage over the specified number of NUMA nodes.
+     * Regions are subsequently bound to their node when committed, and allocation requests give preference to the regions
+     * of the node the requesting thread runs on. The regions committed by {@link #initialize(Address, int, int)} are
+     * bound to their node here, their pages already in use being migrated to it.
+     *
+     * @param numNodes number of NUMA nodes
+     */
+    void initializeNUMA(int numNodes) {
+        if (numNodes > 1) {
+            this.numNodes = numNodes;
+            this.regionsPerNode = (capacity() + numNodes - 1) / numNodes;
+            if (residentRegions > 0) {
+                bindToNodes(0, residentRegions);
+            }
+        }
+    }
+
+    boolean isNUMAAware() {
+        return numNodes > 1;
+    }
+
+    /**
+     * Returns the NUMA node the specified region is bound to (always 0 if the allocator isn't NUMA-aware).
+     */
+    int nodeOf(int regionId) {
+        return numNodes == 1 ? 0 : regionId / regionsPerNode;
+    }
+
+    /**
+     * Returns the NUMA node the current thread runs on, 0 if the allocator isn't NUMA-aware or if the node
+     * is not one of the nodes the backing storage is spread over.
+     */
+    int currentNode() {
+        if (numNodes == 1) {
+            return 0;
+        }
+        final int node = VirtualMemory.getCurrentNumaNode();
+        return node < numNodes ? node : 0;
+    }
+
     boolean contains(Address address) {
         return backingStorage.contains(address);
     }
@@ -331,6 +385,13 @@ class FixedSizeRegionAllocator {
         if (numFreeRegions == 0) {
             return INVALID_RANGE;
         }
+        if (numNodes > 1) {
+            final RegionRange range = allocateLessOrEqualOnNode(numRegions, currentNode());
+            if (range != INVALID_RANGE) {
+                return range;
+            }
+            // The node of the current thread has no free regions left. Fall back to any node.
+        }
         final int begin = allocated.nextClearBit(residentRegions);
         final int numAllocated = allocated.numClearBitsAt(begin, numRegions);
         assert numAllocated != 0;
@@ -344,6 +405,30 @@ class FixedSizeRegionAllocator {
         return RegionRange.from(begin, numAllocated);
     }
 
+    /**
+     * Allocate the next available contiguous space of the specified node's stripe of a size smaller or equals to the specified number of regions.
+     * @param numRegions
+     * @param node a NUMA node
+     * @return the identifier of the first region of the allocated range, or INVALID_REGION_ID if no regions of the node are available
+     */
+    private RegionRange allocateLessOrEqualOnNode(int numRegions, int node) {
+        final int nodeStart = node * regionsPerNode;
+        final int nodeEnd = Math.min(nodeStart + regionsPerNode, capacity());
+        final int begin = allocated.nextClearBit(Math.max(nodeStart, residentRegions));
+        if (begin == INVALID_REGION_ID || begin >= nodeEnd) {
+            return INVALID_RANGE;
+        }
+        final int numAllocated = allocated.numClearBitsAt(begin, Math.min(numRegions, nodeEnd - begin));
+        final int end = begin + numAllocated;
+        final int last = end - 1;
+        if (last > highestAllocated) {
+            highestAllocated = last;
+        }
+        allocated.set(begin, end);
+        numFreeRegions -= numAllocated;
+        return RegionRange.from(begin, numAllocated);
+    }
+
     /**
      * Allocate number of contiguous regions.
      * @param numRegions the number of region requested
@@ -416,6 +501,9 @@ class FixedSizeRegionAllocator {
         // Should we try to commit only uncommitted sub-range ?
         final Size size = Size.fromInt(numRegions).shiftedLeft(log2RegionSizeInBytes);
         if (VirtualMemory.commitMemory(regionStart(firstRegionId), size, VirtualMemory.Type.HEAP)) {
+            if (numNodes > 1) {
+                bindToNodes(firstRegionId, numRegions);
+            }
             committed.set(firstRegionId, firstRegionId + numRegions);
             committedSize += numRegions;
             return true;
@@ -423,6 +511,22 @@ class FixedSizeRegionAllocator {
         return false;
     }
 
+    /**
+     * Bind the committed memory of a range of regions to the NUMA nodes of the stripes the range overlaps.
+     * Failure to bind is not fatal: the pages are then allocated according to the default memory policy.
+     */
+    private void bindToNodes(int firstRegionId, int numRegions) {
+        final int end = firstRegionId + numRegions;
+        int regionId = firstRegionId;
+        while (regionId < end) {
+            final int node = nodeOf(regionId);
+            final int stripeEnd = Math.min((node + 1) * regionsPerNode, end);
+            final Size size = Size.fromInt(stripeEnd - regionId).shiftedLeft(log2RegionSizeInBytes);
+            VirtualMemory.bindToNumaNode(regionStart(regionId), size, node);
+            regionId = stripeEnd;
+        }
+    }
+
     synchronized boolean uncommit(int firstRegionId, int numRegions) {
         if (isValidCommittedRange(firstRegionId, numRegions)) {
             final Size size = Size.fromInt(numRegions).shiftedLeft(log2RegionSizeInBytes);
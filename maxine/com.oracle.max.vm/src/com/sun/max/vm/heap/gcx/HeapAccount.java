@@ -259,7 +259,7 @@ public class HeapAccount<T extends HeapAccountOwner>{
         final FixedSizeRegionAllocator regionAllocator = theHeapRegionManager.regionAllocator();
         int numRegionsNeeded = numRegions;
         while (numRegionsNeeded > 0) {
-            final RegionRange range = regionAllocator.allocateLessOrEqual(numRegions);
+            final RegionRange range = regionAllocator.allocateLessOrEqual(numRegionsNeeded);
             final int firstAllocatedRegion = range.firstRegion();
             final int numAllocatedRegions = range.numRegions();
             if (commit) {
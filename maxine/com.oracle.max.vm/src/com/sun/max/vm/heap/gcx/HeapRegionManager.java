@@ -45,6 +45,15 @@ import com.sun.max.vm.type.*;
  * regions.
  */
 public final class HeapRegionManager implements HeapAccountOwner {
+    /**
+     * Spread heap regions over the NUMA nodes of the host and give preference to regions local to the allocating thread.
+     */
+    static boolean NUMAAwareHeapRegions = false;
+    static {
+        VMOptions.addFieldOption("-XX:", "NUMAAwareHeapRegions", HeapRegionManager.class,
+                        "Bind heap regions to NUMA nodes and prefer regions local to the allocating thread", MaxineVM.Phase.PRISTINE);
+    }
+
     /**
      * The single instance of the heap region manager.
      */
@@ -143,6 +152,20 @@ public final class HeapRegionManager implements HeapAccountOwner {
         return regionAllocator.bounds();
     }
 
+    /**
+     * Tells whether regions are bound to NUMA nodes.
+     */
+    boolean isNUMAAware() {
+        return regionAllocator.isNUMAAware();
+    }
+
+    /**
+     * Tells whether the specified region is bound to the NUMA node the current thread runs on.
+     */
+    boolean isNodeLocal(int regionID) {
+        return regionAllocator.nodeOf(regionID) == regionAllocator.currentNode();
+    }
+
     boolean isValidRegionID(int regionID) {
         return regionAllocator.isValidRegionId(regionID);
     }
@@ -259,6 +282,9 @@ public final class HeapRegionManager implements HeapAccountOwner {
             heapScheme.enableCustomAllocation(Reference.fromJava(managerAllocator).toOrigin());
             // Record initial space usage.
             regionAllocator.initialize(startOfManagedSpace, numTotalRegions, initialNumRegions);
+            if (NUMAAwareHeapRegions) {
+                regionAllocator.initializeNUMA(VirtualMemory.getNumaNodeCount());
+            }
             RegionTable.initialize(regionInfoClass, regionAllocator.bounds(), numTotalRegions);
             // Allocate the backing storage for the region lists.
             HeapRegionList.initializeListStorage(numTotalRegions);
@@ -39,6 +39,8 @@ public class HeapSchemeLoggerAdaptor {
     @VMLoggerInterface(parent = HeapScheme.PhaseLogger.class)
     private interface PhaseLoggerInterface {
         void scanningThreadRoots(@VMLogParam(name = "vmThread") VmThread vmThread);
+        void processedSpecialReferences(@VMLogParam(name = "kind") int kind, @VMLogParam(name = "discovered") int discovered,
+                        @VMLogParam(name = "cleared") int cleared, @VMLogParam(name = "enqueued") int enqueued, @VMLogParam(name = "time") long time);
     }
 
     public static final class PhaseLogger extends PhaseLoggerAuto {
@@ -47,6 +49,11 @@ public class HeapSchemeLoggerAdaptor {
             super(null, null);
         }
 
+        @Override
+        protected void traceProcessedSpecialReferences(int kind, int discovered, int cleared, int enqueued, long time) {
+            SpecialReferenceManager.traceProcessedSpecialReferences(kind, discovered, cleared, enqueued, time);
+        }
+
         @Override
         protected void traceScanningThreadRoots(VmThread vmThread) {
             Log.print("Scanning thread local and stack roots for thread ");
@@ -80,7 +87,7 @@ public class HeapSchemeLoggerAdaptor {
 // START GENERATED CODE
     private static abstract class PhaseLoggerAuto extends com.sun.max.vm.heap.HeapScheme.PhaseLogger {
         public enum Operation {
-            ScanningThreadRoots;
+            ProcessedSpecialReferences, ScanningThreadRoots;
 
             @SuppressWarnings("hiding")
             public static final Operation[] VALUES = values();
@@ -97,6 +104,13 @@ public class HeapSchemeLoggerAdaptor {
             return Operation.VALUES[opCode].name();
         }
 
+        @Override
+        @INLINE
+        public final void logProcessedSpecialReferences(int kind, int discovered, int cleared, int enqueued, long time) {
+            log(Operation.ProcessedSpecialReferences.ordinal(), intArg(kind), intArg(discovered), intArg(cleared), intArg(enqueued), longArg(time));
+        }
+        protected abstract void traceProcessedSpecialReferences(int kind, int discovered, int cleared, int enqueued, long time);
+
         @Override
         @INLINE
         public final void logScanningThreadRoots(VmThread vmThread) {
@@ -107,7 +121,11 @@ public class HeapSchemeLoggerAdaptor {
         @Override
         protected void trace(Record r) {
             switch (r.getOperation()) {
-                case 0: { //ScanningThreadRoots
+                case 0: { //ProcessedSpecialReferences
+                    traceProcessedSpecialReferences(toInt(r, 1), toInt(r, 2), toInt(r, 3), toInt(r, 4), toLong(r, 5));
+                    break;
+                }
+                case 1: { //ScanningThreadRoots
                     traceScanningThreadRoots(toVmThread(r, 1));
                     break;
                 }
@@ -40,20 +40,22 @@ import com.sun.max.vm.runtime.*;
  * are a power of two (currently 2 KB block).
  * Free lists are maintained for chunks of memory made of contiguous integral number of blocks
  * between a minimum large object size and a very large object size. Chunks smaller than the minimum
- * size are entered in a dark matter list, whereas chunks larger than the very large object size are maintained
- * in a very large chunks list. These are the only two lists of the large object space with chunks of
- * heterogeneous size.
+ * size are entered in dark matter lists. Chunks larger than the very large object size are segregated
+ * in power-of-two size classes: size class <em>c</em> holds chunks of <em>n</em> blocks such that
+ * floor(log<sub>2</sub>(<em>n</em>)) = <em>c</em> + {@link #LOG2_VERY_LARGE_CHUNK_LIST}, i.e., from 2<sup>c+5</sup>
+ * blocks up to (but excluding) 2<sup>c+6</sup> blocks with the current configuration, except for size class 0 which
+ * starts at {@link #VERY_LARGE_CHUNK_LIST} (33) blocks.
+ * The very large size classes are the only lists of the large object space with chunks of heterogeneous size.
  *
- * Coalescing of free space is intrinsically performed by a sweeping phase of the large object space.
- * Contiguous range of free blocks (a.k.a, chunks) enter their appropriate free list in FIFO order, resulting in
- * free list ordered in increasing or decreasing address order (depending on what direction the sweeper uses to
- * sweep the large object space).
- * Splitting will mess this order when entering a split-off chunk to another free list. Split-off chunks
- * are entered at the head of the list and re-used first.
+ * Two bitmaps summarize which lists are non-empty: one for the exact-size lists, one for the very large size classes.
+ * Finding a list that can satisfy a request is therefore a constant time operation: any chunk of a non-empty list
+ * with a size class strictly greater than that of the request fits, so the search of a very large size class
+ * list is only needed when no such list exists.
  *
- * Allocation from the very large object list is performed in best-fit, address ordered fashion.
- * Given that no chunks can enter the list between two GCs and that a GC re-organizes the list in address order anyway,
- * this simply means that allocation follows a first fit search.
+ * Coalescing of free space is performed by the sweeping phase of the large object space:
+ * contiguous ranges of free blocks notified by the sweeper are merged before entering their free list.
+ * Free lists are doubly linked so that chunks can be removed from anywhere in the list (see {@link TaggedLargeObjectSpace}).
+ * Chunks are entered at the head of their list; split-off chunks are therefore re-used first.
  *
  * The configuration of the large object space is currently hard-wired with block size being 2K, minimum object
  * size of 4 KB, and very large object size of 64 KB. At worse, internal fragmentation is 2KB.
@@ -68,17 +70,32 @@ public class LargeObjectSpace extends Sweeper {
     protected static final int BLOCK_SIZE = Size.K.times(2).toInt();
     protected static final int VERY_LARGE_CHUNK_SIZE = Size.K.times(64).toInt();
     protected static final int ALIGNMENT_REQUIREMENT = Size.K.times(64).toInt();
-    protected static final int LOG2_BLOCK_SIZE = Integer.highestOneBit(BLOCK_SIZE);
+    protected static final int LOG2_BLOCK_SIZE = Integer.numberOfTrailingZeros(BLOCK_SIZE);
     protected static final int MIN_NUM_BLOCKS = MIN_LARGE_OBJECT_SIZE >>> LOG2_BLOCK_SIZE;
+
+    /**
+     * Index of the first very large size class in the chunk size table. This is also the
+     * smallest number of blocks a very large chunk can have.
+     */
     protected static final int VERY_LARGE_CHUNK_LIST = (VERY_LARGE_CHUNK_SIZE >>> LOG2_BLOCK_SIZE) + 1;
 
+    /**
+     * Log 2 of the number of blocks of the smallest chunk of the first very large size class, rounded down.
+     */
+    private static final int LOG2_VERY_LARGE_CHUNK_LIST = 31 - Integer.numberOfLeadingZeros(VERY_LARGE_CHUNK_LIST);
+
+    /**
+     * Number of very large size classes.
+     */
+    protected static final int NUM_VERY_LARGE_SIZE_CLASSES = 32;
+
     private final ContiguousHeapSpace committedHeapSpace;
 
     /**
-     * Table recording free list of same-size chunks. Chunks are made of integral numbers of block
-     * of {@link LargeObjectSpace#BLOCK_SIZE} bytes. Table entry <em>i</em> heads a linked list of chunks that all
-     * have a size of <em>i</em> blocks. Only the last entry at index {@link LargeObjectSpace#VERY_LARGE_CHUNK_LIST}
-     * has chunks of heterogeneous size.
+     * Table recording free list of chunks. Chunks are made of integral numbers of block
+     * of {@link LargeObjectSpace#BLOCK_SIZE} bytes. Table entry <em>i</em>, for <em>i</em> less than
+     * {@link #VERY_LARGE_CHUNK_LIST}, heads a linked list of chunks that all have a size of <em>i</em> blocks.
+     * Entries from {@link #VERY_LARGE_CHUNK_LIST} on head the lists of the very large size classes.
      * For simplicity, the table also includes entries for dark matter chunks, chunks of a size smaller
      * than {@link LargeObjectSpace#MIN_LARGE_OBJECT_SIZE} to be re-used for allocation.
      * This allows to use a simple shift to find what free list a chunks should be entered too, for chunks
@@ -99,10 +116,16 @@ public class LargeObjectSpace extends Sweeper {
      * The nth entry of the chunkSizeTable is associated with the nth bit. A bit set to 1 means
      * the corresponding entry of {@link LargeObjectSpace#chunkSizeTable} has at least one chunk.
      * This allows finding quickly a free list that can provide a fit for the requested size.
-     * Neither the very large chunk list nor the dark matter lists have their state recorded in the list.
+     * Neither the very large chunk lists nor the dark matter lists have their state recorded in the list.
      */
     private long sizeTableSummary;
 
+    /**
+     * A bitmap summarizing which very large size classes have at least one chunk.
+     * The nth bit is associated with the nth very large size class.
+     */
+    private long veryLargeSummary;
+
     /**
      * Allocation hand of the tail of the large object space.
      * @see LargeObjectSpace#tailAllocate(Size)
@@ -137,12 +160,22 @@ public class LargeObjectSpace extends Sweeper {
      */
     private Address endOfLastProcessedChunk;
 
+    /**
+     * Large object space sweeping support for coalescing: start of the range of free blocks not yet entered in a free list.
+     */
+    private Address pendingFreeChunk;
+
+    /**
+     * End of the range of free blocks not yet entered in a free list.
+     */
+    private Address endOfPendingFreeChunk;
+
     private long bitmaskForList(int listIndex) {
         return 1L << listIndex;
     }
 
     private boolean isListEmpty(int listIndex) {
-        return (sizeTableSummary & bitmaskForList(listIndex)) != 0L;
+        return (sizeTableSummary & bitmaskForList(listIndex)) == 0L;
     }
 
     private void addToSummary(int listIndex) {
@@ -155,10 +188,11 @@ public class LargeObjectSpace extends Sweeper {
 
     public LargeObjectSpace() {
         committedHeapSpace = new ContiguousHeapSpace("LOS");
-        int numChunkSizeLists = 1 + VERY_LARGE_CHUNK_SIZE;
+        int numChunkSizeLists = VERY_LARGE_CHUNK_LIST + NUM_VERY_LARGE_SIZE_CLASSES;
         chunkSizeTable = new Pointer[numChunkSizeLists];
 
         sizeTableSummary = 0L;
+        veryLargeSummary = 0L;
     }
 
     public Size alignment() {
@@ -172,16 +206,14 @@ public class LargeObjectSpace extends Sweeper {
                         "Incorrect initial setup for large object space");
 
         Size adjustedMaxSize = maxSize.alignUp(MIN_LARGE_OBJECT_SIZE);
-        Size adjustedInitSize = maxSize.alignUp(MIN_LARGE_OBJECT_SIZE);
+        Size adjustedInitSize = initSize.alignUp(MIN_LARGE_OBJECT_SIZE);
 
         // The chunkSizeTableStart pointer is set so that chunkSizeTableStart.getWord(size >> LOG2_BLOCK_SIZE)
-        // points to the appropriate list.
-        // Given that BLOCK_SIZE >> LOG2_BLOCK_SIZE == 1, we just need to set the start at the address
-        // of the first element (index 0) minus 1.
+        // points to the appropriate list, i.e., at the address of the first element of the table.
+        // Entry 0 is never used.
         ArrayLayout layout = vmConfig().layoutScheme().referenceArrayLayout;
         Pointer tableOrigin = Reference.fromJava(chunkSizeTable).toOrigin();
-        Pointer tableFirstElementPointer = tableOrigin.plus(layout.getElementOffsetInCell(0));
-        chunkSizeTableStart = tableFirstElementPointer.minus(layout.getElementOffsetFromOrigin(1));
+        chunkSizeTableStart = tableOrigin.plus(layout.getElementOffsetFromOrigin(0));
 
         if (!committedHeapSpace.reserve(start, adjustedMaxSize)) {
             MaxineVM.reportPristineMemoryFailure("large object space", "reserve", adjustedMaxSize);
@@ -191,22 +223,10 @@ public class LargeObjectSpace extends Sweeper {
         }
 
         // Initial set up.
-
-        int index = listIndex(adjustedInitSize);
-        addChunk(getHeadAddress(index), committedHeapSpace.start().asPointer(), adjustedInitSize);
-
-        if (index < VERY_LARGE_CHUNK_LIST) {
-            addToSummary(index);
-            totalFreeBlocks = index;
-            // No space for tail allocation.
-            top = Pointer.zero();
-            end = Pointer.zero();
-            realEnd = Pointer.zero();
-        } else {
-            totalFreeBlocks = adjustedInitSize.unsignedShiftedRight(LOG2_BLOCK_SIZE).toLong();
-            refillTail();
-        }
-
+        resetFreeLists();
+        addFreeChunk(committedHeapSpace.start(), adjustedInitSize);
+        totalFreeBlocks = adjustedInitSize.unsignedShiftedRight(LOG2_BLOCK_SIZE).toLong();
+        refillTail();
     }
 
     @INLINE
@@ -219,14 +239,24 @@ public class LargeObjectSpace extends Sweeper {
         return size.toInt() >>> LOG2_BLOCK_SIZE;
     }
 
+    /**
+     * Return the very large size class of a chunk of the specified number of blocks, i.e., floor(log<sub>2</sub>(numBlocks))
+     * minus {@link #LOG2_VERY_LARGE_CHUNK_LIST}.
+     * @param numBlocks a number of blocks greater or equal to {@link #VERY_LARGE_CHUNK_LIST}
+     */
+    @INLINE
+    protected static int sizeClass(long numBlocks) {
+        return (63 - Long.numberOfLeadingZeros(numBlocks)) - LOG2_VERY_LARGE_CHUNK_LIST;
+    }
+
     /**
      * Return the index to the block table where the list tracking chunks of size equals to the
      * specified number of block is stored.
      * @param numBlocks
      * @return index from the block table start to a list of block
      */
-    protected static int listIndex(int numBlocks) {
-        return (numBlocks >= VERY_LARGE_CHUNK_LIST)  ? VERY_LARGE_CHUNK_LIST : numBlocks;
+    protected static int listIndex(long numBlocks) {
+        return (numBlocks >= VERY_LARGE_CHUNK_LIST)  ? VERY_LARGE_CHUNK_LIST + sizeClass(numBlocks) : (int) numBlocks;
     }
 
     /**
@@ -235,14 +265,9 @@ public class LargeObjectSpace extends Sweeper {
      * @return an index to the chunk size table.
      */
     protected static int listIndex(Size size) {
-        if (size.greaterThan(VERY_LARGE_CHUNK_SIZE)) {
-            return VERY_LARGE_CHUNK_LIST;
-        }
-        // size is guaranteed to fit in an int.
-        return smallSizeToNumBlocks(size);
+        return listIndex(size.unsignedShiftedRight(LOG2_BLOCK_SIZE).toLong());
     }
 
-
     /**
      * Set the head of the free list at the specified index in the chunk size table.
      * @param chunk
@@ -264,15 +289,45 @@ public class LargeObjectSpace extends Sweeper {
         return chunkSizeTableStart.plusWords(listIndex);
     }
 
+    /**
+     * Format the specified chunk as a free chunk and enter it at the head of the free list at the specified index.
+     */
+    private void pushChunk(int listIndex, Address chunk, Size sizeInBytes) {
+        Pointer head = getHead(listIndex);
+        DLinkedHeapFreeChunk.format(chunk, sizeInBytes, head, Address.zero());
+        if (!head.isZero()) {
+            DLinkedHeapFreeChunk.setFreeChunkPrev(head, chunk);
+        }
+        setHead(chunk.asPointer(), listIndex);
+    }
 
-    protected void addChunk(Pointer headPointer, Address chunk, Size sizeInBytes) {
-        DLinkedHeapFreeChunk.insertUnformattedBefore(headPointer, chunk, sizeInBytes);
+    /**
+     * Remove the specified chunk from the free list at the specified index and update the summaries if the list becomes empty.
+     */
+    private void unlinkChunk(int listIndex, Pointer chunk) {
+        Address next = HeapFreeChunk.getFreeChunkNext(chunk);
+        Address prev = DLinkedHeapFreeChunk.getFreeChunkPrev(chunk);
+        if (prev.isZero()) {
+            setHead(next.asPointer(), listIndex);
+        } else {
+            HeapFreeChunk.setFreeChunkNext(prev, next);
+        }
+        if (!next.isZero()) {
+            DLinkedHeapFreeChunk.setFreeChunkPrev(next, prev);
+        }
+        if (next.isZero() && prev.isZero()) {
+            if (listIndex >= VERY_LARGE_CHUNK_LIST) {
+                veryLargeSummary &= ~(1L << (listIndex - VERY_LARGE_CHUNK_LIST));
+            } else {
+                removeFromSummary(listIndex);
+            }
+        }
     }
 
     protected void addSmallChunk(Address chunk, Size sizeInBytes) {
         // Number of blocks is also the list index.
         int numBlocks = smallSizeToNumBlocks(sizeInBytes);
-        addChunk(getHeadAddress(numBlocks), chunk, sizeInBytes);
+        pushChunk(numBlocks, chunk, sizeInBytes);
         if (numBlocks < MIN_NUM_BLOCKS) {
             totalUnusableBlocks += numBlocks;
         } else {
@@ -280,10 +335,55 @@ public class LargeObjectSpace extends Sweeper {
         }
     }
 
+    protected void addVeryLargeChunk(Address chunk, Size sizeInBytes) {
+        int sizeClass = sizeClass(sizeInBytes.unsignedShiftedRight(LOG2_BLOCK_SIZE).toLong());
+        pushChunk(VERY_LARGE_CHUNK_LIST + sizeClass, chunk, sizeInBytes);
+        veryLargeSummary |= 1L << sizeClass;
+    }
+
+    /**
+     * Enter a free chunk in the free list appropriate for its size. Free block counts aren't updated.
+     */
+    protected void addFreeChunk(Address chunk, Size sizeInBytes) {
+        if (sizeInBytes.greaterThan(VERY_LARGE_CHUNK_SIZE)) {
+            addVeryLargeChunk(chunk, sizeInBytes);
+        } else if (!sizeInBytes.isZero()) {
+            addSmallChunk(chunk, sizeInBytes);
+        }
+    }
+
+    /**
+     * Enter a chunk in the free list appropriate for its size and account for its blocks as free.
+     * @param chunk address of the chunk
+     * @param sizeInBytes size of the chunk, an integral number of blocks
+     */
+    protected void releaseChunk(Address chunk, Size sizeInBytes) {
+        addFreeChunk(chunk, sizeInBytes);
+        if (sizeInBytes.greaterEqual(MIN_LARGE_OBJECT_SIZE)) {
+            totalFreeBlocks += sizeInBytes.unsignedShiftedRight(LOG2_BLOCK_SIZE).toLong();
+        }
+    }
+
+    /**
+     * Remove a free chunk from its free list, e.g., to coalesce it with adjacent free space.
+     * @param chunk address of a free chunk
+     * @param sizeInBytes size of the chunk
+     */
+    protected void removeChunk(Pointer chunk, Size sizeInBytes) {
+        final long numBlocks = sizeInBytes.unsignedShiftedRight(LOG2_BLOCK_SIZE).toLong();
+        unlinkChunk(listIndex(numBlocks), chunk);
+        if (numBlocks < MIN_NUM_BLOCKS) {
+            totalUnusableBlocks -= numBlocks;
+        } else {
+            totalFreeBlocks -= numBlocks;
+        }
+    }
+
     /**
-     * Helper for sweeping. Record a chunk notified by the sweeper in the appropriate
-     * list of free chunks. Chunks are notified in address order (according to the
-     * direction of the sweep), so a simple FIFO insert guarantees the order.
+     * Helper for sweeping. Record a chunk notified by the sweeper. Chunks are notified in address order
+     * (according to the direction of the sweep). A chunk contiguous to the previously recorded one is coalesced
+     * with it; the resulting range only enters a free list once the next non-contiguous chunk is notified,
+     * or at the end of the sweep.
      * @param chunk
      * @param sizeInBytes
      */
@@ -293,16 +393,27 @@ public class LargeObjectSpace extends Sweeper {
                 "Large object space dead space should always be an integral number of blocks");
             FatalError.check(chunk.greaterEqual(endOfLastProcessedChunk), "dead space alread swept");
         }
-        if (sizeInBytes.greaterThan(VERY_LARGE_CHUNK_SIZE)) {
-            addChunk(getHeadAddress(VERY_LARGE_CHUNK_LIST), chunk, sizeInBytes);
-        } else {
-            addSmallChunk(chunk, sizeInBytes);
+        if (!chunk.equals(endOfPendingFreeChunk)) {
+            flushPendingFreeChunk();
+            pendingFreeChunk = chunk;
         }
-        totalFreeBlocks += sizeInBytes.unsignedShiftedRight(LOG2_BLOCK_SIZE).toLong();
+        endOfPendingFreeChunk = chunk.plus(sizeInBytes);
+    }
+
+    /**
+     * Enter the range of coalesced free blocks not yet recorded in the free lists.
+     */
+    private void flushPendingFreeChunk() {
+        Size sizeInBytes = endOfPendingFreeChunk.minus(pendingFreeChunk).asSize();
+        if (!sizeInBytes.isZero()) {
+            releaseChunk(pendingFreeChunk, sizeInBytes);
+        }
+        pendingFreeChunk = Address.zero();
+        endOfPendingFreeChunk = Address.zero();
     }
 
     protected Pointer nextChunk(Pointer chunk) {
-        return HeapFreeChunk.getFreechunkSize(chunk).asPointer();
+        return chunk.plus(HeapFreeChunk.getFreechunkSize(chunk));
     }
 
     private void resetTail() {
@@ -311,22 +422,66 @@ public class LargeObjectSpace extends Sweeper {
         end = Pointer.zero();
     }
 
+    private void resetFreeLists() {
+        // Drop every list on the floor.
+        WordArray.fill(chunkSizeTable,  Pointer.zero());
+        sizeTableSummary = 0L;
+        veryLargeSummary = 0L;
+        totalFreeBlocks = 0L;
+        totalUnusableBlocks = 0L;
+        resetTail();
+    }
+
+    /**
+     * Refill the tail with a chunk of the smallest non-empty very large size class.
+     */
     private boolean refillTail() {
-        top = DLinkedHeapFreeChunk.removeHead(getHeadAddress(VERY_LARGE_CHUNK_LIST));
-        if (top.isZero()) {
-            realEnd = Pointer.zero();
-            end = Pointer.zero();
+        int sizeClass = Pointer.fromLong(veryLargeSummary).leastSignificantBitSet();
+        if (sizeClass < 0) {
+            resetTail();
             return false;
         }
+        int listIndex = VERY_LARGE_CHUNK_LIST + sizeClass;
+        top = getHead(listIndex);
+        unlinkChunk(listIndex, top);
         realEnd = top.plus(DLinkedHeapFreeChunk.getFreechunkSize(top));
         end = realEnd.roundedDownBy(VERY_LARGE_CHUNK_SIZE);
         return true;
     }
 
+    /**
+     * Find a chunk of at least the specified number of blocks in the very large size classes and remove it from its list.
+     * Any chunk of a size class greater than that of the request fits. Only when there is none is the list of the size
+     * class of the request searched.
+     *
+     * @param numBlocks number of blocks requested
+     * @return a pointer to a chunk, or zero if none fit
+     */
+    private Pointer veryLargeFit(long numBlocks) {
+        int sizeClass = numBlocks < VERY_LARGE_CHUNK_LIST ? -1 : sizeClass(numBlocks);
+        int fitClass = Pointer.fromLong(veryLargeSummary >>> (sizeClass + 1)).leastSignificantBitSet();
+        Pointer chunk;
+        if (fitClass >= 0) {
+            fitClass += sizeClass + 1;
+            chunk = getHead(VERY_LARGE_CHUNK_LIST + fitClass);
+        } else {
+            if (sizeClass < 0 || (veryLargeSummary & (1L << sizeClass)) == 0L) {
+                return Pointer.zero();
+            }
+            fitClass = sizeClass;
+            chunk = HeapFreeChunk.firstFit(getHeadAddress(VERY_LARGE_CHUNK_LIST + sizeClass), numBlocksToBytes((int) numBlocks));
+            if (chunk.isZero()) {
+                return Pointer.zero();
+            }
+        }
+        unlinkChunk(VERY_LARGE_CHUNK_LIST + fitClass, chunk);
+        return chunk;
+    }
+
     /**
      * Allocate at the tail of the large object space.
-     * The tail is the very large block with the lowest address.
-     * Allocation hits there first, then if failed, search the very large object list
+     * The tail is a chunk of the smallest non-empty very large size class.
+     * Allocation hits there first, then if failed, search the very large size classes
      * to satisfy allocation. If that failed too, a zero pointer is returned.
      * @param size size in bytes
      */
@@ -339,7 +494,10 @@ public class LargeObjectSpace extends Sweeper {
                 if (newTop.lessEqual(realEnd)) {
                     // Can fit the requested size. Dispatch the left over to the appropriate list.
                     Size spaceLeft = realEnd.minus(newTop).asSize();
-                    addSmallChunk(newTop, spaceLeft);
+                    addFreeChunk(newTop, spaceLeft);
+                    if (spaceLeft.lessThan(MIN_LARGE_OBJECT_SIZE)) {
+                        totalFreeBlocks -= spaceLeft.unsignedShiftedRight(LOG2_BLOCK_SIZE).toLong();
+                    }
                     // Reset tail. Will be refilled on next request.
                     resetTail();
                     totalFreeBlocks -= numAllocatedBlocks;
@@ -355,28 +513,18 @@ public class LargeObjectSpace extends Sweeper {
                     // retry
                     continue;
                 }
-                // Can't fit request in the tail. Check the very large chunk list.
-                Pointer firstFit = HeapFreeChunk.firstFit(getHeadAddress(VERY_LARGE_CHUNK_LIST), size);
-                if (firstFit.isZero()) {
+                // Can't fit request in the tail. Check the very large size classes.
+                Pointer fit = veryLargeFit(numAllocatedBlocks);
+                if (fit.isZero()) {
                     return Pointer.zero();
                 }
-
-                Size chunkSize = HeapFreeChunk.getFreechunkSize(firstFit);
-                Size sizeLeft = chunkSize.minus(size);
-                if (!sizeLeft.isZero()) {
-                    if (sizeLeft.toLong() <= VERY_LARGE_CHUNK_SIZE) {
-                        addSmallChunk(firstFit.plus(size), sizeLeft);
-                    } else {
-                        // Still a very large chunk. Just need to truncate what's left, leaving it in its place
-                        // in the address ordered list.
-                        Pointer truncated = DLinkedHeapFreeChunk.truncateLeft(firstFit, size);
-                        if (firstFit.equals(getHead(VERY_LARGE_CHUNK_LIST))) {
-                            setHead(truncated, VERY_LARGE_CHUNK_LIST);
-                        }
-                    }
+                Size sizeLeft = HeapFreeChunk.getFreechunkSize(fit).minus(size);
+                addFreeChunk(fit.plus(size), sizeLeft);
+                if (sizeLeft.lessThan(MIN_LARGE_OBJECT_SIZE)) {
+                    totalFreeBlocks -= sizeLeft.unsignedShiftedRight(LOG2_BLOCK_SIZE).toLong();
                 }
                 totalFreeBlocks -= numAllocatedBlocks;
-                return firstFit;
+                return fit;
             }
             top = newTop;
             totalFreeBlocks -= numAllocatedBlocks;
@@ -387,34 +535,29 @@ public class LargeObjectSpace extends Sweeper {
     /**
      * Split specified block to allocate numBlocks and update chunkSizeTable accordingly.
      * @param listIndex index of the list whose first block is to be split
-     * @param splitListIndex
      * @param numBlocks
      */
-    private Pointer splitAllocate(int listIndex, int splitListIndex, int numBlocks) {
+    private Pointer splitAllocate(int listIndex, int numBlocks) {
         // Remove the chunk from its list.
-        Pointer allocated = HeapFreeChunk.removeFirst(getHead(listIndex));
-        if (getHead(listIndex).isZero()) {
-            removeFromSummary(listIndex);
-        }
+        Pointer allocated = getHead(listIndex);
+        unlinkChunk(listIndex, allocated);
         // Split the chunk and add the remainder to the appropriate list.
         // The allocated space is the left part of the split, the remainder is the right side.
-        Pointer head = getHead(splitListIndex);
-        Pointer splitOff = HeapFreeChunk.splitRight(allocated, numBlocksToBytes(numBlocks), head);
-        setHead(splitOff, splitListIndex);
+        Size allocatedSize = numBlocksToBytes(numBlocks);
+        addSmallChunk(allocated.plus(allocatedSize), numBlocksToBytes(listIndex - numBlocks));
         return allocated;
     }
 
     public Pointer allocate(Size size) {
+        size = size.alignUp(BLOCK_SIZE);
         if (sizeTableSummary != 0L && size.lessEqual(VERY_LARGE_CHUNK_SIZE)) {
             // At least one list is not empty.
             int numBlocks = smallSizeToNumBlocks(size);
             int listIndex = numBlocks;
-            Pointer allocated = HeapFreeChunk.removeFirst(getHead(listIndex));
-            if (!allocated.isZero()) {
+            if (!isListEmpty(listIndex)) {
+                Pointer allocated = getHead(listIndex);
+                unlinkChunk(listIndex, allocated);
                 totalFreeBlocks -= numBlocks;
-                if (getHead(listIndex).isZero()) {
-                    removeFromSummary(listIndex);
-                }
                 return allocated;
             }
 
@@ -424,10 +567,8 @@ public class LargeObjectSpace extends Sweeper {
             int bitIndex = Pointer.fromLong(sizeTableSummary >>> listIndex).leastSignificantBitSet();
             if (bitIndex >= 0) {
                 listIndex += bitIndex;
-                int remainderListIndex = listIndex - numBlocks;
-                addToSummary(remainderListIndex);
                 totalFreeBlocks -= numBlocks;
-                return splitAllocate(listIndex, remainderListIndex, numBlocks);
+                return splitAllocate(listIndex, numBlocks);
             }
 
             // Didn't find a list
@@ -436,8 +577,7 @@ public class LargeObjectSpace extends Sweeper {
             if (bitIndex >= 0) {
                 listIndex = numBlocks + bitIndex;
                 totalFreeBlocks -= listIndex;
-                totalUnusableBlocks += bitIndex;
-                return splitAllocate(listIndex, bitIndex, numBlocks);
+                return splitAllocate(listIndex, numBlocks);
             }
         }
         return tailAllocate(size);
@@ -450,19 +590,23 @@ public class LargeObjectSpace extends Sweeper {
 
     public Pointer allocateCleared(Size size) {
         Pointer cell = allocate(size);
-        Memory.clearWords(cell, size.unsignedShiftedRight(Word.widthValue().log2numberOfBytes).toInt());
+        if (!cell.isZero()) {
+            Memory.clearWords(cell, size.unsignedShiftedRight(Word.widthValue().log2numberOfBytes).toInt());
+        }
         return cell;
     }
 
     @Override
     public void beginSweep() {
         endOfLastProcessedChunk = committedHeapSpace.start();
-        // Drop every list on the floor.
-        WordArray.fill(chunkSizeTable,  Pointer.zero());
+        pendingFreeChunk = Address.zero();
+        endOfPendingFreeChunk = Address.zero();
+        resetFreeLists();
     }
 
     @Override
     public void endSweep() {
+        flushPendingFreeChunk();
     }
 
     @Override
@@ -478,12 +622,13 @@ public class LargeObjectSpace extends Sweeper {
 
     @Override
     public Pointer processLargeGap(Pointer leftLiveObject, Pointer rightLiveObject) {
-        Pointer endOfLeftObject = leftLiveObject.plus(Layout.size(Layout.cellToOrigin(leftLiveObject)));
+        Address endOfLeftObject = leftLiveObject.plus(Layout.size(Layout.cellToOrigin(leftLiveObject))).alignUp(BLOCK_SIZE);
         Size numDeadBytes = rightLiveObject.minus(endOfLeftObject).asSize();
         if  (!numDeadBytes.isZero()) {
             recordFreeChunk(endOfLeftObject, numDeadBytes);
         }
-        return rightLiveObject.plus(Layout.size(Layout.cellToOrigin(rightLiveObject)));
+        endOfLastProcessedChunk = rightLiveObject.plus(Layout.size(Layout.cellToOrigin(rightLiveObject))).alignUp(BLOCK_SIZE);
+        return endOfLastProcessedChunk.asPointer();
     }
 
     @Override
@@ -491,8 +636,8 @@ public class LargeObjectSpace extends Sweeper {
         final Size numDeadBytes = liveObject.minus(endOfLastProcessedChunk).asSize();
         if (!numDeadBytes.isZero()) {
             recordFreeChunk(endOfLastProcessedChunk, numDeadBytes);
-            endOfLastProcessedChunk = liveObject.plus(Layout.size(Layout.cellToOrigin(liveObject)));
         }
+        endOfLastProcessedChunk = liveObject.plus(Layout.size(Layout.cellToOrigin(liveObject))).alignUp(BLOCK_SIZE);
         return endOfLastProcessedChunk.asPointer();
     }
 
@@ -115,7 +115,7 @@ class LargeObjectTag extends DLinkedHeapFreeChunk {
      * @param largeObjectSize the size of the large object.
      * @return the size a chunk storing the specified large object must have
      */
-    private static Size getLargeObjectChunkSize(Size largeObjectSize) {
+    static Size getLargeObjectChunkSize(Size largeObjectSize) {
         return largeObjectSize.plus(tagSize()).alignUp(TaggedLargeObjectSpace.BLOCK_SIZE);
     }
 
@@ -81,16 +81,6 @@ public class TaggedLargeObjectSpace extends LargeObjectSpace {
         defaultAllocatingObjectList = defaultAllocatingList;
     }
 
-    /**
-     * Removed the chunk from its free list.
-     * @param blockStart start of the chunk
-     * @param numBlocks size of the chunk in number of BLOCK_SIZE blocks
-     */
-    protected void removeBlock(Pointer blockStart, int numBlocks) {
-        Pointer listHead = getHead(listIndex(numBlocks));
-        DLinkedHeapFreeChunk.unlink(blockStart, listHead);
-    }
-
     /**
      * Try coalescing the specified dead large objects with its immediate surrounding.
      *
@@ -99,8 +89,7 @@ public class TaggedLargeObjectSpace extends LargeObjectSpace {
      */
     private boolean coalesce(Pointer deadLargeObjectAddress) {
         final Pointer origin = Layout.cellToOrigin(deadLargeObjectAddress);
-        Size size = Layout.size(origin);
-        int totalContigousFreeBlocks = size.toInt() >>> LOG2_BLOCK_SIZE;
+        Size totalSize = LargeObjectTag.getLargeObjectChunkSize(Layout.size(origin));
         Pointer blockStart = deadLargeObjectAddress;
         boolean coalesced = false;
         Pointer freeChunkBefore = LargeObjectTag.freeChunkBefore(deadLargeObjectAddress);
@@ -108,23 +97,21 @@ public class TaggedLargeObjectSpace extends LargeObjectSpace {
 
         if (!freeChunkAfter.isZero()) {
             // Remove the chunk from it's list. It's going to be coalesced with the freed chunk.
-            int numBlocks = DLinkedHeapFreeChunk.getFreechunkSize(freeChunkBefore).toInt();
-            removeBlock(freeChunkAfter, numBlocks);
-            totalContigousFreeBlocks += numBlocks;
+            Size chunkSize = DLinkedHeapFreeChunk.getFreechunkSize(freeChunkAfter);
+            removeChunk(freeChunkAfter, chunkSize);
+            totalSize = totalSize.plus(chunkSize);
             coalesced = true;
         }
 
         if (!freeChunkBefore.isZero()) {
-            int numBlocks = DLinkedHeapFreeChunk.getFreechunkSize(freeChunkBefore).toInt();
+            Size chunkSize = DLinkedHeapFreeChunk.getFreechunkSize(freeChunkBefore);
             blockStart = freeChunkBefore;
-            removeBlock(freeChunkBefore, numBlocks);
-            totalContigousFreeBlocks += numBlocks;
-            // Unlink the block from its list.
+            removeChunk(freeChunkBefore, chunkSize);
+            totalSize = totalSize.plus(chunkSize);
             coalesced = true;
         }
         // Free the block
-        Size totalSize = numBlocksToBytes(totalContigousFreeBlocks);
-        addChunk(getHeadAddress(listIndex(totalSize)), blockStart, totalSize);
+        releaseChunk(blockStart, totalSize);
         return coalesced;
     }
 
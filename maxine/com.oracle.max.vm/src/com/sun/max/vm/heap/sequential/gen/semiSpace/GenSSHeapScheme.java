@@ -111,6 +111,16 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
             super(thread);
         }
 
+        @Override
+        public int requestedCollectionKind() {
+            return explicit || oldGenOverflow ? FULL_COLLECTION : PARTIAL_COLLECTION;
+        }
+
+        @Override
+        public int completedCollectionKind() {
+            return fullGCOccurred ? FULL_COLLECTION : PARTIAL_COLLECTION;
+        }
+
         @Override
         public void clear() {
             super.clear();
@@ -991,6 +1001,14 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         return MaxineVM.isDebug() && TLABLog.TraceTLABAllocation;
     }
 
+    @Override
+    public Size maxTlabSize() {
+        // TLABs must not outgrow the large object size threshold (see the adjustment of the initial TLAB size in allocateHeapAndGCStorage).
+        final Size limit = Size.fromLong(Long.highestOneBit(largeObjectSizeThreshold.toLong()));
+        final Size maxTlabSize = super.maxTlabSize();
+        return maxTlabSize.greaterThan(limit) ? limit : maxTlabSize;
+    }
+
     /**
      * Allocate a chunk of memory of the specified size and refill a thread's TLAB with it.
      * @param etla the thread whose TLAB will be refilled
@@ -1023,7 +1041,7 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
             allocateAndRefillTLAB(etla, tlabSize);
             // Let's do a bit of meta-circularity. The TLAB is refilled, and no-one except the current thread can use it.
             // So the TLAB allocation is going to succeed here
-            TLABRefillPolicy.setForCurrentThread(etla, new SimpleTLABRefillPolicy(tlabSize));
+            TLABRefillPolicy.setForCurrentThread(etla, newTLABRefillPolicy(tlabSize));
             // Now, address the initial request. Note that we may recurse down to handleTLABOverflow again here if the
             // request is larger than the TLAB size. However, this second call will succeed and allocate outside of the TLAB.
             return tlabAllocate(size);
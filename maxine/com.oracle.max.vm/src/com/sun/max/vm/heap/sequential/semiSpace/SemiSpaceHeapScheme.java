@@ -896,7 +896,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
             allocateAndRefillTLAB(etla, tlabSize);
             // Let's do a bit of meta-circularity. The TLAB is refilled, and no-one except the current thread can use it.
             // So the TLAB allocation is going to succeed here
-            TLABRefillPolicy.setForCurrentThread(etla, new SimpleTLABRefillPolicy(tlabSize));
+            TLABRefillPolicy.setForCurrentThread(etla, newTLABRefillPolicy(tlabSize));
             // Now, address the initial request. Note that we may recurse down to handleTLABOverflow again here if the
             // request is larger than the TLAB size. However, this second call will succeed and allocate outside of the TLAB.
             return tlabAllocate(size);
@@ -1270,6 +1270,8 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         void scanningCode(@VMLogParam(name = "interval") Interval interval);
         void movingReachable(@VMLogParam(name = "interval") Interval interval);
         void processingSpecialReferences(@VMLogParam(name = "interval") Interval interval);
+        void processedSpecialReferences(@VMLogParam(name = "kind") int kind, @VMLogParam(name = "discovered") int discovered,
+                        @VMLogParam(name = "cleared") int cleared, @VMLogParam(name = "enqueued") int enqueued, @VMLogParam(name = "time") long time);
         void verifyingObjectSpaces(@VMLogParam(name = "interval") Interval interval, @VMLogParam(name = "when") GCCallbackPhase when);
         void verifyingStackReferences(@VMLogParam(name = "interval") Interval interval);
         void verifyingHeapObjects(@VMLogParam(name = "interval") Interval interval);
@@ -1315,6 +1317,11 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
             tracePhase("Moving reachable", interval);
         }
 
+        @Override
+        protected void traceProcessedSpecialReferences(int kind, int discovered, int cleared, int enqueued, long time) {
+            SpecialReferenceManager.traceProcessedSpecialReferences(kind, discovered, cleared, enqueued, time);
+        }
+
         @Override
         protected void traceProcessingSpecialReferences(Interval interval) {
             tracePhase("Processing special references", interval);
@@ -1474,16 +1481,16 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
 // START GENERATED CODE
     private static abstract class PhaseLoggerAuto extends com.sun.max.vm.heap.HeapScheme.PhaseLogger {
         public enum Operation {
-            MovingReachable, ProcessingSpecialReferences, ScanningBootHeap,
-            ScanningCode, ScanningImmortalHeap, ScanningRoots, ScanningThreadRoots,
-            VerifyingCodeObjects, VerifyingHeapObjects, VerifyingObjectSpaces, VerifyingRegion,
-            VerifyingStackReferences, ZappingRegion;
+            MovingReachable, ProcessedSpecialReferences, ProcessingSpecialReferences,
+            ScanningBootHeap, ScanningCode, ScanningImmortalHeap, ScanningRoots,
+            ScanningThreadRoots, VerifyingCodeObjects, VerifyingHeapObjects, VerifyingObjectSpaces,
+            VerifyingRegion, VerifyingStackReferences, ZappingRegion;
 
             @SuppressWarnings("hiding")
             public static final Operation[] VALUES = values();
         }
 
-        private static final int[] REFMAPS = new int[] {0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x1, 0x0, 0x1};
+        private static final int[] REFMAPS = new int[] {0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x0, 0x1, 0x0, 0x1};
 
         protected PhaseLoggerAuto(String name, String optionDescription) {
             super(name, Operation.VALUES.length, optionDescription, REFMAPS);
@@ -1500,6 +1507,13 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         }
         protected abstract void traceMovingReachable(Interval interval);
 
+        @Override
+        @INLINE
+        public final void logProcessedSpecialReferences(int kind, int discovered, int cleared, int enqueued, long time) {
+            log(Operation.ProcessedSpecialReferences.ordinal(), intArg(kind), intArg(discovered), intArg(cleared), intArg(enqueued), longArg(time));
+        }
+        protected abstract void traceProcessedSpecialReferences(int kind, int discovered, int cleared, int enqueued, long time);
+
         @INLINE
         public final void logProcessingSpecialReferences(Interval interval) {
             log(Operation.ProcessingSpecialReferences.ordinal(), intervalArg(interval));
@@ -1580,51 +1594,55 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                     traceMovingReachable(toInterval(r, 1));
                     break;
                 }
-                case 1: { //ProcessingSpecialReferences
+                case 1: { //ProcessedSpecialReferences
+                    traceProcessedSpecialReferences(toInt(r, 1), toInt(r, 2), toInt(r, 3), toInt(r, 4), toLong(r, 5));
+                    break;
+                }
+                case 2: { //ProcessingSpecialReferences
                     traceProcessingSpecialReferences(toInterval(r, 1));
                     break;
                 }
-                case 2: { //ScanningBootHeap
+                case 3: { //ScanningBootHeap
                     traceScanningBootHeap(toInterval(r, 1));
                     break;
                 }
-                case 3: { //ScanningCode
+                case 4: { //ScanningCode
                     traceScanningCode(toInterval(r, 1));
                     break;
                 }
-                case 4: { //ScanningImmortalHeap
+                case 5: { //ScanningImmortalHeap
                     traceScanningImmortalHeap(toInterval(r, 1));
                     break;
                 }
-                case 5: { //ScanningRoots
+                case 6: { //ScanningRoots
                     traceScanningRoots(toInterval(r, 1));
                     break;
                 }
-                case 6: { //ScanningThreadRoots
+                case 7: { //ScanningThreadRoots
                     traceScanningThreadRoots(toVmThread(r, 1));
                     break;
                 }
-                case 7: { //VerifyingCodeObjects
+                case 8: { //VerifyingCodeObjects
                     traceVerifyingCodeObjects(toInterval(r, 1));
                     break;
                 }
-                case 8: { //VerifyingHeapObjects
+                case 9: { //VerifyingHeapObjects
                     traceVerifyingHeapObjects(toInterval(r, 1));
                     break;
                 }
-                case 9: { //VerifyingObjectSpaces
+                case 10: { //VerifyingObjectSpaces
                     traceVerifyingObjectSpaces(toInterval(r, 1), toGCCallbackPhase(r, 2));
                     break;
                 }
-                case 10: { //VerifyingRegion
+                case 11: { //VerifyingRegion
                     traceVerifyingRegion(toMemoryRegion(r, 1), toAddress(r, 2), toAddress(r, 3));
                     break;
                 }
-                case 11: { //VerifyingStackReferences
+                case 12: { //VerifyingStackReferences
                     traceVerifyingStackReferences(toInterval(r, 1));
                     break;
                 }
-                case 12: { //ZappingRegion
+                case 13: { //ZappingRegion
                     traceZappingRegion(toMemoryRegion(r, 1), toGCCallbackPhase(r, 2));
                     break;
                 }
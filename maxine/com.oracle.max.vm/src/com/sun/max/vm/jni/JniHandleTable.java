@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.jni;
+
+import com.sun.max.atomic.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * A table of global or weak global JNI handles whose creation and destruction take no lock.
+ *
+ * Handles are indexes into a sequence of fixed size segments. As in {@link JniHandles}, the segments are
+ * plain Java arrays reachable from a static field, so that the referenced objects are GC roots without any
+ * special support from the collectors. Weak global handles refer to a {@link java.lang.ref.WeakReference}, so that
+ * they are cleared along with all other weak references by the {@link com.sun.max.vm.heap.SpecialReferenceManager}.
+ *
+ * Indexes of destroyed handles are first kept in a small per-thread cache, from which the thread creates its next
+ * handles. Indexes that do not fit in the cache go to a global lock-free free list, implemented as a stack whose
+ * head is tagged with a version number to avoid the ABA problem. When both are empty, a handle is created by
+ * atomically bumping the index of the next never used handle. Only the installation of a new segment, once
+ * every {@link #SEGMENT_SIZE} handles, takes a lock.
+ */
+public final class JniHandleTable {
+
+    private static final int SEGMENT_BITS = 10;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /**
+     * The maximum number of handles, such that a tagged handle fits in an {@code int}.
+     */
+    private static final int MAX_HANDLES = 1 << (31 - JniHandles.Tag.BITS);
+
+    /**
+     * The number of free indexes a thread keeps in its {@link ThreadCache}.
+     */
+    private static final int THREAD_CACHE_SIZE = 32;
+
+    /**
+     * A thread's cache of free indexes of a table.
+     */
+    public static final class ThreadCache {
+        final int[] indexes = new int[THREAD_CACHE_SIZE];
+        int size;
+    }
+
+    private final boolean weak;
+
+    /**
+     * The segments holding the objects exposed by the handles. The directory is replaced by a larger copy when full.
+     */
+    private volatile Object[][] segments = new Object[16][];
+
+    /**
+     * The links of the global free list, parallel to {@link #segments}. A link holds the next free index plus one,
+     * or zero at the end of the list.
+     */
+    private volatile int[][] links = new int[16][];
+
+    /**
+     * The index of the next never used handle.
+     */
+    private final AtomicInteger top = new AtomicInteger();
+
+    /**
+     * The head of the global free list: a version number in the high 32 bits and a free index plus one
+     * (or zero if the list is empty) in the low 32 bits.
+     */
+    private final AtomicWord freeList = new AtomicWord();
+
+    JniHandleTable(boolean weak) {
+        this.weak = weak;
+    }
+
+    Object get(int index) {
+        return segments[index >> SEGMENT_BITS][index & SEGMENT_MASK];
+    }
+
+    private void set(int index, Object object) {
+        segments[index >> SEGMENT_BITS][index & SEGMENT_MASK] = object;
+    }
+
+    private ThreadCache threadCache(VmThread thread) {
+        return weak ? thread.weakGlobalJniHandleCache : thread.globalJniHandleCache;
+    }
+
+    /**
+     * Allocates a handle for a given object.
+     *
+     * @return the index of the handle
+     */
+    int allocate(Object object) {
+        int index;
+        final ThreadCache cache = threadCache(VmThread.current());
+        if (cache != null && cache.size > 0) {
+            index = cache.indexes[--cache.size];
+        } else {
+            index = popFreeList();
+            if (index < 0) {
+                index = top.getAndAdd(1);
+                if (index >= MAX_HANDLES) {
+                    throw new OutOfMemoryError("JNI global handles exhausted");
+                }
+                ensureSegment(index >> SEGMENT_BITS);
+            }
+        }
+        set(index, object);
+        return index;
+    }
+
+    /**
+     * Frees the handle at a given index.
+     */
+    void free(int index) {
+        if (index < 0 || index >= top.get() || get(index) == null) {
+            // Invalid or already freed handle
+            return;
+        }
+        set(index, null);
+        final VmThread thread = VmThread.current();
+        ThreadCache cache = threadCache(thread);
+        if (cache == null) {
+            cache = new ThreadCache();
+            if (weak) {
+                thread.weakGlobalJniHandleCache = cache;
+            } else {
+                thread.globalJniHandleCache = cache;
+            }
+        }
+        if (cache.size == THREAD_CACHE_SIZE) {
+            // Give half of the cache to the other threads
+            while (cache.size > THREAD_CACHE_SIZE / 2) {
+                pushFreeList(cache.indexes[--cache.size]);
+            }
+        }
+        cache.indexes[cache.size++] = index;
+    }
+
+    /**
+     * Gives the free indexes cached by a given thread back to the global free list.
+     */
+    void releaseThreadCache(VmThread thread) {
+        final ThreadCache cache = threadCache(thread);
+        if (cache != null) {
+            while (cache.size > 0) {
+                pushFreeList(cache.indexes[--cache.size]);
+            }
+        }
+    }
+
+    private int popFreeList() {
+        while (true) {
+            final Word head = freeList.get();
+            final long value = head.asAddress().toLong();
+            final int first = (int) value;
+            if (first == 0) {
+                return -1;
+            }
+            final int index = first - 1;
+            final int next = links[index >> SEGMENT_BITS][index & SEGMENT_MASK];
+            final long newValue = (((value >>> 32) + 1) << 32) | next;
+            if (freeList.compareAndSet(head, Address.fromLong(newValue))) {
+                return index;
+            }
+        }
+    }
+
+    private void pushFreeList(int index) {
+        final int[] segmentLinks = links[index >> SEGMENT_BITS];
+        while (true) {
+            final Word head = freeList.get();
+            final long value = head.asAddress().toLong();
+            segmentLinks[index & SEGMENT_MASK] = (int) value;
+            final long newValue = (((value >>> 32) + 1) << 32) | (index + 1);
+            if (freeList.compareAndSet(head, Address.fromLong(newValue))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ensures that the segment of a given number is installed.
+     */
+    private void ensureSegment(int segment) {
+        final Object[][] currentSegments = segments;
+        if (segment < currentSegments.length && currentSegments[segment] != null) {
+            return;
+        }
+        synchronized (this) {
+            Object[][] newSegments = segments;
+            int[][] newLinks = links;
+            if (segment >= newSegments.length) {
+                int length = newSegments.length * 2;
+                while (segment >= length) {
+                    length *= 2;
+                }
+                final Object[][] grownSegments = new Object[length][];
+                final int[][] grownLinks = new int[length][];
+                // Can't use System.arraycopy - it's a native method which may require allocating JNI handles!
+                for (int i = 0; i < newSegments.length; i++) {
+                    grownSegments[i] = newSegments[i];
+                    grownLinks[i] = newLinks[i];
+                }
+                newSegments = grownSegments;
+                newLinks = grownLinks;
+            }
+            if (newSegments[segment] == null) {
+                // Install the links first: a segment is used for the free list only once one of its handles is freed
+                newLinks[segment] = new int[SEGMENT_SIZE];
+                newSegments[segment] = new Object[SEGMENT_SIZE];
+            }
+            links = newLinks;
+            segments = newSegments;
+        }
+    }
+}
@@ -44,7 +44,9 @@ import com.sun.max.vm.type.*;
  * global pool per VM (or isolate?) for global references and
  * another global pool for weak global references.
  *
- * This class implements a pool of JNI handles.
+ * This class implements a pool of JNI handles, used for the local references of a thread.
+ * Global and weak global references are allocated from a {@link JniHandleTable}, which
+ * allows the concurrent creation and destruction of handles without locking.
  *
  * In the Maxine VM, we need to take into account that objects may be allocated
  * in a hardware object memory where one cannot take the address of an element or field within
@@ -100,8 +102,8 @@ public final class JniHandles {
 
     public static final int INITIAL_NUMBER_OF_HANDLES = 32;
 
-    private static final JniHandles globalHandles = new JniHandles();
-    private static final JniHandles weakGlobalHandles = new JniHandles();
+    private static final JniHandleTable globalHandles = new JniHandleTable(false);
+    private static final JniHandleTable weakGlobalHandles = new JniHandleTable(true);
 
     /**
      * The objects exposed to native code via handles.
@@ -341,18 +343,14 @@ public final class JniHandles {
         if (object == null) {
             return JniHandle.zero();
         }
-        synchronized (globalHandles) {
-            return globalHandles.allocateHandle(object, Tag.GLOBAL);
-        }
+        return indexToJniHandle(globalHandles.allocate(object), Tag.GLOBAL);
     }
 
     public static JniHandle createWeakGlobalHandle(Object object) {
         if (object == null) {
             return JniHandle.zero();
         }
-        synchronized (weakGlobalHandles) {
-            return weakGlobalHandles.allocateHandle(new WeakReference<Object>(object), Tag.WEAK_GLOBAL);
-        }
+        return indexToJniHandle(weakGlobalHandles.allocate(new WeakReference<Object>(object)), Tag.WEAK_GLOBAL);
     }
 
     public static void destroyLocalHandle(JniHandle jniHandle) {
@@ -375,21 +373,25 @@ public final class JniHandles {
     public static void destroyGlobalHandle(JniHandle jniHandle) {
         if (!jniHandle.isZero()) {
             assert tag(jniHandle) == Tag.GLOBAL;
-            synchronized (globalHandles) {
-                globalHandles.freeHandle(jniHandleToIndex(jniHandle));
-            }
+            globalHandles.free(jniHandleToIndex(jniHandle));
         }
     }
 
     public static void destroyWeakGlobalHandle(JniHandle jniHandle) {
         if (!jniHandle.isZero()) {
             assert tag(jniHandle) == Tag.WEAK_GLOBAL;
-            synchronized (weakGlobalHandles) {
-                weakGlobalHandles.freeHandle(jniHandleToIndex(jniHandle));
-            }
+            weakGlobalHandles.free(jniHandleToIndex(jniHandle));
         }
     }
 
+    /**
+     * Gives the free global and weak global handles cached by a given thread back to the other threads.
+     */
+    public static void releaseThreadCaches(VmThread thread) {
+        globalHandles.releaseThreadCache(thread);
+        weakGlobalHandles.releaseThreadCache(thread);
+    }
+
     public static void ensureLocalHandleCapacity(int capacity) {
         VmThread.current().makeJniHandles().ensureCapacity(capacity);
     }
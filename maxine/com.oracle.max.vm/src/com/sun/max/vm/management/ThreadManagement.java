@@ -208,6 +208,11 @@ public class ThreadManagement {
             return threads.contains(thread.javaThread());
         }
 
+        @Override
+        protected boolean allowsBatching() {
+            return true;
+        }
+
         @Override
         public void doThread(VmThread vmThread, Pointer ip, Pointer sp, Pointer fp) {
             Thread thread = vmThread.javaThread();
@@ -53,8 +53,8 @@ public final class BiasedLockEpoch64 extends Word {
         if (this.equals(MAX)) {
             return MIN;
         }
-        int epoch = toIntInternal();
-        return BiasedLockEpoch64.from(Address.fromUnsignedInt(epoch++).shiftedLeft(BiasedLockword64.EPOCH_SHIFT));
+        final int epoch = toIntInternal();
+        return BiasedLockEpoch64.from(Address.fromUnsignedInt(epoch + 1).shiftedLeft(BiasedLockword64.EPOCH_SHIFT));
     }
 
     @INLINE
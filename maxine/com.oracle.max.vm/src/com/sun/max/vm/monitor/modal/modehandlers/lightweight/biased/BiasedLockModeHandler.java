@@ -98,15 +98,20 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
         }
     }
 
+    /**
+     * Revokes the bias of an object in a handshake with the bias owner, so that no other thread is stopped.
+     * Revoking a bias only rewrites the lockword, which neither allocates nor calls native code, and the
+     * fast paths of the bias owner have no safepoint between reading and writing the lockword.
+     */
     class RevokeBiasOperation extends VmOperation {
         final Object object;
         ModalLockword64 newLockword;
         RevokeBiasOperation(VmThread thread, Object object) {
-            super("RevokeBias", thread, Mode.Safepoint, false);
+            super("RevokeBias", thread, Mode.Handshake, false);
             this.object = object;
         }
         @Override
-        protected void doIt() {
+        protected void doThread(VmThread vmThread, Pointer ip, Pointer sp, Pointer fp) {
             newLockword = revokeBias(object);
         }
     }
@@ -393,8 +398,11 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
                     // We lock as normal. When the lock is released, the object will be rebiased.
                     ObjectAccess.writeMisc(object, biasedLockword.incrementCount());
                     return;
-                } else if (biasedLockword.equals(biasedLockword.asAnonBiased()) || !biasedLockword.getEpoch().equals(classEpoch)) {
-                    // Object is not biased or it's bias is not in the current epoch. Try to get the bias.
+                } else if (biasedLockword.equals(biasedLockword.asAnonBiased()) ||
+                           (!biasedLockword.getEpoch().equals(classEpoch) && biasedLockword.countUnderflow())) {
+                    // Object is not biased, or its bias is not in the current epoch and it is not locked. Try to get the bias.
+                    // An object that is still locked under a bias of a previous epoch must be revoked (see below), as its
+                    // bias owner keeps updating the recursion count without atomic instructions.
                     final BiasedLockword64 newBiasedLockword = biasedLockword.asBiasedAndLockedOnceBy(lockwordThreadID, classEpoch);
                     currentLockword = ModalLockword64.from(ObjectAccess.compareAndSwapMisc(object, biasedLockword, newBiasedLockword));
                     if (currentLockword.equals(biasedLockword)) {
@@ -550,7 +558,9 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
                 final Hub hub = ObjectAccess.readHub(object);
                 final BiasedLockEpoch64 epoch = hub.biasedLockEpoch;
                 hub.biasedLockEpoch = epoch.increment();
-                postRebiasLockword = revokeBias(object);
+                // All biases of objects of this class are now stale. Rather than revoking the bias of the object,
+                // let the requesting thread try to acquire the bias in the new epoch.
+                postRebiasLockword = ModalLockword64.from(ObjectAccess.readMisc(object));
             }
         }
     }
@@ -23,16 +23,32 @@
 package com.sun.max.vm.monitor.modal.modehandlers.lightweight.biased;
 
 import com.sun.max.atomic.*;
+import com.sun.max.vm.*;
 
 /**
+ * Per-class heuristics deciding how the bias of an object whose class is {@linkplain com.sun.max.vm.actor.holder.Hub#biasedLockRevocationHeuristics()
+ * associated} with these heuristics is revoked. Once the number of revocations for the class reaches
+ * {@link #BiasedLockingBulkRebiasThreshold}, all biases of objects of the class are invalidated at once by incrementing the
+ * class's {@linkplain BiasedLockEpoch64 epoch}. If revocations continue until {@link #BiasedLockingBulkRevokeThreshold} is
+ * reached, biased locking is disabled for the class. Revocations counted before a bulk rebias are forgotten if no further
+ * bulk operation is triggered within {@link #BiasedLockingDecayTime} milliseconds.
  */
 public class BiasedLockRevocationHeuristics {
 
     enum RevocationType {SINGLE_OBJECT_REVOCATION, BULK_REBIAS, BULK_REVOCATION}
 
-    private static final int BULK_REBIAS_THRESHOLD = 20;
-    private static final int BULK_REVOCATION_THRESHOLD = 40;
-    private static final int BULK_REBIAS_DECAY_TIME = 25000;
+    private static int BiasedLockingBulkRebiasThreshold = 20;
+    private static int BiasedLockingBulkRevokeThreshold = 40;
+    private static int BiasedLockingDecayTime = 25000;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "BiasedLockingBulkRebiasThreshold", BiasedLockRevocationHeuristics.class,
+            "Number of bias revocations for a class after which all objects of the class are rebiased at once.");
+        VMOptions.addFieldOption("-XX:", "BiasedLockingBulkRevokeThreshold", BiasedLockRevocationHeuristics.class,
+            "Number of bias revocations for a class after which biased locking is disabled for the class.");
+        VMOptions.addFieldOption("-XX:", "BiasedLockingDecayTime", BiasedLockRevocationHeuristics.class,
+            "Time (in milliseconds) after a bulk rebias after which the revocation count of the class is reset.");
+    }
 
     private final AtomicInteger revocationCount = new AtomicInteger();
     private long lastBulkRebiasTime = 0;
@@ -44,21 +60,21 @@ public class BiasedLockRevocationHeuristics {
         int currentRevocationCount = revocationCount.get();
         final long bulkRebiasTime = lastBulkRebiasTime;
         final long currentTime = System.currentTimeMillis();
-        if (currentRevocationCount >= BULK_REBIAS_THRESHOLD &&
-            currentRevocationCount < BULK_REVOCATION_THRESHOLD &&
+        if (currentRevocationCount >= BiasedLockingBulkRebiasThreshold &&
+            currentRevocationCount < BiasedLockingBulkRevokeThreshold &&
             lastBulkRebiasTime != 0 &&
-            currentTime - bulkRebiasTime > BULK_REBIAS_DECAY_TIME) {
+            currentTime - bulkRebiasTime > BiasedLockingDecayTime) {
             currentRevocationCount = 0;
             revocationCount.set(0);
         }
 
-        if (currentRevocationCount <= BULK_REVOCATION_THRESHOLD) {
+        if (currentRevocationCount <= BiasedLockingBulkRevokeThreshold) {
             currentRevocationCount = revocationCountAtomicInc();
         }
 
-        if (currentRevocationCount == BULK_REBIAS_THRESHOLD) {
+        if (currentRevocationCount == BiasedLockingBulkRebiasThreshold) {
             return RevocationType.BULK_REBIAS;
-        } else if (currentRevocationCount == BULK_REVOCATION_THRESHOLD) {
+        } else if (currentRevocationCount == BiasedLockingBulkRevokeThreshold) {
             return RevocationType.BULK_REVOCATION;
         }
         return RevocationType.SINGLE_OBJECT_REVOCATION;
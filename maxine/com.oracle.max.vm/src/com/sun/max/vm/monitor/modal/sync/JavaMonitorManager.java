@@ -56,6 +56,10 @@ import com.sun.max.vm.thread.*;
  * 2) If the GC moves a bound monitor, then the bound object's misc word must be updated to point to the moved
  * monitor. Therefore a post-GC call is required to {@link #afterGarbageCollection()}.
  * <p>
+ * Monitors are never reclaimed by requesting a GC. When the list of unbound monitors runs low, unowned monitors are
+ * {@linkplain MonitorDeflation deflated} at a global safepoint that does not involve the GC. To reduce contention on
+ * the list, each thread keeps a small cache of unbound monitors, refilled in batches from the list.
+ * <p>
  * TODO: (Simon) The terminology of binding/unbinding/hard-binding needs tidying up. The naming conventions
  * are not consistent and in places, misleading.
  */
@@ -82,6 +86,21 @@ public class JavaMonitorManager {
      */
     private static int unboundListGrowQty = 50;
 
+    /**
+     * The number of unbound monitors a thread takes from the list of unbound monitors at once to fill its cache.
+     */
+    private static final int THREAD_CACHE_BATCH_QTY = 4;
+
+    /**
+     * The maximum number of unbound monitors in a thread's cache.
+     */
+    private static final int THREAD_CACHE_MAX_QTY = 2 * THREAD_CACHE_BATCH_QTY;
+
+    /**
+     * The number of monitor deflation operations performed so far.
+     */
+    private static int deflationCount;
+
     /**
      * The current number of unbound monitors available.
      */
@@ -325,15 +344,20 @@ public class JavaMonitorManager {
         if (inGlobalSafepoint) {
             monitor = takeFromUnboundList();
         } else {
-            synchronized (LOCK) {
-                if (numberOfUnboundMonitors < UNBOUNDLIST_MIN_QTY) {
-                    System.gc();
+            final VmThread current = VmThread.current();
+            monitor = takeFromThreadCache(current);
+            if (monitor == null) {
+                synchronized (LOCK) {
+                    if (numberOfUnboundMonitors < UNBOUNDLIST_MIN_QTY + THREAD_CACHE_BATCH_QTY) {
+                        deflateMonitors();
+                    }
+                    // If we didn't free up enough such that we are at least midway between min and hwm, expand
+                    if (numberOfUnboundMonitors < (unboundMonitorsHwm + UNBOUNDLIST_MIN_QTY) >> 1) {
+                        expandUnboundList();
+                    }
+                    monitor = takeFromUnboundList();
+                    fillThreadCache(current);
                 }
-                // If we didn't free up enough such that we are at least midway between min and hwm, expand
-                if (numberOfUnboundMonitors < (unboundMonitorsHwm + UNBOUNDLIST_MIN_QTY) >> 1) {
-                    expandUnboundList();
-                }
-                monitor = takeFromUnboundList();
             }
         }
         monitor.setBoundObject(object);
@@ -361,13 +385,111 @@ public class JavaMonitorManager {
         bindableMonitor.reset();
         if (inGlobalSafepoint) {
             addToUnboundList(bindableMonitor);
-        } else {
+        } else if (!addToThreadCache(VmThread.current(), bindableMonitor)) {
             synchronized (LOCK) {
                 addToUnboundList(bindableMonitor);
             }
         }
     }
 
+    private static ManagedMonitor takeFromThreadCache(VmThread thread) {
+        // No safe points in here, so the unbinding at a global safepoint never sees a partially updated cache.
+        final ManagedMonitor monitor = (ManagedMonitor) thread.monitorCache;
+        if (monitor != null) {
+            thread.monitorCache = monitor.next();
+            thread.monitorCacheSize--;
+            monitor.setNext(null);
+        }
+        return monitor;
+    }
+
+    private static boolean addToThreadCache(VmThread thread, ManagedMonitor monitor) {
+        if (thread.monitorCacheSize >= THREAD_CACHE_MAX_QTY) {
+            return false;
+        }
+        monitor.setNext((ManagedMonitor) thread.monitorCache);
+        thread.monitorCache = monitor;
+        thread.monitorCacheSize++;
+        return true;
+    }
+
+    /**
+     * Moves a batch of monitors from the list of unbound monitors to the cache of a given thread,
+     * keeping at least {@link #UNBOUNDLIST_MIN_QTY} monitors in the list.
+     * Must be called with {@link #LOCK} held.
+     */
+    private static void fillThreadCache(VmThread thread) {
+        for (int i = 0; i < THREAD_CACHE_BATCH_QTY && numberOfUnboundMonitors > UNBOUNDLIST_MIN_QTY; i++) {
+            if (!addToThreadCache(thread, takeFromUnboundList())) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the monitors cached by a terminating thread to the list of unbound monitors.
+     *
+     * @param thread the terminating thread
+     */
+    public static void releaseThreadCache(VmThread thread) {
+        if (thread.monitorCache != null) {
+            synchronized (LOCK) {
+                ManagedMonitor monitor = takeFromThreadCache(thread);
+                while (monitor != null) {
+                    addToUnboundList(monitor);
+                    monitor = takeFromThreadCache(thread);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deflates all unowned monitors in a {@linkplain MonitorDeflation dedicated VM operation}, which
+     * puts them back on the list of unbound monitors without requiring a GC.
+     * Must be called with {@link #LOCK} held.
+     */
+    private static void deflateMonitors() {
+        monitorDeflation.submit();
+    }
+
+    /**
+     * Gets the number of {@linkplain #deflateMonitors() monitor deflations} performed so far.
+     */
+    public static int deflationCount() {
+        return deflationCount;
+    }
+
+    /**
+     * A VM operation that unbinds all unowned monitors at a global safepoint. This is the same unbinding
+     * that is performed before a GC, but without the GC.
+     */
+    static final class MonitorDeflation extends VmOperation {
+        MonitorDeflation() {
+            super("MonitorDeflation", null, Mode.Safepoint);
+        }
+
+        @Override
+        protected void doIt() {
+            deflationCount++;
+            final int before = numberOfUnboundMonitors;
+            beforeGarbageCollection();
+            afterGarbageCollection();
+            if (Monitor.TraceMonitors) {
+                final boolean lockDisabledSafepoints = Log.lock();
+                Log.print("Monitor deflation ");
+                Log.print(deflationCount);
+                Log.print(": ");
+                Log.print(numberOfUnboundMonitors - before);
+                Log.print(" monitors deflated, ");
+                Log.print(numberOfUnboundMonitors);
+                Log.println(" unbound monitors");
+                Log.unlock(lockDisabledSafepoints);
+            }
+        }
+    }
+
+    private static final MonitorDeflation monitorDeflation = new MonitorDeflation();
+
     @NO_SAFEPOINT_POLLS("verification requires mutual exclusion with GC")
     private static int verifyBindableMonitors() {
         int errors = 0;
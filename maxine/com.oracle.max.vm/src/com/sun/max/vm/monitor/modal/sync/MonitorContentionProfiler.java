@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.monitor.modal.sync;
+
+import static com.sun.max.vm.intrinsics.Infopoints.*;
+
+import java.util.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.atomic.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.jni.*;
+import com.sun.max.vm.monitor.modal.sync.JavaMonitorManager.VmLock;
+import com.sun.max.vm.object.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.stack.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Low overhead profiler of the contention on inflated monitors, enabled with {@link #ProfileMonitorContention}.
+ *
+ * Statistics are kept per binding of an inflated monitor to an object in a {@link Record}: the class of the object,
+ * the number of acquisitions of the monitor, the number of contended acquisitions (i.e., the monitor was not free at
+ * the first attempt), the cumulative time spent spinning or blocked on the monitor, and the stacks of the contending
+ * threads ranked by the time they waited. A monitor claims a record on its first contended acquisition after being
+ * bound and keeps it until it is unbound, so a record is never shared by two objects. The record is not looked up by
+ * object identity, which would require installing an identity hash code in the object: an object whose monitor is
+ * deflated and re-inflated gets a new record.
+ *
+ * Records are preallocated when the VM starts running, so that monitor acquisition never allocates. A record is only
+ * updated by the owner of the monitor it was claimed by and thus takes no lock. The contending stack is walked with
+ * the {@linkplain VmThread#monitorContentionStackRecorder() stack recorder} of the current thread. Contentions for
+ * which no record is available any more are counted globally.
+ *
+ * The profile is written to the {@linkplain Log log stream} at VM termination and, along with the thread dump,
+ * when the VM receives a {@code SIGQUIT}.
+ */
+public final class MonitorContentionProfiler {
+
+    /**
+     * Enables the profiling of the contention on inflated monitors.
+     */
+    static boolean ProfileMonitorContention;
+
+    /**
+     * Maximum number of monitor bindings whose contention is profiled.
+     */
+    static int MonitorContentionRecords = 4096;
+
+    /**
+     * Maximum number of frames recorded per contending stack.
+     */
+    static int MonitorContentionStackDepth = 8;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "ProfileMonitorContention", MonitorContentionProfiler.class,
+            "Profile the contention on inflated monitors and print the profile at VM exit or on SIGQUIT.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "MonitorContentionRecords", MonitorContentionProfiler.class,
+            "Maximum number of monitor bindings whose contention is profiled.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "MonitorContentionStackDepth", MonitorContentionProfiler.class,
+            "Maximum number of frames recorded per contending stack.", Phase.PRISTINE);
+    }
+
+    /**
+     * Number of distinct contending stacks kept per record. Further stacks are only accounted in
+     * {@link Record#otherContentions} and {@link Record#otherWaitNanos}.
+     */
+    private static final int STACKS_PER_RECORD = 8;
+
+    /**
+     * Number of stacks printed per record.
+     */
+    private static final int PRINTED_STACKS = 3;
+
+    /**
+     * The preallocated records, claimed in order. {@code null} until the profiler is {@linkplain #initialize() initialized}.
+     */
+    private static Record[] records;
+
+    /**
+     * Number of records claimed, possibly exceeding the number of records.
+     */
+    private static final AtomicInteger usedRecords = new AtomicInteger();
+
+    /**
+     * Number of contended acquisitions that could not be recorded because all records were claimed.
+     */
+    private static final java.util.concurrent.atomic.AtomicLong unrecordedContentions = new java.util.concurrent.atomic.AtomicLong();
+
+    private MonitorContentionProfiler() {
+    }
+
+    /**
+     * Determines if monitor contention profiling was requested.
+     */
+    public static boolean isEnabled() {
+        return ProfileMonitorContention;
+    }
+
+    /**
+     * Preallocates the records and the stack recorder of the current thread. Contention is not profiled before this is called.
+     */
+    public static void initialize() {
+        final int stackDepth = stackDepth();
+        final Record[] records = new Record[Math.max(0, MonitorContentionRecords)];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = new Record(stackDepth);
+        }
+        MonitorContentionProfiler.records = records;
+        VmThread.current().initializeMonitorContentionStackRecorder();
+    }
+
+    static int stackDepth() {
+        return Math.max(1, MonitorContentionStackDepth);
+    }
+
+    /**
+     * Claims a record for the object bound to a monitor.
+     *
+     * @param object an object whose inflated monitor is owned by the current thread
+     * @return a record for {@code object}, or {@code null} if there is no record available
+     */
+    static Record claimRecord(Object object) {
+        final Record[] records = MonitorContentionProfiler.records;
+        if (records == null) {
+            return null;
+        }
+        final int index = usedRecords.getAndAdd(1);
+        if (index >= records.length) {
+            unrecordedContentions.incrementAndGet();
+            return null;
+        }
+        final Record record = records[index];
+        final ClassActor classActor = ObjectAccess.readClassActor(object);
+        record.name = classActor == VmLock.ACTOR ? VmLock.asVmLock(object).name : null;
+        // Publish the record
+        record.classActor = classActor;
+        return record;
+    }
+
+    /**
+     * A thread local walker recording the stack of a contending thread.
+     */
+    public static final class StackRecorder extends RawStackFrameVisitor {
+
+        private final long[] stack;
+        private int depth;
+        private boolean skipping;
+        private final VmStackFrameWalker stackFrameWalker = new VmStackFrameWalker(Pointer.zero());
+
+        public StackRecorder() {
+            stack = new long[stackDepth()];
+        }
+
+        @Override
+        public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
+            final TargetMethod targetMethod = current.targetMethod();
+            if (targetMethod == null || targetMethod.classMethodActor() == null) {
+                // Native frame, stub or adapter
+                return true;
+            }
+            final ClassMethodActor classMethodActor = targetMethod.classMethodActor();
+            if (skipping) {
+                if (classMethodActor.holder().name.string.startsWith("com.sun.max.vm.monitor.")) {
+                    // Frame of the monitor implementation
+                    return true;
+                }
+                skipping = false;
+            }
+            stack[depth++] = MethodID.fromMethodActor(classMethodActor).asAddress().toLong();
+            return depth < stack.length;
+        }
+
+        /**
+         * Records the stack of the current thread, omitting the frames of the monitor implementation.
+         */
+        @NEVER_INLINE
+        void record() {
+            depth = 0;
+            skipping = true;
+            stackFrameWalker.setTLA(VmThread.currentTLA());
+            stackFrameWalker.inspect(Pointer.fromLong(here()), VMRegister.getCpuStackPointer(), VMRegister.getCpuFramePointer(), this);
+        }
+    }
+
+    /**
+     * Contention statistics of one binding of a monitor.
+     */
+    static final class Record {
+
+        /**
+         * The class of the object, {@code null} if the record is free.
+         */
+        volatile ClassActor classActor;
+
+        /**
+         * The name of the object if it is a {@link VmLock}.
+         */
+        String name;
+
+        /**
+         * Number of acquisitions of the monitor since it was bound.
+         */
+        long acquisitions;
+
+        /**
+         * Number of contended acquisitions of the monitor.
+         */
+        long contentions;
+
+        /**
+         * Time spent spinning or blocked on the monitor, in nanoseconds.
+         */
+        long waitNanos;
+
+        /**
+         * The contending stacks: {@link #stackCount} stacks of {@link #maxDepth} method IDs each.
+         */
+        final long[] stacks;
+        final int[] stackDepths;
+        final long[] stackContentions;
+        final long[] stackWaitNanos;
+        int stackCount;
+
+        /**
+         * Contentions and wait time of the stacks that did not fit in {@link #stacks}, or that could not be recorded.
+         */
+        long otherContentions;
+        long otherWaitNanos;
+
+        final int maxDepth;
+
+        Record(int maxDepth) {
+            this.maxDepth = maxDepth;
+            stacks = new long[STACKS_PER_RECORD * maxDepth];
+            stackDepths = new int[STACKS_PER_RECORD];
+            stackContentions = new long[STACKS_PER_RECORD];
+            stackWaitNanos = new long[STACKS_PER_RECORD];
+        }
+
+        /**
+         * Records an acquisition of the monitor by the current thread.
+         *
+         * @param waitNanos the time the current thread waited for the monitor, or {@code -1} if it was not contended
+         */
+        void recordAcquisition(long waitNanos) {
+            acquisitions++;
+            if (waitNanos >= 0) {
+                contentions++;
+                this.waitNanos += waitNanos;
+                final StackRecorder recorder = VmThread.current().monitorContentionStackRecorder();
+                if (recorder == null) {
+                    otherContentions++;
+                    otherWaitNanos += waitNanos;
+                } else {
+                    recorder.record();
+                    recordStack(recorder, waitNanos);
+                }
+            }
+        }
+
+        private void recordStack(StackRecorder recorder, long waitNanos) {
+            for (int i = 0; i < stackCount; i++) {
+                if (isStack(i, recorder)) {
+                    stackContentions[i]++;
+                    stackWaitNanos[i] += waitNanos;
+                    return;
+                }
+            }
+            if (stackCount < STACKS_PER_RECORD) {
+                final int depth = Math.min(recorder.depth, maxDepth);
+                System.arraycopy(recorder.stack, 0, stacks, stackCount * maxDepth, depth);
+                stackDepths[stackCount] = depth;
+                stackContentions[stackCount] = 1;
+                stackWaitNanos[stackCount] = waitNanos;
+                stackCount++;
+            } else {
+                otherContentions++;
+                otherWaitNanos += waitNanos;
+            }
+        }
+
+        private boolean isStack(int stack, StackRecorder recorder) {
+            final int depth = Math.min(recorder.depth, maxDepth);
+            if (stackDepths[stack] != depth) {
+                return false;
+            }
+            final int base = stack * maxDepth;
+            for (int i = 0; i < depth; i++) {
+                if (stacks[base + i] != recorder.stack[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void print() {
+            Log.print(classActor.name.string);
+            if (name != null) {
+                Log.print(" \"");
+                Log.print(name);
+                Log.print('"');
+            }
+            Log.print(": acquisitions=");
+            Log.print(acquisitions);
+            Log.print(", contended=");
+            Log.print(contentions);
+            Log.print(", wait=");
+            Log.print(waitNanos / 1000000L);
+            Log.println(" ms");
+            final Integer[] order = new Integer[stackCount];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(Integer s1, Integer s2) {
+                    final long w1 = stackWaitNanos[s1];
+                    final long w2 = stackWaitNanos[s2];
+                    return w1 < w2 ? 1 : (w1 > w2 ? -1 : 0);
+                }
+            });
+            for (int i = 0; i < order.length && i < PRINTED_STACKS; i++) {
+                final int stack = order[i];
+                Log.print("    contended=");
+                Log.print(stackContentions[stack]);
+                Log.print(", wait=");
+                Log.print(stackWaitNanos[stack] / 1000000L);
+                Log.println(" ms");
+                for (int j = 0; j < stackDepths[stack]; j++) {
+                    final MethodActor methodActor = MethodID.toMethodActor(MethodID.fromWord(Address.fromLong(stacks[stack * maxDepth + j])));
+                    Log.print("\tat ");
+                    Log.println(methodActor.format("%H.%n(%p)"));
+                }
+            }
+            final long otherContended = otherContentions + sumFrom(stackContentions, order, PRINTED_STACKS);
+            if (otherContended != 0) {
+                Log.print("    contended=");
+                Log.print(otherContended);
+                Log.print(", wait=");
+                Log.print((otherWaitNanos + sumFrom(stackWaitNanos, order, PRINTED_STACKS)) / 1000000L);
+                Log.println(" ms from other stacks");
+            }
+        }
+
+        private static long sumFrom(long[] values, Integer[] order, int start) {
+            long sum = 0;
+            for (int i = start; i < order.length; i++) {
+                sum += values[order[i]];
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Prints the records with at least one contention, by decreasing wait time, to the {@linkplain Log log stream}.
+     * The statistics of monitors that are concurrently acquired may be slightly inconsistent.
+     */
+    public static synchronized void dump() {
+        final Record[] records = MonitorContentionProfiler.records;
+        if (records == null) {
+            return;
+        }
+        final List<Record> contended = new ArrayList<Record>();
+        for (Record record : records) {
+            if (record.classActor != null && record.contentions != 0) {
+                contended.add(record);
+            }
+        }
+        Collections.sort(contended, new Comparator<Record>() {
+            public int compare(Record r1, Record r2) {
+                final long w1 = r1.waitNanos;
+                final long w2 = r2.waitNanos;
+                return w1 < w2 ? 1 : (w1 > w2 ? -1 : 0);
+            }
+        });
+        Log.print("Monitor contention profile: ");
+        Log.print(contended.size());
+        Log.print(" contended monitor bindings, ");
+        Log.print(unrecordedContentions.get());
+        Log.println(" unrecorded contentions");
+        for (Record record : contended) {
+            record.print();
+        }
+    }
+}
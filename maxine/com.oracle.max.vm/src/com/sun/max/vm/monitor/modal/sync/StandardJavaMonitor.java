@@ -56,7 +56,14 @@ import com.sun.max.vm.thread.*;
  * thread A because thread A was removed from the wait set when its timeout expired. So the notify wakes up thread B and
  * all threads can continue. With this implementation, the notify can hit thread A since it could not re-acquire the
  * lock between the timeout and the notify (remember that thread C holds the lock). So the notify does not wake up
- * thread B, and it sleeps forever - thread B remains blocked forever.
+ * thread B, and it sleeps forever - thread B remains blocked forever. <br>
+ * <br>
+ * A thread contending for the monitor spins for a while before blocking on the mutex, as blocking and waking up cost
+ * more than short critical sections. The number of spin iterations is adapted per monitor: it is doubled each time
+ * spinning acquired the monitor and halved each time it did not, within the bounds of {@link #MIN_SPIN_BUDGET}
+ * and {@link #MonitorSpinLimit}.
+ * <br>
+ * Acquisitions and contentions are recorded by the {@link MonitorContentionProfiler} when it is enabled.
  */
 public class StandardJavaMonitor extends AbstractJavaMonitor {
 
@@ -74,10 +81,99 @@ public class StandardJavaMonitor extends AbstractJavaMonitor {
 
     private int notifiedThreads;
 
+    /**
+     * Maximum number of iterations a thread spins trying to acquire a contended monitor before blocking.
+     */
+    private static int MonitorSpinLimit = 4096;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "MonitorSpinLimit", StandardJavaMonitor.class,
+            "Maximum number of iterations a thread spins trying to acquire a contended inflated monitor " +
+            "before blocking (0 disables spinning).");
+    }
+
+    /**
+     * Minimum spin budget of a monitor, so that a monitor whose spinning failed recently can still adapt.
+     */
+    private static final int MIN_SPIN_BUDGET = 16;
+
+    /**
+     * The number of iterations a contending thread currently spins on this monitor before blocking.
+     */
+    private int spinBudget = 4 * MIN_SPIN_BUDGET;
+
+    /**
+     * The {@linkplain MonitorContentionProfiler contention profile} of the current binding of this monitor, claimed on
+     * the first contended acquisition of this monitor since it was bound.
+     */
+    private MonitorContentionProfiler.Record contentionRecord;
+
+    /**
+     * Number of acquisitions of this monitor since it was bound and before {@link #contentionRecord} was claimed.
+     */
+    private int uncontendedAcquisitions;
+
     public StandardJavaMonitor() {
         mutex = MutexFactory.create();
     }
 
+    /**
+     * Tries to acquire the mutex of this monitor by spinning at most {@link #spinBudget} iterations, and adapts the
+     * budget to the outcome.
+     *
+     * @return {@code true} if the mutex was acquired; {@code false} if the current thread must block
+     */
+    private boolean spinLock() {
+        final int limit = MonitorSpinLimit;
+        if (limit <= 0) {
+            return false;
+        }
+        int budget = spinBudget;
+        for (int i = 0; i < budget; i++) {
+            if (ownerThread == null && mutex.tryLock()) {
+                budget <<= 1;
+                spinBudget = budget > limit ? limit : budget;
+                return true;
+            }
+            Intrinsics.pause();
+        }
+        budget >>= 1;
+        spinBudget = budget < MIN_SPIN_BUDGET ? MIN_SPIN_BUDGET : budget;
+        return false;
+    }
+
+    /**
+     * Acquires the mutex of this monitor, blocking the current thread if spinning fails.
+     */
+    private void lock(VmThread currentThread) {
+        if (!spinLock()) {
+            currentThread.setState(Thread.State.BLOCKED);
+            mutex.lock();
+            currentThread.setState(Thread.State.RUNNABLE);
+        }
+    }
+
+    /**
+     * Records an acquisition of this monitor by the current thread in the contention profile of the current binding.
+     *
+     * @param waitNanos the time the current thread waited for the monitor, or {@code -1} if it was not contended
+     */
+    private void profileAcquisition(long waitNanos) {
+        if (contentionRecord == null) {
+            if (waitNanos < 0) {
+                uncontendedAcquisitions++;
+                return;
+            }
+            contentionRecord = MonitorContentionProfiler.claimRecord(boundObject());
+            if (contentionRecord == null) {
+                return;
+            }
+            contentionRecord.acquisitions += uncontendedAcquisitions;
+            uncontendedAcquisitions = 0;
+        }
+        contentionRecord.recordAcquisition(waitNanos);
+    }
+
     private static void raiseIllegalMonitorStateException(VmThread owner) {
         if (owner == null) {
             throw new IllegalMonitorStateException();
@@ -94,12 +190,22 @@ public class StandardJavaMonitor extends AbstractJavaMonitor {
             traceEndMonitorEnter(currentThread);
             return;
         }
-        currentThread.setState(Thread.State.BLOCKED);
-        mutex.lock();
-        currentThread.setState(Thread.State.RUNNABLE);
+        final boolean profile = MonitorContentionProfiler.ProfileMonitorContention;
+        long waitNanos = -1L;
+        if (!profile) {
+            lock(currentThread);
+        } else if (ownerThread != null || !mutex.tryLock()) {
+            final long start = System.nanoTime();
+            lock(currentThread);
+            waitNanos = System.nanoTime() - start;
+        }
         ownerThread = currentThread;
         setBindingProtection(BindingProtection.PROTECTED);
         recursionCount = 1;
+        if (profile) {
+            // Only done once the monitor is protected, as the bound object must not be unbound meanwhile
+            profileAcquisition(waitNanos);
+        }
         traceEndMonitorEnter(currentThread);
     }
 
@@ -250,6 +356,13 @@ public class StandardJavaMonitor extends AbstractJavaMonitor {
         FatalError.unexpected("Cannot perform a private monitor release from a " + this.getClass().getName());
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        contentionRecord = null;
+        uncontendedAcquisitions = 0;
+    }
+
     @Override
     public void allocate() {
         mutex.init();
@@ -90,7 +90,9 @@ public class MethodInstrumentation {
 
     @INLINE
     public static void recordBackwardBranch(MethodProfile mpo) {
-        mpo.entryBackedgeCount--;
+        if (--mpo.entryBackedgeCount <= 0) {
+            CompilationBroker.backwardBranchCounterOverflow(mpo);
+        }
     }
 
     @INLINE
@@ -138,7 +140,7 @@ public class MethodInstrumentation {
             Integer[] typeProfile = mpo.getTypeProfile(bci);
             if (typeProfile != null) {
                 int total = 0;
-                for (int i = 0; i < typeProfile.length; i++) {
+                for (int i = 0; i < typeProfile.length; i += 2) {
                     // count up the total of all non anonymous entries
                     Integer typeId = typeProfile[i];
                     Integer count = typeProfile[i + 1];
@@ -151,7 +153,7 @@ public class MethodInstrumentation {
                     int thresh = (int) (ratio * total);
                     int mostFrequentTypeId = MethodProfile.UNDEFINED_TYPE_ID;
                     int mostFrequentTypeCount = thresh;
-                    for (int i = 0; i < typeProfile.length; i++) {
+                    for (int i = 0; i < typeProfile.length; i += 2) {
                         Integer typeId = typeProfile[i];
                         Integer count = typeProfile[i + 1];
                         if (typeId != MethodProfile.UNDEFINED_TYPE_ID && count >= mostFrequentTypeCount) {
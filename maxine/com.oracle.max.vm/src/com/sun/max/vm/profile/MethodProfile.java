@@ -27,6 +27,7 @@ import java.util.*;
 import com.sun.max.annotate.*;
 import com.sun.max.program.*;
 import com.sun.max.vm.actor.holder.ClassIDManager;
+import com.sun.max.vm.code.*;
 import com.sun.max.vm.compiler.target.*;
 
 /**
@@ -89,6 +90,16 @@ public class MethodProfile {
      */
     public int entryBackedgeCount;
 
+    /**
+     * The value of {@link #entryBackedgeCount} at the last {@linkplain CodeEviction code eviction} cycle.
+     */
+    private int evictionEntryBackedgeCount;
+
+    /**
+     * Recency-weighted invocation and backward branch count, see {@link #updateEvictionHotness()}.
+     */
+    private int evictionHotness;
+
     /**
      * Records actual counts of a count entry.
      */
@@ -104,6 +115,16 @@ public class MethodProfile {
      */
     private int[] deoptimizationCounts;
 
+    /**
+     * Records the number of uncommon traps taken by speculative guards as pairs of the bytecode index the guards
+     * deoptimize to and the count. Allocated when the first uncommon trap is recorded.
+     * <p>
+     * A bytecode index identifies a single kind of guard: receiver type guards deoptimize to an invokevirtual or
+     * invokeinterface, which has its receiver on the operand stack, whereas loop predicates are only emitted for
+     * loop headers entered with an empty operand stack. The two never deoptimize to the same bytecode index.
+     */
+    private int[] uncommonTrapCounts;
+
     /**
      * When {@code true} re-compilation is disabled.
      * This is used by JVMTI to prevent methods with JVMTI instrumentation from
@@ -214,6 +235,46 @@ public class MethodProfile {
         return deoptimizationCounts[deoptReasonId];
     }
 
+    /**
+     * Increments the number of uncommon traps taken by speculative guards deoptimizing to a given bci.
+     * @return the number of uncommon traps recorded for the bci, including this one
+     */
+    public synchronized int incrementUncommonTrapCount(int bci) {
+        final int[] counts = uncommonTrapCounts;
+        final int length = counts == null ? 0 : counts.length;
+        for (int i = 0; i < length; i += 2) {
+            if (counts[i] == bci) {
+                if (counts[i + 1] != Integer.MAX_VALUE) {
+                    counts[i + 1]++;
+                }
+                return counts[i + 1];
+            }
+        }
+        final int[] newCounts = new int[length + 2];
+        if (counts != null) {
+            System.arraycopy(counts, 0, newCounts, 0, length);
+        }
+        newCounts[length] = bci;
+        newCounts[length + 1] = 1;
+        uncommonTrapCounts = newCounts;
+        return 1;
+    }
+
+    /**
+     * Returns the number of uncommon traps taken by speculative guards deoptimizing to a given bci.
+     */
+    public int getUncommonTrapCount(int bci) {
+        final int[] counts = uncommonTrapCounts;
+        if (counts != null) {
+            for (int i = 0; i < counts.length; i += 2) {
+                if (counts[i] == bci) {
+                    return counts[i + 1];
+                }
+            }
+        }
+        return 0;
+    }
+
     /**
      * Returns an index of exception seen counter for a given bci.
      */
@@ -571,6 +632,44 @@ public class MethodProfile {
         return entryBackedgeCount <= MethodInstrumentation.protectionThreshold;
     }
 
+    /**
+     * Updates the eviction hotness of this method at the beginning of a {@linkplain CodeEviction code eviction} cycle.
+     * The hotness is halved at each cycle, and the number of invocations and backward branches counted since the
+     * previous cycle is added to it. Methods that were hot a long time ago thus become colder than methods that are
+     * only moderately, but recently, used.
+     * <p>
+     * The hotness of code that is no longer the {@linkplain com.sun.max.vm.actor.member.ClassMethodActor#currentTargetMethod() current code} of its
+     * method, because the method has been optimized or recompiled since, is {@code 0}: such code is only reached by
+     * activations and call sites that have not been patched yet, however often it ran before.
+     *
+     * @return the updated hotness
+     */
+    public int updateEvictionHotness() {
+        final int count = entryBackedgeCount;
+        final int delta = evictionEntryBackedgeCount - count;
+        evictionEntryBackedgeCount = count;
+        if (method.classMethodActor.currentTargetMethod() != method) {
+            evictionHotness = 0;
+            return 0;
+        }
+        int hotness = evictionHotness >>> 1;
+        if (delta > 0) {
+            hotness += delta;
+            if (hotness < 0) {
+                hotness = Integer.MAX_VALUE;
+            }
+        }
+        evictionHotness = hotness;
+        return hotness;
+    }
+
+    /**
+     * Gets the eviction hotness as computed by the last call to {@link #updateEvictionHotness()}.
+     */
+    public int evictionHotness() {
+        return evictionHotness;
+    }
+
     /**
      * This class implements a builder that collects the instrumentation created for a particular
      * method and then packs the information into a dense, sorted representation in the form of
@@ -585,6 +684,7 @@ public class MethodProfile {
 
         public void addEntryBackedgeCounter(int initialValue) {
             mpo.entryBackedgeCount = initialValue;
+            mpo.evictionEntryBackedgeCount = initialValue;
         }
 
         public int addGotoCounter(int bci) {
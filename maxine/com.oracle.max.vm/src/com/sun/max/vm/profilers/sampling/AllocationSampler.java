@@ -0,0 +1,552 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.profilers.sampling;
+
+import static com.sun.max.vm.intrinsics.Infopoints.*;
+import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
+import static com.sun.max.vm.thread.VmThreadLocal.*;
+
+import java.io.*;
+import java.util.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.jni.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.stack.*;
+import com.sun.max.vm.thread.*;
+import com.sun.max.vm.thread.VmThreadLocal.Nature;
+
+/**
+ * Low overhead allocation sampler, available in all builds.
+ *
+ * Unlike the {@link HeapSamplingProfiler}, which stops all threads on every sample, this sampler only ever
+ * looks at the allocating thread. Sampling is driven by the TLAB: the heap scheme lowers the top of a thread's TLAB
+ * to the point where the next sample is due (see {@link HeapSchemeWithTLAB}), so that the allocation crossing
+ * that point takes the allocation slow path and calls {@link #sample(Pointer, Size)}. The fast allocation path
+ * is thus unaffected. Sample points are spaced by {@link #AllocationSamplingInterval} bytes, randomized by
+ * +/- 10% to avoid strobe effects.
+ *
+ * A sample records the size and a stack of at most {@link #AllocationSamplingDepth} frames of the allocating
+ * thread into a per-thread {@link SampleBuffer}, which is {@linkplain #createSampleBuffer(VmThread) created} when the
+ * thread starts so that sampling neither allocates nor locks. The sample is taken before the object is allocated, so its class
+ * is only filled in later, when the thread takes its next sample, when its TLAB is reset (e.g., before a GC),
+ * or when it terminates (see {@link #resolvePendingSample(Pointer)}).
+ * Each buffer has a single producer (its thread) and a single consumer (the sampler thread), and
+ * recording a sample takes no lock.
+ *
+ * The sampler thread periodically drains the buffers into a per-class histogram and a histogram of allocation sites,
+ * which it writes to {@link #AllocationSamplingFile}. The file is also written at VM termination.
+ */
+public final class AllocationSampler extends Thread {
+
+    /**
+     * Enables allocation sampling.
+     */
+    static boolean AllocationSampling;
+
+    /**
+     * Average number of bytes allocated by a thread between two samples.
+     */
+    static int AllocationSamplingInterval = 512 * 1024;
+
+    /**
+     * Maximum number of frames recorded per sample.
+     */
+    static int AllocationSamplingDepth = 8;
+
+    /**
+     * Period in seconds between two writes of the histogram file. Zero implies only at VM termination.
+     */
+    static int AllocationSamplingDumpInterval = 0;
+
+    /**
+     * Name of the histogram file.
+     */
+    static String AllocationSamplingFile = "allocation-samples.txt";
+
+    static {
+        VMOptions.addFieldOption("-XX:", "AllocationSampling", AllocationSampler.class,
+                        "Sample allocations every AllocationSamplingInterval bytes allocated by a thread.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "AllocationSamplingInterval", AllocationSampler.class,
+                        "Average number of bytes allocated by a thread between two allocation samples.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "AllocationSamplingDepth", AllocationSampler.class,
+                        "Maximum number of frames recorded per allocation sample.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "AllocationSamplingDumpInterval", AllocationSampler.class,
+                        "Seconds between two writes of the allocation histogram file (0 = only at VM termination).", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "AllocationSamplingFile", AllocationSampler.class,
+                        "File the allocation histogram is written to.", Phase.PRISTINE);
+    }
+
+    /**
+     * Number of samples a {@link SampleBuffer} can hold.
+     */
+    private static final int BUFFER_SAMPLES = 1024;
+
+    /**
+     * Offsets of the fields of a sample in {@link SampleBuffer#samples}. The stack follows the depth.
+     */
+    private static final int CLASS_ID = 0;
+    private static final int SIZE = 1;
+    private static final int DEPTH = 2;
+    private static final int STACK = 3;
+
+    /**
+     * Thread local holding the thread's sample buffer.
+     */
+    private static final VmThreadLocal ALLOCATION_SAMPLE_BUFFER =
+        new VmThreadLocal("ALLOCATION_SAMPLE_BUFFER", true, "AllocationSampler: buffer of the thread's allocation samples", Nature.Single);
+
+    @INTRINSIC(UNSAFE_CAST)
+    private static native SampleBuffer asSampleBuffer(Object object);
+
+    /**
+     * Set once the sampler thread is running. Allocations are not sampled before.
+     */
+    private static volatile boolean isSampling;
+
+    /**
+     * Head of the list of all the sample buffers created so far.
+     */
+    private static SampleBuffer buffers;
+
+    private static final Object BUFFERS_LOCK = new Object();
+
+    private static final Random rand = new Random();
+
+    /**
+     * Classes whose frames are skipped at the top of the stack of a sample.
+     */
+    private static final ClassActor heapSchemeClassActor = ClassActor.fromJava(HeapScheme.class);
+    private static final ClassActor heapClassActor = ClassActor.fromJava(Heap.class);
+    private static final ClassActor snippetsClassActor = ClassActor.fromJava(Snippets.class);
+    private static final ClassActor samplerClassActor = ClassActor.fromJava(AllocationSampler.class);
+
+    /**
+     * Determines if allocations should be sampled.
+     */
+    @INLINE
+    public static boolean isSampling() {
+        return isSampling;
+    }
+
+    /**
+     * Gets the number of bytes a thread should allocate before its next sample.
+     */
+    public static Size nextSampleInterval() {
+        final int jiggle = AllocationSamplingInterval / 10;
+        final int interval = jiggle == 0 ? AllocationSamplingInterval : AllocationSamplingInterval - jiggle + rand.nextInt(2 * jiggle);
+        return Size.fromInt(interval).wordAligned();
+    }
+
+    /**
+     * A single producer, single consumer ring buffer of samples.
+     * Only the owning thread adds samples, only the sampler thread removes them.
+     */
+    static final class SampleBuffer extends RawStackFrameVisitor {
+        final VmThread thread;
+        final long[] samples;
+        final int sampleLength;
+        final int maxDepth;
+
+        /**
+         * Number of samples published to the sampler thread so far.
+         */
+        volatile int head;
+
+        /**
+         * Number of samples consumed by the sampler thread so far.
+         */
+        volatile int tail;
+
+        /**
+         * Indicates that the sample at index {@link #head} was recorded but its class is not yet known.
+         */
+        boolean pending;
+
+        /**
+         * Indicates that the thread has terminated. The buffer is released once drained.
+         */
+        volatile boolean retired;
+
+        /**
+         * Number of samples dropped because the buffer was full.
+         */
+        int dropped;
+
+        SampleBuffer next;
+
+        private final VmStackFrameWalker stackFrameWalker;
+
+        /**
+         * State of the stack walk in progress.
+         */
+        private int stackIndex;
+        private int depth;
+        private boolean skipping;
+
+        SampleBuffer(VmThread thread, int maxDepth) {
+            this.thread = thread;
+            this.maxDepth = maxDepth;
+            this.sampleLength = STACK + maxDepth;
+            this.samples = new long[BUFFER_SAMPLES * sampleLength];
+            this.stackFrameWalker = new VmStackFrameWalker(thread.tla());
+        }
+
+        private static boolean isAllocationFrame(ClassActor holder) {
+            return holder == heapClassActor || holder == snippetsClassActor || holder == samplerClassActor || heapSchemeClassActor.isAssignableFrom(holder);
+        }
+
+        @Override
+        public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
+            final TargetMethod targetMethod = current.targetMethod();
+            if (targetMethod == null || targetMethod.classMethodActor() == null) {
+                // Native frame, stub or adapter
+                return true;
+            }
+            final ClassMethodActor classMethodActor = targetMethod.classMethodActor();
+            if (skipping) {
+                if (isAllocationFrame(classMethodActor.holder())) {
+                    return true;
+                }
+                skipping = false;
+            }
+            samples[stackIndex + depth] = MethodID.fromMethodActor(classMethodActor).asAddress().toLong();
+            depth++;
+            return depth < maxDepth;
+        }
+
+        @NEVER_INLINE
+        void record(Size size) {
+            if (head - tail >= BUFFER_SAMPLES) {
+                dropped++;
+                return;
+            }
+            final int index = (head % BUFFER_SAMPLES) * sampleLength;
+            stackIndex = index + STACK;
+            depth = 0;
+            skipping = true;
+            stackFrameWalker.inspect(Pointer.fromLong(here()), VMRegister.getCpuStackPointer(), VMRegister.getCpuFramePointer(), this);
+            samples[index + SIZE] = size.toLong();
+            samples[index + DEPTH] = depth;
+            pending = true;
+        }
+
+        void resolve(Pointer cell) {
+            final int index = (head % BUFFER_SAMPLES) * sampleLength;
+            final Hub hub = UnsafeCast.asHub(Layout.readHubReference(Layout.cellToOrigin(cell)).toJava());
+            samples[index + CLASS_ID] = hub.classActor.id;
+            pending = false;
+            // Publish the sample
+            head++;
+        }
+    }
+
+    /**
+     * Cell of the last sampled allocation of a thread, until the class of the sample is resolved.
+     */
+    private static final VmThreadLocal ALLOCATION_SAMPLE_CELL =
+        new VmThreadLocal("ALLOCATION_SAMPLE_CELL", false, "AllocationSampler: cell of the last sampled allocation", Nature.Single);
+
+    private static SampleBuffer getSampleBuffer(Pointer etla) {
+        final Reference reference = ALLOCATION_SAMPLE_BUFFER.loadRef(etla);
+        return reference.isZero() ? null : asSampleBuffer(reference.toJava());
+    }
+
+    /**
+     * Creates the sample buffer of a thread that is starting, if allocation sampling is enabled. This must be called
+     * on the thread itself once heap allocation is available. Threads without a buffer, such as the VM operation
+     * thread and the sampler thread, are not sampled.
+     */
+    public static void createSampleBuffer(VmThread thread) {
+        if (!AllocationSampling || thread.isVmOperationThread() || thread.javaThread() instanceof AllocationSampler) {
+            return;
+        }
+        final SampleBuffer buffer = new SampleBuffer(thread, AllocationSamplingDepth);
+        synchronized (BUFFERS_LOCK) {
+            buffer.next = buffers;
+            buffers = buffer;
+        }
+        ALLOCATION_SAMPLE_BUFFER.store(ETLA.load(thread.tla()), Reference.fromJava(buffer));
+    }
+
+    /**
+     * Samples an allocation of the current thread. This is called by the allocation slow path of the heap scheme
+     * before the sampled allocation takes place, and neither allocates nor locks.
+     * The cell of the sampled allocation must then be passed to {@link #recordSampledCell(Pointer, Pointer)}.
+     *
+     * @param etla the current thread
+     * @param size the size of the allocation
+     */
+    public static void sample(Pointer etla, Size size) {
+        final SampleBuffer buffer = getSampleBuffer(etla);
+        if (buffer == null) {
+            return;
+        }
+        if (buffer.pending) {
+            resolvePendingSample(etla);
+        }
+        buffer.record(size);
+    }
+
+    /**
+     * Records the cell of the allocation sampled by the last call to {@link #sample(Pointer, Size)}.
+     */
+    public static void recordSampledCell(Pointer etla, Pointer cell) {
+        final SampleBuffer buffer = getSampleBuffer(etla);
+        if (buffer != null && buffer.pending) {
+            ALLOCATION_SAMPLE_CELL.store(etla, cell);
+        }
+    }
+
+    /**
+     * Fills in the class of the last sample of a thread and publishes the sample to the sampler thread.
+     * This must be called before objects may move, i.e., when the TLAB of the thread is reset.
+     *
+     * @param etla the thread whose pending sample is resolved
+     */
+    public static void resolvePendingSample(Pointer etla) {
+        final Pointer cell = ALLOCATION_SAMPLE_CELL.load(etla);
+        if (!cell.isZero()) {
+            ALLOCATION_SAMPLE_CELL.store(etla, Address.zero());
+            getSampleBuffer(etla).resolve(cell);
+        }
+    }
+
+    /**
+     * Notifies the sampler that a thread is terminating.
+     */
+    public static void retireSampleBuffer(Pointer etla) {
+        final SampleBuffer buffer = getSampleBuffer(etla);
+        if (buffer != null) {
+            resolvePendingSample(etla);
+            buffer.retired = true;
+            ALLOCATION_SAMPLE_BUFFER.store(etla, Reference.zero());
+        }
+    }
+
+    /**
+     * Number of samples and bytes for a class, or for an allocation site.
+     */
+    private static final class Counts {
+        long samples;
+        long bytes;
+    }
+
+    /**
+     * An allocation site, i.e., the class and the stack of a sample.
+     */
+    private static final class Site {
+        final int classID;
+        final long[] stack;
+
+        Site(int classID, long[] stack) {
+            this.classID = classID;
+            this.stack = stack;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object instanceof Site) {
+                final Site other = (Site) object;
+                return classID == other.classID && Arrays.equals(stack, other.stack);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return classID ^ Arrays.hashCode(stack);
+        }
+    }
+
+    private final Map<Integer, Counts> classHistogram = new HashMap<Integer, Counts>();
+    private final Map<Site, Counts> siteHistogram = new HashMap<Site, Counts>();
+    private long sampleCount;
+    private long droppedCount;
+
+    public AllocationSampler() {
+        super(VmThread.systemThreadGroup, "Allocation Sampler");
+        setDaemon(true);
+        isSampling = true;
+        start();
+    }
+
+    /**
+     * Determines if allocation sampling was requested.
+     */
+    public static boolean isEnabled() {
+        return AllocationSampling;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Thread.sleep(AllocationSamplingDumpInterval == 0 ? 1000L : AllocationSamplingDumpInterval * 1000L);
+                drain();
+                if (AllocationSamplingDumpInterval != 0) {
+                    dump();
+                }
+            } catch (InterruptedException ex) {
+            }
+        }
+    }
+
+    /**
+     * Moves the samples of all buffers into the histograms, and releases the buffers of terminated threads.
+     */
+    private synchronized void drain() {
+        SampleBuffer prev = null;
+        SampleBuffer buffer;
+        synchronized (BUFFERS_LOCK) {
+            buffer = buffers;
+        }
+        while (buffer != null) {
+            // Read the retired flag before draining: no sample is published after it is set
+            final boolean retired = buffer.retired;
+            drain(buffer);
+            final SampleBuffer next = buffer.next;
+            if (retired) {
+                synchronized (BUFFERS_LOCK) {
+                    if (prev == null) {
+                        if (buffers == buffer) {
+                            buffers = next;
+                        } else {
+                            // Buffers were added in front of this one since the walk started
+                            SampleBuffer b = buffers;
+                            while (b.next != buffer) {
+                                b = b.next;
+                            }
+                            b.next = next;
+                        }
+                    } else {
+                        prev.next = next;
+                    }
+                }
+            } else {
+                prev = buffer;
+            }
+            buffer = next;
+        }
+    }
+
+    private void drain(SampleBuffer buffer) {
+        final int head = buffer.head;
+        int tail = buffer.tail;
+        final long[] samples = buffer.samples;
+        while (tail != head) {
+            final int index = (tail % BUFFER_SAMPLES) * buffer.sampleLength;
+            final int classID = (int) samples[index + CLASS_ID];
+            final long size = samples[index + SIZE];
+            final long[] stack = Arrays.copyOfRange(samples, index + STACK, index + STACK + (int) samples[index + DEPTH]);
+            count(classHistogram, classID, size);
+            count(siteHistogram, new Site(classID, stack), size);
+            sampleCount++;
+            tail++;
+        }
+        buffer.tail = tail;
+        droppedCount += buffer.dropped;
+        buffer.dropped = 0;
+    }
+
+    private static <K> void count(Map<K, Counts> histogram, K key, long size) {
+        Counts counts = histogram.get(key);
+        if (counts == null) {
+            counts = new Counts();
+            histogram.put(key, counts);
+        }
+        counts.samples++;
+        counts.bytes += size;
+    }
+
+    private static <K> List<Map.Entry<K, Counts>> sort(Map<K, Counts> histogram) {
+        final List<Map.Entry<K, Counts>> entries = new ArrayList<Map.Entry<K, Counts>>(histogram.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<K, Counts>>() {
+            public int compare(Map.Entry<K, Counts> e1, Map.Entry<K, Counts> e2) {
+                final long s1 = e1.getValue().samples;
+                final long s2 = e2.getValue().samples;
+                return s1 < s2 ? 1 : (s1 > s2 ? -1 : 0);
+            }
+        });
+        return entries;
+    }
+
+    private static String className(int classID) {
+        final ClassActor classActor = ClassIDManager.toClassActor(classID);
+        return classActor == null ? "<unknown class " + classID + ">" : classActor.name.toString();
+    }
+
+    /**
+     * Writes the histograms to {@link #AllocationSamplingFile}.
+     * The number of bytes allocated for a class or a site is estimated as its number of samples times the sampling interval.
+     */
+    private synchronized void dump() {
+        try {
+            final PrintStream out = new PrintStream(new FileOutputStream(AllocationSamplingFile));
+            out.println("# samples: " + sampleCount + ", dropped: " + droppedCount + ", interval: " + AllocationSamplingInterval + " bytes");
+            out.println();
+            out.println("# estimated bytes, samples, sampled bytes, class");
+            for (Map.Entry<Integer, Counts> entry : sort(classHistogram)) {
+                final Counts counts = entry.getValue();
+                out.println(counts.samples * AllocationSamplingInterval + "\t" + counts.samples + "\t" + counts.bytes + "\t" + className(entry.getKey()));
+            }
+            out.println();
+            out.println("# estimated bytes, samples, sampled bytes, class, allocation site");
+            for (Map.Entry<Site, Counts> entry : sort(siteHistogram)) {
+                final Counts counts = entry.getValue();
+                final Site site = entry.getKey();
+                out.println(counts.samples * AllocationSamplingInterval + "\t" + counts.samples + "\t" + counts.bytes + "\t" + className(site.classID));
+                for (long methodID : site.stack) {
+                    final MethodActor methodActor = MethodID.toMethodActor(MethodID.fromWord(Address.fromLong(methodID)));
+                    out.println("\t\tat " + methodActor.format("%H.%n(%p)"));
+                }
+            }
+            out.close();
+        } catch (IOException e) {
+            Log.println("Could not write allocation samples to " + AllocationSamplingFile + ": " + e);
+        }
+    }
+
+    public void terminate() {
+        isSampling = false;
+        drain();
+        dump();
+    }
+
+    public synchronized void restart() {
+        drain();
+        classHistogram.clear();
+        siteHistogram.clear();
+        sampleCount = 0;
+        droppedCount = 0;
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.profilers.sampling;
+
+import java.util.*;
+
+import com.sun.max.atomic.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.stack.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * CPU sampling profiler that does not stop the world, enabled with {@link #AsyncCPUSampling}.
+ *
+ * A dedicated thread periodically submits a {@linkplain VmOperation.Mode#Handshake handshake} with the application
+ * threads. Each thread executing Java code walks its own stack when it reaches its next safepoint and then continues,
+ * so that a sample costs one stack walk per thread instead of stopping all threads together. Threads in native code,
+ * which includes threads that are sleeping or blocked, are not sampled unless {@link #AsyncCPUSamplingNative} is set,
+ * in which case the VM operation thread walks their stack while they are frozen.
+ *
+ * Samples are aggregated in a preallocated call tree that is updated without locking. The tree is inverted: the
+ * children of a node are the callers of its method. A sample is thus recorded while walking the stack from the sampled
+ * frame, without buffering frames. The number of samples of a stack is counted in the node of its outermost frame,
+ * from which the parent links lead back to the sampled frame. Inlined methods are attributed to the method they were
+ * inlined into.
+ *
+ * The profile is written to the {@linkplain Log log stream} at VM termination in the collapsed stack format used by
+ * flame graph tools: one line per stack, listing the frames from the outermost to the sampled one separated by
+ * {@code ;}, followed by the number of samples of the stack.
+ */
+public final class AsyncCPUSamplingProfiler extends Thread {
+
+    /**
+     * Enables the asynchronous CPU sampling profiler.
+     */
+    static boolean AsyncCPUSampling;
+
+    /**
+     * Base period between samples, in milliseconds.
+     */
+    static int AsyncCPUSamplingPeriod = 10;
+
+    /**
+     * Maximum number of frames recorded per sample.
+     */
+    static int AsyncCPUSamplingDepth = 64;
+
+    /**
+     * Maximum number of call tree nodes.
+     */
+    static int AsyncCPUSamplingNodes = 65536;
+
+    /**
+     * Also samples threads in native code.
+     */
+    static boolean AsyncCPUSamplingNative;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "AsyncCPUSampling", AsyncCPUSamplingProfiler.class,
+            "Sample the stacks of threads executing Java code without stopping the world and print them in collapsed " +
+            "stack format at VM exit.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "AsyncCPUSamplingPeriod", AsyncCPUSamplingProfiler.class,
+            "Base period between samples of the asynchronous CPU sampling profiler, in milliseconds.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "AsyncCPUSamplingDepth", AsyncCPUSamplingProfiler.class,
+            "Maximum number of frames recorded per sample by the asynchronous CPU sampling profiler.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "AsyncCPUSamplingNodes", AsyncCPUSamplingProfiler.class,
+            "Maximum number of call tree nodes of the asynchronous CPU sampling profiler.", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "AsyncCPUSamplingNative", AsyncCPUSamplingProfiler.class,
+            "Make the asynchronous CPU sampling profiler also sample threads in native code.", Phase.PRISTINE);
+    }
+
+    /**
+     * Number of stack walkers, i.e., maximum number of threads recording a sample at the same time.
+     * A thread that finds all walkers busy drops its sample.
+     */
+    private static final int WALKERS = 32;
+
+    /**
+     * Parent index of the node of a sampled frame.
+     */
+    private static final int NO_PARENT = -1;
+
+    /**
+     * Open addressing hash table of the call tree nodes, indexed by parent index and method.
+     * {@code null} until the profiler is {@linkplain #initialize() initialized}.
+     */
+    private static Node[] table;
+
+    /**
+     * Number of nodes in use.
+     */
+    private static final AtomicInteger usedNodes = new AtomicInteger();
+
+    private static Walker[] walkers;
+
+    /**
+     * Number of samples that could not be recorded, because all walkers were busy or the call tree was full.
+     */
+    private static final java.util.concurrent.atomic.AtomicLong droppedSamples = new java.util.concurrent.atomic.AtomicLong();
+
+    private static AsyncCPUSamplingProfiler profiler;
+
+    private final SampleOperation sampleOperation = new SampleOperation();
+
+    private final Random rand = new Random();
+
+    private volatile boolean isProfiling;
+
+    /**
+     * Number of handshakes submitted.
+     */
+    private long sampleCount;
+
+    /**
+     * The profiler thread itself, which is not sampled.
+     */
+    private VmThread theProfiler;
+
+    private AsyncCPUSamplingProfiler() {
+        super(VmThread.systemThreadGroup, "AsyncCPUSamplingProfiler");
+        setDaemon(true);
+    }
+
+    /**
+     * Determines if asynchronous CPU sampling was requested.
+     */
+    public static boolean isEnabled() {
+        return AsyncCPUSampling;
+    }
+
+    /**
+     * Preallocates the call tree and starts the profiler thread.
+     */
+    public static void initialize() {
+        int size = 1;
+        while (size < AsyncCPUSamplingNodes * 2) {
+            size <<= 1;
+        }
+        final Node[] nodes = new Node[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = new Node();
+        }
+        final Walker[] w = new Walker[WALKERS];
+        for (int i = 0; i < WALKERS; i++) {
+            w[i] = new Walker();
+        }
+        walkers = w;
+        table = nodes;
+        profiler = new AsyncCPUSamplingProfiler();
+        profiler.isProfiling = true;
+        profiler.start();
+    }
+
+    /**
+     * Stops sampling and prints the profile.
+     */
+    public static void terminate() {
+        if (profiler != null) {
+            profiler.isProfiling = false;
+            dump();
+        }
+    }
+
+    @Override
+    public void run() {
+        theProfiler = VmThread.fromJava(this);
+        final int jiggle = Math.max(1, AsyncCPUSamplingPeriod / 10);
+        while (isProfiling) {
+            try {
+                final int thisJiggle = rand.nextInt(jiggle);
+                Thread.sleep(Math.max(1, AsyncCPUSamplingPeriod + (rand.nextBoolean() ? thisJiggle : -thisJiggle)));
+            } catch (InterruptedException ex) {
+            }
+            if (isProfiling) {
+                sampleOperation.submit();
+                sampleCount++;
+            }
+        }
+    }
+
+    /**
+     * The handshake performed by each sampled thread.
+     */
+    final class SampleOperation extends VmOperation {
+
+        SampleOperation() {
+            super("AsyncCPUSampling", null, Mode.Handshake);
+        }
+
+        @Override
+        protected Priority priority() {
+            return Priority.Low;
+        }
+
+        @Override
+        protected boolean operateOnThread(VmThread thread) {
+            final Thread javaThread = thread.javaThread();
+            return thread != theProfiler && javaThread != null && javaThread.getThreadGroup() != VmThread.systemThreadGroup;
+        }
+
+        @Override
+        protected void doThread(VmThread vmThread, Pointer ip, Pointer sp, Pointer fp) {
+            if (ip.isZero()) {
+                // No Java frame
+                return;
+            }
+            if (vmThread != VmThread.current() && !AsyncCPUSamplingNative) {
+                // The thread is in native code and the VM operation thread is performing the handshake on its behalf
+                return;
+            }
+            final Walker walker = claimWalker(vmThread.id());
+            if (walker == null) {
+                droppedSamples.incrementAndGet();
+                return;
+            }
+            try {
+                walker.walk(vmThread.tla(), ip, sp, fp);
+            } finally {
+                walker.busy.set(0);
+            }
+        }
+    }
+
+    private static Walker claimWalker(int start) {
+        final Walker[] w = walkers;
+        for (int i = 0; i < w.length; i++) {
+            final Walker walker = w[(start + i) & (w.length - 1)];
+            if (walker.busy.get() == 0 && walker.busy.compareAndSet(0, 1)) {
+                return walker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the index of the node for a given method called from the node at a given index, claiming a free node if
+     * there is none yet.
+     *
+     * @param parent index of the node of the frame called by {@code method}, {@link #NO_PARENT} for a sampled frame
+     * @return the index of the node, or {@link #NO_PARENT} if the call tree is full
+     */
+    private static int nodeFor(int parent, ClassMethodActor method) {
+        final Node[] nodes = table;
+        final int mask = nodes.length - 1;
+        int index = (parent * 31 + method.holder().id * 65599 + method.memberIndex()) & mask;
+        for (int probes = 0; probes < nodes.length; probes++) {
+            final Node node = nodes[index];
+            ClassMethodActor nodeMethod = node.method;
+            if (nodeMethod == null) {
+                if (usedNodes.get() >= AsyncCPUSamplingNodes) {
+                    return NO_PARENT;
+                }
+                if (node.claim.compareAndSet(0, 1)) {
+                    usedNodes.getAndAdd(1);
+                    node.parent = parent;
+                    // Publish the node
+                    node.method = method;
+                    return index;
+                }
+                // Another thread is claiming the node
+                do {
+                    nodeMethod = node.method;
+                } while (nodeMethod == null);
+            }
+            if (nodeMethod == method && node.parent == parent) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return NO_PARENT;
+    }
+
+    /**
+     * A node of the inverted call tree.
+     */
+    static final class Node {
+
+        /**
+         * Set once the node is claimed.
+         */
+        final AtomicInteger claim = new AtomicInteger();
+
+        /**
+         * The method of the node, {@code null} if the node is free.
+         */
+        volatile ClassMethodActor method;
+
+        /**
+         * The index of the node of the frame called by {@link #method}, {@link #NO_PARENT} if the frame was sampled.
+         */
+        int parent;
+
+        /**
+         * Number of samples whose outermost recorded frame is this node.
+         */
+        final AtomicInteger samples = new AtomicInteger();
+    }
+
+    /**
+     * Records a sample by walking the stack of a thread that is either the current thread or frozen.
+     * A walker is used by one thread at a time so that sampling does not allocate.
+     */
+    static final class Walker extends RawStackFrameVisitor {
+
+        /**
+         * Set while the walker is in use.
+         */
+        final AtomicInteger busy = new AtomicInteger();
+
+        private final VmStackFrameWalker stackFrameWalker = new VmStackFrameWalker(Pointer.zero());
+
+        private int node;
+
+        private int depth;
+
+        void walk(Pointer tla, Pointer ip, Pointer sp, Pointer fp) {
+            node = NO_PARENT;
+            depth = 0;
+            stackFrameWalker.setTLA(tla);
+            stackFrameWalker.inspect(ip, sp, fp, this);
+            if (node != NO_PARENT) {
+                table[node].samples.getAndAdd(1);
+            }
+        }
+
+        @Override
+        public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
+            final TargetMethod targetMethod = current.targetMethod();
+            if (targetMethod == null || targetMethod.classMethodActor() == null) {
+                // Native frame, stub or adapter
+                return true;
+            }
+            final int caller = nodeFor(node, targetMethod.classMethodActor());
+            if (caller == NO_PARENT) {
+                droppedSamples.incrementAndGet();
+                node = NO_PARENT;
+                return false;
+            }
+            node = caller;
+            depth++;
+            return depth < AsyncCPUSamplingDepth;
+        }
+    }
+
+    /**
+     * Prints the sampled stacks to the {@linkplain Log log stream} in collapsed stack format.
+     * Stacks sampled concurrently may or may not be included.
+     */
+    public static synchronized void dump() {
+        final Node[] nodes = table;
+        if (nodes == null) {
+            return;
+        }
+        Log.print("# Asynchronous CPU sampling profile: ");
+        Log.print(profiler.sampleCount);
+        Log.print(" handshakes, ");
+        Log.print(usedNodes.get());
+        Log.print(" nodes, ");
+        Log.print(droppedSamples.get());
+        Log.println(" dropped samples");
+        for (int i = 0; i < nodes.length; i++) {
+            final int samples = nodes[i].samples.get();
+            if (samples != 0) {
+                for (int n = i; n != NO_PARENT; n = nodes[n].parent) {
+                    if (n != i) {
+                        Log.print(';');
+                    }
+                    Log.print(nodes[n].method.format("%H.%n"));
+                }
+                Log.print(' ');
+                Log.println(samples);
+            }
+        }
+    }
+}
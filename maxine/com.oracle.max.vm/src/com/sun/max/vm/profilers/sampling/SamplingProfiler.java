@@ -339,6 +339,16 @@ public abstract class SamplingProfiler extends Thread {
             super(name, null, Mode.Safepoint);
         }
 
+        @Override
+        protected Priority priority() {
+            return Priority.Low;
+        }
+
+        @Override
+        protected boolean allowsBatching() {
+            return true;
+        }
+
         @Override
         protected abstract boolean operateOnThread(VmThread thread);
 
@@ -51,6 +51,7 @@ import com.sun.max.vm.hosted.*;
 import com.sun.max.vm.instrument.*;
 import com.sun.max.vm.jni.*;
 import com.sun.max.vm.log.*;
+import com.sun.max.vm.monitor.modal.sync.*;
 import com.sun.max.vm.profilers.sampling.*;
 import com.sun.max.vm.run.*;
 import com.sun.max.vm.runtime.*;
@@ -90,6 +91,7 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
     private static List<String> reinitClasses = new LinkedList<String>();
     private static CPUSamplingProfiler cpuSamplingProfiler;
     private static HeapSamplingProfiler heapSamplingProfiler;
+    private static AllocationSampler allocationSampler;
     private static String mainClassName;
 
     @HOSTED_ONLY
@@ -168,6 +170,15 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
         if (heapSamplingProfiler != null) {
             heapSamplingProfiler.terminate();
         }
+        if (allocationSampler != null) {
+            allocationSampler.terminate();
+        }
+        if (MonitorContentionProfiler.isEnabled()) {
+            MonitorContentionProfiler.dump();
+        }
+        if (AsyncCPUSamplingProfiler.isEnabled()) {
+            AsyncCPUSamplingProfiler.terminate();
+        }
     }
 
     public static void restartProfilers() {
@@ -177,6 +188,9 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
         if (heapSamplingProfiler != null) {
             heapSamplingProfiler.restart();
         }
+        if (allocationSampler != null) {
+            allocationSampler.restart();
+        }
     }
 
     @ALIAS(declaringClass = System.class)
@@ -234,6 +248,15 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
                     final String heapProfOptionPrefix = hprofOption.toString();
                     heapSamplingProfiler = new HeapSamplingProfiler(heapProfOptionPrefix, heapProfOptionValue);
                 }
+                if (AllocationSampler.isEnabled()) {
+                    allocationSampler = new AllocationSampler();
+                }
+                if (MonitorContentionProfiler.isEnabled()) {
+                    MonitorContentionProfiler.initialize();
+                }
+                if (AsyncCPUSamplingProfiler.isEnabled()) {
+                    AsyncCPUSamplingProfiler.initialize();
+                }
                 break;
             }
 
@@ -54,6 +54,14 @@ public abstract class GCOperation extends VmOperation {
         return true;
     }
 
+    /**
+     * Garbage collection is run ahead of other pending operations as allocating threads are blocked on it.
+     */
+    @Override
+    protected Priority priority() {
+        return Priority.High;
+    }
+
     /**
      * Stops the current mutator thread for a garbage collection. Just before stopping, the
      * thread prepares its own stack reference map up to the trap frame. The remainder of the
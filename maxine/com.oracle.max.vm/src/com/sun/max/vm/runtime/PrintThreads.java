@@ -30,6 +30,7 @@ import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.monitor.modal.sync.*;
 import com.sun.max.vm.stack.*;
 import com.sun.max.vm.thread.*;
 
@@ -90,5 +91,8 @@ public class PrintThreads extends VmOperation implements SignalHandler {
 
     public void handle(Signal sig) {
         submit();
+        if (MonitorContentionProfiler.isEnabled()) {
+            MonitorContentionProfiler.dump();
+        }
     }
 }
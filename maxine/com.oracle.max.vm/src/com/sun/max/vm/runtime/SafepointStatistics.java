@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.runtime;
+
+import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.code.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.log.VMLog.Record;
+import com.sun.max.vm.log.hosted.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Latency statistics of the {@link VmOperation}s that stop threads, i.e., safepoint and handshake operations.
+ *
+ * For each such operation, the VM operation thread measures:
+ * <ul>
+ * <li>lock: the time to acquire the {@linkplain VmThreadMap#THREAD_LOCK thread lock},</li>
+ * <li>sync: the time from triggering the safepoint of the targeted threads until all of them are frozen
+ *     (or, for a handshake, until all of them have performed it); lock plus sync is the time to safepoint,</li>
+ * <li>vmop: the time spent in {@link VmOperation#doIt()},</li>
+ * <li>the slowest thread, i.e., the thread the VM operation thread waited longest for, and the instruction pointer
+ *     at which it was frozen (zero if it performed a handshake itself). A long sync time caused by a thread frozen
+ *     right after a loop usually points at a loop without safepoint polls.</li>
+ * </ul>
+ * These are printed for every operation with {@link #PrintSafepointStatistics}, along with a summary at VM exit,
+ * and logged with the {@link #logger Safepoint} VM logger, which the Inspector can display.
+ */
+public final class SafepointStatistics {
+
+    /**
+     * Prints the latency statistics of every safepoint operation and a summary at VM exit.
+     */
+    static boolean PrintSafepointStatistics;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "PrintSafepointStatistics", SafepointStatistics.class,
+            "Print the time to safepoint, operation time and slowest thread of every safepoint VM operation, " +
+            "and a summary at VM exit.");
+    }
+
+    public static final SafepointLogger logger = new SafepointLogger();
+
+    /**
+     * Totals over all operations, in nanoseconds. Only updated by the VM operation thread.
+     */
+    private static long count;
+    private static long totalTimeToSafepoint;
+    private static long totalVmop;
+    private static long maxTimeToSafepoint;
+    private static String maxTimeToSafepointOperation;
+
+    private SafepointStatistics() {
+    }
+
+    /**
+     * Determines if the VM operation thread must measure the latency of safepoint operations.
+     */
+    @INLINE
+    static boolean enabled() {
+        return PrintSafepointStatistics || logger.enabled();
+    }
+
+    /**
+     * Records the latency of a safepoint operation. Called on the VM operation thread while the operation's threads
+     * may still be frozen, so this must not allocate.
+     */
+    static void record(VmOperation operation, int threads, long lock, long sync, long vmop,
+                    VmThread slowestThread, long slowestWait, Pointer slowestIP) {
+        final long timeToSafepoint = lock + sync;
+        count++;
+        totalTimeToSafepoint += timeToSafepoint;
+        totalVmop += vmop;
+        if (timeToSafepoint > maxTimeToSafepoint) {
+            maxTimeToSafepoint = timeToSafepoint;
+            maxTimeToSafepointOperation = operation.name;
+        }
+        if (logger.enabled()) {
+            logger.logSafepoint(operation, threads, lock, sync, vmop, slowestThread, slowestWait, slowestIP);
+        }
+        if (PrintSafepointStatistics) {
+            print(operation.name, threads, lock, sync, vmop, slowestThread, slowestWait, slowestIP);
+        }
+    }
+
+    private static void print(String name, int threads, long lock, long sync, long vmop,
+                    VmThread slowestThread, long slowestWait, Pointer slowestIP) {
+        final boolean lockDisabledSafepoints = Log.lock();
+        Log.print("Safepoint[");
+        Log.print(name);
+        Log.print("]: threads=");
+        Log.print(threads);
+        Log.print(" lock=");
+        Log.print(lock / 1000L);
+        Log.print("us sync=");
+        Log.print(sync / 1000L);
+        Log.print("us vmop=");
+        Log.print(vmop / 1000L);
+        Log.print("us");
+        if (slowestThread != null) {
+            Log.print(" slowest=");
+            Log.printThread(slowestThread, false);
+            Log.print(" (");
+            Log.print(slowestWait / 1000L);
+            Log.print("us");
+            if (!slowestIP.isZero()) {
+                Log.print(" at ");
+                Log.print(slowestIP);
+                final TargetMethod targetMethod = Code.codePointerToTargetMethod(slowestIP);
+                if (targetMethod != null) {
+                    Log.print(" in ");
+                    Log.printMethod(targetMethod, false);
+                }
+            }
+            Log.print(")");
+        }
+        Log.println();
+        Log.unlock(lockDisabledSafepoints);
+    }
+
+    /**
+     * Prints the totals over all safepoint operations if {@link #PrintSafepointStatistics} is enabled.
+     */
+    public static void printSummary() {
+        if (!PrintSafepointStatistics || count == 0) {
+            return;
+        }
+        final boolean lockDisabledSafepoints = Log.lock();
+        Log.print("Safepoint statistics: operations=");
+        Log.print(count);
+        Log.print(" total time to safepoint=");
+        Log.print(totalTimeToSafepoint / 1000L);
+        Log.print("us average=");
+        Log.print(totalTimeToSafepoint / count / 1000L);
+        Log.print("us max=");
+        Log.print(maxTimeToSafepoint / 1000L);
+        Log.print("us (");
+        Log.print(maxTimeToSafepointOperation);
+        Log.print(") total vmop=");
+        Log.print(totalVmop / 1000L);
+        Log.println("us");
+        Log.unlock(lockDisabledSafepoints);
+    }
+
+    @HOSTED_ONLY
+    @VMLoggerInterface
+    private interface SafepointLoggerInterface {
+        void safepoint(
+            @VMLogParam(name = "operation") VmOperation operation,
+            @VMLogParam(name = "threads") int threads,
+            @VMLogParam(name = "lock") long lock,
+            @VMLogParam(name = "sync") long sync,
+            @VMLogParam(name = "vmop") long vmop,
+            @VMLogParam(name = "slowestThread") VmThread slowestThread,
+            @VMLogParam(name = "slowestWait") long slowestWait,
+            @VMLogParam(name = "slowestIP") Pointer slowestIP);
+    }
+
+    public static final class SafepointLogger extends SafepointLoggerAuto {
+        SafepointLogger() {
+            super("Safepoint", "latency of safepoint VM operations.");
+        }
+
+        @Override
+        protected void traceSafepoint(VmOperation operation, int threads, long lock, long sync, long vmop,
+                        VmThread slowestThread, long slowestWait, Pointer slowestIP) {
+            print(operation.name, threads, lock, sync, vmop, slowestThread, slowestWait, slowestIP);
+        }
+    }
+
+// START GENERATED CODE
+    private static abstract class SafepointLoggerAuto extends com.sun.max.vm.log.VMLogger {
+        public enum Operation {
+            Safepoint;
+
+            @SuppressWarnings("hiding")
+            public static final Operation[] VALUES = values();
+        }
+
+        private static final int[] REFMAPS = new int[] {0x1};
+
+        protected SafepointLoggerAuto(String name, String optionDescription) {
+            super(name, Operation.VALUES.length, optionDescription, REFMAPS);
+        }
+
+        @Override
+        public String operationName(int opCode) {
+            return Operation.VALUES[opCode].name();
+        }
+
+        @INLINE
+        public final void logSafepoint(VmOperation operation, int threads, long lock, long sync, long vmop, VmThread slowestThread, long slowestWait, Pointer slowestIP) {
+            log(Operation.Safepoint.ordinal(), objectArg(operation), intArg(threads), longArg(lock), longArg(sync), longArg(vmop), vmThreadArg(slowestThread), longArg(slowestWait), slowestIP);
+        }
+        protected abstract void traceSafepoint(VmOperation operation, int threads, long lock, long sync, long vmop, VmThread slowestThread, long slowestWait, Pointer slowestIP);
+
+        @Override
+        protected void trace(Record r) {
+            switch (r.getOperation()) {
+                case 0: { //Safepoint
+                    traceSafepoint(toVmOperation(r, 1), toInt(r, 2), toLong(r, 3), toLong(r, 4), toLong(r, 5), toVmThread(r, 6), toLong(r, 7), toPointer(r, 8));
+                    break;
+                }
+            }
+        }
+        static VmOperation toVmOperation(Record r, int argNum) {
+            if (MaxineVM.isHosted()) {
+                return (VmOperation) ObjectArg.getArg(r, argNum);
+            } else {
+                return asVmOperation(toObject(r, argNum));
+            }
+        }
+        @INTRINSIC(UNSAFE_CAST)
+        private static native VmOperation asVmOperation(Object arg);
+    }
+
+// END GENERATED CODE
+}
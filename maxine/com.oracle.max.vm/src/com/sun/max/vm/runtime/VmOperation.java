@@ -102,6 +102,11 @@ import com.sun.max.vm.thread.*;
  * except that {@link VmOperation}s can freeze a partial set of the running threads as Maxine implements
  * per-thread safepoints (HotSpot doesn't).</li>
  * <p>
+ * An operation in {@link Mode#Handshake} mode does not freeze its targeted threads together. Instead, each
+ * targeted thread executing Java code performs the operation's {@link #doThread} on itself at its next safepoint
+ * and continues right away, without waiting for the other threads or blocking on the thread lock. For a targeted
+ * thread in native code, the VM operation thread freezes it and performs {@link #doThread} on its behalf.
+ * <p>
  *
  * Implementation note:
  * It is simplest for a mutator thread to be blocked this way. Only under this condition can the
@@ -164,6 +169,13 @@ public class VmOperation {
      */
     VmOperation enclosing;
 
+    /**
+     * Link to next operation in the batch (if any) this operation is run in.
+     *
+     * @see #allowsBatching()
+     */
+    VmOperation nextInBatch;
+
     /**
      * The {@link Mode} of this operation.
      */
@@ -207,7 +219,15 @@ public class VmOperation {
          * and that the thread {@linkplain VmOperation#submit() submitting} the operation is
          * not blocked until the operation completes.
          */
-        AsyncSafepoint;
+        AsyncSafepoint,
+
+        /**
+         * Denotes that an operation is {@linkplain VmOperation#doThread performed} on each targeted thread at its next
+         * safepoint, by the thread itself, without synchronizing the targeted threads with each other.
+         * The thread {@linkplain VmOperation#submit() submitting} the operation is blocked until the operation
+         * completes on all targeted threads.
+         */
+        Handshake;
 
         /**
          * Determines if this mode denotes that an operation requires its targeted threads to be synchronized at a safepoint.
@@ -221,10 +241,33 @@ public class VmOperation {
          * blocked until the operation completes.
          */
         public boolean isBlocking() {
-            return this == Safepoint;
+            return this == Safepoint || this == Handshake;
         }
     }
 
+    /**
+     * Constants denoting the order in which pending operations are run by the {@link VmOperationThread}.
+     * Pending operations are run in order of decreasing priority and in submission order for operations
+     * with the same priority.
+     */
+    public enum Priority {
+        /**
+         * Denotes an operation that can be delayed by any other operation, e.g. a sampling profiler operation.
+         */
+        Low,
+
+        /**
+         * The priority of most operations.
+         */
+        Normal,
+
+        /**
+         * Denotes an operation that should run before any other pending operation, e.g. a garbage collection
+         * on which allocating threads are blocked.
+         */
+        High
+    }
+
     /**
      * Gets the thread that {@linkplain VmOperationThread#submit(VmOperation) submitted} this
      * operation for execution.
@@ -256,6 +299,32 @@ public class VmOperation {
         return false;
     }
 
+    /**
+     * Gets the priority of this operation with respect to other pending operations.
+     */
+    protected Priority priority() {
+        return Priority.Normal;
+    }
+
+    /**
+     * Determines if this operation can be run in the same safepoint as other pending operations that allow batching.
+     * Such an operation is run as a nested operation of the batch and so only the batch freezes and thaws threads.
+     * This implies that an operation allowing batching must not rely on {@link #doAtSafepointBeforeBlocking(Pointer)},
+     * {@link #doAtSafepointAfterBlocking(Pointer)}, {@link #doAfterFrozen(VmThread)} or
+     * {@link #doBeforeThawingThread(VmThread)} being called.
+     */
+    protected boolean allowsBatching() {
+        return false;
+    }
+
+    /**
+     * Determines if this operation can be {@linkplain #allowsBatching() batched} with other pending operations.
+     * Only blocking operations on all threads that do not disable heap allocation are batched.
+     */
+    final boolean isBatchable() {
+        return mode == Mode.Safepoint && singleThread == null && !disablesHeapAllocation() && allowsBatching();
+    }
+
     /**
      * Called by the {@linkplain Trap trap} handler on a thread that hit a safepoint.
      * This is always called with safepoints {@linkplain SafepointPoll#disable() disabled}
@@ -270,6 +339,11 @@ public class VmOperation {
             FatalError.unexpected("Freezing thread trapped while in native code");
         }
 
+        if (isHandshake()) {
+            doHandshakeAtSafepoint(trapFrame);
+            return;
+        }
+
         // This thread must only transition to native code as a result of
         // the synchronization below.
         // Such a transition will be interpreted by the VM operation thread to
@@ -297,6 +371,28 @@ public class VmOperation {
         }
     }
 
+    /**
+     * Performs a {@linkplain Mode#Handshake handshake} on the current thread, which just hit a safepoint.
+     * The thread cannot call native code meanwhile, so that the VM operation thread, which considers a thread in
+     * native code to be the one performing the handshake on its behalf, never performs it a second time.
+     *
+     * @param trapFrame a pointer to the trap frame
+     */
+    private void doHandshakeAtSafepoint(Pointer trapFrame) {
+        final TrapFrameAccess tfa = MaxineVM.vm().trapFrameAccess;
+        Snippets.disableNativeCallsForCurrentThread();
+        try {
+            doThread(VmThread.current(), tfa.getPC(trapFrame), tfa.getSP(trapFrame), tfa.getFP(trapFrame));
+        } finally {
+            Snippets.enableNativeCallsForCurrentThread();
+        }
+
+        final Pointer etla = ETLA.load(VmThread.currentTLA());
+        SAFEPOINT_LATCH.store(etla, etla);
+        // This must be last as it signals the completion of the handshake to the VM operation thread
+        VM_OPERATION.store(etla, Reference.zero());
+    }
+
     /**
      * Called on the current thread (which just hit a safepoint) before it is frozen.
      *
@@ -446,6 +542,10 @@ public class VmOperation {
      * time it was frozen. If the thread was frozen in native code, the Java method
      * indicated will be the JNI stub for the native call.
      *
+     * For a {@linkplain Mode#Handshake handshake}, this method is called on {@code vmThread} itself if it hit a
+     * safepoint, with {@code ip}, {@code sp} and {@code fp} denoting the trapped method. It must then neither call
+     * native code nor allocate.
+     *
      * The definition of this method in {@link VmOperation} simply returns.
      *
      * @param vmThread the thread on which the operation is to be performed
@@ -476,6 +576,24 @@ public class VmOperation {
      */
     private static boolean atSafepoint;
 
+    /**
+     * Denotes whether the latency of the current execution of this operation is measured for the {@link SafepointStatistics}.
+     */
+    private boolean collectStatistics;
+
+    /**
+     * The number of threads frozen or handshaken by the current execution of this operation.
+     */
+    private int statisticsThreads;
+
+    /**
+     * The thread the VM operation thread waited longest for in the current execution of this operation,
+     * how long it waited and where the thread was frozen.
+     */
+    private VmThread slowestThread;
+    private long slowestWait;
+    private Pointer slowestIP;
+
     /**
      * Creates a VM operation.
      *
@@ -531,6 +649,14 @@ public class VmOperation {
         return singleThread == null && mode.requiresSafepoint();
     }
 
+    /**
+     * Determines if this operation is performed as a {@linkplain Mode#Handshake handshake}.
+     * Handshakes rely on CAS based thread freezing. Otherwise, they are performed like a blocking safepoint operation.
+     */
+    private boolean isHandshake() {
+        return mode == Mode.Handshake && UseCASBasedThreadFreezing;
+    }
+
     /**
      * Called on the VM operation thread to perform this operation. This method does all the necessary
      * thread freezing and thawing around a call to {@link #doIt()}.
@@ -539,9 +665,43 @@ public class VmOperation {
         assert VmThread.current().isVmOperationThread();
         assert singleThread == null || !singleThread.isVmOperationThread();
 
-        if (mode.requiresSafepoint()) {
+        final boolean statistics = (isHandshake() || mode.requiresSafepoint()) && SafepointStatistics.enabled();
+        final long start = statistics ? System.nanoTime() : 0L;
+        resetStatistics(statistics);
+
+        if (isHandshake()) {
+            synchronized (VmThreadMap.THREAD_LOCK) {
+                final long locked = statistics ? System.nanoTime() : 0L;
+                if (singleThread != null && singleThread.tla().isZero()) {
+                    tracePhase("Aborting handshake with single, non-running thread");
+                    return;
+                }
+
+                tracePhase("-- Begin handshake --");
+
+                freeze();
+
+                // Ensures updates to safepoint-related control variables are visible to all threads
+                // before the VM operation thread reads them
+                MemoryBarriers.barrier(MemoryBarriers.STORE_LOAD);
+
+                tracePhase("Waiting for thread(s) to complete handshake");
+                if (singleThread == null) {
+                    VmThreadMap.ACTIVE.forAllThreadLocals(threadPredicate, completeHandshakeProcedure);
+                } else {
+                    completeHandshake(singleThread);
+                }
+
+                if (statistics) {
+                    SafepointStatistics.record(this, statisticsThreads, locked - start, System.nanoTime() - locked, 0L, slowestThread, slowestWait, slowestIP);
+                }
+
+                tracePhase("-- End handshake --");
+            }
+        } else if (mode.requiresSafepoint() || mode == Mode.Handshake) {
             Throwable error = null;
             synchronized (VmThreadMap.THREAD_LOCK) {
+                final long locked = statistics ? System.nanoTime() : 0L;
 
                 if (singleThread != null && singleThread.tla().isZero()) {
                     // The thread is not yet on the global thread list or has terminated.
@@ -560,6 +720,7 @@ public class VmOperation {
 
                 waitUntilFrozen();
 
+                final long frozen = statistics ? System.nanoTime() : 0L;
                 boolean oldAtSafepoint = atSafepoint;
                 try {
                     if (singleThread == null) {
@@ -580,9 +741,14 @@ public class VmOperation {
                     error = t;
                 }
                 atSafepoint = oldAtSafepoint;
+                final long done = statistics ? System.nanoTime() : 0L;
 
                 thaw();
 
+                if (statistics) {
+                    SafepointStatistics.record(this, statisticsThreads, locked - start, frozen - locked, done - frozen, slowestThread, slowestWait, slowestIP);
+                }
+
                 tracePhase("-- End --");
             }
 
@@ -600,6 +766,43 @@ public class VmOperation {
         }
     }
 
+    private void resetStatistics(boolean statistics) {
+        collectStatistics = statistics;
+        statisticsThreads = 0;
+        slowestThread = null;
+        slowestWait = 0L;
+        slowestIP = Pointer.zero();
+    }
+
+    /**
+     * Records how long the VM operation thread waited for a given thread to freeze or to perform a handshake.
+     *
+     * @param ip the instruction pointer at which the thread was frozen, zero if unknown
+     */
+    private void recordThreadWait(VmThread thread, long wait, Pointer ip) {
+        statisticsThreads++;
+        if (slowestThread == null || wait > slowestWait) {
+            slowestThread = thread;
+            slowestWait = wait;
+            slowestIP = ip;
+        }
+    }
+
+    /**
+     * Gets the instruction pointer at which a frozen thread was stopped: the safepoint it trapped at or the
+     * last Java frame before native code.
+     */
+    private static Pointer frozenInstructionPointer(Pointer tla) {
+        final Pointer ip = TRAP_INSTRUCTION_POINTER.load(tla);
+        if (ip.isZero()) {
+            final Pointer frameAnchor = JavaFrameAnchor.from(tla);
+            if (!frameAnchor.isZero()) {
+                return JavaFrameAnchor.PC.get(frameAnchor);
+            }
+        }
+        return ip;
+    }
+
     private void run0() {
         tracePhase("Running operation");
         doIt();
@@ -704,6 +907,71 @@ public class VmOperation {
         }
     };
 
+    private final Pointer.Procedure completeHandshakeProcedure = new Pointer.Procedure() {
+        @Override
+        public void run(Pointer tla) {
+            completeHandshake(VmThread.fromTLA(tla));
+        }
+    };
+
+    /**
+     * Blocks the current thread (i.e. the VM operation thread) until a given thread has performed the handshake,
+     * or performs the handshake on behalf of the thread if it is in native code.
+     *
+     * @param thread a thread for which the handshake has been triggered
+     */
+    private void completeHandshake(VmThread thread) {
+        final Pointer tla = thread.tla();
+        if (frozenByEnclosing(thread)) {
+            callDoThread(tla);
+            return;
+        }
+        final Pointer etla = ETLA.load(tla);
+        final Reference operation = Reference.fromJava(this);
+        final long waitStart = collectStatistics ? System.nanoTime() : 0L;
+        int steps = 0;
+        while (VM_OPERATION.loadRef(etla).equals(operation)) {
+            if (MUTATOR_STATE.load(etla).equals(THREAD_IN_NATIVE) &&
+                etla.compareAndSwapWord(MUTATOR_STATE.offset, THREAD_IN_NATIVE, THREAD_IS_FROZEN).equals(THREAD_IN_NATIVE)) {
+                if (VM_OPERATION.loadRef(etla).equals(operation)) {
+                    // The thread is frozen in native code
+                    if (collectStatistics) {
+                        recordThreadWait(thread, System.nanoTime() - waitStart, frozenInstructionPointer(tla));
+                    }
+                    callDoThread(tla);
+                    thawThread(thread);
+                    traceHandshake(thread, " in native code");
+                } else {
+                    // The thread performed the handshake before entering native code
+                    MUTATOR_STATE.store(etla, THREAD_IN_NATIVE);
+                    if (collectStatistics) {
+                        recordThreadWait(thread, System.nanoTime() - waitStart, Pointer.zero());
+                    }
+                    traceHandshake(thread, " at safepoint");
+                }
+                return;
+            }
+            waitForThreadFreezePause(thread, steps);
+            steps++;
+        }
+        if (collectStatistics) {
+            recordThreadWait(thread, System.nanoTime() - waitStart, Pointer.zero());
+        }
+        traceHandshake(thread, " at safepoint");
+    }
+
+    private void traceHandshake(VmThread thread, String where) {
+        if (TraceVmOperations) {
+            boolean lockDisabledSafepoints = Log.lock();
+            Log.print("VmOperation[");
+            Log.print(name);
+            Log.print("]: Handshake with ");
+            Log.printThread(thread, false);
+            Log.println(where);
+            Log.unlock(lockDisabledSafepoints);
+        }
+    }
+
     /**
      * Called by {@link #waitForThreadFreeze(VmThread)}. Subclasses can use this to perform extra actions
      * on a thread once it is frozen.
@@ -715,11 +983,17 @@ public class VmOperation {
 
     /**
      * Determines if this is a nested operation whose enclosing operation already froze a given thread.
+     * All enclosing operations are searched since an operation run in a {@linkplain #allowsBatching() batch}
+     * may itself submit a nested operation.
      *
      * @param thread a thread to test
      */
     private boolean frozenByEnclosing(VmThread thread) {
-        if (enclosing != null && enclosing.operateOnThread(thread)) {
+        VmOperation outer = enclosing;
+        while (outer != null && !outer.operateOnThread(thread)) {
+            outer = outer.enclosing;
+        }
+        if (outer != null) {
             Pointer etla = ETLA.load(thread.tla());
             // This is a nested operation that operates on 'thread' -> the enclosing operation must have 'thread'
             if (UseCASBasedThreadFreezing) {
@@ -765,6 +1039,7 @@ public class VmOperation {
     final void waitForThreadFreeze(VmThread thread) {
         Pointer tla = thread.tla();
         final Pointer etla = ETLA.load(tla);
+        final long waitStart = collectStatistics ? System.nanoTime() : 0L;
 
         int steps = 0;
         if (!frozenByEnclosing(thread)) {
@@ -793,6 +1068,10 @@ public class VmOperation {
             }
         }
 
+        if (collectStatistics) {
+            recordThreadWait(thread, System.nanoTime() - waitStart, frozenInstructionPointer(tla));
+        }
+
         doAfterFrozen(thread);
 
         if (TraceVmOperations) {
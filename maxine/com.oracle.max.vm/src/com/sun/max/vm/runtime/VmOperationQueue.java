@@ -24,6 +24,7 @@ package com.sun.max.vm.runtime;
 
 /**
  * Queue used by the {@link VmOperationThread} to process {@linkplain VmOperationThread#submit(VmOperation) submitted} operations.
+ * Operations are {@linkplain #add(VmOperation) added} in order of decreasing {@linkplain VmOperation#priority() priority}.
  */
 public class VmOperationQueue {
     private int length;
@@ -81,8 +82,17 @@ public class VmOperationQueue {
         return length == 0;
     }
 
+    /**
+     * Adds an operation behind all queued operations whose priority is not lower than that of {@code node}.
+     */
     public void add(VmOperation node) {
-        addLast(node);
+        final VmOperation.Priority priority = node.priority();
+        VmOperation queue = head.previous;
+        while (queue != head && queue.priority().ordinal() < priority.ordinal()) {
+            queue = queue.previous;
+        }
+        length++;
+        insert(queue, node);
     }
 
     /**
@@ -98,4 +108,19 @@ public class VmOperationQueue {
         length--;
         return node;
     }
+
+    /**
+     * Retrieves and removes the first operation in this queue that can be {@linkplain VmOperation#isBatchable() batched},
+     * or returns {@code null} if there is no such operation.
+     */
+    public VmOperation pollBatchable() {
+        for (VmOperation node = head.next; node != head; node = node.next) {
+            if (node.isBatchable()) {
+                unlink(node);
+                length--;
+                return node;
+            }
+        }
+        return null;
+    }
 }
@@ -53,6 +53,11 @@ public class VmOperationThread extends Thread implements UncaughtExceptionHandle
 
     private final VmOperationQueue queue;
 
+    /**
+     * The operation used to run several pending operations in a single safepoint.
+     */
+    private final Batch batch;
+
     private boolean shouldTerminate;
 
     private boolean terminated;
@@ -73,6 +78,7 @@ public class VmOperationThread extends Thread implements UncaughtExceptionHandle
     public VmOperationThread(ThreadGroup group) {
         super(group, "VmOperationThread");
         queue = new VmOperationQueue();
+        batch = new Batch();
         setDaemon(true);
         setUncaughtExceptionHandler(this);
     }
@@ -107,6 +113,119 @@ public class VmOperationThread extends Thread implements UncaughtExceptionHandle
 
     private VmOperation currentOperation;
 
+    /**
+     * An operation that runs a number of pending operations that {@linkplain VmOperation#allowsBatching() allow batching}
+     * in a single safepoint. Each operation in the batch is run as a nested operation of the batch.
+     */
+    public static final class Batch extends VmOperation {
+
+        private VmOperation first;
+        private VmOperation last;
+
+        public Batch() {
+            super("Batch", null, Mode.Safepoint);
+        }
+
+        /**
+         * Removes all pending operations that can be run in the same safepoint as {@code operation} from a given queue.
+         * Must only be called while holding {@link VmOperationThread#QUEUE_LOCK} if {@code queue} is the queue of the
+         * VM operation thread.
+         *
+         * @param operation an operation that can be {@linkplain VmOperation#isBatchable() batched}
+         * @param queue the queue of pending operations
+         * @return this batch if any pending operation was batched with {@code operation}, {@code operation} otherwise
+         */
+        public VmOperation fill(VmOperation operation, VmOperationQueue queue) {
+            FatalError.check(first == null, "Filling VM operation batch that is not empty");
+            VmOperation other = queue.pollBatchable();
+            if (other == null) {
+                return operation;
+            }
+            setCallingThread(operation.callingThread());
+            add(operation);
+            do {
+                add(other);
+                other = queue.pollBatchable();
+            } while (other != null);
+            return this;
+        }
+
+        private void add(VmOperation operation) {
+            FatalError.check(operation.nextInBatch == null && operation != last, "Adding VM operation to batch twice");
+            if (first == null) {
+                first = operation;
+            } else {
+                last.nextInBatch = operation;
+            }
+            last = operation;
+        }
+
+        /**
+         * Retrieves and removes the first operation in this batch, or returns {@code null} if it's empty.
+         */
+        public VmOperation poll() {
+            final VmOperation operation = first;
+            if (operation != null) {
+                first = operation.nextInBatch;
+                operation.nextInBatch = null;
+                if (first == null) {
+                    last = null;
+                }
+            }
+            return operation;
+        }
+
+        @Override
+        protected boolean operateOnThread(VmThread thread) {
+            for (VmOperation operation = first; operation != null; operation = operation.nextInBatch) {
+                if (operation.operateOnThread(thread)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        protected void doIt() {
+            final VmOperationThread vmOperationThread = instance();
+            for (VmOperation operation = first; operation != null; operation = operation.nextInBatch) {
+                if (TraceVmOperations) {
+                    boolean lockDisabledSafepoints = Log.lock();
+                    Log.print("VM operation thread about to run batched operation ");
+                    Log.print(operation.name);
+                    Log.print(" submitted by ");
+                    Log.printThread(operation.callingThread(), true);
+                    Log.unlock(lockDisabledSafepoints);
+                }
+                operation.enclosing = this;
+                vmOperationThread.currentOperation = operation;
+                try {
+                    operation.run();
+                } finally {
+                    vmOperationThread.currentOperation = this;
+                    operation.enclosing = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the thread blocked on the completion of a given operation. Must only be called while holding
+     * {@link #REQUEST_LOCK}.
+     */
+    private static void operationCompleted(VmOperation operation) {
+        operation.callingThread().decrementPendingOperations();
+        if (TraceVmOperations || TraceRequestLock) {
+            boolean lockDisabledSafepoints = Log.lock();
+            Log.print("VM operation thread finished operation ");
+            Log.print(operation.name);
+            Log.print(" submitted by ");
+            Log.printThread(operation.callingThread(), false);
+            Log.println(" and is notifying REQUEST_LOCK waiters");
+            Log.unlock(lockDisabledSafepoints);
+        }
+    }
+
     public void promoteToGlobalSafepoint() {
         if (VmThread.current().isVmOperationThread()) {
             if (currentOperation != null && currentOperation.requiresGlobalSafepoint()) {
@@ -153,6 +272,10 @@ public class VmOperationThread extends Thread implements UncaughtExceptionHandle
                 if (shouldTerminate) {
                     break;
                 }
+
+                if (currentOperation.isBatchable()) {
+                    currentOperation = batch.fill(currentOperation, queue);
+                }
             }
 
             if (TraceVmOperations) {
@@ -177,15 +300,12 @@ public class VmOperationThread extends Thread implements UncaughtExceptionHandle
 
                 if (currentOperation.mode.isBlocking()) {
                     synchronized (REQUEST_LOCK) {
-                        currentOperation.callingThread().decrementPendingOperations();
-                        if (TraceVmOperations || TraceRequestLock) {
-                            boolean lockDisabledSafepoints = Log.lock();
-                            Log.print("VM operation thread finished operation ");
-                            Log.print(currentOperation.name);
-                            Log.print(" submitted by ");
-                            Log.printThread(currentOperation.callingThread(), false);
-                            Log.println(" and is notifying REQUEST_LOCK waiters");
-                            Log.unlock(lockDisabledSafepoints);
+                        if (currentOperation == batch) {
+                            for (VmOperation operation = batch.poll(); operation != null; operation = batch.poll()) {
+                                operationCompleted(operation);
+                            }
+                        } else {
+                            operationCompleted(currentOperation);
                         }
                         REQUEST_LOCK.notifyAll();
                     }
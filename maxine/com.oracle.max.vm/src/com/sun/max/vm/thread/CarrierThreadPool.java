@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.max.vm.thread;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.sun.max.vm.*;
+
+/**
+ * Experimental pool of carrier threads on which lightweight tasks are run, for studying thread-per-request server
+ * workloads with a number of native threads that does not grow with the number of requests.
+ *
+ * A task {@linkplain #execute(Runnable) submitted} to a pool is queued until one of the carrier threads of the pool
+ * takes it and runs it to completion. Carriers are started on demand, up to the parallelism of the pool, and wait for
+ * further tasks once the queue is empty. The {@linkplain #pool() default pool} has {@link #LightweightCarrierThreads}
+ * carriers.
+ *
+ * Tasks are not continuations: a task that blocks keeps its carrier and the native stack of the carrier until it
+ * resumes, as there is no mechanism to capture the frames of a task and move them to another thread. A task sees its
+ * carrier as the {@linkplain Thread#currentThread() current thread}. An exception thrown by a task is passed to the
+ * uncaught exception handler of its carrier, which then takes the next task.
+ */
+public final class CarrierThreadPool implements Executor {
+
+    /**
+     * Number of carrier threads of the default pool, 0 to use the number of available processors.
+     */
+    static int LightweightCarrierThreads;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "LightweightCarrierThreads", CarrierThreadPool.class,
+            "Number of carrier threads running lightweight tasks, 0 to use the number of available processors.");
+    }
+
+    private static CarrierThreadPool pool;
+
+    /**
+     * Gets the default pool, creating it on first use.
+     */
+    public static synchronized CarrierThreadPool pool() {
+        if (pool == null) {
+            pool = new CarrierThreadPool("LightweightCarrier", LightweightCarrierThreads > 0 ? LightweightCarrierThreads : Runtime.getRuntime().availableProcessors());
+        }
+        return pool;
+    }
+
+    /**
+     * Determines if the current thread is a carrier thread of some pool.
+     */
+    public static boolean isCarrierThread() {
+        return Thread.currentThread() instanceof Carrier;
+    }
+
+    private final String name;
+
+    /**
+     * The carriers started so far, guarded by {@code this}. At most {@link #parallelism} carriers are started.
+     */
+    private final List<Carrier> carriers = new ArrayList<Carrier>();
+
+    private final int parallelism;
+
+    /**
+     * The tasks waiting for a carrier, guarded by {@code this}.
+     */
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<Runnable>();
+
+    /**
+     * Number of carriers waiting for a task, guarded by {@code this}.
+     */
+    private int idleCarriers;
+
+    private boolean shutdown;
+
+    /**
+     * Creates a pool.
+     *
+     * @param name prefix of the names of the carrier threads
+     * @param parallelism maximum number of carrier threads
+     */
+    public CarrierThreadPool(String name, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.name = name;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Submits a task to be run on a carrier thread of this pool.
+     *
+     * @throws RejectedExecutionException if this pool was {@linkplain #shutdown() shut down}
+     */
+    public synchronized void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            throw new RejectedExecutionException("carrier thread pool " + name + " is shut down");
+        }
+        queue.add(task);
+        if (idleCarriers > 0) {
+            notify();
+        } else if (carriers.size() < parallelism) {
+            final Carrier carrier = new Carrier(name + "-" + carriers.size());
+            carriers.add(carrier);
+            carrier.start();
+        }
+    }
+
+    /**
+     * Gets the number of carrier threads started by this pool.
+     */
+    public synchronized int carrierCount() {
+        return carriers.size();
+    }
+
+    /**
+     * Stops accepting tasks. The carriers exit once all tasks submitted before are run.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits for the carriers of this pool to exit after it was {@linkplain #shutdown() shut down}.
+     */
+    public void awaitTermination() throws InterruptedException {
+        final Carrier[] started;
+        synchronized (this) {
+            started = carriers.toArray(new Carrier[carriers.size()]);
+        }
+        for (Carrier carrier : started) {
+            carrier.join();
+        }
+    }
+
+    /**
+     * Takes the next task, waiting for one if the queue is empty.
+     *
+     * @return the next task, or {@code null} if this pool was shut down and all tasks were taken
+     */
+    private synchronized Runnable take() {
+        Runnable task;
+        while ((task = queue.poll()) == null && !shutdown) {
+            idleCarriers++;
+            try {
+                wait();
+            } catch (InterruptedException e) {
+            } finally {
+                idleCarriers--;
+            }
+        }
+        return task;
+    }
+
+    /**
+     * A thread running the tasks of a pool.
+     */
+    final class Carrier extends Thread {
+
+        Carrier(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            while ((task = take()) != null) {
+                try {
+                    task.run();
+                } catch (Throwable throwable) {
+                    getUncaughtExceptionHandler().uncaughtException(this, throwable);
+                }
+            }
+        }
+    }
+}
@@ -54,6 +54,7 @@ import com.sun.max.vm.jni.*;
 import com.sun.max.vm.log.*;
 import com.sun.max.vm.monitor.modal.sync.*;
 import com.sun.max.vm.object.*;
+import com.sun.max.vm.profilers.sampling.*;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.stack.*;
@@ -276,6 +277,9 @@ public class VmThread {
     @CONSTANT_WHEN_NOT_ZERO
     private VmStackFrameWalker samplingProfilerStackFrameWalker;
 
+    @CONSTANT_WHEN_NOT_ZERO
+    private MonitorContentionProfiler.StackRecorder monitorContentionStackRecorder;
+
     private final StackReferenceMapPreparer stackReferenceMapPreparer = new StackReferenceMapPreparer(true, true);
 
     private final StackReferenceMapPreparer stackReferenceMapVerifier = new StackReferenceMapPreparer(true, false);
@@ -284,6 +288,17 @@ public class VmThread {
 
     public JavaMonitor protectedMonitor;
 
+    /**
+     * The head of this thread's cache of unbound monitors, linked via their next field.
+     * Managed by {@link JavaMonitorManager}.
+     */
+    public JavaMonitor monitorCache;
+
+    /**
+     * The number of monitors in {@link #monitorCache}.
+     */
+    public int monitorCacheSize;
+
     private ConditionVariable waitingCondition = ConditionVariableFactory.create();
 
     public final HeapScheme.GCRequest gcRequest = VMConfiguration.vmConfig().heapScheme().createThreadLocalGCRequest(this);
@@ -426,6 +441,12 @@ public class VmThread {
      */
     private JniHandles jniHandles;
 
+    /**
+     * This thread's caches of free global and weak global JNI handles. Managed by {@link JniHandleTable}.
+     */
+    public JniHandleTable.ThreadCache globalJniHandleCache;
+    public JniHandleTable.ThreadCache weakGlobalJniHandleCache;
+
     /**
      * Next thread waiting on the same monitor this thread is {@linkplain Object#wait() waiting} on.
      * Any thread can only be waiting on at most one monitor.
@@ -678,6 +699,10 @@ public class VmThread {
 
         }
 
+        // Done once the heap is initialized so that the allocation slow path never allocates the buffer
+        AllocationSampler.createSampleBuffer(thread);
+        thread.initializeMonitorContentionStackRecorder();
+
         try {
             executeRunnable(thread);
         } catch (Throwable throwable) {
@@ -756,6 +781,9 @@ public class VmThread {
 
             thread.initializationComplete();
 
+            AllocationSampler.createSampleBuffer(thread);
+            thread.initializeMonitorContentionStackRecorder();
+
             thread.traceThreadAfterInitialization(stackBase, stackEnd);
             return JniFunctions.JNI_OK;
 
@@ -812,6 +840,10 @@ public class VmThread {
 
         thread.traceThreadAfterTermination();
 
+        // Give the unbound monitors cached by this thread back to other threads.
+        JavaMonitorManager.releaseThreadCache(thread);
+        JniHandles.releaseThreadCaches(thread);
+
         // GC may now reclaim or prepare any of its resources before the thread vanishes forever.
         vmConfig().heapScheme().notifyCurrentThreadDetach();
 
@@ -1044,6 +1076,25 @@ public class VmThread {
         return samplingProfilerStackFrameWalker;
     }
 
+    /**
+     * Allocates the stack recorder of this thread if {@linkplain MonitorContentionProfiler monitor contention
+     * profiling} is enabled. This must be called on the thread itself once heap allocation is available, so that
+     * acquiring a contended monitor never allocates.
+     */
+    public final void initializeMonitorContentionStackRecorder() {
+        if (MonitorContentionProfiler.isEnabled() && monitorContentionStackRecorder == null) {
+            monitorContentionStackRecorder = new MonitorContentionProfiler.StackRecorder();
+        }
+    }
+
+    /**
+     * Gets the preallocated, thread local object used to record the stack of this thread when it contends for an
+     * inflated monitor, or {@code null} if this thread has none.
+     */
+    public final MonitorContentionProfiler.StackRecorder monitorContentionStackRecorder() {
+        return monitorContentionStackRecorder;
+    }
+
     /**
      * Gets the thread-local object used to prepare the reference map for this stack's thread during garbage collection.
      */
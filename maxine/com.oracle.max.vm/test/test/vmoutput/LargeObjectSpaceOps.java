@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package test.vmoutput;
+
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.heap.gcx.*;
+
+/**
+ * Testing the free lists of the {@link LargeObjectSpace}: allocation from the very large size classes and coalescing of
+ * the dead space notified by a sweep. Free lists are set up by simulating a sweep of a private large object space, so
+ * the expected address of every allocation is known.
+ * Must run on a VM whose heap scheme is in {@code com.sun.max.vm.heap.gcx} (e.g., {@code -heap=gcx.ms}), as the large
+ * object space is not part of other VM images.
+ */
+public class LargeObjectSpaceOps {
+    static final int BLOCK = 2048;
+    static final Size SPACE_SIZE = Size.M;
+    static final int ALIGNMENT = 64 * 1024;
+
+    static LargeObjectSpace los;
+    static Address start;
+    static int failures;
+
+    public static void main(String[] args) {
+        // The space keeps a raw pointer to its free list table: allocate it where it cannot move.
+        Heap.enableImmortalMemoryAllocation();
+        try {
+            los = new LargeObjectSpace();
+        } finally {
+            Heap.disableImmortalMemoryAllocation();
+        }
+        // Reserve enough to find an aligned start; the large object space maps its own space over it.
+        Pointer reserved = VirtualMemory.allocate(SPACE_SIZE.plus(ALIGNMENT), VirtualMemory.Type.HEAP);
+        start = reserved.alignUp(ALIGNMENT);
+        los.initialize(start, SPACE_SIZE, SPACE_SIZE);
+
+        sizeClassFit();
+        firstFitInSizeClass();
+        coalescing();
+        System.out.println(failures == 0 ? "PASSED" : "FAILED: " + failures);
+    }
+
+    static Address block(int index) {
+        return start.plus(index * BLOCK);
+    }
+
+    static Size blocks(int count) {
+        return Size.fromInt(count * BLOCK);
+    }
+
+    static void sweep(int[] deadRanges) {
+        los.beginSweep();
+        for (int i = 0; i < deadRanges.length; i += 2) {
+            los.processDeadSpace(block(deadRanges[i]), blocks(deadRanges[i + 1]));
+        }
+        los.endSweep();
+    }
+
+    static void check(String what, Address actual, Address expected) {
+        if (!actual.equals(expected)) {
+            failures++;
+            System.out.println(" " + what + ": expected 0x" + expected.toHexString() + " got 0x" + actual.toHexString());
+        } else {
+            System.out.println(" " + what + ": ok");
+        }
+    }
+
+    static void checkFree(String what, int expectedBlocks) {
+        check(what, los.freeSpaceAfterSweep().asAddress(), blocks(expectedBlocks).asAddress());
+    }
+
+    /**
+     * A request is satisfied by the head of a larger non-empty size class without searching the lists of its own class.
+     */
+    static void sizeClassFit() {
+        System.out.println("Size class fit");
+        // 100 blocks (size class 1: 64-127 blocks), 2 live blocks, 300 blocks (size class 3: 256-511 blocks)
+        sweep(new int[] {0, 100, 102, 300});
+        checkFree("free after sweep", 400);
+        // The tail is refilled with the smallest size class
+        check("tail allocation", los.allocate(blocks(90)), block(0));
+        // 120 blocks (size class 1) do not fit in the tail: taken from size class 3, 180 blocks left in size class 2 (128-255 blocks)
+        check("larger size class", los.allocate(blocks(120)), block(102));
+        // 150 blocks (size class 2) are taken first fit from size class 2
+        check("split remainder", los.allocate(blocks(150)), block(222));
+        // 30 blocks left by the split go to the exact size list
+        check("exact size list", los.allocate(blocks(30)), block(372));
+        checkFree("free after allocation", 10);
+    }
+
+    /**
+     * Without a larger size class, the list of the request's own size class is searched first fit.
+     */
+    static void firstFitInSizeClass() {
+        System.out.println("First fit in size class");
+        // 40 blocks (size class 0: 33-63 blocks), 100 blocks and 70 blocks (both size class 1: 64-127 blocks; the 70 block
+        // chunk heads the list)
+        sweep(new int[] {0, 40, 42, 100, 144, 70});
+        check("tail allocation", los.allocate(blocks(20)), block(0));
+        check("first fit", los.allocate(blocks(90)), block(42));
+        check("no fit", los.allocate(blocks(140)), Address.zero());
+    }
+
+    /**
+     * Contiguous dead ranges notified by the sweeper enter the free lists as a single chunk.
+     */
+    static void coalescing() {
+        System.out.println("Coalescing");
+        sweep(new int[] {0, 10, 10, 30, 40, 20, 62, 4});
+        checkFree("free after sweep", 64);
+        check("coalesced chunk", los.allocate(blocks(60)), block(0));
+        check("separate chunk", los.allocate(blocks(4)), block(62));
+        checkFree("free after allocation", 0);
+    }
+}